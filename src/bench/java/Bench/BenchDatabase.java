@@ -0,0 +1,215 @@
+package Bench;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Seeds a disposable MySQL database with a fixed amount of generated shop data. Item popularity follows a Zipf
+// distribution (I00001 sells best) and orders are spread over the last year, denser towards today. The shop tables
+// are created the way the application expects to find them, and everything the application adds on top (id
+// sequence, price columns, sales aggregates) is left to Schema.migrate, so benchmarks and load runs see a migrated
+// database exactly like a real one.
+public final class BenchDatabase {
+    public static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/fxmanagement_bench" +
+            "?createDatabaseIfNotExist=true&useServerPrepStmts=true&rewriteBatchedStatements=true";
+
+    private static final String[] DROP = {
+            "DROP TABLE IF EXISTS OrderDetail",
+            "DROP TABLE IF EXISTS Orders",
+            "DROP TABLE IF EXISTS Item",
+            "DROP TABLE IF EXISTS Customer",
+            "DROP TABLE IF EXISTS IdSequence",
+            "DROP TABLE IF EXISTS SalesDaily",
+            "DROP TABLE IF EXISTS SalesByCustomer",
+            "DROP TABLE IF EXISTS SalesByItem",
+            "DROP TABLE IF EXISTS SalesLedgerLock",
+            "DROP TABLE IF EXISTS DeletedRow",
+            "DROP TABLE IF EXISTS ChangeLog"
+    };
+
+    private static final String[] CREATE = {
+            "CREATE TABLE Customer (" +
+                    "CustID VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "CustTitle VARCHAR(8), " +
+                    "CustName VARCHAR(64), " +
+                    "DOB DATE, " +
+                    "salary DECIMAL(12,2), " +
+                    "CustAddress VARCHAR(128), " +
+                    "City VARCHAR(32), " +
+                    "Province VARCHAR(32), " +
+                    "PostalCode VARCHAR(16))",
+            "CREATE TABLE Item (" +
+                    "ItemCode VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "Description VARCHAR(64), " +
+                    "PackSize VARCHAR(32), " +
+                    "UnitPrice DECIMAL(10,2), " +
+                    "QtyOnHand INT)",
+            "CREATE TABLE Orders (" +
+                    "OrderID VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "OrderDate DATE, " +
+                    "CustID VARCHAR(32), " +
+                    "FOREIGN KEY (CustID) REFERENCES Customer (CustID))",
+            "CREATE TABLE OrderDetail (" +
+                    "OrderID VARCHAR(32) NOT NULL, " +
+                    "ItemCode VARCHAR(32) NOT NULL, " +
+                    "OrderQTY INT, " +
+                    "Discount DOUBLE, " +
+                    "PRIMARY KEY (OrderID, ItemCode), " +
+                    "FOREIGN KEY (OrderID) REFERENCES Orders (OrderID) ON DELETE CASCADE, " +
+                    "FOREIGN KEY (ItemCode) REFERENCES Item (ItemCode))"
+    };
+
+    private static final String[] CITIES = {"Colombo", "Kandy", "Galle", "Jaffna", "Negombo", "Matara", "Kurunegala"};
+    private static final String[] PROVINCES = {"Western", "Central", "Southern", "Northern", "Western", "Southern", "North Western"};
+    private static final String[] PRODUCE = {"Carrot", "Leeks", "Beans", "Cabbage", "Potato", "Onion", "Tomato", "Pumpkin"};
+
+    // Stock is generous so that benchmarks placing orders never run an item out; LoadDriver can lower it.
+    private static final int STOCK = 1_000_000_000;
+    private static final int COMMIT_EVERY = 5_000;
+    private static final int HISTORY_DAYS = 365;
+
+    private BenchDatabase() {
+    }
+
+    public static String customerId(int n) {
+        return String.format("C%06d", n);
+    }
+
+    public static String itemCode(int n) {
+        return String.format("I%05d", n);
+    }
+
+    // Makes sure the configured database holds exactly the requested amount of data, regenerating it when it does
+    // not, and points the application at it. Must run before anything calls DatabaseConnection.getInstance().
+    // Generation is deterministic, so every benchmark fork sees the same data for the same sizes.
+    public static void prepare(int customers, int items, int orders, int maxLinesPerOrder, double itemSkew)
+            throws SQLException {
+        String url = System.getProperty("db.url", DEFAULT_URL);
+        if (!url.contains("bench") && !Boolean.getBoolean("bench.allowWipe")) {
+            throw new IllegalStateException("Refusing to regenerate " + url + ": benchmark data replaces every shop " +
+                    "table. Use a database whose name contains 'bench' or set -Dbench.allowWipe=true.");
+        }
+        System.setProperty("db.url", url);
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("db.username", "root"), System.getProperty("db.password", "1234"))) {
+            if (holds(connection, customers, items, orders)) {
+                return;
+            }
+            long started = System.nanoTime();
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : DROP) {
+                    stmt.execute(sql);
+                }
+                for (String sql : CREATE) {
+                    stmt.execute(sql);
+                }
+            }
+
+            connection.setAutoCommit(false);
+            SplittableRandom random = new SplittableRandom(42);
+            insertCustomers(connection, customers, random);
+            insertItems(connection, items, random);
+            insertOrders(connection, orders, customers, new ZipfSampler(items, itemSkew), maxLinesPerOrder, random);
+            connection.commit();
+            connection.setAutoCommit(true);
+
+            System.out.printf("Seeded %,d customers, %,d items and %,d orders in %,d ms%n",
+                    customers, items, orders, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    private static boolean holds(Connection connection, int customers, int items, int orders) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            return count(stmt, "Customer") == customers && count(stmt, "Item") == items && count(stmt, "Orders") == orders;
+        } catch (SQLSyntaxErrorException e) {
+            // tables missing
+            return false;
+        }
+    }
+
+    private static long count(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void insertCustomers(Connection connection, int customers, SplittableRandom random) throws SQLException {
+        String sql = "INSERT INTO Customer (CustID, CustTitle, CustName, DOB, salary, CustAddress, City, Province, PostalCode) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int n = 1; n <= customers; n++) {
+                int city = random.nextInt(CITIES.length);
+                stmt.setString(1, customerId(n));
+                stmt.setString(2, random.nextBoolean() ? "Mr" : "Ms");
+                stmt.setString(3, "Customer " + n);
+                stmt.setDate(4, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000))));
+                stmt.setDouble(5, 20_000 + random.nextInt(200_000));
+                stmt.setString(6, n + " Main Street");
+                stmt.setString(7, CITIES[city]);
+                stmt.setString(8, PROVINCES[city]);
+                stmt.setString(9, String.valueOf(10_000 + random.nextInt(90_000)));
+                stmt.addBatch();
+                if (n % COMMIT_EVERY == 0) {
+                    stmt.executeBatch();
+                    connection.commit();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void insertItems(Connection connection, int items, SplittableRandom random) throws SQLException {
+        String sql = "INSERT INTO Item (ItemCode, Description, PackSize, UnitPrice, QtyOnHand) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int n = 1; n <= items; n++) {
+                stmt.setString(1, itemCode(n));
+                stmt.setString(2, PRODUCE[n % PRODUCE.length] + " " + n);
+                stmt.setString(3, (1 + random.nextInt(5)) + "kg");
+                stmt.setDouble(4, 50 + random.nextInt(95_000) / 100.0);
+                stmt.setInt(5, STOCK);
+                stmt.addBatch();
+                if (n % COMMIT_EVERY == 0) {
+                    stmt.executeBatch();
+                    connection.commit();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void insertOrders(Connection connection, int orders, int customers, ZipfSampler itemPopularity,
+                                     int maxLinesPerOrder, SplittableRandom random) throws SQLException {
+        String orderSql = "INSERT INTO Orders (OrderID, OrderDate, CustID) VALUES (?, ?, ?)";
+        String detailSql = "INSERT INTO OrderDetail (OrderID, ItemCode, OrderQTY, Discount) VALUES (?, ?, ?, ?)";
+        LocalDate today = LocalDate.now();
+        try (PreparedStatement orderStmt = connection.prepareStatement(orderSql);
+             PreparedStatement detailStmt = connection.prepareStatement(detailSql)) {
+            for (int n = 1; n <= orders; n++) {
+                String orderID = String.format("D%03d", n);
+                orderStmt.setString(1, orderID);
+                // the nearer of two uniform days: order volume grows towards today
+                int daysAgo = Math.min(random.nextInt(HISTORY_DAYS), random.nextInt(HISTORY_DAYS));
+                orderStmt.setDate(2, Date.valueOf(today.minusDays(daysAgo)));
+                orderStmt.setString(3, customerId(1 + random.nextInt(customers)));
+                orderStmt.addBatch();
+
+                for (int item : itemPopularity.sampleDistinct(random, 1 + random.nextInt(Math.max(1, maxLinesPerOrder)))) {
+                    detailStmt.setString(1, orderID);
+                    detailStmt.setString(2, itemCode(item));
+                    detailStmt.setInt(3, 1 + random.nextInt(10));
+                    detailStmt.setDouble(4, random.nextInt(4) == 0 ? 5 * (1 + random.nextInt(4)) : 0);
+                    detailStmt.addBatch();
+                }
+                if (n % COMMIT_EVERY == 0) {
+                    orderStmt.executeBatch();
+                    detailStmt.executeBatch();
+                    connection.commit();
+                }
+            }
+            orderStmt.executeBatch();
+            detailStmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package Bench;
+
+import Controller.ItemController;
+import Controller.OrderController;
+import Controller.OrderDetailController;
+import Models.Db.DatabaseConnection;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The controller calls the forms make most often, measured against a seeded database. Every benchmark reports
+// throughput and sampled latency (percentiles); BenchmarkMain adds the GC profiler for allocation rates.
+// Sizes are JMH parameters, e.g. -p customers=100000 -p orders=1000000.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ControllerBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Shop {
+        @Param("1000")
+        public int customers;
+        @Param("500")
+        public int items;
+        @Param("10000")
+        public int orders;
+        @Param("5")
+        public int linesPerOrder;
+        @Param("1.0")
+        public double itemSkew;
+
+        final OrderController orderController = new OrderController();
+        final OrderDetailController orderDetailController = new OrderDetailController();
+        final ItemController itemController = new ItemController();
+
+        @Setup(Level.Trial)
+        public void seed() throws SQLException {
+            BenchDatabase.prepare(customers, items, orders, linesPerOrder, itemSkew);
+            // warm the item cache so searchItem measures lookups, not the first load
+            itemController.getAllItems();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            DatabaseConnection.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        String customer(Shop shop) {
+            return BenchDatabase.customerId(1 + random.nextInt(shop.customers));
+        }
+
+        String item(Shop shop) {
+            return BenchDatabase.itemCode(1 + random.nextInt(shop.items));
+        }
+
+        int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public boolean placeOrder(Shop shop, Picker picker) throws SQLException {
+        String orderID = shop.orderController.generateNextOrderId();
+        Order order = new Order(orderID, LocalDate.now(), picker.customer(shop), null, 0);
+        int lines = 1 + picker.nextInt(Math.min(shop.linesPerOrder, shop.items));
+        int first = picker.nextInt(shop.items);
+        List<OrderDetail> details = new ArrayList<>(lines);
+        for (int line = 0; line < lines; line++) {
+            details.add(new OrderDetail(orderID, BenchDatabase.itemCode(1 + (first + line) % shop.items), 1, 0));
+        }
+        return shop.orderController.placeOrder(order, details);
+    }
+
+    @Benchmark
+    public List<Order> getAllOrders(Shop shop) throws SQLException {
+        return shop.orderController.getAllOrders();
+    }
+
+    @Benchmark
+    public List<Order> getAllOrdersWithTotals(Shop shop) throws SQLException {
+        return shop.orderController.getAllOrdersWithTotals();
+    }
+
+    @Benchmark
+    public Item searchItem(Shop shop, Picker picker) throws SQLException {
+        return shop.itemController.searchItem(picker.item(shop));
+    }
+
+    @Benchmark
+    public List<OrderDetail> getAllOrderDetails(Shop shop) throws SQLException {
+        return shop.orderDetailController.getAllOrderDetails();
+    }
+
+    @Benchmark
+    public String generateNextOrderId(Shop shop) throws SQLException {
+        return shop.orderController.generateNextOrderId();
+    }
+
+    @Benchmark
+    public List<String> getPopularItems(Shop shop) throws SQLException {
+        return shop.orderDetailController.getPopularItems(5);
+    }
+}
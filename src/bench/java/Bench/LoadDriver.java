@@ -0,0 +1,283 @@
+package Bench;
+
+import Controller.CustomerController;
+import Controller.ItemController;
+import Controller.OrderController;
+import Models.Db.DatabaseConnection;
+import Models.Db.GroupCommitStats;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Journal.OrderJournal;
+import Models.Journal.OrderJournalProjection;
+import Models.Journal.OrderJournalReader;
+import Models.Metrics.LatencyHistogram;
+import Models.Metrics.Metrics;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.Repositories;
+
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless multi-till load test through the real controllers. It seeds (or reuses) a benchmark database with
+// BenchDatabase, then runs load.tills checkout sessions that together start load.rate checkouts per second: look up
+// the customer, scan each item, take an order ID and place the order. The schedule is fixed in advance, so a
+// checkout that starts late because the previous one was slow is measured from when it should have started and a
+// struggling server shows up as latency instead of as a quietly lower rate.
+//
+// After the run every item's stock is compared with its stock before the run minus what the driver sold. Negative
+// stock or a mismatch is reported as an oversell incident; the comparison assumes nothing else writes to the
+// database during the run. The part of the order journal written during the run is replayed as well, and the
+// stock it says was taken must match what the driver sold.
+//
+//   mvn -P bench package
+//   java -Dload.tills=16 -Dload.rate=200 -Dload.stock=500 -cp target/benchmarks.jar Bench.LoadDriver
+//   java -Dorder.groupCommit=true -Dload.tills=64 -Dload.rate=1000 -cp target/benchmarks.jar Bench.LoadDriver
+public class LoadDriver {
+    private final int tills = Integer.getInteger("load.tills", 8);
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "50"));
+    private final long warmupNanos = TimeUnit.SECONDS.toNanos(Long.getLong("load.warmupSeconds", 10));
+    private final long durationNanos = TimeUnit.SECONDS.toNanos(Long.getLong("load.durationSeconds", 60));
+    private final int customers = Integer.getInteger("load.customers", 100_000);
+    private final int items = Integer.getInteger("load.items", 10_000);
+    private final int orders = Integer.getInteger("load.orders", 1_000_000);
+    private final int linesPerOrder = Integer.getInteger("load.linesPerOrder", 5);
+    private final int maxQuantity = Integer.getInteger("load.maxQuantity", 3);
+    private final double itemSkew = Double.parseDouble(System.getProperty("load.itemSkew", "1.0"));
+    // stock every item starts the run with, or -1 to keep what is there; low values provoke stock contention
+    private final int stock = Integer.getInteger("load.stock", -1);
+
+    private final ZipfSampler itemPopularity = new ZipfSampler(items, itemSkew);
+    private final Map<String, LongAdder> soldByItem = new ConcurrentHashMap<>();
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder stockRejections = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder lockTimeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver().run();
+    }
+
+    private void run() throws Exception {
+        BenchDatabase.prepare(customers, items, orders, linesPerOrder, itemSkew);
+        if (stock >= 0) {
+            resetStock();
+        }
+        Map<String, Integer> stockBefore = readStock();
+        OrderJournal journal = OrderJournal.getInstance();
+        long journalStart = journal != null ? journal.position() : -1;
+
+        System.out.printf("%d tills, %.1f checkouts/s, %d s warm-up, %d s measured%n", tills, rate,
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+
+        ExecutorService executor = Executors.newFixedThreadPool(tills);
+        List<Future<LatencyHistogram>> results = new ArrayList<>();
+        for (int till = 0; till < tills; till++) {
+            int tillNumber = till;
+            results.add(executor.submit(() -> runTill(tillNumber, start, measureFrom, end)));
+        }
+        LatencyHistogram latency = new LatencyHistogram();
+        for (Future<LatencyHistogram> result : results) {
+            latency.merge(result.get());
+        }
+        executor.shutdown();
+
+        report(latency, TimeUnit.NANOSECONDS.toSeconds(durationNanos), checkStock(stockBefore));
+        if (journal != null) {
+            reportJournal(journal, journalStart);
+        }
+        GroupCommitStats stats = Repositories.groupCommitStats();
+        if (stats != null) {
+            System.out.printf("Group commit:     %,d batches, %.1f orders/batch (max %d), commit ms mean %.2f max %.2f, %,d fallbacks%n",
+                    stats.getBatches(), stats.getAverageBatchSize(), stats.getMaxBatchSize(),
+                    stats.getAverageCommitMillis(), stats.getMaxCommitMillis(), stats.getFallbacks());
+        }
+        if (Metrics.isEnabled()) {
+            System.out.println();
+            System.out.print(Metrics.dump());
+        }
+        OrderJournal.shutdown();
+        DatabaseConnection.shutdown();
+    }
+
+    // One till: checkouts start every tills/rate seconds, offset so the tills do not start in lockstep.
+    private LatencyHistogram runTill(int till, long start, long measureFrom, long end) {
+        CustomerController customerController = new CustomerController();
+        ItemController itemController = new ItemController();
+        OrderController orderController = new OrderController();
+        SplittableRandom random = new SplittableRandom(1_000 + till);
+        LatencyHistogram latency = new LatencyHistogram();
+
+        double intervalNanos = tills * 1e9 / rate;
+        long first = start + (long) (intervalNanos * till / tills);
+        for (long n = 0; ; n++) {
+            long intended = first + (long) (n * intervalNanos);
+            if (intended >= end) {
+                return latency;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean measured = intended >= measureFrom;
+            checkout(customerController, itemController, orderController, random, measured);
+            if (measured) {
+                latency.record((System.nanoTime() - intended) / 1_000);
+            }
+        }
+    }
+
+    private void checkout(CustomerController customerController, ItemController itemController,
+                          OrderController orderController, SplittableRandom random, boolean measured) {
+        try {
+            String custID = BenchDatabase.customerId(1 + random.nextInt(customers));
+            customerController.searchCustomer(custID);
+
+            int[] scanned = itemPopularity.sampleDistinct(random, 1 + random.nextInt(Math.max(1, linesPerOrder)));
+            String orderID = orderController.generateNextOrderId();
+            List<OrderDetail> details = new ArrayList<>(scanned.length);
+            for (int itemNumber : scanned) {
+                Item item = itemController.searchItem(BenchDatabase.itemCode(itemNumber));
+                if (item != null) {
+                    details.add(new OrderDetail(orderID, item.getItemCode(), 1 + random.nextInt(maxQuantity), 0));
+                }
+            }
+
+            orderController.placeOrder(new Order(orderID, LocalDate.now(), custID, null, 0), details);
+            // stock is checked against what was sold during warm-up too
+            for (OrderDetail detail : details) {
+                soldByItem.computeIfAbsent(detail.getItemCode(), code -> new LongAdder()).add(detail.getOrderQty());
+            }
+            if (measured) {
+                placed.increment();
+            }
+        } catch (InsufficientStockException e) {
+            if (measured) {
+                stockRejections.increment();
+            }
+        } catch (SQLException e) {
+            if (measured) {
+                classify(e).increment();
+            }
+        } catch (RuntimeException e) {
+            if (measured) {
+                errors.increment();
+            }
+            System.err.println("Checkout failed: " + e);
+        }
+    }
+
+    private LongAdder classify(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                // ER_LOCK_DEADLOCK
+                if (sqlException.getErrorCode() == 1213 || "40001".equals(sqlException.getSQLState())) {
+                    return deadlocks;
+                }
+                // ER_LOCK_WAIT_TIMEOUT
+                if (sqlException.getErrorCode() == 1205) {
+                    return lockTimeouts;
+                }
+            }
+        }
+        System.err.println("Checkout failed: " + e.getMessage());
+        return errors;
+    }
+
+    private void resetStock() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement("UPDATE Item SET QtyOnHand = ?")) {
+            stmt.setInt(1, stock);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static Map<String, Integer> readStock() throws SQLException {
+        Map<String, Integer> stockByItem = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT ItemCode, QtyOnHand FROM Item");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                stockByItem.put(rs.getString("ItemCode"), rs.getInt("QtyOnHand"));
+            }
+        }
+        return stockByItem;
+    }
+
+    // Items whose stock went negative or does not match the stock before the run minus the quantities sold.
+    private List<String> checkStock(Map<String, Integer> stockBefore) throws SQLException {
+        List<String> incidents = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : readStock().entrySet()) {
+            String itemCode = entry.getKey();
+            int now = entry.getValue();
+            LongAdder sold = soldByItem.get(itemCode);
+            long expected = stockBefore.getOrDefault(itemCode, 0) - (sold != null ? sold.sum() : 0);
+            if (now < 0 || now != expected) {
+                incidents.add(String.format("%s: stock %d, expected %d", itemCode, now, expected));
+            }
+        }
+        return incidents;
+    }
+
+    // Replays the events journaled since journalStart and compares the stock they took with what was sold.
+    private void reportJournal(OrderJournal journal, long journalStart) throws IOException {
+        OrderJournalProjection projection = new OrderJournalProjection();
+        int events;
+        try (OrderJournalReader reader = new OrderJournalReader(journal.getFile(), journalStart)) {
+            events = reader.read(projection::apply);
+        }
+        List<String> mismatches = new ArrayList<>();
+        Map<String, Long> taken = projection.getStockTaken();
+        for (String itemCode : soldByItem.keySet()) {
+            taken.putIfAbsent(itemCode, 0L);
+        }
+        for (Map.Entry<String, Long> entry : taken.entrySet()) {
+            LongAdder sold = soldByItem.get(entry.getKey());
+            long expected = sold != null ? sold.sum() : 0;
+            if (entry.getValue() != expected) {
+                mismatches.add(String.format("%s: journal took %d, sold %d", entry.getKey(), entry.getValue(), expected));
+            }
+        }
+        System.out.printf("Journal:          %,d events, %,d orders, %,d stock mismatches%n",
+                events, projection.getOrderCount(), mismatches.size());
+        for (String mismatch : mismatches.subList(0, Math.min(20, mismatches.size()))) {
+            System.out.println("  " + mismatch);
+        }
+    }
+
+    private void report(LatencyHistogram latency, long seconds, List<String> oversells) {
+        long attempted = latency.count();
+        System.out.println();
+        System.out.printf("Checkouts:        %,d attempted, %,d placed (%.1f/s of %.1f/s target)%n",
+                attempted, placed.sum(), placed.sum() / (double) seconds, rate);
+        System.out.printf("Latency (ms):     p50 %.2f   p99 %.2f   p99.9 %.2f   max %.2f   mean %.2f%n",
+                latency.percentile(0.50) / 1000.0, latency.percentile(0.99) / 1000.0,
+                latency.percentile(0.999) / 1000.0, latency.max() / 1000.0, latency.mean() / 1000.0);
+        System.out.printf("Rejected:         %,d out of stock%n", stockRejections.sum());
+        System.out.printf("Deadlocks:        %,d%n", deadlocks.sum());
+        System.out.printf("Lock timeouts:    %,d%n", lockTimeouts.sum());
+        System.out.printf("Other errors:     %,d%n", errors.sum());
+        System.out.printf("Oversells:        %,d%n", oversells.size());
+        for (String incident : oversells.subList(0, Math.min(20, oversells.size()))) {
+            System.out.println("  " + incident);
+        }
+    }
+}
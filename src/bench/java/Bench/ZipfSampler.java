@@ -0,0 +1,52 @@
+package Bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Draws ranks 1..n with probability proportional to 1 / rank^exponent, the usual shape of item popularity in a
+// shop: a few items sell constantly and most sell rarely. An exponent of 0 gives a uniform draw. The cumulative
+// distribution is precomputed once (8 bytes per rank), so a draw is one binary search.
+public final class ZipfSampler {
+    private final double[] cumulative;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1) + 1;
+    }
+
+    // Up to count distinct ranks, for the lines of one order. Gives up on duplicates after a few tries, so very
+    // skewed distributions may return fewer.
+    public int[] sampleDistinct(SplittableRandom random, int count) {
+        int[] ranks = new int[Math.min(count, cumulative.length)];
+        int found = 0;
+        for (int attempt = 0; found < ranks.length && attempt < ranks.length * 4; attempt++) {
+            int rank = sample(random);
+            boolean duplicate = false;
+            for (int i = 0; i < found && !duplicate; i++) {
+                duplicate = ranks[i] == rank;
+            }
+            if (!duplicate) {
+                ranks[found++] = rank;
+            }
+        }
+        return found == ranks.length ? ranks : Arrays.copyOf(ranks, found);
+    }
+}
@@ -0,0 +1,53 @@
+package Controller;
+
+import Models.Db.DbExecutor;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// A JavaFX Task whose body runs on the DbExecutor. Success and failure callbacks are delivered on the
+// FX Application Thread; a cancelled task never calls either of them.
+public class BackgroundTask<T> extends Task<T> {
+
+    // for CompletableFuture stages that have to touch the UI, e.g. thenAcceptAsync(..., BackgroundTask.FX)
+    public static final Executor FX = Platform::runLater;
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(BackgroundTask<T> task) throws Exception;
+    }
+
+    private final Work<T> work;
+
+    private BackgroundTask(Work<T> work) {
+        this.work = work;
+    }
+
+    public static <T> BackgroundTask<T> run(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        BackgroundTask<T> task = new BackgroundTask<>(work);
+        task.setOnSucceeded(event -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(event -> onFailure.accept(unwrap(task.getException())));
+        DbExecutor.getExecutor().execute(task);
+        return task;
+    }
+
+    @Override
+    protected T call() throws Exception {
+        return work.run(this);
+    }
+
+    public void reportProgress(long done, long total) {
+        updateProgress(done, total);
+    }
+
+    public void reportMessage(String message) {
+        updateMessage(message);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,88 @@
+package Controller;
+
+import Models.Cache.ReferenceData;
+import Models.Db.ChangeLog;
+import Models.Db.ChangeLogPoller;
+import Models.Metrics.Log;
+import Models.Repository.Repositories;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Keeps this till's caches and open forms in step with the changes other tills make, through the ChangeLog in the
+// shared database. The repositories log each change in its own transaction; the poller started here reads back
+// the rows the other tills changed and applies them the way a change made here is applied: to the item cache, the
+// reference data and the customer search index, and as events for the open forms. A bulk change such as an import
+// is logged as ALL_ROWS and invalidates the caches instead.
+//
+// The rows the reference data's own delta syncs find changed are read back and applied the same way, whether or
+// not the ChangeLog is in use. Each read-back carries the row's version, so whichever of the two paths reads a row
+// last, a cache never goes back to an older copy of it.
+public final class ChangeFeed {
+    private static ChangeLogPoller poller;
+
+    private ChangeFeed() {
+    }
+
+    public static synchronized void start() {
+        ReferenceData referenceData = Repositories.referenceData();
+        if (referenceData != null) {
+            referenceData.setListener(ChangeFeed::synced);
+        }
+        ChangeLog log = Repositories.changeLog();
+        if (log == null || poller != null) {
+            return;
+        }
+        poller = new ChangeLogPoller(log, ChangeFeed::apply,
+                Integer.getInteger("changelog.batchSize", 500),
+                Long.getLong("changelog.gapMillis", 10_000),
+                Long.getLong("changelog.keepSeconds", 24 * 3600L))
+                .start(Long.getLong("changelog.pollMillis", 2_000));
+    }
+
+    public static synchronized void stop() {
+        ReferenceData referenceData = Repositories.referenceData();
+        if (referenceData != null) {
+            referenceData.setListener(null);
+        }
+        if (poller != null) {
+            poller.close();
+            poller = null;
+        }
+    }
+
+    private static void synced(List<String> itemCodes, List<String> custIDs) {
+        Map<String, Set<String>> keysByTable = new LinkedHashMap<>();
+        if (!itemCodes.isEmpty()) {
+            keysByTable.put(ChangeLog.ITEM, new TreeSet<>(itemCodes));
+        }
+        if (!custIDs.isEmpty()) {
+            keysByTable.put(ChangeLog.CUSTOMER, new TreeSet<>(custIDs));
+        }
+        apply(keysByTable);
+    }
+
+    private static void apply(Map<String, Set<String>> keysByTable) {
+        try {
+            Set<String> itemCodes = keysByTable.get(ChangeLog.ITEM);
+            if (itemCodes != null) {
+                ItemController.changedElsewhere(itemCodes);
+            }
+            Set<String> custIDs = keysByTable.get(ChangeLog.CUSTOMER);
+            if (custIDs != null) {
+                CustomerController.changedElsewhere(custIDs);
+            }
+            Set<String> orderIDs = keysByTable.get(ChangeLog.ORDER);
+            if (orderIDs != null) {
+                OrderController.changedElsewhere(orderIDs);
+            }
+        } catch (SQLException e) {
+            // what could not be read back is left to the next delta sync, as without the log
+            Log.warn("Applying changes from other tills failed: " + e.getMessage());
+        }
+    }
+}
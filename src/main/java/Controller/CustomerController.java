@@ -1,124 +1,165 @@
 package Controller;
 
-import Models.Db.DatabaseConnection;
+import Models.Cache.CustomerSearchIndex;
+import Models.Cache.ReferenceData;
+import Models.Db.ChangeLog;
 import Models.Dto.Customer;
-import javafx.event.ActionEvent;
-
-import java.sql.*;
-import java.util.ArrayList;
+import Models.Events.Change;
+import Models.Events.CustomerChanged;
+import Models.Events.EventBus;
+import Models.Metrics.Log;
+import Models.Repository.CustomerRepository;
+import Models.Repository.Repositories;
+import Models.Repository.Versioned;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CustomerController {
+    // built from the table on the first search and kept in step by the save, update and delete methods below
+    private static final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    private static volatile boolean searchIndexBuilt;
+    // CustID -> version of the row the index and the reference data were last given by readBack; guards itself
+    private static final Map<String, Long> versions = new HashMap<>();
+
+    private final CustomerRepository customers = Repositories.customers();
+    // null with the embedded store
+    private final ReferenceData referenceData = Repositories.referenceData();
 
     public boolean saveCustomer(Customer customer) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "INSERT INTO Customer (CustID, CustTitle, CustName, DOB, salary, CustAddress, City, Province, PostalCode) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, customer.getCustID());
-        stmt.setString(2, customer.getCustTitle());
-        stmt.setString(3, customer.getCustName());
-        stmt.setDate(4, Date.valueOf(customer.getDob()));
-        stmt.setDouble(5, customer.getSalary());
-        stmt.setString(6, customer.getCustAddress());
-        stmt.setString(7, customer.getCity());
-        stmt.setString(8, customer.getProvince());
-        stmt.setString(9, customer.getPostalCode());
-
-        return stmt.executeUpdate() > 0;
+        boolean saved = customers.save(customer);
+        if (saved) {
+            readBackQuietly(Collections.singletonList(customer.getCustID()));
+            EventBus.publish(new CustomerChanged(Change.INSERTED, customer.getCustID(), customer));
+        }
+        return saved;
     }
 
     public boolean updateCustomer(Customer customer) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "UPDATE Customer SET CustTitle=?, CustName=?, DOB=?, salary=?, CustAddress=?, " +
-                "City=?, Province=?, PostalCode=? WHERE CustID=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, customer.getCustTitle());
-        stmt.setString(2, customer.getCustName());
-        stmt.setDate(3, Date.valueOf(customer.getDob()));
-        stmt.setDouble(4, customer.getSalary());
-        stmt.setString(5, customer.getCustAddress());
-        stmt.setString(6, customer.getCity());
-        stmt.setString(7, customer.getProvince());
-        stmt.setString(8, customer.getPostalCode());
-        stmt.setString(9, customer.getCustID());
-
-        return stmt.executeUpdate() > 0;
+        boolean updated = customers.update(customer);
+        if (updated) {
+            readBackQuietly(Collections.singletonList(customer.getCustID()));
+            EventBus.publish(new CustomerChanged(Change.UPDATED, customer.getCustID(), customer));
+        }
+        return updated;
     }
 
     public boolean deleteCustomer(String custID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "DELETE FROM Customer WHERE CustID=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, custID);
-
-        return stmt.executeUpdate() > 0;
+        boolean deleted = customers.delete(custID);
+        if (deleted) {
+            readBackQuietly(Collections.singletonList(custID));
+            EventBus.publish(new CustomerChanged(Change.DELETED, custID, null));
+        }
+        return deleted;
     }
 
     public Customer searchCustomer(String custID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Customer WHERE CustID=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, custID);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return new Customer(
-                    rs.getString("CustID"),
-                    rs.getString("CustTitle"),
-                    rs.getString("CustName"),
-                    rs.getDate("DOB").toLocalDate(),
-                    rs.getDouble("salary"),
-                    rs.getString("CustAddress"),
-                    rs.getString("City"),
-                    rs.getString("Province"),
-                    rs.getString("PostalCode")
-            );
-        }
-        return null;
+        return customers.findById(custID);
     }
 
     public List<Customer> getAllCustomers() throws SQLException {
-        List<Customer> customers = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Customer ORDER BY CustID";
-
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql);
-
-        while (rs.next()) {
-            customers.add(new Customer(
-                    rs.getString("CustID"),
-                    rs.getString("CustTitle"),
-                    rs.getString("CustName"),
-                    rs.getDate("DOB").toLocalDate(),
-                    rs.getDouble("salary"),
-                    rs.getString("CustAddress"),
-                    rs.getString("City"),
-                    rs.getString("Province"),
-                    rs.getString("PostalCode")
-            ));
+        return referenceData != null ? referenceData.customers() : customers.findAll();
+    }
+
+    // Keyset pagination: the page starts right after afterCustID (null for the first page), so the cost of a
+    // page does not grow with how far into the table it is.
+    public List<Customer> getCustomersAfter(String afterCustID, int limit) throws SQLException {
+        return customers.findAfter(afterCustID, limit);
+    }
+
+    // The page that ends right before beforeCustID, in ascending CustID order.
+    public List<Customer> getCustomersBefore(String beforeCustID, int limit) throws SQLException {
+        return customers.findBefore(beforeCustID, limit);
+    }
+
+    // Ranked matches on ID, name, city or postal code. Each word of the query may be a prefix or a close
+    // misspelling, and every word has to match.
+    public List<Customer> searchCustomers(String query, int limit) throws SQLException {
+        ensureSearchIndex();
+        return searchIndex.search(query, limit);
+    }
+
+    // Applies what another till changed, as read back from the database; a customer no longer there was deleted.
+    static void changedElsewhere(Collection<String> custIDs) throws SQLException {
+        if (custIDs.contains(ChangeLog.ALL_ROWS)) {
+            invalidateSearchIndex();
+            return;
         }
-        return customers;
+        readBack(custIDs).forEach((custID, customer) -> EventBus.publish(customer == null
+                ? new CustomerChanged(Change.DELETED, custID, null)
+                : new CustomerChanged(Change.UPDATED, custID, customer)));
     }
 
-    public String getCustomerName(String custID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT CustName FROM Customer WHERE CustID=?";
+    static void invalidateSearchIndex() {
+        searchIndexBuilt = false;
+        ReferenceData referenceData = Repositories.referenceData();
+        if (referenceData != null) {
+            referenceData.markStale();
+        }
+    }
 
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, custID);
-        ResultSet rs = stmt.executeQuery();
+    // For a change that has already committed: a failed re-read must not fail the caller, so the index is rebuilt
+    // and the reference data synced on their next use instead.
+    private static void readBackQuietly(Collection<String> custIDs) {
+        try {
+            readBack(custIDs);
+        } catch (SQLException e) {
+            Log.warn("Customer index refresh failed, invalidating: " + e.getMessage());
+            invalidateSearchIndex();
+        }
+    }
 
-        if (rs.next()) {
-            return rs.getString("CustName");
+    // Gives the search index and the reference data the customers as the database has them now, and returns the
+    // rows it applied, null for a customer that is gone. A row older than the one they were last given is skipped,
+    // so a read that raced with a newer change, such as a ChangeLog poll overtaken by an edit made here, cannot
+    // undo it.
+    private static Map<String, Customer> readBack(Collection<String> custIDs) throws SQLException {
+        Map<String, Versioned<Customer>> rows = Repositories.customers().findVersioned(custIDs);
+        ReferenceData referenceData = Repositories.referenceData();
+        Map<String, Customer> applied = new HashMap<>();
+        synchronized (versions) {
+            for (Map.Entry<String, Versioned<Customer>> row : rows.entrySet()) {
+                String custID = row.getKey();
+                Long current = versions.get(custID);
+                if (current != null && row.getValue().getVersion() < current) {
+                    continue;
+                }
+                versions.put(custID, row.getValue().getVersion());
+                Customer customer = row.getValue().getValue();
+                if (customer == null) {
+                    searchIndex.remove(custID);
+                    if (referenceData != null) {
+                        referenceData.removeCustomer(custID);
+                    }
+                } else {
+                    searchIndex.put(customer);
+                    if (referenceData != null) {
+                        referenceData.putCustomer(customer);
+                    }
+                }
+                applied.put(custID, customer);
+            }
         }
-        return null;
+        return applied;
     }
 
+    private void ensureSearchIndex() throws SQLException {
+        if (searchIndexBuilt) {
+            return;
+        }
+        synchronized (searchIndex) {
+            if (!searchIndexBuilt) {
+                searchIndex.rebuild(getAllCustomers());
+                searchIndexBuilt = true;
+            }
+        }
+    }
 
-}
\ No newline at end of file
+    public String getCustomerName(String custID) throws SQLException {
+        return customers.findName(custID);
+    }
+}
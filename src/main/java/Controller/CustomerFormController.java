@@ -6,23 +6,37 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import Models.Dto.Customer;
+import Models.Dto.ImportResult;
+import Models.Events.Change;
+import Models.Events.CustomerChanged;
+import Models.Events.EventBus;
+import Models.Metrics.Log;
 
+import java.io.File;
 import java.net.URL;
-import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 
 public class CustomerFormController implements Initializable {
 
     @FXML
     private TextField txtCustID, txtCustName, txtSalary, txtCustAddress, txtCity, txtProvince, txtPostalCode;
     @FXML
+    private TextField txtQuickSearch;
+    @FXML
     private ComboBox<String> cmbTitle;
     @FXML
     private DatePicker dpDob;
     @FXML
+    private Label lblImportStatus;
+    @FXML
+    private Button btnSave, btnUpdate, btnDelete, btnSearch, btnImport;
+    @FXML
     private TableView<Customer> tblCustomer;
 
 
@@ -46,7 +60,12 @@ public class CustomerFormController implements Initializable {
     private TableColumn<Customer, String> colPostalCode; // This was missing
 
     private CustomerController customerController;
+    private final ImportController importController = new ImportController();
     private ObservableList<Customer> customerList;
+    private CustomerPager customerPager;
+    private int searchGeneration;
+    // saves, updates and deletes from any window, applied row by row
+    private EventBus.Subscription<CustomerChanged> customerChanges;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -60,6 +79,11 @@ public class CustomerFormController implements Initializable {
         initializeTableColumns();
 
         tblCustomer.setItems(customerList);
+        customerPager = new CustomerPager(customerController, tblCustomer, customerList,
+                Integer.getInteger("customer.page.size", 100),
+                Integer.getInteger("customer.page.window", 5),
+                e -> showAlert("Error", "Error loading customers: " + e.getMessage(), Alert.AlertType.ERROR));
+        customerChanges = EventBus.subscribe(CustomerChanged.class, BackgroundTask.FX, this::customerChanged);
         loadAllCustomers();
 
 
@@ -76,55 +100,55 @@ public class CustomerFormController implements Initializable {
         if (colCustID != null) {
             colCustID.setCellValueFactory(new PropertyValueFactory<>("custID"));
         } else {
-            System.err.println("colCustID is null!");
+            Log.warn("colCustID is null!");
         }
 
         if (colTitle != null) {
             colTitle.setCellValueFactory(new PropertyValueFactory<>("custTitle"));
         } else {
-            System.err.println("colTitle is null!");
+            Log.warn("colTitle is null!");
         }
 
         if (colName != null) {
             colName.setCellValueFactory(new PropertyValueFactory<>("custName"));
         } else {
-            System.err.println("colName is null!");
+            Log.warn("colName is null!");
         }
 
         if (colDob != null) {
             colDob.setCellValueFactory(new PropertyValueFactory<>("dob"));
         } else {
-            System.err.println("colDob is null!");
+            Log.warn("colDob is null!");
         }
 
         if (colSalary != null) {
             colSalary.setCellValueFactory(new PropertyValueFactory<>("salary"));
         } else {
-            System.err.println("colSalary is null!");
+            Log.warn("colSalary is null!");
         }
 
         if (colAddress != null) {
             colAddress.setCellValueFactory(new PropertyValueFactory<>("custAddress"));
         } else {
-            System.err.println("colAddress is null!");
+            Log.warn("colAddress is null!");
         }
 
         if (colCity != null) {
             colCity.setCellValueFactory(new PropertyValueFactory<>("city"));
         } else {
-            System.err.println("colCity is null!");
+            Log.warn("colCity is null!");
         }
 
         if (colProvince != null) {
             colProvince.setCellValueFactory(new PropertyValueFactory<>("province"));
         } else {
-            System.err.println("colProvince is null!");
+            Log.warn("colProvince is null!");
         }
 
         if (colPostalCode != null) {
             colPostalCode.setCellValueFactory(new PropertyValueFactory<>("postalCode"));
         } else {
-            System.err.println("colPostalCode is null - check FXML fx:id!");
+            Log.warn("colPostalCode is null - check FXML fx:id!");
         }
     }
 
@@ -145,13 +169,14 @@ public class CustomerFormController implements Initializable {
                         txtPostalCode.getText()
                 );
 
-                if (customerController.saveCustomer(customer)) {
-                    showAlert("Success", "Customer saved successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllCustomers();
-                } else {
-                    showAlert("Error", "Failed to save customer!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> customerController.saveCustomer(customer), saved -> {
+                    if (saved) {
+                        showAlert("Success", "Customer saved successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to save customer!", Alert.AlertType.ERROR);
+                    }
+                }, "Error saving customer: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error saving customer: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -174,13 +199,14 @@ public class CustomerFormController implements Initializable {
                         txtPostalCode.getText()
                 );
 
-                if (customerController.updateCustomer(customer)) {
-                    showAlert("Success", "Customer updated successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllCustomers();
-                } else {
-                    showAlert("Error", "Failed to update customer!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> customerController.updateCustomer(customer), updated -> {
+                    if (updated) {
+                        showAlert("Success", "Customer updated successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to update customer!", Alert.AlertType.ERROR);
+                    }
+                }, "Error updating customer: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error updating customer: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -189,47 +215,124 @@ public class CustomerFormController implements Initializable {
 
     @FXML
     private void deleteCustomer() {
-        try {
-            if (txtCustID.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Customer ID to delete", Alert.AlertType.WARNING);
-                return;
-            }
+        if (txtCustID.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Customer ID to delete", Alert.AlertType.WARNING);
+            return;
+        }
 
-            Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmation.setTitle("Confirm Delete");
-            confirmation.setContentText("Are you sure you want to delete customer " + txtCustID.getText() + "?");
+        String custID = txtCustID.getText();
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirm Delete");
+        confirmation.setContentText("Are you sure you want to delete customer " + custID + "?");
 
-            if (confirmation.showAndWait().get() == ButtonType.OK) {
-                if (customerController.deleteCustomer(txtCustID.getText())) {
+        if (confirmation.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            this.<Boolean>runAction(task -> customerController.deleteCustomer(custID), deleted -> {
+                if (deleted) {
                     showAlert("Success", "Customer deleted successfully!", Alert.AlertType.INFORMATION);
                     clearFields();
-                    loadAllCustomers();
                 } else {
                     showAlert("Error", "Customer not found or cannot be deleted!", Alert.AlertType.WARNING);
                 }
-            }
-        } catch (Exception e) {
-            showAlert("Error", "Error deleting customer: " + e.getMessage(), Alert.AlertType.ERROR);
+            }, "Error deleting customer: ");
         }
     }
 
     @FXML
     private void searchCustomer() {
-        try {
-            if (txtCustID.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Customer ID to search", Alert.AlertType.WARNING);
-                return;
-            }
+        if (txtCustID.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Customer ID to search", Alert.AlertType.WARNING);
+            return;
+        }
 
-            Customer customer = customerController.searchCustomer(txtCustID.getText().toUpperCase());
+        String custID = txtCustID.getText().toUpperCase();
+        this.<Customer>runAction(task -> customerController.searchCustomer(custID), customer -> {
             if (customer != null) {
                 setCustomerData(customer);
             } else {
                 showAlert("Not Found", "Customer not found!", Alert.AlertType.WARNING);
             }
-        } catch (Exception e) {
-            showAlert("Error", "Error searching customer: " + e.getMessage(), Alert.AlertType.ERROR);
+        }, "Error searching customer: ");
+    }
+
+    // Saves, updates, deletes and searches run off the FX thread, one at a time: their buttons stay disabled until
+    // the running one has finished.
+    private <T> void runAction(BackgroundTask.Work<T> work, Consumer<T> onSuccess, String failure) {
+        setActionsDisabled(true);
+        BackgroundTask.run(work,
+                result -> {
+                    setActionsDisabled(false);
+                    onSuccess.accept(result);
+                },
+                e -> {
+                    setActionsDisabled(false);
+                    showAlert("Error", failure + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private void setActionsDisabled(boolean disabled) {
+        btnSave.setDisable(disabled);
+        btnUpdate.setDisable(disabled);
+        btnDelete.setDisable(disabled);
+        btnSearch.setDisable(disabled);
+    }
+
+    @FXML
+    private void quickSearch() {
+        String query = txtQuickSearch.getText().trim();
+        int current = ++searchGeneration;
+        if (query.isEmpty()) {
+            loadAllCustomers();
+            return;
+        }
+        customerPager.suspend();
+        BackgroundTask.<List<Customer>>run(
+                task -> customerController.searchCustomers(query, Integer.getInteger("customer.search.limit", 200)),
+                found -> {
+                    // a later keystroke has already started its own search
+                    if (current == searchGeneration) {
+                        customerList.setAll(found);
+                    }
+                },
+                e -> showAlert("Error", "Error searching customers: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
+    @FXML
+    private void importCustomers() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Customers");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(tblCustomer.getScene().getWindow());
+        if (file == null) {
+            return;
         }
+
+        btnImport.setDisable(true);
+        BackgroundTask<ImportResult> task = BackgroundTask.<ImportResult>run(
+                work -> importController.importCustomers(file.toPath(), (bytesRead, totalBytes, imported, rejected) -> {
+                    work.reportProgress(bytesRead, totalBytes);
+                    work.reportMessage(String.format("Importing... %d%%, %,d imported, %,d rejected",
+                            totalBytes == 0 ? 100 : bytesRead * 100 / totalBytes, imported, rejected));
+                }),
+                result -> {
+                    importFinished();
+                    lblImportStatus.setText(String.format("Last import: %,d imported, %,d rejected",
+                            result.getImported(), result.getRejected()));
+                    showAlert("Import Finished", ImportController.summarize(result, 10),
+                            result.getRejected() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+                    loadAllCustomers();
+                },
+                e -> {
+                    importFinished();
+                    lblImportStatus.setText("");
+                    showAlert("Error", "Error importing customers: " + e.getMessage(), Alert.AlertType.ERROR);
+                    loadAllCustomers();
+                });
+        lblImportStatus.textProperty().bind(task.messageProperty());
+    }
+
+    private void importFinished() {
+        lblImportStatus.textProperty().unbind();
+        btnImport.setDisable(false);
     }
 
     @FXML
@@ -248,9 +351,33 @@ public class CustomerFormController implements Initializable {
 
     @FXML
     private void backToDashboard() {
+        customerChanges.cancel();
         ((Stage) txtCustID.getScene().getWindow()).close();
     }
 
+    // While paging the window takes the change; search results, which are ranked rather than sorted, only have
+    // rows they already show updated or removed, as only the search knows whether a new customer matches.
+    private void customerChanged(CustomerChanged event) {
+        if (customerPager.isPaging()) {
+            if (event.getChange() == Change.DELETED) {
+                customerPager.remove(event.getCustID());
+            } else {
+                customerPager.put(event.getCustomer());
+            }
+            return;
+        }
+        for (int i = 0; i < customerList.size(); i++) {
+            if (customerList.get(i).getCustID().equals(event.getCustID())) {
+                if (event.getChange() == Change.DELETED) {
+                    customerList.remove(i);
+                } else {
+                    customerList.set(i, event.getCustomer());
+                }
+                return;
+            }
+        }
+    }
+
     private void setCustomerData(Customer customer) {
         txtCustID.setText(customer.getCustID());
         cmbTitle.setValue(customer.getCustTitle());
@@ -264,46 +391,21 @@ public class CustomerFormController implements Initializable {
     }
 
     private void loadAllCustomers() {
-        try {
-            customerList.clear();
-            customerList.addAll(customerController.getAllCustomers());
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading customers: " + e.getMessage(), Alert.AlertType.ERROR);
+        if (txtQuickSearch != null && !txtQuickSearch.getText().trim().isEmpty()) {
+            quickSearch();
+            return;
         }
+        // pages are fetched on demand as the table scrolls
+        customerPager.reset();
     }
 
     private boolean validateFields() {
-        if (txtCustID.getText().isEmpty() || cmbTitle.getValue() == null ||
-                txtCustName.getText().isEmpty() || dpDob.getValue() == null ||
-                txtSalary.getText().isEmpty() || txtCustAddress.getText().isEmpty() ||
-                txtCity.getText().isEmpty() || txtProvince.getText().isEmpty()) {
-
-            showAlert("Validation Error", "Please fill all required fields", Alert.AlertType.WARNING);
+        String error = RecordValidator.validateCustomer(txtCustID.getText(), cmbTitle.getValue(), txtCustName.getText(),
+                dpDob.getValue(), txtSalary.getText(), txtCustAddress.getText(), txtCity.getText(), txtProvince.getText());
+        if (error != null) {
+            showAlert("Validation Error", error, Alert.AlertType.WARNING);
             return false;
         }
-
-        // Validate Customer ID format
-        if (!txtCustID.getText().matches("C\\d{3}")) {
-            showAlert("Validation Error", "Customer ID must be in format C001, C002, etc.", Alert.AlertType.WARNING);
-            return false;
-        }
-
-        try {
-            double salary = Double.parseDouble(txtSalary.getText());
-            if (salary <= 0) {
-                showAlert("Validation Error", "Salary must be greater than 0", Alert.AlertType.WARNING);
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            showAlert("Validation Error", "Please enter a valid salary", Alert.AlertType.WARNING);
-            return false;
-        }
-
-        if (dpDob.getValue().isAfter(LocalDate.now())) {
-            showAlert("Validation Error", "Date of birth cannot be in the future", Alert.AlertType.WARNING);
-            return false;
-        }
-
         return true;
     }
 
@@ -0,0 +1,258 @@
+package Controller;
+
+import Models.Db.DbExecutor;
+import Models.Dto.Customer;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+// Infinite scrolling over the Customer table with keyset pages. Only maxPages pages are kept in the table:
+// scrolling down appends the next page and drops the oldest one from the top, scrolling back up does the
+// reverse, so memory follows the visible window instead of the table size. The page after the current
+// window is fetched ahead of time so the common downward scroll never waits for the database.
+public class CustomerPager {
+    private static final double EDGE = 0.9;
+
+    private final CustomerController customerController;
+    private final TableView<Customer> table;
+    private final ObservableList<Customer> rows;
+    private final int pageSize;
+    private final int maxPages;
+    private final Consumer<Throwable> onError;
+
+    // row count of every page currently in the table, oldest first
+    private final Deque<Integer> pageSizes = new ArrayDeque<>();
+    private boolean hasMoreAfter;
+    private boolean hasMoreBefore;
+    private boolean loading;
+    private int generation;
+
+    private String prefetchedAfter;
+    private CompletableFuture<List<Customer>> prefetched;
+
+    public CustomerPager(CustomerController customerController, TableView<Customer> table, ObservableList<Customer> rows,
+                         int pageSize, int maxPages, Consumer<Throwable> onError) {
+        this.customerController = customerController;
+        this.table = table;
+        this.rows = rows;
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(2, maxPages);
+        this.onError = onError;
+
+        if (table.getSkin() != null) {
+            attachScrollListener();
+        } else {
+            table.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+                if (newSkin != null) {
+                    // the skin's scroll bars are only in the scene graph once the skin is installed
+                    Platform.runLater(this::attachScrollListener);
+                }
+            });
+        }
+    }
+
+    // Drops the window and starts again from the first page.
+    public void reset() {
+        int current = ++generation;
+        pageSizes.clear();
+        prefetched = null;
+        prefetchedAfter = null;
+        hasMoreBefore = false;
+        loading = true;
+        BackgroundTask.<List<Customer>>run(
+                task -> customerController.getCustomersAfter(null, pageSize),
+                page -> {
+                    if (current != generation) {
+                        return;
+                    }
+                    loading = false;
+                    rows.setAll(page);
+                    pageSizes.addLast(page.size());
+                    hasMoreAfter = page.size() == pageSize;
+                    prefetchNext();
+                },
+                this::failed);
+    }
+
+    // Stops paging while the table shows something else, such as search results. reset() resumes.
+    public void suspend() {
+        ++generation;
+        pageSizes.clear();
+        prefetched = null;
+        prefetchedAfter = null;
+        hasMoreAfter = false;
+        hasMoreBefore = false;
+        loading = false;
+    }
+
+    // False while suspended or before the first page has arrived.
+    public boolean isPaging() {
+        return !pageSizes.isEmpty();
+    }
+
+    // Applies a customer saved elsewhere to the window. A new customer only shows up when it sorts inside the
+    // window, or past an end that has nothing more to page in; otherwise scrolling brings it in with its page.
+    public void put(Customer customer) {
+        int index = indexOf(customer.getCustID());
+        if (index >= 0) {
+            rows.set(index, customer);
+            return;
+        }
+        int insertAt = -index - 1;
+        if ((insertAt == 0 && hasMoreBefore) || (insertAt == rows.size() && hasMoreAfter)) {
+            return;
+        }
+        rows.add(insertAt, customer);
+        resizePage(insertAt, 1);
+    }
+
+    public void remove(String custID) {
+        int index = indexOf(custID);
+        if (index >= 0) {
+            rows.remove(index);
+            resizePage(index, -1);
+        }
+    }
+
+    private int indexOf(String custID) {
+        return new SortedRows<>(rows, Customer::getCustID, String::compareTo).indexOf(custID);
+    }
+
+    // Keeps the page sizes in step with a row added or removed at index, so dropping a page still drops its rows.
+    private void resizePage(int index, int delta) {
+        Integer[] sizes = pageSizes.toArray(new Integer[0]);
+        int page = 0;
+        int end = sizes[0];
+        while (index >= end && page < sizes.length - 1) {
+            page++;
+            end += sizes[page];
+        }
+        sizes[page] += delta;
+        pageSizes.clear();
+        for (Integer size : sizes) {
+            pageSizes.addLast(size);
+        }
+        // the prefetched page started after the old last row
+        prefetched = null;
+        prefetchedAfter = null;
+    }
+
+    private void attachScrollListener() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((observable, oldValue, newValue) -> {
+                    double position = (newValue.doubleValue() - bar.getMin()) / (bar.getMax() - bar.getMin());
+                    if (position >= EDGE) {
+                        loadNext();
+                    } else if (position <= 1 - EDGE) {
+                        loadPrevious();
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    private void loadNext() {
+        if (loading || !hasMoreAfter || rows.isEmpty()) {
+            return;
+        }
+        String after = rows.get(rows.size() - 1).getCustID();
+        CompletableFuture<List<Customer>> next = after.equals(prefetchedAfter) && prefetched != null
+                ? prefetched
+                : DbExecutor.supplyAsync(() -> customerController.getCustomersAfter(after, pageSize));
+        prefetched = null;
+        prefetchedAfter = null;
+
+        int current = generation;
+        loading = true;
+        next.whenCompleteAsync((page, error) -> {
+            if (current != generation) {
+                return;
+            }
+            loading = false;
+            if (error != null) {
+                failed(error);
+                return;
+            }
+            int firstVisible = firstVisibleIndex();
+            rows.addAll(page);
+            pageSizes.addLast(page.size());
+            hasMoreAfter = page.size() == pageSize;
+            if (pageSizes.size() > maxPages) {
+                int dropped = pageSizes.removeFirst();
+                rows.remove(0, dropped);
+                hasMoreBefore = true;
+                table.scrollTo(Math.max(0, firstVisible - dropped));
+            }
+            prefetchNext();
+        }, BackgroundTask.FX);
+    }
+
+    private void loadPrevious() {
+        if (loading || !hasMoreBefore || rows.isEmpty()) {
+            return;
+        }
+        String before = rows.get(0).getCustID();
+        int current = generation;
+        loading = true;
+        BackgroundTask.<List<Customer>>run(
+                task -> customerController.getCustomersBefore(before, pageSize),
+                page -> {
+                    if (current != generation) {
+                        return;
+                    }
+                    loading = false;
+                    int firstVisible = firstVisibleIndex();
+                    rows.addAll(0, page);
+                    pageSizes.addFirst(page.size());
+                    hasMoreBefore = page.size() == pageSize;
+                    if (pageSizes.size() > maxPages) {
+                        int dropped = pageSizes.removeLast();
+                        rows.remove(rows.size() - dropped, rows.size());
+                        hasMoreAfter = true;
+                        prefetched = null;
+                        prefetchedAfter = null;
+                    }
+                    table.scrollTo(firstVisible + page.size());
+                },
+                this::failed);
+    }
+
+    private void prefetchNext() {
+        if (!hasMoreAfter || rows.isEmpty()) {
+            return;
+        }
+        String after = rows.get(rows.size() - 1).getCustID();
+        prefetchedAfter = after;
+        prefetched = DbExecutor.supplyAsync(() -> customerController.getCustomersAfter(after, pageSize));
+    }
+
+    private int firstVisibleIndex() {
+        Node flow = table.lookup(".virtual-flow");
+        if (flow instanceof VirtualFlow<?> virtualFlow) {
+            IndexedCell<?> first = virtualFlow.getFirstVisibleCell();
+            if (first != null) {
+                return first.getIndex();
+            }
+        }
+        return 0;
+    }
+
+    private void failed(Throwable error) {
+        loading = false;
+        onError.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+    }
+}
@@ -1,15 +1,110 @@
 package Controller;
 
+import Models.Cache.TopItemCounter;
+import Models.Db.MySqlCustomerRepository;
+import Models.Db.MySqlItemRepository;
+import Models.Db.MySqlOrderDetailRepository;
+import Models.Db.MySqlOrderRepository;
+import Models.Dto.PopularItem;
+import Models.Dto.SyncResult;
+import Models.Embedded.StoreSync;
+import Models.Metrics.FormLoadEvent;
+import Models.Metrics.Log;
+import Models.Repository.Repositories;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+import javafx.util.Duration;
 
 import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.ResourceBundle;
 
-public class DashboardController {
+public class DashboardController implements Initializable {
+
+    @FXML
+    private Label lblPopular;
+
+    @FXML
+    private Button btnSync;
+
+    private final OrderDetailController orderDetailController = new OrderDetailController();
+    private boolean pollingPopular;
+    private Timeline popularPoll;
+    // the window showing the dashboard, and the handler that stops the poll when it closes
+    private Window window;
+    private final EventHandler<WindowEvent> windowHidden = event -> stopPolling();
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        btnSync.setVisible(Repositories.isEmbedded());
+        btnSync.setManaged(Repositories.isEmbedded());
+
+        // the counter answers from memory, so polling it every few seconds is cheap
+        popularPoll = new Timeline(new KeyFrame(
+                Duration.seconds(Integer.getInteger("popular.pollSeconds", 5)), event -> refreshPopularItems()));
+        popularPoll.setCycleCount(Animation.INDEFINITE);
+        popularPoll.play();
+        refreshPopularItems();
+
+        // A running Timeline keeps the controller reachable, so the poll stops once the dashboard's scene is
+        // replaced on its stage or the stage closes.
+        lblPopular.sceneProperty().addListener((observable, oldScene, scene) -> {
+            if (scene != null) {
+                scene.windowProperty().addListener((o, oldWindow, newWindow) -> {
+                    if (newWindow == null) {
+                        stopPolling();
+                    } else {
+                        window = newWindow;
+                        window.addEventHandler(WindowEvent.WINDOW_HIDDEN, windowHidden);
+                    }
+                });
+            }
+        });
+    }
+
+    private void stopPolling() {
+        popularPoll.stop();
+        if (window != null) {
+            window.removeEventHandler(WindowEvent.WINDOW_HIDDEN, windowHidden);
+            window = null;
+        }
+    }
+
+    private void refreshPopularItems() {
+        if (pollingPopular) {
+            return;
+        }
+        pollingPopular = true;
+        BackgroundTask.<List<PopularItem>>run(
+                task -> orderDetailController.getTopItems(TopItemCounter.Window.LAST_DAY, 3),
+                top -> {
+                    pollingPopular = false;
+                    StringBuilder text = new StringBuilder("Popular today: ");
+                    for (int i = 0; i < top.size(); i++) {
+                        PopularItem item = top.get(i);
+                        text.append(i == 0 ? "" : ", ").append(item.getDescription()).append(" (").append(item.getQuantitySold()).append(")");
+                    }
+                    lblPopular.setText(top.isEmpty() ? "No sales in the last 24 hours" : text.toString());
+                },
+                e -> {
+                    pollingPopular = false;
+                    lblPopular.setText("");
+                });
+    }
 
     @FXML
     private void navigateToCustomer() {
@@ -33,7 +128,33 @@ public class DashboardController {
 
     @FXML
     private void navigateToReports() {
-        showAlert("Info", "Reports feature will be implemented soon!", Alert.AlertType.INFORMATION);
+        loadForm("/View/ReportForm.fxml", "Sales Reports");
+    }
+
+    // Pushes the orders this till took offline and pulls the server's items and customers.
+    @FXML
+    private void syncTill() {
+        btnSync.setDisable(true);
+        BackgroundTask.<SyncResult>run(
+                task -> new StoreSync(Repositories.embeddedStore(), new MySqlCustomerRepository(),
+                        new MySqlItemRepository(), new MySqlOrderRepository(), new MySqlOrderDetailRepository()).sync(),
+                result -> {
+                    btnSync.setDisable(false);
+                    ItemController.invalidateCache();
+                    CustomerController.invalidateSearchIndex();
+                    StringBuilder message = new StringBuilder()
+                            .append("Orders sent: ").append(result.getPushedOrders())
+                            .append("\nItems updated: ").append(result.getPulledItems())
+                            .append("\nCustomers updated: ").append(result.getPulledCustomers());
+                    result.getFailedOrders().forEach((orderID, reason) ->
+                            message.append("\nNot sent ").append(orderID).append(": ").append(reason));
+                    showAlert("Sync Till", message.toString(),
+                            result.getFailedOrders().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+                },
+                e -> {
+                    btnSync.setDisable(false);
+                    showAlert("Sync Till", "Sync failed: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
     }
 
     @FXML
@@ -50,10 +171,15 @@ public class DashboardController {
 
     private void loadForm(String fxmlPath, String title) {
         try {
-            System.out.println("Loading FXML from: " + fxmlPath);
-
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Parent root = loader.load();
+            FormLoadEvent event = FormLoadEvent.start(fxmlPath);
+            Parent root;
+            try {
+                FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
+                root = loader.load();
+                event.loaded();
+            } finally {
+                event.commit();
+            }
 
             Stage stage = new Stage();
             stage.setScene(new Scene(root));
@@ -64,21 +190,16 @@ public class DashboardController {
             try {
                 stage.getIcons().add(new javafx.scene.image.Image(getClass().getResourceAsStream("/images/icon.png")));
             } catch (Exception e) {
-                System.out.println("Icon not found: " + e.getMessage());
+                Log.warn("Icon not found: " + e.getMessage());
             }
 
             stage.show();
 
         } catch (IOException e) {
-            System.err.println("Error loading FXML: " + fxmlPath);
-            System.err.println("Error details: " + e.getMessage());
-            e.printStackTrace();
+            Log.warn("Error loading FXML: " + fxmlPath, e);
             showAlert("Error", "Cannot load " + title + ": " + e.getMessage(), Alert.AlertType.ERROR);
         } catch (NullPointerException e) {
-            System.err.println("FXML file not found: " + fxmlPath);
-            System.err.println("Current class: " + getClass().getName());
-            System.err.println("Class location: " + getClass().getResource("."));
-            e.printStackTrace();
+            Log.warn("FXML file not found: " + fxmlPath + " (looked up from " + getClass().getResource(".") + ")", e);
             showAlert("Error", "Form file not found: " + fxmlPath, Alert.AlertType.ERROR);
         }
     }
@@ -0,0 +1,82 @@
+package Controller;
+
+import Models.Dto.ExportResult;
+import Models.Export.ChannelWriter;
+import Models.Export.ExportFormat;
+import Models.Repository.OrderDetailRepository;
+import Models.Repository.Repositories;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+// Exports the whole order line history to a CSV or JSON Lines file. Lines are streamed from the store and written
+// as they arrive (see OrderDetailRepository.forEachLine), so heap use stays flat however many there are.
+// The file is written next to the target under a .part name and only moved into place once complete, so a failed
+// or cancelled export leaves no half-written file behind. Cancelling the task interrupts the export, which stops
+// at the next line.
+public class ExportController {
+
+    @FunctionalInterface
+    public interface Progress {
+        void update(long rowsWritten, long totalRows, long bytesWritten);
+    }
+
+    private static final int PROGRESS_EVERY = 5_000;
+
+    private final int fetchSize = Integer.getInteger("export.fetchSize", 1_000);
+    private final int bufferSize = Integer.getInteger("export.bufferSize", 64 * 1024);
+
+    public ExportResult exportOrderDetails(Path file, ExportFormat format, Progress progress)
+            throws IOException, SQLException {
+        long started = System.currentTimeMillis();
+        OrderDetailRepository orderDetails = Repositories.orderDetails();
+        long totalRows = orderDetails.countAll();
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+
+        long[] rowsWritten = new long[1];
+        boolean[] cancelled = new boolean[1];
+        long bytesWritten = 0;
+        boolean complete = false;
+        try (ChannelWriter out = new ChannelWriter(FileChannel.open(part, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), bufferSize)) {
+            format.writeHeader(out);
+            StringBuilder scratch = new StringBuilder(256);
+            orderDetails.forEachLine(fetchSize, detail -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    cancelled[0] = true;
+                    return false;
+                }
+                format.writeLine(out, detail, scratch);
+                if (++rowsWritten[0] % PROGRESS_EVERY == 0) {
+                    progress.update(rowsWritten[0], totalRows, out.getBytesWritten());
+                }
+                return true;
+            });
+            if (!cancelled[0]) {
+                out.finish();
+                complete = true;
+            }
+            bytesWritten = out.getBytesWritten();
+        } catch (ClosedByInterruptException e) {
+            // the channel closes itself when the task is cancelled in the middle of a write
+            cancelled[0] = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        if (complete) {
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            progress.update(rowsWritten[0], Math.max(totalRows, rowsWritten[0]), bytesWritten);
+        }
+        return new ExportResult(file.toString(), rowsWritten[0], bytesWritten,
+                System.currentTimeMillis() - started, cancelled[0]);
+    }
+}
@@ -0,0 +1,286 @@
+package Controller;
+
+import Models.Csv.CsvReader;
+import Models.Db.ChangeLog;
+import Models.Db.DatabaseConnection;
+import Models.Dto.ImportResult;
+import Models.Repository.Repositories;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bulk loads Item and Customer rows from CSV files. The file is streamed one record at a time, rows are validated
+// with the same rules as the forms, sent in JDBC batches and committed every chunkSize rows, so memory use does not
+// depend on the file size and a failure or cancellation only loses the chunk in progress. Each chunk logs the whole
+// table as changed in its own transaction, so the other tills reload it once the rows are visible.
+// The first line must be a header naming the columns; column order does not matter.
+public class ImportController {
+
+    @FunctionalInterface
+    public interface Progress {
+        void update(long bytesRead, long totalBytes, long imported, long rejected);
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        // sets the statement parameters for one row, or returns why the row is rejected
+        String bind(Map<String, String> row, PreparedStatement stmt) throws SQLException;
+    }
+
+    private final int batchSize = Integer.getInteger("import.batchSize", 500);
+    private final int chunkSize = Integer.getInteger("import.chunkSize", 5_000);
+    private final int maxRejections = Integer.getInteger("import.maxRejections", 1_000);
+
+    public ImportResult importItems(Path file, Progress progress) throws IOException, SQLException {
+        String sql = "INSERT INTO Item (ItemCode, Description, PackSize, UnitPrice, QtyOnHand) VALUES (?, ?, ?, ?, ?)";
+        try {
+            return importFile(file, ChangeLog.ITEM, sql, new String[]{"itemcode", "description", "unitprice", "qtyonhand"}, (row, stmt) -> {
+                String itemCode = row.get("itemcode");
+                String error = RecordValidator.validateItem(itemCode, row.get("description"),
+                        row.get("unitprice"), row.get("qtyonhand"));
+                if (error != null) {
+                    return error;
+                }
+                stmt.setString(1, itemCode.toUpperCase());
+                stmt.setString(2, row.get("description"));
+                stmt.setString(3, row.getOrDefault("packsize", ""));
+                stmt.setDouble(4, Double.parseDouble(row.get("unitprice")));
+                stmt.setInt(5, Integer.parseInt(row.get("qtyonhand")));
+                return null;
+            }, progress);
+        } finally {
+            ItemController.invalidateCache();
+        }
+    }
+
+    public ImportResult importCustomers(Path file, Progress progress) throws IOException, SQLException {
+        String sql = "INSERT INTO Customer (CustID, CustTitle, CustName, DOB, salary, CustAddress, City, Province, PostalCode) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String[] required = {"custid", "custtitle", "custname", "dob", "salary", "custaddress", "city", "province"};
+        try {
+            return importFile(file, ChangeLog.CUSTOMER, sql, required, (row, stmt) -> {
+                LocalDate dob;
+                try {
+                    dob = row.get("dob").isEmpty() ? null : LocalDate.parse(row.get("dob"));
+                } catch (DateTimeParseException e) {
+                    return "Date of birth must be in format yyyy-MM-dd";
+                }
+                String custID = row.get("custid");
+                String error = RecordValidator.validateCustomer(custID, row.get("custtitle"), row.get("custname"), dob,
+                        row.get("salary"), row.get("custaddress"), row.get("city"), row.get("province"));
+                if (error != null) {
+                    return error;
+                }
+                stmt.setString(1, custID.toUpperCase());
+                stmt.setString(2, row.get("custtitle"));
+                stmt.setString(3, row.get("custname"));
+                stmt.setDate(4, Date.valueOf(dob));
+                stmt.setDouble(5, Double.parseDouble(row.get("salary")));
+                stmt.setString(6, row.get("custaddress"));
+                stmt.setString(7, row.get("city"));
+                stmt.setString(8, row.get("province"));
+                stmt.setString(9, row.getOrDefault("postalcode", ""));
+                return null;
+            }, progress);
+        } finally {
+            CustomerController.invalidateSearchIndex();
+        }
+    }
+
+    // Text for the dialog shown when an import finishes.
+    static String summarize(ImportResult result, int rejectionsShown) {
+        StringBuilder summary = new StringBuilder(String.format("%s %,d of %,d rows, rejected %,d (%,.0f rows/sec).",
+                result.isCancelled() ? "Cancelled after importing" : "Imported",
+                result.getImported(), result.getRowsRead(), result.getRejected(), result.getRowsPerSecond()));
+        List<String> rejections = result.getRejections();
+        for (int i = 0; i < Math.min(rejectionsShown, rejections.size()); i++) {
+            summary.append('\n').append(rejections.get(i));
+        }
+        if (result.getRejected() > rejectionsShown) {
+            summary.append("\n...");
+        }
+        return summary.toString();
+    }
+
+    private ImportResult importFile(Path file, String table, String sql, String[] requiredColumns, RowBinder binder,
+                                    Progress progress) throws IOException, SQLException {
+        long started = System.currentTimeMillis();
+        long totalBytes = Files.size(file);
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        boolean cancelled = false;
+        List<String> rejections = new ArrayList<>();
+
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+             CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+             Connection connection = DatabaseConnection.getInstance().getConnection()) {
+
+            String[] columns = readHeader(csv, requiredColumns);
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                connection.setAutoCommit(false);
+                // source line of every row in the pending batch, to report rows the database turns down
+                List<Long> batchLines = new ArrayList<>(batchSize);
+                // rows imported since the last commit, lost again if the import is cancelled
+                long uncommitted = 0;
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        cancelled = true;
+                        break;
+                    }
+                    rowsRead++;
+                    long line = csv.getRecordLine();
+                    String error = record.size() != columns.length
+                            ? "Expected " + columns.length + " fields but found " + record.size()
+                            : binder.bind(toRow(columns, record), stmt);
+                    if (error != null) {
+                        rejected++;
+                        reject(rejections, line, error);
+                        continue;
+                    }
+                    stmt.addBatch();
+                    batchLines.add(line);
+
+                    if (batchLines.size() >= batchSize) {
+                        int failed = executeBatch(stmt, batchLines, rejections);
+                        rejected += failed;
+                        imported += batchLines.size() - failed;
+                        uncommitted += batchLines.size() - failed;
+                        batchLines.clear();
+                        if (uncommitted >= chunkSize) {
+                            logChange(connection, table);
+                            connection.commit();
+                            uncommitted = 0;
+                        }
+                        progress.update(in.getCount(), totalBytes, imported, rejected);
+                    }
+                }
+
+                if (cancelled) {
+                    imported -= uncommitted;
+                    connection.rollback();
+                } else {
+                    int failed = executeBatch(stmt, batchLines, rejections);
+                    rejected += failed;
+                    imported += batchLines.size() - failed;
+                    logChange(connection, table);
+                    connection.commit();
+                }
+                progress.update(in.getCount(), totalBytes, imported, rejected);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        return new ImportResult(rowsRead, imported, rejected, rejections, System.currentTimeMillis() - started, cancelled);
+    }
+
+    private static void logChange(Connection connection, String table) throws SQLException {
+        ChangeLog log = Repositories.changeLog();
+        if (log != null) {
+            log.record(connection, table, Collections.singletonList(ChangeLog.ALL_ROWS));
+        }
+    }
+
+    // Returns how many rows of the batch the database rejected, e.g. duplicate keys.
+    private int executeBatch(PreparedStatement stmt, List<Long> batchLines, List<String> rejections) throws SQLException {
+        if (batchLines.isEmpty()) {
+            return 0;
+        }
+        try {
+            stmt.executeBatch();
+            return 0;
+        } catch (BatchUpdateException e) {
+            int[] counts = e.getUpdateCounts();
+            int failed = 0;
+            for (int i = 0; i < batchLines.size(); i++) {
+                // the driver may stop at the first failure, in which case the remaining rows never ran
+                if (i >= counts.length || counts[i] == Statement.EXECUTE_FAILED) {
+                    failed++;
+                    reject(rejections, batchLines.get(i), "Rejected by database: " + e.getMessage());
+                }
+            }
+            return failed;
+        }
+    }
+
+    private String[] readHeader(CsvReader csv, String[] requiredColumns) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        String[] columns = new String[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = header.get(i).replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+        }
+        for (String required : requiredColumns) {
+            if (!List.of(columns).contains(required)) {
+                throw new IOException("Missing column '" + required + "' in the header line");
+            }
+        }
+        return columns;
+    }
+
+    private static Map<String, String> toRow(String[] columns, List<String> record) {
+        Map<String, String> row = new HashMap<>(columns.length * 2);
+        for (int i = 0; i < columns.length; i++) {
+            row.put(columns[i], record.get(i).trim());
+        }
+        return row;
+    }
+
+    private void reject(List<String> rejections, long line, String reason) {
+        if (rejections.size() < maxRejections) {
+            rejections.add("Line " + line + ": " + reason);
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -1,115 +1,165 @@
 package Controller;
 
-import Models.Db.DatabaseConnection;
+import Models.Cache.ItemCache;
+import Models.Cache.ReferenceData;
+import Models.Db.ChangeLog;
 import Models.Dto.Item;
-
-import java.sql.*;
-import java.util.ArrayList;
+import Models.Events.Change;
+import Models.Events.EventBus;
+import Models.Events.ItemChanged;
+import Models.Metrics.Log;
+import Models.Repository.Repositories;
+import Models.Repository.Versioned;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ItemController {
+    // shared by every form, so a lookup at the till is a map read instead of a query
+    private static final ItemCache itemCache = new ItemCache(
+            new ItemLoader(),
+            Integer.getInteger("item.cache.maxSize", 50_000),
+            Long.getLong("item.cache.ttlMillis", 5 * 60_000L));
+    // item code -> version of the row the caches were last given by readBack; guards itself
+    private static final Map<String, Long> versions = new HashMap<>();
 
     public boolean saveItem(Item item) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "INSERT INTO Item (itemCode, description, packSize, unitPrice, qtyOnHand) VALUES (?, ?, ?, ?, ?)";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, item.getItemCode());
-        stmt.setString(2, item.getDescription());
-        stmt.setString(3, item.getPackSize());
-        stmt.setDouble(4, item.getUnitPrice());
-        stmt.setInt(5, item.getQtyOnHand());
-
-        return stmt.executeUpdate() > 0;
+        boolean saved = Repositories.items().save(item);
+        if (saved) {
+            readBackQuietly(Collections.singletonList(item.getItemCode()));
+            EventBus.publish(new ItemChanged(Change.INSERTED, item.getItemCode(), item));
+        }
+        return saved;
     }
 
     public boolean updateItem(Item item) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "UPDATE Item SET Description=?, PackSize=?, UnitPrice=?, QtyOnHand=? WHERE ItemCode=?";
+        boolean updated = Repositories.items().update(item);
+        if (updated) {
+            readBackQuietly(Collections.singletonList(item.getItemCode()));
+            EventBus.publish(new ItemChanged(Change.UPDATED, item.getItemCode(), item));
+        }
+        return updated;
+    }
 
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, item.getDescription());
-        stmt.setString(2, item.getPackSize());
-        stmt.setDouble(3, item.getUnitPrice());
-        stmt.setInt(4, item.getQtyOnHand());
-        stmt.setString(5, item.getItemCode());
+    public boolean deleteItem(String itemCode) throws SQLException {
+        boolean deleted = Repositories.items().delete(itemCode);
+        if (deleted) {
+            readBackQuietly(Collections.singletonList(itemCode));
+            EventBus.publish(new ItemChanged(Change.DELETED, itemCode, null));
+        }
+        return deleted;
+    }
 
-        return stmt.executeUpdate() > 0;
+    public Item searchItem(String itemCode) throws SQLException {
+        return itemCache.get(itemCode);
     }
 
-    public boolean deleteItem(String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "DELETE FROM Item WHERE ItemCode=?";
+    public List<Item> getAllItems() throws SQLException {
+        return itemCache.getAll();
+    }
 
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
+    public boolean updateItemQuantity(String itemCode, int quantity) throws SQLException {
+        boolean updated = Repositories.items().decrementStock(itemCode, quantity);
+        if (updated) {
+            refreshCachedStock(Collections.singletonList(itemCode));
+        }
+        return updated;
+    }
 
-        return stmt.executeUpdate() > 0;
+    public String getItemDescription(String itemCode) throws SQLException {
+        Item item = itemCache.get(itemCode);
+        return item != null ? item.getDescription() : null;
     }
 
-    public Item searchItem(String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Item WHERE ItemCode=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return new Item(
-                    rs.getString("itemCode"),
-                    rs.getString("description"),
-                    rs.getString("packSize"),
-                    rs.getDouble("unitPrice"),
-                    rs.getInt("qtyOnHand")
-            );
+    // Called after another controller commits a stock change, and tells the open forms the new stock.
+    static void refreshCachedStock(Collection<String> itemCodes) {
+        for (Item item : readBackQuietly(itemCodes).values()) {
+            if (item != null) {
+                EventBus.publish(new ItemChanged(Change.UPDATED, item.getItemCode(), item));
+            }
         }
-        return null;
     }
 
-    public List<Item> getAllItems() throws SQLException {
-        List<Item> items = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Item ORDER BY ItemCode";
-
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql);
-
-        while (rs.next()) {
-            items.add(new Item(
-                    rs.getString("ItemCode"),
-                    rs.getString("Description"),
-                    rs.getString("PackSize"),
-                    rs.getDouble("UnitPrice"),
-                    rs.getInt("QtyOnHand")
-            ));
+    // Applies what another till changed, as read back from the database; an item no longer there was deleted.
+    static void changedElsewhere(Collection<String> itemCodes) throws SQLException {
+        if (itemCodes.contains(ChangeLog.ALL_ROWS)) {
+            invalidateCache();
+            return;
         }
-        return items;
+        readBack(itemCodes).forEach((itemCode, item) -> EventBus.publish(item == null
+                ? new ItemChanged(Change.DELETED, itemCode, null)
+                : new ItemChanged(Change.UPDATED, itemCode, item)));
     }
 
-    public boolean updateItemQuantity(String itemCode, int quantity) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ? AND QtyOnHand >= ?";
+    // For bulk changes made outside this controller; the next lookup reloads the table.
+    static void invalidateCache() {
+        itemCache.invalidateAll();
+        ReferenceData referenceData = Repositories.referenceData();
+        if (referenceData != null) {
+            referenceData.markStale();
+        }
+    }
 
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setInt(1, quantity);
-        stmt.setString(2, itemCode);
-        stmt.setInt(3, quantity);
+    // For a change that has already committed: a failed re-read must not fail the caller, so the cache is dropped
+    // instead and reloads on the next lookup.
+    private static Map<String, Item> readBackQuietly(Collection<String> itemCodes) {
+        try {
+            return readBack(itemCodes);
+        } catch (SQLException e) {
+            Log.warn("Item cache refresh failed, invalidating: " + e.getMessage());
+            invalidateCache();
+            return Collections.emptyMap();
+        }
+    }
 
-        return stmt.executeUpdate() > 0;
+    // Gives the item cache and the reference data the items as the database has them now, and returns the rows it
+    // applied, null for an item that is gone. A row older than the one the caches were last given is skipped, so a
+    // read that raced with a newer change, such as a ChangeLog poll overtaken by an edit made here, cannot undo it.
+    private static Map<String, Item> readBack(Collection<String> itemCodes) throws SQLException {
+        Map<String, Versioned<Item>> rows = Repositories.items().findVersioned(itemCodes);
+        ReferenceData referenceData = Repositories.referenceData();
+        Map<String, Item> applied = new HashMap<>();
+        synchronized (versions) {
+            for (Map.Entry<String, Versioned<Item>> row : rows.entrySet()) {
+                String itemCode = row.getKey();
+                Long current = versions.get(itemCode);
+                if (current != null && row.getValue().getVersion() < current) {
+                    continue;
+                }
+                versions.put(itemCode, row.getValue().getVersion());
+                Item item = row.getValue().getValue();
+                if (item == null) {
+                    itemCache.remove(itemCode);
+                    if (referenceData != null) {
+                        referenceData.removeItem(itemCode);
+                    }
+                } else {
+                    itemCache.put(item);
+                    if (referenceData != null) {
+                        referenceData.putItem(item);
+                    }
+                }
+                applied.put(itemCode, item);
+            }
+        }
+        return applied;
     }
 
-    public String getItemDescription(String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT Description FROM Item WHERE ItemCode=?";
+    private static class ItemLoader implements ItemCache.Loader {
 
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
-        ResultSet rs = stmt.executeQuery();
+        @Override
+        public List<Item> loadAll() throws SQLException {
+            ReferenceData referenceData = Repositories.referenceData();
+            return referenceData != null ? referenceData.items() : Repositories.items().findAll();
+        }
 
-        if (rs.next()) {
-            return rs.getString("Description");
+        @Override
+        public List<Item> loadByCodes(Collection<String> itemCodes) throws SQLException {
+            return Repositories.items().findByCodes(itemCodes);
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -6,18 +6,30 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import Models.Dto.Item;
+import Models.Dto.ImportResult;
+import Models.Events.Change;
+import Models.Events.EventBus;
+import Models.Events.ItemChanged;
 
+import java.io.File;
 import java.net.URL;
-import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 
 public class ItemFormController implements Initializable {
 
     @FXML
     private TextField txtItemCode, txtDescription, txtPackSize, txtUnitPrice, txtQtyOnHand;
     @FXML
+    private Label lblImportStatus;
+    @FXML
+    private Button btnSave, btnUpdate, btnDelete, btnSearch, btnImport;
+    @FXML
     private TableView<Item> tblItem;
     @FXML
     private TableColumn<Item, String> colItemCode, colDescription, colPackSize;
@@ -27,7 +39,12 @@ public class ItemFormController implements Initializable {
     private TableColumn<Item, Integer> colQtyOnHand;
 
     private ItemController itemController;
+    private final ImportController importController = new ImportController();
     private ObservableList<Item> itemList;
+    private BackgroundTask<List<Item>> loadTask;
+    private SortedRows<Item, String> itemRows;
+    // saves, updates, deletes and stock changes from any window, applied row by row
+    private EventBus.Subscription<ItemChanged> itemChanges;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -42,6 +59,8 @@ public class ItemFormController implements Initializable {
         colQtyOnHand.setCellValueFactory(new PropertyValueFactory<>("qtyOnHand"));
 
         tblItem.setItems(itemList);
+        itemRows = new SortedRows<>(itemList, Item::getItemCode, Comparator.naturalOrder());
+        itemChanges = EventBus.subscribe(ItemChanged.class, BackgroundTask.FX, this::itemChanged);
         loadAllItems();
 
 
@@ -65,13 +84,14 @@ public class ItemFormController implements Initializable {
                         Integer.parseInt(txtQtyOnHand.getText())
                 );
 
-                if (itemController.saveItem(item)) {
-                    showAlert("Success", "Item saved successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllItems();
-                } else {
-                    showAlert("Error", "Failed to save item!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> itemController.saveItem(item), saved -> {
+                    if (saved) {
+                        showAlert("Success", "Item saved successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to save item!", Alert.AlertType.ERROR);
+                    }
+                }, "Error saving item: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error saving item: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -90,13 +110,14 @@ public class ItemFormController implements Initializable {
                         Integer.parseInt(txtQtyOnHand.getText())
                 );
 
-                if (itemController.updateItem(item)) {
-                    showAlert("Success", "Item updated successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllItems();
-                } else {
-                    showAlert("Error", "Failed to update item!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> itemController.updateItem(item), updated -> {
+                    if (updated) {
+                        showAlert("Success", "Item updated successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to update item!", Alert.AlertType.ERROR);
+                    }
+                }, "Error updating item: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error updating item: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -105,47 +126,104 @@ public class ItemFormController implements Initializable {
 
     @FXML
     private void deleteItem() {
-        try {
-            if (txtItemCode.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Item Code to delete", Alert.AlertType.WARNING);
-                return;
-            }
+        if (txtItemCode.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Item Code to delete", Alert.AlertType.WARNING);
+            return;
+        }
 
-            Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmation.setTitle("Confirm Delete");
-            confirmation.setContentText("Are you sure you want to delete item " + txtItemCode.getText() + "?");
+        String itemCode = txtItemCode.getText();
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirm Delete");
+        confirmation.setContentText("Are you sure you want to delete item " + itemCode + "?");
 
-            if (confirmation.showAndWait().get() == ButtonType.OK) {
-                if (itemController.deleteItem(txtItemCode.getText())) {
+        if (confirmation.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            this.<Boolean>runAction(task -> itemController.deleteItem(itemCode), deleted -> {
+                if (deleted) {
                     showAlert("Success", "Item deleted successfully!", Alert.AlertType.INFORMATION);
                     clearFields();
-                    loadAllItems();
                 } else {
                     showAlert("Error", "Item not found or cannot be deleted!", Alert.AlertType.WARNING);
                 }
-            }
-        } catch (Exception e) {
-            showAlert("Error", "Error deleting item: " + e.getMessage(), Alert.AlertType.ERROR);
+            }, "Error deleting item: ");
         }
     }
 
     @FXML
     private void searchItem() {
-        try {
-            if (txtItemCode.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Item Code to search", Alert.AlertType.WARNING);
-                return;
-            }
+        if (txtItemCode.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Item Code to search", Alert.AlertType.WARNING);
+            return;
+        }
 
-            Item item = itemController.searchItem(txtItemCode.getText().toUpperCase());
+        String itemCode = txtItemCode.getText().toUpperCase();
+        this.<Item>runAction(task -> itemController.searchItem(itemCode), item -> {
             if (item != null) {
                 setItemData(item);
             } else {
                 showAlert("Not Found", "Item not found!", Alert.AlertType.WARNING);
             }
-        } catch (Exception e) {
-            showAlert("Error", "Error searching item: " + e.getMessage(), Alert.AlertType.ERROR);
+        }, "Error searching item: ");
+    }
+
+    // Saves, updates, deletes and searches run off the FX thread, one at a time: their buttons stay disabled until
+    // the running one has finished.
+    private <T> void runAction(BackgroundTask.Work<T> work, Consumer<T> onSuccess, String failure) {
+        setActionsDisabled(true);
+        BackgroundTask.run(work,
+                result -> {
+                    setActionsDisabled(false);
+                    onSuccess.accept(result);
+                },
+                e -> {
+                    setActionsDisabled(false);
+                    showAlert("Error", failure + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private void setActionsDisabled(boolean disabled) {
+        btnSave.setDisable(disabled);
+        btnUpdate.setDisable(disabled);
+        btnDelete.setDisable(disabled);
+        btnSearch.setDisable(disabled);
+    }
+
+    @FXML
+    private void importItems() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Items");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(tblItem.getScene().getWindow());
+        if (file == null) {
+            return;
         }
+
+        btnImport.setDisable(true);
+        BackgroundTask<ImportResult> task = BackgroundTask.<ImportResult>run(
+                work -> importController.importItems(file.toPath(), (bytesRead, totalBytes, imported, rejected) -> {
+                    work.reportProgress(bytesRead, totalBytes);
+                    work.reportMessage(String.format("Importing... %d%%, %,d imported, %,d rejected",
+                            totalBytes == 0 ? 100 : bytesRead * 100 / totalBytes, imported, rejected));
+                }),
+                result -> {
+                    importFinished();
+                    lblImportStatus.setText(String.format("Last import: %,d imported, %,d rejected",
+                            result.getImported(), result.getRejected()));
+                    showAlert("Import Finished", ImportController.summarize(result, 10),
+                            result.getRejected() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+                    loadAllItems();
+                },
+                e -> {
+                    importFinished();
+                    lblImportStatus.setText("");
+                    showAlert("Error", "Error importing items: " + e.getMessage(), Alert.AlertType.ERROR);
+                    loadAllItems();
+                });
+        lblImportStatus.textProperty().bind(task.messageProperty());
+    }
+
+    private void importFinished() {
+        lblImportStatus.textProperty().unbind();
+        btnImport.setDisable(false);
     }
 
     @FXML
@@ -160,9 +238,18 @@ public class ItemFormController implements Initializable {
 
     @FXML
     private void backToDashboard() {
+        itemChanges.cancel();
         ((Stage) txtItemCode.getScene().getWindow()).close();
     }
 
+    private void itemChanged(ItemChanged event) {
+        if (event.getChange() == Change.DELETED) {
+            itemRows.remove(event.getItemCode());
+        } else {
+            itemRows.put(event.getItem());
+        }
+    }
+
     private void setItemData(Item item) {
         txtItemCode.setText(item.getItemCode());
         txtDescription.setText(item.getDescription());
@@ -172,50 +259,23 @@ public class ItemFormController implements Initializable {
     }
 
     private void loadAllItems() {
-        try {
-            itemList.clear();
-            itemList.addAll(itemController.getAllItems());
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading items: " + e.getMessage(), Alert.AlertType.ERROR);
+        // a newer load supersedes one that is still running
+        if (loadTask != null) {
+            loadTask.cancel();
         }
+        loadTask = BackgroundTask.run(
+                task -> itemController.getAllItems(),
+                items -> itemList.setAll(items),
+                e -> showAlert("Error", "Error loading items: " + e.getMessage(), Alert.AlertType.ERROR));
     }
 
     private boolean validateFields() {
-        if (txtItemCode.getText().isEmpty() || txtDescription.getText().isEmpty() ||
-                txtUnitPrice.getText().isEmpty() || txtQtyOnHand.getText().isEmpty()) {
-
-            showAlert("Validation Error", "Please fill all required fields", Alert.AlertType.WARNING);
-            return false;
-        }
-
-
-        if (!txtItemCode.getText().matches("P\\d{3}")) {
-            showAlert("Validation Error", "Item Code must be in format P001, P002, etc.", Alert.AlertType.WARNING);
-            return false;
-        }
-
-        try {
-            double unitPrice = Double.parseDouble(txtUnitPrice.getText());
-            if (unitPrice <= 0) {
-                showAlert("Validation Error", "Unit price must be greater than 0", Alert.AlertType.WARNING);
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            showAlert("Validation Error", "Please enter a valid unit price", Alert.AlertType.WARNING);
+        String error = RecordValidator.validateItem(txtItemCode.getText(), txtDescription.getText(),
+                txtUnitPrice.getText(), txtQtyOnHand.getText());
+        if (error != null) {
+            showAlert("Validation Error", error, Alert.AlertType.WARNING);
             return false;
         }
-
-        try {
-            int qty = Integer.parseInt(txtQtyOnHand.getText());
-            if (qty < 0) {
-                showAlert("Validation Error", "Quantity cannot be negative", Alert.AlertType.WARNING);
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            showAlert("Validation Error", "Please enter a valid quantity", Alert.AlertType.WARNING);
-            return false;
-        }
-
         return true;
     }
 
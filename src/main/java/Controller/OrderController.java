@@ -1,237 +1,141 @@
 package Controller;
 
-import Models.Db.DatabaseConnection;
+import Models.Db.ChangeLog;
 import Models.Dto.Order;
 import Models.Dto.OrderDetail;
-import Models.Dto.Item;
-
-import java.sql.*;
+import Models.Events.Change;
+import Models.Events.EventBus;
+import Models.Events.OrderChanged;
+import Models.Journal.OrderEvent;
+import Models.Journal.OrderJournal;
+import Models.Metrics.Log;
+import Models.Repository.OrderRepository;
+import Models.Repository.Repositories;
+
+import java.io.IOException;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class OrderController {
+    private final OrderRepository orders = Repositories.orders();
 
     public boolean placeOrder(Order order, List<OrderDetail> orderDetails) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
+        List<OrderDetail> placed = orders.place(order, orderDetails);
+        ItemController.refreshCachedStock(itemCodesOf(orderDetails));
+        OrderDetailController.recordSales(orderDetails);
+        journal(OrderEvent.Type.PLACED, order.getOrderID(), order.getOrderDate(), order.getCustID(),
+                Collections.emptyList(), placed);
+        double total = 0;
+        for (OrderDetail line : placed) {
+            total += line.getTotal();
+        }
+        EventBus.publish(new OrderChanged(Change.INSERTED, order.getOrderID(),
+                new Order(order.getOrderID(), order.getOrderDate(), order.getCustID(), null, total),
+                Collections.emptyList(), placed));
+        return true;
+    }
 
+    // Called once an order change has committed. Like the cache refresh, a failed append must not fail a change
+    // that is already durable; the journal then misses the event, which is reported.
+    static void journal(OrderEvent.Type type, String orderID, LocalDate orderDate, String custID,
+                        List<OrderDetail> removed, List<OrderDetail> added) {
         try {
-            connection.setAutoCommit(false);
-
-
-            String orderSql = "INSERT INTO Orders (OrderID, OrderDate, CustID) VALUES (?, ?, ?)";
-            PreparedStatement orderStmt = connection.prepareStatement(orderSql);
-            orderStmt.setString(1, order.getOrderID());
-            orderStmt.setDate(2, Date.valueOf(order.getOrderDate()));
-            orderStmt.setString(3, order.getCustID());
-            orderStmt.executeUpdate();
-
-
-            String detailSql = "INSERT INTO OrderDetail (OrderID, ItemCode, OrderQTY, Discount) VALUES (?, ?, ?, ?)";
-            String updateItemSql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ?";
-
-            PreparedStatement detailStmt = connection.prepareStatement(detailSql);
-            PreparedStatement updateStmt = connection.prepareStatement(updateItemSql);
-
-            for (OrderDetail detail : orderDetails) {
+            OrderJournal journal = OrderJournal.getInstance();
+            if (journal != null) {
+                journal.append(type, orderID, orderDate, custID, removed, added);
+            }
+        } catch (IOException e) {
+            Log.warn("Order journal append failed, " + type + " of " + orderID + " is not journaled: " +
+                    e.getMessage());
+        }
+    }
 
-                String checkStockSql = "SELECT QtyOnHand FROM Item WHERE ItemCode = ?";
-                PreparedStatement checkStockStmt = connection.prepareStatement(checkStockSql);
-                checkStockStmt.setString(1, detail.getItemCode());
-                ResultSet rs = checkStockStmt.executeQuery();
+    // Another till placed, changed or deleted these orders. The open forms get the order as it is now in place of
+    // what they show, as a delete followed by an insert; an order no longer there is only deleted.
+    static void changedElsewhere(Collection<String> orderIDs) throws SQLException {
+        for (OrderChanged event : readBack(orderIDs)) {
+            EventBus.publish(event);
+        }
+    }
 
-                if (rs.next()) {
-                    int availableQty = rs.getInt("QtyOnHand");
-                    if (availableQty < detail.getOrderQty()) {
-                        throw new SQLException("Insufficient stock for item: " + detail.getItemCode() +
-                                ". Available: " + availableQty + ", Requested: " + detail.getOrderQty());
-                    }
-                } else {
-                    throw new SQLException("Item not found: " + detail.getItemCode());
+    // The events that bring a view of these orders up to what the database holds now.
+    static List<OrderChanged> readBack(Collection<String> orderIDs) throws SQLException {
+        List<OrderChanged> events = new ArrayList<>();
+        for (String orderID : orderIDs) {
+            if (ChangeLog.ALL_ROWS.equals(orderID)) {
+                // nothing here caches orders; the forms show the rest when next opened
+                continue;
+            }
+            Order order = Repositories.orders().findById(orderID);
+            List<OrderDetail> lines = order == null
+                    ? Collections.emptyList()
+                    : Repositories.orderDetails().findByOrder(orderID);
+            events.add(new OrderChanged(Change.DELETED, orderID, null, Collections.emptyList(),
+                    Collections.emptyList()));
+            if (order != null) {
+                double total = 0;
+                for (OrderDetail line : lines) {
+                    total += line.getTotal();
                 }
-
-
-                detailStmt.setString(1, detail.getOrderID());
-                detailStmt.setString(2, detail.getItemCode());
-                detailStmt.setInt(3, detail.getOrderQty());
-                detailStmt.setDouble(4, detail.getDiscount());
-                detailStmt.addBatch();
-
-
-                updateStmt.setInt(1, detail.getOrderQty());
-                updateStmt.setString(2, detail.getItemCode());
-                updateStmt.addBatch();
+                events.add(new OrderChanged(Change.INSERTED, orderID,
+                        new Order(orderID, order.getOrderDate(), order.getCustID(), null, total),
+                        Collections.emptyList(), lines));
             }
+        }
+        return events;
+    }
 
-
-            detailStmt.executeBatch();
-            updateStmt.executeBatch();
-
-            connection.commit();
-            return true;
-
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+    private static Set<String> itemCodesOf(List<OrderDetail> orderDetails) {
+        Set<String> itemCodes = new TreeSet<>();
+        for (OrderDetail detail : orderDetails) {
+            itemCodes.add(detail.getItemCode());
         }
+        return itemCodes;
     }
 
     public List<Order> getAllOrders() throws SQLException {
-        List<Order> orders = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Orders ORDER BY OrderDate DESC, OrderID";
-
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql);
-
-        while (rs.next()) {
-            Order order = new Order();
-            order.setOrderID(rs.getString("OrderID"));
-            order.setOrderDate(rs.getDate("OrderDate").toLocalDate());
-            order.setCustID(rs.getString("CustID"));
-            orders.add(order);
-        }
-        return orders;
+        return orders.findAll();
+    }
+
+    public List<Order> getAllOrdersWithTotals() throws SQLException {
+        return orders.findAllWithTotals();
     }
 
     public Order getOrderById(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT * FROM Orders WHERE OrderID = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            Order order = new Order();
-            order.setOrderID(rs.getString("OrderID"));
-            order.setOrderDate(rs.getDate("OrderDate").toLocalDate());
-            order.setCustID(rs.getString("CustID"));
-            return order;
-        }
-        return null;
+        return orders.findById(orderID);
     }
 
     public List<OrderDetail> getOrderDetails(String orderID) throws SQLException {
-        List<OrderDetail> details = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.OrderID = ? " +
-                "ORDER BY od.ItemCode";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        while (rs.next()) {
-            OrderDetail detail = new OrderDetail();
-            detail.setOrderID(rs.getString("OrderID"));
-            detail.setItemCode(rs.getString("ItemCode"));
-            detail.setOrderQty(rs.getInt("OrderQTY"));
-            detail.setDiscount(rs.getDouble("Discount"));
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            details.add(detail);
-        }
-        return details;
+        return Repositories.orderDetails().findByOrder(orderID);
     }
 
     public String generateNextOrderId() throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT OrderID FROM Orders ORDER BY OrderID DESC LIMIT 1";
-
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql);
-
-        if (rs.next()) {
-            String lastId = rs.getString("OrderID");
-            try {
-                int nextNum = Integer.parseInt(lastId.substring(1)) + 1;
-                return String.format("D%03d", nextNum);
-            } catch (NumberFormatException e) {
-                return "D001";
-            }
-        } else {
-            return "D001";
-        }
+        return orders.nextOrderId();
     }
 
     public boolean deleteOrder(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-
-        try {
-            connection.setAutoCommit(false);
-
-
-            String getDetailsSql = "SELECT ItemCode, OrderQTY FROM OrderDetail WHERE OrderID = ?";
-            PreparedStatement getDetailsStmt = connection.prepareStatement(getDetailsSql);
-            getDetailsStmt.setString(1, orderID);
-            ResultSet rs = getDetailsStmt.executeQuery();
-
-            String restoreStockSql = "UPDATE Item SET QtyOnHand = QtyOnHand + ? WHERE ItemCode = ?";
-            PreparedStatement restoreStmt = connection.prepareStatement(restoreStockSql);
-
-            while (rs.next()) {
-                restoreStmt.setInt(1, rs.getInt("OrderQTY"));
-                restoreStmt.setString(2, rs.getString("ItemCode"));
-                restoreStmt.addBatch();
-            }
-            restoreStmt.executeBatch();
-
-
-            String deleteDetailsSql = "DELETE FROM OrderDetail WHERE OrderID = ?";
-            PreparedStatement deleteDetailsStmt = connection.prepareStatement(deleteDetailsSql);
-            deleteDetailsStmt.setString(1, orderID);
-            deleteDetailsStmt.executeUpdate();
-
-
-            String deleteOrderSql = "DELETE FROM Orders WHERE OrderID = ?";
-            PreparedStatement deleteOrderStmt = connection.prepareStatement(deleteOrderSql);
-            deleteOrderStmt.setString(1, orderID);
-            int result = deleteOrderStmt.executeUpdate();
-
-            connection.commit();
-            return result > 0;
-
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+        List<OrderDetail> removed = orders.delete(orderID);
+        if (removed == null) {
+            return false;
         }
+        ItemController.refreshCachedStock(itemCodesOf(removed));
+        OrderDetailController.adjustSales(removed, Collections.emptyList());
+        journal(OrderEvent.Type.DELETED, orderID, null, null, removed, Collections.emptyList());
+        EventBus.publish(new OrderChanged(Change.DELETED, orderID, null, removed, Collections.emptyList()));
+        return true;
     }
 
     public double getOrderTotal(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT SUM(od.OrderQTY * i.UnitPrice * (1 - od.Discount/100)) as Total " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.OrderID = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return rs.getDouble("Total");
-        }
-        return 0.0;
+        return orders.findTotal(orderID);
     }
 
     public boolean orderExists(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT OrderID FROM Orders WHERE OrderID = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        return rs.next();
+        return orders.exists(orderID);
     }
-
-
-}
\ No newline at end of file
+}
@@ -1,327 +1,160 @@
 package Controller;
 
-import Models.Db.DatabaseConnection;
+import Models.Cache.TopItemCounter;
 import Models.Dto.OrderDetail;
-
-import java.sql.*;
+import Models.Dto.PopularItem;
+import Models.Events.Change;
+import Models.Events.EventBus;
+import Models.Events.OrderChanged;
+import Models.Journal.OrderEvent;
+import Models.Repository.LineChange;
+import Models.Repository.OrderDetailRepository;
+import Models.Repository.Repositories;
+
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class OrderDetailController {
+    private static final TopItemCounter popularItems = new TopItemCounter();
+    private static final long POPULAR_RESEED_MILLIS = Long.getLong("popular.reseedMillis", 5 * 60_000L);
+    private static volatile long popularItemsSeededAt = Long.MIN_VALUE / 2;
 
-    public boolean saveOrderDetail(OrderDetail orderDetail) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "INSERT INTO OrderDetail (OrderID, ItemCode, OrderQTY, Discount) VALUES (?, ?, ?, ?)";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderDetail.getOrderID());
-        stmt.setString(2, orderDetail.getItemCode());
-        stmt.setInt(3, orderDetail.getOrderQty());
-        stmt.setDouble(4, orderDetail.getDiscount());
+    private final ItemController itemController = new ItemController();
+    private final OrderDetailRepository orderDetails = Repositories.orderDetails();
 
-        return stmt.executeUpdate() > 0;
+    public boolean saveOrderDetail(OrderDetail orderDetail) throws SQLException {
+        return applied(OrderEvent.Type.LINES_CHANGED, orderDetail.getOrderID(), orderDetails.save(orderDetail));
     }
 
     public boolean updateOrderDetail(OrderDetail orderDetail) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "UPDATE OrderDetail SET OrderQTY=?, Discount=? WHERE OrderID=? AND ItemCode=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setInt(1, orderDetail.getOrderQty());
-        stmt.setDouble(2, orderDetail.getDiscount());
-        stmt.setString(3, orderDetail.getOrderID());
-        stmt.setString(4, orderDetail.getItemCode());
-
-        return stmt.executeUpdate() > 0;
+        return applied(OrderEvent.Type.LINES_CHANGED, orderDetail.getOrderID(), orderDetails.update(orderDetail));
     }
 
     public boolean deleteOrderDetail(String orderID, String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "DELETE FROM OrderDetail WHERE OrderID=? AND ItemCode=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        stmt.setString(2, itemCode);
-
-        return stmt.executeUpdate() > 0;
+        return applied(OrderEvent.Type.LINES_CHANGED, orderID, orderDetails.delete(orderID, itemCode));
     }
 
     public boolean deleteAllOrderDetails(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "DELETE FROM OrderDetail WHERE OrderID=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-
-        return stmt.executeUpdate() > 0;
+        return applied(OrderEvent.Type.LINES_CHANGED, orderID, orderDetails.deleteAll(orderID));
     }
 
     public OrderDetail searchOrderDetail(String orderID, String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.OrderID=? AND od.ItemCode=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        stmt.setString(2, itemCode);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            OrderDetail detail = new OrderDetail(
-                    rs.getString("OrderID"),
-                    rs.getString("ItemCode"),
-                    rs.getInt("OrderQTY"),
-                    rs.getDouble("Discount")
-            );
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            return detail;
-        }
-        return null;
+        return orderDetails.find(orderID, itemCode);
     }
 
     public List<OrderDetail> getOrderDetailsByOrder(String orderID) throws SQLException {
-        List<OrderDetail> details = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.OrderID = ? " +
-                "ORDER BY od.ItemCode";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        while (rs.next()) {
-            OrderDetail detail = new OrderDetail(
-                    rs.getString("OrderID"),
-                    rs.getString("ItemCode"),
-                    rs.getInt("OrderQTY"),
-                    rs.getDouble("Discount")
-            );
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            details.add(detail);
-        }
-        return details;
+        return orderDetails.findByOrder(orderID);
     }
 
     public List<OrderDetail> getOrderDetailsByItem(String itemCode) throws SQLException {
-        List<OrderDetail> details = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.ItemCode = ? " +
-                "ORDER BY od.OrderID";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
-        ResultSet rs = stmt.executeQuery();
-
-        while (rs.next()) {
-            OrderDetail detail = new OrderDetail(
-                    rs.getString("OrderID"),
-                    rs.getString("ItemCode"),
-                    rs.getInt("OrderQTY"),
-                    rs.getDouble("Discount")
-            );
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            details.add(detail);
-        }
-        return details;
+        return orderDetails.findByItem(itemCode);
     }
 
     public List<OrderDetail> getAllOrderDetails() throws SQLException {
-        List<OrderDetail> details = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "ORDER BY od.OrderID, od.ItemCode";
-
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql);
+        return orderDetails.findAll();
+    }
 
-        while (rs.next()) {
-            OrderDetail detail = new OrderDetail(
-                    rs.getString("OrderID"),
-                    rs.getString("ItemCode"),
-                    rs.getInt("OrderQTY"),
-                    rs.getDouble("Discount")
-            );
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            details.add(detail);
-        }
-        return details;
+    // from the shared item cache
+    public String getItemDescription(String itemCode) throws SQLException {
+        return itemController.getItemDescription(itemCode);
     }
 
     public double getOrderTotalAmount(String orderID) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT SUM(OrderQTY * UnitPrice * (1 - Discount/100)) as TotalAmount " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.OrderID = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return rs.getDouble("TotalAmount");
-        }
-        return 0.0;
+        return Repositories.orders().findTotal(orderID);
     }
 
     public int getTotalQuantitySold(String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT SUM(OrderQTY) as TotalQty FROM OrderDetail WHERE ItemCode = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return rs.getInt("TotalQty");
-        }
-        return 0;
+        return orderDetails.findQuantitySold(itemCode);
     }
 
     public double getTotalSalesByItem(String itemCode) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT SUM(od.OrderQTY * i.UnitPrice * (1 - od.Discount/100)) as TotalSales " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "WHERE od.ItemCode = ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, itemCode);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            return rs.getDouble("TotalSales");
-        }
-        return 0.0;
+        return orderDetails.findSalesAmount(itemCode);
     }
 
     public List<String> getPopularItems(int limit) throws SQLException {
         List<String> popularItems = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.ItemCode, i.Description, SUM(od.OrderQTY) as TotalQty " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "GROUP BY od.ItemCode, i.Description " +
-                "ORDER BY TotalQty DESC " +
-                "LIMIT ?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setInt(1, limit);
-        ResultSet rs = stmt.executeQuery();
-
-        while (rs.next()) {
-            String itemInfo = rs.getString("ItemCode") + " - " +
-                    rs.getString("Description") + " (Sold: " +
-                    rs.getInt("TotalQty") + ")";
-            popularItems.add(itemInfo);
+        for (PopularItem item : getTopItems(TopItemCounter.Window.ALL_TIME, limit)) {
+            popularItems.add(item.getItemCode() + " - " + item.getDescription() + " (Sold: " + item.getQuantitySold() + ")");
         }
         return popularItems;
     }
 
-    public boolean updateOrderDetailQuantity(String orderID, String itemCode, int newQuantity) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-
-        try {
-            connection.setAutoCommit(false);
-
-
-            String getCurrentQtySql = "SELECT OrderQTY FROM OrderDetail WHERE OrderID=? AND ItemCode=?";
-            PreparedStatement getStmt = connection.prepareStatement(getCurrentQtySql);
-            getStmt.setString(1, orderID);
-            getStmt.setString(2, itemCode);
-            ResultSet rs = getStmt.executeQuery();
-
-            if (rs.next()) {
-                int currentQty = rs.getInt("OrderQTY");
-                int quantityDifference = newQuantity - currentQty;
-
-
-                String updateSql = "UPDATE OrderDetail SET OrderQTY=? WHERE OrderID=? AND ItemCode=?";
-                PreparedStatement updateStmt = connection.prepareStatement(updateSql);
-                updateStmt.setInt(1, newQuantity);
-                updateStmt.setString(2, orderID);
-                updateStmt.setString(3, itemCode);
-                updateStmt.executeUpdate();
+    // Best sellers from the in-memory counter, cheap enough to poll. The all-time counts start from SalesByItem
+    // and are re-read every popular.reseedMillis to pick up changes made by other instances; the windows only
+    // see orders placed through this process.
+    public List<PopularItem> getTopItems(TopItemCounter.Window window, int limit) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - popularItemsSeededAt > POPULAR_RESEED_MILLIS) {
+            reseedPopularItems(now);
+        }
+        List<PopularItem> top = popularItems.top(window, limit, now);
+        for (PopularItem item : top) {
+            item.setDescription(itemController.getItemDescription(item.getItemCode()));
+        }
+        return top;
+    }
 
+    // Called by OrderController once an order has committed.
+    static void recordSales(List<OrderDetail> orderDetails) {
+        long now = System.currentTimeMillis();
+        for (OrderDetail detail : orderDetails) {
+            popularItems.add(detail.getItemCode(), detail.getOrderQty(), now);
+        }
+    }
 
-                if (quantityDifference != 0) {
-                    String updateStockSql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ?";
-                    PreparedStatement stockStmt = connection.prepareStatement(updateStockSql);
-                    stockStmt.setInt(1, quantityDifference);
-                    stockStmt.setString(2, itemCode);
-                    stockStmt.executeUpdate();
-                }
+    // Called once a change to past order lines has committed.
+    static void adjustSales(List<OrderDetail> removed, List<OrderDetail> added) {
+        for (OrderDetail line : removed) {
+            popularItems.adjustAllTime(line.getItemCode(), -line.getOrderQty());
+        }
+        for (OrderDetail line : added) {
+            popularItems.adjustAllTime(line.getItemCode(), line.getOrderQty());
+        }
+    }
 
-                connection.commit();
-                return true;
-            }
+    private static synchronized void reseedPopularItems(long now) throws SQLException {
+        if (now - popularItemsSeededAt <= POPULAR_RESEED_MILLIS) {
+            return;
+        }
+        Map<String, Long> quantities = Repositories.orderDetails().findQuantitiesSold();
+        popularItems.resetAllTime(quantities);
+        popularItemsSeededAt = now;
+    }
 
-            connection.rollback();
+    public boolean updateOrderDetailQuantity(String orderID, String itemCode, int newQuantity) throws SQLException {
+        LineChange change = orderDetails.updateQuantity(orderID, itemCode, newQuantity);
+        if (!change.isChanged()) {
             return false;
-
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
         }
+        adjustSales(change.getBefore(), change.getAfter());
+        if (change.getBefore().get(0).getOrderQty() != newQuantity) {
+            ItemController.refreshCachedStock(Collections.singletonList(itemCode));
+        }
+        OrderController.journal(OrderEvent.Type.QUANTITY_CHANGED, orderID, null, null,
+                change.getBefore(), change.getAfter());
+        EventBus.publish(new OrderChanged(Change.UPDATED, orderID, null, change.getBefore(), change.getAfter()));
+        return true;
     }
 
     public boolean updateOrderDetailDiscount(String orderID, String itemCode, double newDiscount) throws SQLException {
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "UPDATE OrderDetail SET Discount=? WHERE OrderID=? AND ItemCode=?";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setDouble(1, newDiscount);
-        stmt.setString(2, orderID);
-        stmt.setString(3, itemCode);
-
-        return stmt.executeUpdate() > 0;
+        return applied(OrderEvent.Type.DISCOUNT_CHANGED, orderID, orderDetails.updateDiscount(orderID, itemCode, newDiscount));
     }
 
     public List<OrderDetail> getOrderDetailsWithCustomerInfo(String orderID) throws SQLException {
-        List<OrderDetail> details = new ArrayList<>();
-        Connection connection = DatabaseConnection.getInstance().getConnection();
-        String sql = "SELECT od.*, i.Description, i.UnitPrice, o.OrderDate, c.CustName " +
-                "FROM OrderDetail od " +
-                "JOIN Item i ON od.ItemCode = i.ItemCode " +
-                "JOIN Orders o ON od.OrderID = o.OrderID " +
-                "JOIN Customer c ON o.CustID = c.CustID " +
-                "WHERE od.OrderID = ? " +
-                "ORDER BY od.ItemCode";
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        stmt.setString(1, orderID);
-        ResultSet rs = stmt.executeQuery();
+        return orderDetails.findByOrderWithCustomer(orderID);
+    }
 
-        while (rs.next()) {
-            OrderDetail detail = new OrderDetail(
-                    rs.getString("OrderID"),
-                    rs.getString("ItemCode"),
-                    rs.getInt("OrderQTY"),
-                    rs.getDouble("Discount")
-            );
-            detail.setDescription(rs.getString("Description"));
-            detail.setUnitPrice(rs.getDouble("UnitPrice"));
-            detail.setDescription(detail.getDescription() + " | Order Date: " +
-                    rs.getDate("OrderDate") + " | Customer: " +
-                    rs.getString("CustName"));
-            details.add(detail);
+    // Moves the popular-item counts from the lines as they were to the lines as they are after a committed change,
+    // and journals and publishes the change.
+    private static boolean applied(OrderEvent.Type type, String orderID, LineChange change) {
+        adjustSales(change.getBefore(), change.getAfter());
+        if (change.isChanged()) {
+            OrderController.journal(type, orderID, null, null, change.getBefore(), change.getAfter());
+            EventBus.publish(new OrderChanged(Change.UPDATED, orderID, null, change.getBefore(), change.getAfter()));
         }
-        return details;
+        return change.isChanged();
     }
-}
\ No newline at end of file
+}
@@ -6,14 +6,30 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import Models.Cache.TopItemCounter;
+import Models.Dto.ExportResult;
 import Models.Dto.OrderDetail;
-
+import Models.Db.SqlSupplier;
+import Models.Dto.PopularItem;
+import Models.Events.Change;
+import Models.Events.EventBus;
+import Models.Events.OrderChanged;
+import Models.Export.ExportFormat;
+
+import java.io.File;
 import java.net.URL;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 
 public class OrderDetailFormController implements Initializable {
+    // the order every list the table shows is kept in, so changed lines are found by binary search
+    private static final Comparator<OrderDetail> LINE_ORDER =
+            Comparator.comparing(OrderDetail::getOrderID).thenComparing(OrderDetail::getItemCode);
 
     @FXML
     private TextField txtOrderID, txtItemCode, txtOrderQty, txtDiscount;
@@ -27,9 +43,22 @@ public class OrderDetailFormController implements Initializable {
     private TableColumn<OrderDetail, Double> colUnitPrice, colDiscount, colTotal;
     @FXML
     private Label lblTotalSales;
+    @FXML
+    private Button btnSave, btnUpdate, btnDelete, btnSearch, btnExport;
+    @FXML
+    private Label lblExportStatus;
 
     private OrderDetailController orderDetailController;
     private ObservableList<OrderDetail> orderDetailList;
+    private BackgroundTask<List<OrderDetail>> loadTask;
+    private final ExportController exportController = new ExportController();
+    private BackgroundTask<ExportResult> exportTask;
+    private SortedRows<OrderDetail, OrderDetail> lineRows;
+    // what the table is narrowed to by searchByOrder or searchByItem, null when it shows every line
+    private String shownOrderID, shownItemCode;
+    private double totalSales;
+    // placed, deleted and changed orders from any window, applied line by line
+    private EventBus.Subscription<OrderChanged> orderChanges;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -38,6 +67,8 @@ public class OrderDetailFormController implements Initializable {
 
         initializeTableColumns();
         tblOrderDetails.setItems(orderDetailList);
+        lineRows = new SortedRows<>(orderDetailList, line -> line, LINE_ORDER);
+        orderChanges = EventBus.subscribe(OrderChanged.class, BackgroundTask.FX, this::orderChanged);
         loadAllOrderDetails();
 
         // Add table row selection listener
@@ -70,13 +101,14 @@ public class OrderDetailFormController implements Initializable {
                         Double.parseDouble(txtDiscount.getText())
                 );
 
-                if (orderDetailController.saveOrderDetail(orderDetail)) {
-                    showAlert("Success", "Order detail saved successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllOrderDetails();
-                } else {
-                    showAlert("Error", "Failed to save order detail!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> orderDetailController.saveOrderDetail(orderDetail), saved -> {
+                    if (saved) {
+                        showAlert("Success", "Order detail saved successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to save order detail!", Alert.AlertType.ERROR);
+                    }
+                }, "Error saving order detail: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error saving order detail: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -94,13 +126,14 @@ public class OrderDetailFormController implements Initializable {
                         Double.parseDouble(txtDiscount.getText())
                 );
 
-                if (orderDetailController.updateOrderDetail(orderDetail)) {
-                    showAlert("Success", "Order detail updated successfully!", Alert.AlertType.INFORMATION);
-                    clearFields();
-                    loadAllOrderDetails();
-                } else {
-                    showAlert("Error", "Failed to update order detail!", Alert.AlertType.ERROR);
-                }
+                this.<Boolean>runAction(task -> orderDetailController.updateOrderDetail(orderDetail), updated -> {
+                    if (updated) {
+                        showAlert("Success", "Order detail updated successfully!", Alert.AlertType.INFORMATION);
+                        clearFields();
+                    } else {
+                        showAlert("Error", "Failed to update order detail!", Alert.AlertType.ERROR);
+                    }
+                }, "Error updating order detail: ");
             }
         } catch (Exception e) {
             showAlert("Error", "Error updating order detail: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -109,98 +142,121 @@ public class OrderDetailFormController implements Initializable {
 
     @FXML
     private void deleteOrderDetail() {
-        try {
-            if (txtOrderID.getText().isEmpty() || txtItemCode.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Order ID and Item Code to delete", Alert.AlertType.WARNING);
-                return;
-            }
-
-            Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmation.setTitle("Confirm Delete");
-            confirmation.setContentText("Are you sure you want to delete this order detail?");
+        if (txtOrderID.getText().isEmpty() || txtItemCode.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Order ID and Item Code to delete", Alert.AlertType.WARNING);
+            return;
+        }
 
-            if (confirmation.showAndWait().get() == ButtonType.OK) {
-                if (orderDetailController.deleteOrderDetail(
-                        txtOrderID.getText().toUpperCase(),
-                        txtItemCode.getText().toUpperCase())) {
+        String orderID = txtOrderID.getText().toUpperCase();
+        String itemCode = txtItemCode.getText().toUpperCase();
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirm Delete");
+        confirmation.setContentText("Are you sure you want to delete this order detail?");
 
+        if (confirmation.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            this.<Boolean>runAction(task -> orderDetailController.deleteOrderDetail(orderID, itemCode), deleted -> {
+                if (deleted) {
                     showAlert("Success", "Order detail deleted successfully!", Alert.AlertType.INFORMATION);
                     clearFields();
-                    loadAllOrderDetails();
                 } else {
                     showAlert("Error", "Order detail not found!", Alert.AlertType.WARNING);
                 }
-            }
-        } catch (Exception e) {
-            showAlert("Error", "Error deleting order detail: " + e.getMessage(), Alert.AlertType.ERROR);
+            }, "Error deleting order detail: ");
         }
     }
 
     @FXML
     private void searchOrderDetail() {
-        try {
-            if (txtOrderID.getText().isEmpty() || txtItemCode.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter both Order ID and Item Code to search", Alert.AlertType.WARNING);
-                return;
-            }
-
-            OrderDetail orderDetail = orderDetailController.searchOrderDetail(
-                    txtOrderID.getText().toUpperCase(),
-                    txtItemCode.getText().toUpperCase());
+        if (txtOrderID.getText().isEmpty() || txtItemCode.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter both Order ID and Item Code to search", Alert.AlertType.WARNING);
+            return;
+        }
 
+        String orderID = txtOrderID.getText().toUpperCase();
+        String itemCode = txtItemCode.getText().toUpperCase();
+        this.<OrderDetail>runAction(task -> orderDetailController.searchOrderDetail(orderID, itemCode), orderDetail -> {
             if (orderDetail != null) {
                 setOrderDetailData(orderDetail);
             } else {
                 showAlert("Not Found", "Order detail not found!", Alert.AlertType.WARNING);
             }
-        } catch (Exception e) {
-            showAlert("Error", "Error searching order detail: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        }, "Error searching order detail: ");
+    }
+
+    // Saves, updates, deletes and searches run off the FX thread, one at a time: their buttons stay disabled until
+    // the running one has finished.
+    private <T> void runAction(BackgroundTask.Work<T> work, Consumer<T> onSuccess, String failure) {
+        setActionsDisabled(true);
+        BackgroundTask.run(work,
+                result -> {
+                    setActionsDisabled(false);
+                    onSuccess.accept(result);
+                },
+                e -> {
+                    setActionsDisabled(false);
+                    showAlert("Error", failure + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private void setActionsDisabled(boolean disabled) {
+        btnSave.setDisable(disabled);
+        btnUpdate.setDisable(disabled);
+        btnDelete.setDisable(disabled);
+        btnSearch.setDisable(disabled);
     }
 
     @FXML
     private void searchByOrder() {
-        try {
-            if (txtOrderID.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Order ID to search", Alert.AlertType.WARNING);
-                return;
-            }
-
-            orderDetailList.clear();
-            orderDetailList.addAll(orderDetailController.getOrderDetailsByOrder(txtOrderID.getText().toUpperCase()));
-            calculateTotalSales();
-        } catch (Exception e) {
-            showAlert("Error", "Error searching by order: " + e.getMessage(), Alert.AlertType.ERROR);
+        if (txtOrderID.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Order ID to search", Alert.AlertType.WARNING);
+            return;
         }
+
+        String orderID = txtOrderID.getText().toUpperCase();
+        showLines(orderID, null, () -> orderDetailController.getOrderDetailsByOrder(orderID),
+                "Error searching by order: ");
     }
 
     @FXML
     private void searchByItem() {
-        try {
-            if (txtItemCode.getText().isEmpty()) {
-                showAlert("Validation Error", "Please enter Item Code to search", Alert.AlertType.WARNING);
-                return;
-            }
-
-            orderDetailList.clear();
-            orderDetailList.addAll(orderDetailController.getOrderDetailsByItem(txtItemCode.getText().toUpperCase()));
-            calculateTotalSales();
-        } catch (Exception e) {
-            showAlert("Error", "Error searching by item: " + e.getMessage(), Alert.AlertType.ERROR);
+        if (txtItemCode.getText().isEmpty()) {
+            showAlert("Validation Error", "Please enter Item Code to search", Alert.AlertType.WARNING);
+            return;
         }
+
+        String itemCode = txtItemCode.getText().toUpperCase();
+        showLines(null, itemCode, () -> orderDetailController.getOrderDetailsByItem(itemCode),
+                "Error searching by item: ");
     }
 
     @FXML
     private void showPopularItems() {
-        try {
-            orderDetailList.clear();
-            // This would show popular items in a different way
-            // For now, let's show all items with their total sales
-            loadAllOrderDetails();
-            showAlert("Info", "Popular items feature would be implemented here", Alert.AlertType.INFORMATION);
-        } catch (Exception e) {
-            showAlert("Error", "Error showing popular items: " + e.getMessage(), Alert.AlertType.ERROR);
+        int limit = Integer.getInteger("popular.listSize", 5);
+        BackgroundTask.<String>run(
+                task -> {
+                    StringBuilder text = new StringBuilder();
+                    appendPopular(text, "Last hour", TopItemCounter.Window.LAST_HOUR, limit);
+                    appendPopular(text, "Last 24 hours", TopItemCounter.Window.LAST_DAY, limit);
+                    appendPopular(text, "Last 7 days", TopItemCounter.Window.LAST_WEEK, limit);
+                    appendPopular(text, "All time", TopItemCounter.Window.ALL_TIME, limit);
+                    return text.toString();
+                },
+                text -> showAlert("Popular Items", text, Alert.AlertType.INFORMATION),
+                e -> showAlert("Error", "Error showing popular items: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
+    private void appendPopular(StringBuilder text, String title, TopItemCounter.Window window, int limit) throws Exception {
+        text.append(title).append(":\n");
+        List<PopularItem> top = orderDetailController.getTopItems(window, limit);
+        if (top.isEmpty()) {
+            text.append("  No sales yet\n");
         }
+        for (int i = 0; i < top.size(); i++) {
+            PopularItem item = top.get(i);
+            text.append(String.format("  %d. %s - %s (Sold: %d)%n",
+                    i + 1, item.getItemCode(), item.getDescription(), item.getQuantitySold()));
+        }
+        text.append("\n");
     }
 
     @FXML
@@ -217,11 +273,130 @@ public class OrderDetailFormController implements Initializable {
         loadAllOrderDetails();
     }
 
+    // Writes every order line to a file chosen by the user; while an export runs the button cancels it.
+    @FXML
+    private void exportOrderDetails() {
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportFinished();
+            lblExportStatus.setText("Export cancelled");
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Order Details");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON Lines files", "*.jsonl"));
+        chooser.setInitialFileName("order-details.csv");
+        File file = chooser.showSaveDialog(tblOrderDetails.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        ExportFormat format = file.getName().toLowerCase().endsWith("." + ExportFormat.JSON_LINES.getExtension())
+                ? ExportFormat.JSON_LINES : ExportFormat.CSV;
+
+        btnExport.setText("Cancel Export");
+        exportTask = BackgroundTask.run(
+                work -> exportController.exportOrderDetails(file.toPath(), format, (rows, total, bytes) -> {
+                    work.reportProgress(rows, total);
+                    work.reportMessage(String.format("Exporting... %,d of %,d lines", rows, total));
+                }),
+                result -> {
+                    exportFinished();
+                    lblExportStatus.setText(String.format("Exported %,d lines (%,.0f lines/sec)",
+                            result.getRowsWritten(), result.getRowsPerSecond()));
+                },
+                e -> {
+                    exportFinished();
+                    lblExportStatus.setText("");
+                    showAlert("Error", "Error exporting order details: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+        lblExportStatus.textProperty().bind(exportTask.messageProperty());
+    }
+
+    private void exportFinished() {
+        exportTask = null;
+        lblExportStatus.textProperty().unbind();
+        btnExport.setText("Export...");
+    }
+
     @FXML
     private void backToDashboard() {
+        orderChanges.cancel();
         ((Stage) txtOrderID.getScene().getWindow()).close();
     }
 
+    // Takes the lines before the change out of the table and puts the lines after it in, where the current
+    // search would show them, and moves the total along.
+    private void orderChanged(OrderChanged event) {
+        if (event.getChange() == Change.DELETED) {
+            // all of the order's lines go, also when the event comes from another till and names none of them
+            int index = lineRows.indexOf(new OrderDetail(event.getOrderID(), "", 0, 0));
+            int from = index >= 0 ? index : -index - 1;
+            int to = from;
+            while (to < orderDetailList.size() && orderDetailList.get(to).getOrderID().equals(event.getOrderID())) {
+                totalSales -= orderDetailList.get(to).getTotal();
+                to++;
+            }
+            orderDetailList.remove(from, to);
+            showTotalSales();
+            return;
+        }
+        for (OrderDetail line : event.getRemovedLines()) {
+            OrderDetail removed = lineRows.remove(line);
+            if (removed != null) {
+                totalSales -= removed.getTotal();
+            }
+        }
+        List<OrderDetail> added = new ArrayList<>();
+        for (OrderDetail line : event.getAddedLines()) {
+            if ((shownOrderID != null && !shownOrderID.equals(line.getOrderID()))
+                    || (shownItemCode != null && !shownItemCode.equals(line.getItemCode()))) {
+                continue;
+            }
+            OrderDetail shown = new OrderDetail(line.getOrderID(), line.getItemCode(), line.getOrderQty(), line.getDiscount());
+            shown.setUnitPrice(line.getUnitPrice());
+            OrderDetail replaced = lineRows.put(shown);
+            if (replaced != null) {
+                totalSales -= replaced.getTotal();
+            }
+            totalSales += shown.getTotal();
+            added.add(shown);
+        }
+        showTotalSales();
+        if (!added.isEmpty()) {
+            describe(added);
+        }
+    }
+
+    // A description can miss the item cache and need a query, so the lines show first and get theirs once read.
+    private void describe(List<OrderDetail> lines) {
+        BackgroundTask.<List<String>>run(
+                task -> {
+                    List<String> descriptions = new ArrayList<>(lines.size());
+                    for (OrderDetail line : lines) {
+                        descriptions.add(orderDetailController.getItemDescription(line.getItemCode()));
+                    }
+                    return descriptions;
+                },
+                descriptions -> {
+                    for (int i = 0; i < lines.size(); i++) {
+                        lines.get(i).setDescription(descriptions.get(i));
+                    }
+                    tblOrderDetails.refresh();
+                },
+                e -> {
+                    // the lines still show, only without their descriptions
+                });
+    }
+
+    private static List<OrderDetail> sorted(List<OrderDetail> details) {
+        List<OrderDetail> sorted = new ArrayList<>(details);
+        sorted.sort(LINE_ORDER);
+        return sorted;
+    }
+
     private void setOrderDetailData(OrderDetail orderDetail) {
         txtOrderID.setText(orderDetail.getOrderID());
         txtItemCode.setText(orderDetail.getItemCode());
@@ -229,21 +404,41 @@ public class OrderDetailFormController implements Initializable {
         txtDiscount.setText(String.valueOf(orderDetail.getDiscount()));
     }
 
-    private void loadAllOrderDetails() {
-        try {
-            orderDetailList.clear();
-            orderDetailList.addAll(orderDetailController.getAllOrderDetails());
-            calculateTotalSales();
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading order details: " + e.getMessage(), Alert.AlertType.ERROR);
+    private void cancelLoad() {
+        if (loadTask != null) {
+            loadTask.cancel();
         }
     }
 
+    private void loadAllOrderDetails() {
+        lblTotalSales.setText("Loading order details...");
+        showLines(null, null, orderDetailController::getAllOrderDetails, "Error loading order details: ");
+    }
+
+    // Fills the table with the lines a search found, or every line when neither key is given. The lines are read
+    // in the background; a newer load or search supersedes one that is still running.
+    private void showLines(String orderID, String itemCode, SqlSupplier<List<OrderDetail>> lines, String failure) {
+        cancelLoad();
+        shownOrderID = orderID;
+        shownItemCode = itemCode;
+        loadTask = BackgroundTask.run(
+                task -> sorted(lines.get()),
+                details -> {
+                    orderDetailList.setAll(details);
+                    calculateTotalSales();
+                },
+                e -> showAlert("Error", failure + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
     private void calculateTotalSales() {
-        double totalSales = 0;
+        totalSales = 0;
         for (OrderDetail detail : orderDetailList) {
             totalSales += detail.getTotal();
         }
+        showTotalSales();
+    }
+
+    private void showTotalSales() {
         lblTotalSales.setText(String.format("Total Sales: Rs. %.2f", totalSales));
     }
 
@@ -12,15 +12,29 @@ import Models.Dto.Customer;
 import Models.Dto.Item;
 import Models.Dto.Order;
 import Models.Dto.OrderDetail;
+import Models.Events.Change;
+import Models.Events.CustomerChanged;
+import Models.Events.EventBus;
+import Models.Events.ItemChanged;
+import Models.Events.OrderChanged;
+import Models.Metrics.Log;
+import Models.Repository.InsufficientStockException;
 
 import java.net.URL;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class OrderFormController implements Initializable {
+    // the order of the history table, as findAllWithTotals returns it
+    private static final Comparator<Order> HISTORY_ORDER =
+            Comparator.comparing(Order::getOrderDate).reversed().thenComparing(Order::getOrderID);
 
     @FXML
     private TextField txtOrderID, txtOrderQty, txtDiscount;
@@ -34,6 +48,8 @@ public class OrderFormController implements Initializable {
     private TableView<Order> tblOrders;
     @FXML
     private Label lblTotalAmount;
+    @FXML
+    private Button btnAddItem, btnPlaceOrder;
 
     // Order Items Table Columns
     @FXML
@@ -62,6 +78,16 @@ public class OrderFormController implements Initializable {
     private ObservableList<Order> ordersList;
     private ObservableList<String> customerIDs;
     private ObservableList<String> itemCodes;
+    private BackgroundTask<?> ordersTask;
+    // the order events that arrived while the history was being read, replayed once it is shown
+    private List<OrderChanged> eventsDuringLoad;
+    private SortedRows<String, String> customerRows, itemRows;
+    private SortedRows<Order, Order> orderRows;
+    // the rows of the history table by OrderID, for finding a changed order's row
+    private final Map<String, Order> ordersByID = new HashMap<>();
+    private EventBus.Subscription<CustomerChanged> customerChanges;
+    private EventBus.Subscription<ItemChanged> itemChanges;
+    private EventBus.Subscription<OrderChanged> orderChanges;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -75,6 +101,13 @@ public class OrderFormController implements Initializable {
         ordersList = FXCollections.observableArrayList();
         customerIDs = FXCollections.observableArrayList();
         itemCodes = FXCollections.observableArrayList();
+        // both lists show "code - ..." labels in code order
+        customerRows = new SortedRows<>(customerIDs, OrderFormController::labelKey, Comparator.naturalOrder());
+        itemRows = new SortedRows<>(itemCodes, OrderFormController::labelKey, Comparator.naturalOrder());
+        orderRows = new SortedRows<>(ordersList, order -> order, HISTORY_ORDER);
+        customerChanges = EventBus.subscribe(CustomerChanged.class, BackgroundTask.FX, this::customerChanged);
+        itemChanges = EventBus.subscribe(ItemChanged.class, BackgroundTask.FX, this::itemChanged);
+        orderChanges = EventBus.subscribe(OrderChanged.class, BackgroundTask.FX, this::orderChanged);
 
 
         dpOrderDate.setValue(LocalDate.now());
@@ -196,57 +229,71 @@ public class OrderFormController implements Initializable {
         tblOrders.setItems(ordersList);
     }
 
+    // the ID comes from the database (or the embedded store), so it is taken off the FX thread
     @FXML
     private void generateOrderId() {
-        try {
-            txtOrderID.setText(orderController.generateNextOrderId());
-        } catch (SQLException e) {
-            showAlert("Error", "Error generating order ID: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        txtOrderID.clear();
+        BackgroundTask.<String>run(
+                task -> orderController.generateNextOrderId(),
+                txtOrderID::setText,
+                e -> showAlert("Error", "Error generating order ID: " + e.getMessage(), Alert.AlertType.ERROR));
     }
 
+    // The item is looked up in the background, as it can miss the item cache; the button stays disabled meanwhile.
     @FXML
     private void addOrderItem() {
-        try {
-            if (validateOrderItem()) {
-                String selectedItem = cmbItem.getValue();
-                if (selectedItem != null) {
-                    String itemCode = selectedItem.split(" - ")[0];
-                    Item item = itemController.searchItem(itemCode);
-
+        if (!validateOrderItem()) {
+            return;
+        }
+        String itemCode = cmbItem.getValue().split(" - ")[0];
+        int quantity = Integer.parseInt(txtOrderQty.getText());
+        double discount = Double.parseDouble(txtDiscount.getText());
+
+        btnAddItem.setDisable(true);
+        BackgroundTask.<Item>run(
+                task -> itemController.searchItem(itemCode),
+                item -> {
+                    btnAddItem.setDisable(false);
                     if (item != null) {
-                        int quantity = Integer.parseInt(txtOrderQty.getText());
-                        double discount = Double.parseDouble(txtDiscount.getText());
-
-                        // Check if item already exists in order
-                        for (OrderItem orderItem : orderItemsList) {
-                            if (orderItem.getItemCode().equals(itemCode)) {
-                                orderItem.setQuantity(orderItem.getQuantity() + quantity);
-                                tblOrderItems.refresh();
-                                calculateTotal();
-                                clearOrderItemFields();
-                                return;
-                            }
-                        }
-
-                        // Add new item
-                        OrderItem orderItem = new OrderItem(
-                                itemCode,
-                                item.getDescription(),
-                                quantity,
-                                item.getUnitPrice(),
-                                discount
-                        );
-
-                        orderItemsList.add(orderItem);
-                        calculateTotal();
-                        clearOrderItemFields();
+                        addOrderItem(item, quantity, discount);
                     }
-                }
+                },
+                e -> {
+                    btnAddItem.setDisable(false);
+                    showAlert("Error", "Error adding item: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private void addOrderItem(Item item, int quantity, double discount) {
+        // Check stock availability
+        if (quantity > item.getQtyOnHand()) {
+            showAlert("Stock Error", "Insufficient stock! Available: " + item.getQtyOnHand(), Alert.AlertType.WARNING);
+            return;
+        }
+
+        // Check if item already exists in order
+        for (OrderItem orderItem : orderItemsList) {
+            if (orderItem.getItemCode().equals(item.getItemCode())) {
+                orderItem.setQuantity(orderItem.getQuantity() + quantity);
+                tblOrderItems.refresh();
+                calculateTotal();
+                clearOrderItemFields();
+                return;
             }
-        } catch (Exception e) {
-            showAlert("Error", "Error adding item: " + e.getMessage(), Alert.AlertType.ERROR);
         }
+
+        // Add new item
+        OrderItem orderItem = new OrderItem(
+                item.getItemCode(),
+                item.getDescription(),
+                quantity,
+                item.getUnitPrice(),
+                discount
+        );
+
+        orderItemsList.add(orderItem);
+        calculateTotal();
+        clearOrderItemFields();
     }
 
     @FXML
@@ -274,20 +321,36 @@ public class OrderFormController implements Initializable {
                         orderDetails.add(detail);
                     }
 
-                    // Use the fixed placeOrder method
-                    if (orderController.placeOrder(order, orderDetails)) {
-                        showAlert("Success", "Order placed successfully!", Alert.AlertType.INFORMATION);
-                        clearOrder();
-                        loadAllOrders();
-                        generateOrderId();
-                    } else {
-                        showAlert("Error", "Failed to place order!", Alert.AlertType.ERROR);
-                    }
+                    btnPlaceOrder.setDisable(true);
+                    BackgroundTask.<Boolean>run(
+                            task -> orderController.placeOrder(order, orderDetails),
+                            placed -> {
+                                btnPlaceOrder.setDisable(false);
+                                if (placed) {
+                                    showAlert("Success", "Order placed successfully!", Alert.AlertType.INFORMATION);
+                                    clearOrder();
+                                    generateOrderId();
+                                } else {
+                                    showAlert("Error", "Failed to place order!", Alert.AlertType.ERROR);
+                                }
+                            },
+                            this::placeOrderFailed);
                 }
             }
         } catch (Exception e) {
             showAlert("Error", "Error placing order: " + e.getMessage(), Alert.AlertType.ERROR);
-            e.printStackTrace();
+            Log.warn("Placing an order failed", e);
+        }
+    }
+
+    private void placeOrderFailed(Throwable e) {
+        btnPlaceOrder.setDisable(false);
+        if (e instanceof InsufficientStockException) {
+            showAlert("Stock Error", e.getMessage(), Alert.AlertType.WARNING);
+            loadItems();
+        } else {
+            showAlert("Error", "Error placing order: " + e.getMessage(), Alert.AlertType.ERROR);
+            Log.warn("Placing an order failed", e);
         }
     }
 
@@ -300,55 +363,188 @@ public class OrderFormController implements Initializable {
 
     @FXML
     private void backToDashboard() {
+        customerChanges.cancel();
+        itemChanges.cancel();
+        orderChanges.cancel();
         ((Stage) txtOrderID.getScene().getWindow()).close();
     }
 
-    private void loadCustomers() {
-        try {
-            customerIDs.clear();
-            List<Customer> customers = customerController.getAllCustomers();
-            for (Customer customer : customers) {
-                customerIDs.add(customer.getCustID() + " - " + customer.getCustName());
-            }
-            cmbCustomer.setItems(customerIDs);
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading customers: " + e.getMessage(), Alert.AlertType.ERROR);
+    private void customerChanged(CustomerChanged event) {
+        if (event.getChange() == Change.DELETED) {
+            customerRows.remove(event.getCustID());
+        } else {
+            customerRows.put(customerLabel(event.getCustomer()));
         }
     }
 
-    private void loadItems() {
-        try {
-            itemCodes.clear();
-            List<Item> items = itemController.getAllItems();
-            for (Item item : items) {
-                if (item.getQtyOnHand() > 0) {
-                    itemCodes.add(item.getItemCode() + " - " + item.getDescription() + " (Stock: " + item.getQtyOnHand() + ")");
-                }
+    // placed orders and stock edits both arrive here; an item that ran out leaves the list
+    private void itemChanged(ItemChanged event) {
+        if (event.getChange() == Change.DELETED || event.getItem().getQtyOnHand() <= 0) {
+            itemRows.remove(event.getItemCode());
+        } else {
+            itemRows.put(itemLabel(event.getItem()));
+        }
+    }
+
+    private void orderChanged(OrderChanged event) {
+        if (eventsDuringLoad != null) {
+            eventsDuringLoad.add(event);
+        }
+        applyOrderChange(event);
+    }
+
+    private void applyOrderChange(OrderChanged event) {
+        if (event.getChange() == Change.INSERTED) {
+            Order order = event.getOrder();
+            Order row = new Order(order.getOrderID(), order.getOrderDate(), order.getCustID(),
+                    customerName(order.getCustID()), order.getTotal());
+            Order replaced = ordersByID.put(row.getOrderID(), row);
+            if (replaced != null) {
+                orderRows.remove(replaced);
             }
-            cmbItem.setItems(itemCodes);
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading items: " + e.getMessage(), Alert.AlertType.ERROR);
+            orderRows.put(row);
+            return;
+        }
+        Order row = event.getChange() == Change.DELETED
+                ? ordersByID.remove(event.getOrderID())
+                : ordersByID.get(event.getOrderID());
+        if (row == null) {
+            return;
         }
+        if (event.getChange() == Change.DELETED) {
+            orderRows.remove(row);
+            return;
+        }
+        double total = row.getTotal();
+        for (OrderDetail line : event.getRemovedLines()) {
+            total -= line.getTotal();
+        }
+        for (OrderDetail line : event.getAddedLines()) {
+            total += line.getTotal();
+        }
+        row.setTotal(total);
+        tblOrders.refresh();
     }
 
-    private void loadAllOrders() {
-        try {
-            ordersList.clear();
-            List<Order> orders = orderController.getAllOrders();
+    // the name as the customer list shows it, so a new order's row needs no query
+    private String customerName(String custID) {
+        int index = customerRows.indexOf(custID);
+        if (index < 0) {
+            return "Unknown";
+        }
+        String label = customerIDs.get(index);
+        return label.substring(label.indexOf(" - ") + 3);
+    }
+
+    private static String labelKey(String label) {
+        int separator = label.indexOf(" - ");
+        return separator < 0 ? label : label.substring(0, separator);
+    }
 
-            // Add customer names and totals to orders
-            for (Order order : orders) {
-                String customerName = customerController.getCustomerName(order.getCustID());
-                order.setCustID(customerName != null ? customerName : "Unknown");
+    private static String customerLabel(Customer customer) {
+        return customer.getCustID() + " - " + customer.getCustName();
+    }
+
+    private static String itemLabel(Item item) {
+        return item.getItemCode() + " - " + item.getDescription() + " (Stock: " + item.getQtyOnHand() + ")";
+    }
+
+    private void loadCustomers() {
+        cmbCustomer.setItems(customerIDs);
+        BackgroundTask.<List<String>>run(
+                task -> {
+                    List<String> labels = new ArrayList<>();
+                    for (Customer customer : customerController.getAllCustomers()) {
+                        labels.add(customerLabel(customer));
+                    }
+                    return labels;
+                },
+                labels -> customerIDs.setAll(labels),
+                e -> showAlert("Error", "Error loading customers: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
+    private void loadItems() {
+        cmbItem.setItems(itemCodes);
+        BackgroundTask.<List<String>>run(
+                task -> {
+                    List<String> labels = new ArrayList<>();
+                    for (Item item : itemController.getAllItems()) {
+                        if (item.getQtyOnHand() > 0) {
+                            labels.add(itemLabel(item));
+                        }
+                    }
+                    return labels;
+                },
+                labels -> itemCodes.setAll(labels),
+                e -> showAlert("Error", "Error loading items: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
 
-                double total = orderController.getOrderTotal(order.getOrderID());
-                order.setTotal(total);
+    private void loadAllOrders() {
+        // a newer load supersedes one that is still running
+        if (ordersTask != null) {
+            ordersTask.cancel();
+        }
+        if (eventsDuringLoad == null) {
+            eventsDuringLoad = new ArrayList<>();
+        }
+        ordersTask = BackgroundTask.<List<Order>>run(
+                task -> {
+                    // Customer names and totals come back joined in a single query
+                    List<Order> orders = orderController.getAllOrdersWithTotals();
+                    for (Order order : orders) {
+                        if (order.getCustomerName() == null) {
+                            order.setCustomerName("Unknown");
+                        }
+                    }
+                    // archived orders are appended after the live ones
+                    List<Order> sorted = new ArrayList<>(orders);
+                    sorted.sort(HISTORY_ORDER);
+                    return sorted;
+                },
+                orders -> {
+                    ordersByID.clear();
+                    for (Order order : orders) {
+                        ordersByID.put(order.getOrderID(), order);
+                    }
+                    ordersList.setAll(orders);
+                    replayEventsDuringLoad();
+                },
+                e -> {
+                    eventsDuringLoad = null;
+                    showAlert("Error", "Error loading orders: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
 
-                ordersList.add(order);
+    // The read may or may not have seen a change whose event arrived while it ran. Inserts and deletes carry the
+    // whole row and are simply applied again; a changed total is only a difference, so those orders are read again,
+    // which in turn replays whatever arrives meanwhile.
+    private void replayEventsDuringLoad() {
+        List<OrderChanged> events = eventsDuringLoad;
+        eventsDuringLoad = null;
+        Set<String> changed = new TreeSet<>();
+        for (OrderChanged event : events) {
+            if (event.getChange() == Change.UPDATED) {
+                changed.add(event.getOrderID());
+            } else {
+                applyOrderChange(event);
             }
-        } catch (SQLException e) {
-            showAlert("Error", "Error loading orders: " + e.getMessage(), Alert.AlertType.ERROR);
         }
+        if (changed.isEmpty()) {
+            return;
+        }
+        eventsDuringLoad = new ArrayList<>();
+        ordersTask = BackgroundTask.<List<OrderChanged>>run(
+                task -> OrderController.readBack(changed),
+                current -> {
+                    for (OrderChanged event : current) {
+                        applyOrderChange(event);
+                    }
+                    replayEventsDuringLoad();
+                },
+                e -> {
+                    eventsDuringLoad = null;
+                    showAlert("Error", "Error loading orders: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
     }
 
     private void viewOrderDetails(String orderID) {
@@ -360,23 +556,24 @@ public class OrderFormController implements Initializable {
         }
     }
 
+    // the row itself leaves the table through the OrderChanged event the delete publishes
     private void deleteOrder(String orderID) {
-        try {
-            Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmation.setTitle("Confirm Delete");
-            confirmation.setHeaderText("Delete Order");
-            confirmation.setContentText("Are you sure you want to delete order " + orderID + "?");
-
-            if (confirmation.showAndWait().get() == ButtonType.OK) {
-                if (orderController.deleteOrder(orderID)) {
-                    showAlert("Success", "Order deleted successfully!", Alert.AlertType.INFORMATION);
-                    loadAllOrders();
-                } else {
-                    showAlert("Error", "Failed to delete order!", Alert.AlertType.ERROR);
-                }
-            }
-        } catch (Exception e) {
-            showAlert("Error", "Error deleting order: " + e.getMessage(), Alert.AlertType.ERROR);
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirm Delete");
+        confirmation.setHeaderText("Delete Order");
+        confirmation.setContentText("Are you sure you want to delete order " + orderID + "?");
+
+        if (confirmation.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            BackgroundTask.<Boolean>run(
+                    task -> orderController.deleteOrder(orderID),
+                    deleted -> {
+                        if (deleted) {
+                            showAlert("Success", "Order deleted successfully!", Alert.AlertType.INFORMATION);
+                        } else {
+                            showAlert("Error", "Failed to delete order!", Alert.AlertType.ERROR);
+                        }
+                    },
+                    e -> showAlert("Error", "Error deleting order: " + e.getMessage(), Alert.AlertType.ERROR));
         }
     }
 
@@ -406,19 +603,9 @@ public class OrderFormController implements Initializable {
                 showAlert("Validation Error", "Quantity must be greater than 0", Alert.AlertType.WARNING);
                 return false;
             }
-
-            // Check stock availability
-            String itemCode = cmbItem.getValue().split(" - ")[0];
-            Item item = itemController.searchItem(itemCode);
-            if (item != null && quantity > item.getQtyOnHand()) {
-                showAlert("Stock Error", "Insufficient stock! Available: " + item.getQtyOnHand(), Alert.AlertType.WARNING);
-                return false;
-            }
         } catch (NumberFormatException e) {
             showAlert("Validation Error", "Please enter a valid quantity", Alert.AlertType.WARNING);
             return false;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
 
         try {
@@ -0,0 +1,69 @@
+package Controller;
+
+import java.time.LocalDate;
+
+// Field rules shared by the forms and the CSV importer. Each method returns the first problem found,
+// or null when the record is valid.
+public final class RecordValidator {
+
+    private RecordValidator() {
+    }
+
+    public static String validateItem(String itemCode, String description, String unitPrice, String qtyOnHand) {
+        if (isBlank(itemCode) || isBlank(description) || isBlank(unitPrice) || isBlank(qtyOnHand)) {
+            return "Please fill all required fields";
+        }
+
+        if (!itemCode.matches("P\\d{3}")) {
+            return "Item Code must be in format P001, P002, etc.";
+        }
+
+        try {
+            if (Double.parseDouble(unitPrice) <= 0) {
+                return "Unit price must be greater than 0";
+            }
+        } catch (NumberFormatException e) {
+            return "Please enter a valid unit price";
+        }
+
+        try {
+            if (Integer.parseInt(qtyOnHand) < 0) {
+                return "Quantity cannot be negative";
+            }
+        } catch (NumberFormatException e) {
+            return "Please enter a valid quantity";
+        }
+
+        return null;
+    }
+
+    public static String validateCustomer(String custID, String custTitle, String custName, LocalDate dob, String salary,
+                                          String custAddress, String city, String province) {
+        if (isBlank(custID) || isBlank(custTitle) || isBlank(custName) || dob == null || isBlank(salary) ||
+                isBlank(custAddress) || isBlank(city) || isBlank(province)) {
+            return "Please fill all required fields";
+        }
+
+        if (!custID.matches("C\\d{3}")) {
+            return "Customer ID must be in format C001, C002, etc.";
+        }
+
+        try {
+            if (Double.parseDouble(salary) <= 0) {
+                return "Salary must be greater than 0";
+            }
+        } catch (NumberFormatException e) {
+            return "Please enter a valid salary";
+        }
+
+        if (dob.isAfter(LocalDate.now())) {
+            return "Date of birth cannot be in the future";
+        }
+
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+}
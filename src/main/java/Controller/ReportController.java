@@ -0,0 +1,143 @@
+package Controller;
+
+import Models.Archive.OrderArchives;
+import Models.Db.DatabaseConnection;
+import Models.Db.OrderArchiver;
+import Models.Db.Schema;
+import Models.Dto.ArchiveResult;
+import Models.Dto.SalesSummary;
+
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Sales reports served from the SalesDaily, SalesByCustomer and SalesByItem aggregates. A period report reads the
+// few slot rows of each day in the range and the ranking reports read one row per customer or item, so the cost of a report does
+// not grow with the number of orders.
+public class ReportController {
+
+    private static final String AMOUNTS = "SUM(Orders) AS Orders, SUM(Quantity) AS Quantity, " +
+            "SUM(GrossAmount) AS GrossAmount, SUM(DiscountAmount) AS DiscountAmount, SUM(NetAmount) AS NetAmount";
+
+    public List<SalesSummary> getDailySales(LocalDate from, LocalDate to) throws SQLException {
+        return getPeriodSales("DATE_FORMAT(SaleDate, '%Y-%m-%d')", from, to);
+    }
+
+    // ISO weeks, e.g. 2024-W07
+    public List<SalesSummary> getWeeklySales(LocalDate from, LocalDate to) throws SQLException {
+        return getPeriodSales("DATE_FORMAT(SaleDate, '%x-W%v')", from, to);
+    }
+
+    public List<SalesSummary> getMonthlySales(LocalDate from, LocalDate to) throws SQLException {
+        return getPeriodSales("DATE_FORMAT(SaleDate, '%Y-%m')", from, to);
+    }
+
+    public SalesSummary getTotals(LocalDate from, LocalDate to) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT " + AMOUNTS + " FROM SalesDaily WHERE SaleDate BETWEEN ? AND ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setDate(1, Date.valueOf(from));
+                stmt.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return toSummary(rs, from + " to " + to, null);
+                }
+            }
+        }
+    }
+
+    // Customers ranked by net revenue over all time.
+    public List<SalesSummary> getTopCustomers(int limit) throws SQLException {
+        List<SalesSummary> rows = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT s.*, c.CustName " +
+                    "FROM SalesByCustomer s " +
+                    "LEFT JOIN Customer c ON c.CustID = s.CustID " +
+                    "WHERE s.Orders > 0 " +
+                    "ORDER BY s.NetAmount DESC " +
+                    "LIMIT ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(toSummary(rs, rs.getString("CustID"), rs.getString("CustName")));
+                    }
+                    return rows;
+                }
+            }
+        }
+    }
+
+    // Items ranked by net revenue over all time.
+    public List<SalesSummary> getTopItems(int limit) throws SQLException {
+        List<SalesSummary> rows = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT s.*, i.Description " +
+                    "FROM SalesByItem s " +
+                    "LEFT JOIN Item i ON i.ItemCode = s.ItemCode " +
+                    "WHERE s.Orders > 0 " +
+                    "ORDER BY s.NetAmount DESC " +
+                    "LIMIT ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(toSummary(rs, rs.getString("ItemCode"), rs.getString("Description")));
+                    }
+                    return rows;
+                }
+            }
+        }
+    }
+
+    // Recomputes every aggregate from the order history, for use after data was changed outside the application.
+    public void rebuildAggregates() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            Schema.rebuildSalesAggregates(connection);
+        }
+    }
+
+    // Moves the orders dated before the cutoff into the monthly archive files. The reports keep counting them.
+    public ArchiveResult archiveOrdersBefore(LocalDate cutoff) throws SQLException, IOException {
+        return new OrderArchiver(OrderArchives.getInstance()).archiveBefore(cutoff);
+    }
+
+    private List<SalesSummary> getPeriodSales(String period, LocalDate from, LocalDate to) throws SQLException {
+        List<SalesSummary> rows = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT " + period + " AS Period, " + AMOUNTS + " " +
+                    "FROM SalesDaily " +
+                    "WHERE SaleDate BETWEEN ? AND ? " +
+                    "GROUP BY Period " +
+                    "ORDER BY Period";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setDate(1, Date.valueOf(from));
+                stmt.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(toSummary(rs, rs.getString("Period"), null));
+                    }
+                    return rows;
+                }
+            }
+        }
+    }
+
+    private static SalesSummary toSummary(ResultSet rs, String key, String name) throws SQLException {
+        return new SalesSummary(
+                key,
+                name,
+                rs.getInt("Orders"),
+                rs.getLong("Quantity"),
+                rs.getDouble("GrossAmount"),
+                rs.getDouble("DiscountAmount"),
+                rs.getDouble("NetAmount")
+        );
+    }
+}
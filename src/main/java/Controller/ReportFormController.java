@@ -0,0 +1,201 @@
+package Controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.Stage;
+import Models.Dto.ArchiveResult;
+import Models.Dto.SalesSummary;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+public class ReportFormController implements Initializable {
+
+    private static final String DAILY = "Daily Revenue";
+    private static final String WEEKLY = "Weekly Revenue";
+    private static final String MONTHLY = "Monthly Revenue";
+    private static final String BY_CUSTOMER = "Revenue by Customer";
+    private static final String BY_ITEM = "Revenue by Item";
+
+    @FXML
+    private ComboBox<String> cmbReport;
+    @FXML
+    private DatePicker dpFrom, dpTo;
+    @FXML
+    private Button btnLoad, btnRebuild, btnArchive;
+    @FXML
+    private Label lblTotals;
+    @FXML
+    private TableView<SalesSummary> tblReport;
+    @FXML
+    private TableColumn<SalesSummary, String> colKey, colName;
+    @FXML
+    private TableColumn<SalesSummary, Integer> colOrders;
+    @FXML
+    private TableColumn<SalesSummary, Long> colQuantity;
+    @FXML
+    private TableColumn<SalesSummary, Double> colGross, colDiscount, colNet;
+
+    private ReportController reportController;
+    private ObservableList<SalesSummary> reportRows;
+    private BackgroundTask<List<SalesSummary>> loadTask;
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        reportController = new ReportController();
+        reportRows = FXCollections.observableArrayList();
+
+        cmbReport.setItems(FXCollections.observableArrayList(DAILY, WEEKLY, MONTHLY, BY_CUSTOMER, BY_ITEM));
+        cmbReport.setValue(DAILY);
+        cmbReport.valueProperty().addListener((observable, oldValue, newValue) -> loadReport());
+        dpFrom.setValue(LocalDate.now().minusDays(30));
+        dpTo.setValue(LocalDate.now());
+
+        colKey.setCellValueFactory(new PropertyValueFactory<>("key"));
+        colName.setCellValueFactory(new PropertyValueFactory<>("name"));
+        colOrders.setCellValueFactory(new PropertyValueFactory<>("orders"));
+        colQuantity.setCellValueFactory(new PropertyValueFactory<>("quantity"));
+        colGross.setCellValueFactory(new PropertyValueFactory<>("grossAmount"));
+        colDiscount.setCellValueFactory(new PropertyValueFactory<>("discountAmount"));
+        colNet.setCellValueFactory(new PropertyValueFactory<>("netAmount"));
+
+        tblReport.setItems(reportRows);
+        loadReport();
+    }
+
+    @FXML
+    private void loadReport() {
+        String report = cmbReport.getValue();
+        LocalDate from = dpFrom.getValue();
+        LocalDate to = dpTo.getValue();
+        if (from == null || to == null || from.isAfter(to)) {
+            showAlert("Validation Error", "Please select a valid date range", Alert.AlertType.WARNING);
+            return;
+        }
+        boolean ranking = BY_CUSTOMER.equals(report) || BY_ITEM.equals(report);
+        dpFrom.setDisable(ranking);
+        dpTo.setDisable(ranking);
+        colName.setVisible(ranking);
+
+        // a newer load supersedes one that is still running
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        int limit = Integer.getInteger("report.rankingLimit", 100);
+        loadTask = BackgroundTask.<List<SalesSummary>>run(
+                task -> switch (report) {
+                    case WEEKLY -> reportController.getWeeklySales(from, to);
+                    case MONTHLY -> reportController.getMonthlySales(from, to);
+                    case BY_CUSTOMER -> reportController.getTopCustomers(limit);
+                    case BY_ITEM -> reportController.getTopItems(limit);
+                    default -> reportController.getDailySales(from, to);
+                },
+                rows -> {
+                    reportRows.setAll(rows);
+                    showTotals(rows);
+                },
+                e -> showAlert("Error", "Error loading report: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
+    @FXML
+    private void rebuildReports() {
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Rebuild Reports");
+        confirmation.setContentText("Recompute all report figures from the order history? " +
+                "This is only needed after orders were changed outside this application.");
+        if (confirmation.showAndWait().get() != ButtonType.OK) {
+            return;
+        }
+
+        btnRebuild.setDisable(true);
+        BackgroundTask.<Boolean>run(
+                task -> {
+                    reportController.rebuildAggregates();
+                    return true;
+                },
+                done -> {
+                    btnRebuild.setDisable(false);
+                    loadReport();
+                },
+                e -> {
+                    btnRebuild.setDisable(false);
+                    showAlert("Error", "Error rebuilding reports: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    // Archives the orders dated before a cutoff, by default the start of the month archive.keepMonths (12) ago.
+    @FXML
+    private void archiveOrders() {
+        LocalDate suggested = LocalDate.now().withDayOfMonth(1).minusMonths(Integer.getInteger("archive.keepMonths", 12));
+        TextInputDialog dialog = new TextInputDialog(suggested.toString());
+        dialog.setTitle("Archive Orders");
+        dialog.setHeaderText("Move orders placed before this date (yyyy-mm-dd) into the order archive. " +
+                "Archived orders stay visible in the order history and the reports but can no longer be changed.");
+        Optional<String> answer = dialog.showAndWait();
+        if (answer.isEmpty()) {
+            return;
+        }
+        LocalDate cutoff;
+        try {
+            cutoff = LocalDate.parse(answer.get().trim());
+        } catch (DateTimeParseException e) {
+            showAlert("Validation Error", "Please enter a date as yyyy-mm-dd", Alert.AlertType.WARNING);
+            return;
+        }
+        if (!cutoff.isBefore(LocalDate.now())) {
+            showAlert("Validation Error", "The cutoff must be in the past", Alert.AlertType.WARNING);
+            return;
+        }
+
+        btnArchive.setDisable(true);
+        BackgroundTask.<ArchiveResult>run(
+                task -> reportController.archiveOrdersBefore(cutoff),
+                result -> {
+                    btnArchive.setDisable(false);
+                    showAlert("Archive Orders", String.format(
+                            "Archived %,d orders with %,d lines from %d months in %.1f s (%,d KB of archive files).",
+                            result.getOrders(), result.getLines(), result.getMonths(),
+                            result.getElapsedMillis() / 1000.0, result.getArchiveBytes() / 1024),
+                            Alert.AlertType.INFORMATION);
+                },
+                e -> {
+                    btnArchive.setDisable(false);
+                    showAlert("Error", "Error archiving orders: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    @FXML
+    private void backToDashboard() {
+        ((Stage) tblReport.getScene().getWindow()).close();
+    }
+
+    private void showTotals(List<SalesSummary> rows) {
+        long quantity = 0;
+        double gross = 0;
+        double discount = 0;
+        double net = 0;
+        for (SalesSummary row : rows) {
+            quantity += row.getQuantity();
+            gross += row.getGrossAmount();
+            discount += row.getDiscountAmount();
+            net += row.getNetAmount();
+        }
+        lblTotals.setText(String.format("Items sold: %,d   Gross: Rs. %,.2f   Discounts: Rs. %,.2f   Revenue: Rs. %,.2f",
+                quantity, gross, discount, net));
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setContentText(message);
+        alert.show();
+    }
+}
@@ -0,0 +1,57 @@
+package Controller;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+// The rows behind a table, kept in key order so that a single changed row is found by binary search. Applying a
+// change then costs one list operation, which the table turns into one row update, instead of a reload.
+final class SortedRows<T, K> {
+    private final List<T> rows;
+    private final Function<? super T, ? extends K> key;
+    private final Comparator<? super K> order;
+
+    SortedRows(List<T> rows, Function<? super T, ? extends K> key, Comparator<? super K> order) {
+        this.rows = rows;
+        this.key = key;
+        this.order = order;
+    }
+
+    // The row's index, or -(insertion point) - 1 when there is none, as in Collections.binarySearch.
+    int indexOf(K wanted) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = order.compare(key.apply(rows.get(middle)), wanted);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    T get(K wanted) {
+        int index = indexOf(wanted);
+        return index >= 0 ? rows.get(index) : null;
+    }
+
+    // Replaces the row with the same key, or inserts it in its place. Returns the row replaced, if any.
+    T put(T row) {
+        int index = indexOf(key.apply(row));
+        if (index >= 0) {
+            return rows.set(index, row);
+        }
+        rows.add(-index - 1, row);
+        return null;
+    }
+
+    T remove(K wanted) {
+        int index = indexOf(wanted);
+        return index >= 0 ? rows.remove(index) : null;
+    }
+}
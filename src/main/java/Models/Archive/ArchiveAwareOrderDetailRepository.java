@@ -0,0 +1,237 @@
+package Models.Archive;
+
+import Models.Dto.Item;
+import Models.Dto.OrderDetail;
+import Models.Repository.CustomerRepository;
+import Models.Repository.ItemRepository;
+import Models.Repository.LineChange;
+import Models.Repository.OrderDetailRepository;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Order lines from the live tables and the monthly archives; see ArchiveAwareOrderRepository. Archived lines get
+// their description from the current items, and keep none when the item has since been deleted. Sales figures
+// come from the aggregates, which still count archived orders, so those calls go straight to the live store.
+public class ArchiveAwareOrderDetailRepository implements OrderDetailRepository {
+    private final OrderDetailRepository live;
+    private final ItemRepository items;
+    private final CustomerRepository customers;
+    private final OrderArchives archives;
+
+    public ArchiveAwareOrderDetailRepository(OrderDetailRepository live, ItemRepository items,
+                                             CustomerRepository customers, OrderArchives archives) {
+        this.live = live;
+        this.items = items;
+        this.customers = customers;
+        this.archives = archives;
+    }
+
+    @Override
+    public LineChange save(OrderDetail orderDetail) throws SQLException {
+        return live.save(orderDetail);
+    }
+
+    @Override
+    public LineChange update(OrderDetail orderDetail) throws SQLException {
+        return live.update(orderDetail);
+    }
+
+    @Override
+    public LineChange delete(String orderID, String itemCode) throws SQLException {
+        return live.delete(orderID, itemCode);
+    }
+
+    @Override
+    public LineChange deleteAll(String orderID) throws SQLException {
+        return live.deleteAll(orderID);
+    }
+
+    @Override
+    public LineChange updateQuantity(String orderID, String itemCode, int newQuantity) throws SQLException {
+        return live.updateQuantity(orderID, itemCode, newQuantity);
+    }
+
+    @Override
+    public LineChange updateDiscount(String orderID, String itemCode, double newDiscount) throws SQLException {
+        return live.updateDiscount(orderID, itemCode, newDiscount);
+    }
+
+    @Override
+    public OrderDetail find(String orderID, String itemCode) throws SQLException {
+        OrderDetail detail = live.find(orderID, itemCode);
+        if (detail != null) {
+            return detail;
+        }
+        for (OrderDetail archived : archivedLines(orderID)) {
+            if (archived.getItemCode().equals(itemCode)) {
+                return archived;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<OrderDetail> findByOrder(String orderID) throws SQLException {
+        List<OrderDetail> details = live.findByOrder(orderID);
+        return details.isEmpty() ? archivedLines(orderID) : details;
+    }
+
+    @Override
+    public List<OrderDetail> findByItem(String itemCode) throws SQLException {
+        List<OrderDetail> details = live.findByItem(itemCode);
+        List<OrderDetail> archived = new ArrayList<>();
+        for (MonthArchive month : archives.newestFirst()) {
+            int item = month.itemIndex(itemCode);
+            if (item < 0) {
+                continue;
+            }
+            for (int order = 0; order < month.getOrderCount(); order++) {
+                for (int line = month.lineStart(order); line < month.lineEnd(order); line++) {
+                    if (month.itemIndexOf(line) == item) {
+                        archived.add(month.toDetail(order, line));
+                    }
+                }
+            }
+        }
+        details.addAll(describe(archived, Set.of(itemCode)));
+        return details;
+    }
+
+    @Override
+    public List<OrderDetail> findAll() throws SQLException {
+        List<OrderDetail> details = live.findAll();
+        List<MonthArchive> months = archives.newestFirst();
+        if (months.isEmpty()) {
+            return details;
+        }
+        Map<String, String> descriptions = allDescriptions();
+        for (MonthArchive month : months) {
+            for (int order = 0; order < month.getOrderCount(); order++) {
+                for (int line = month.lineStart(order); line < month.lineEnd(order); line++) {
+                    OrderDetail detail = month.toDetail(order, line);
+                    detail.setDescription(descriptions.get(detail.getItemCode()));
+                    details.add(detail);
+                }
+            }
+        }
+        return details;
+    }
+
+    // The live lines first, then the archived months from newest to oldest.
+    @Override
+    public long forEachLine(int fetchSize, LineVisitor visitor) throws SQLException, IOException {
+        boolean[] stopped = new boolean[1];
+        long visited = live.forEachLine(fetchSize, detail -> {
+            stopped[0] = !visitor.visit(detail);
+            return !stopped[0];
+        });
+        List<MonthArchive> months = archives.newestFirst();
+        if (stopped[0] || months.isEmpty()) {
+            return visited;
+        }
+        Map<String, String> descriptions = allDescriptions();
+        for (MonthArchive month : months) {
+            for (int order = 0; order < month.getOrderCount(); order++) {
+                for (int line = month.lineStart(order); line < month.lineEnd(order); line++) {
+                    OrderDetail detail = month.toDetail(order, line);
+                    detail.setDescription(descriptions.get(detail.getItemCode()));
+                    visited++;
+                    if (!visitor.visit(detail)) {
+                        return visited;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public long countAll() throws SQLException {
+        long count = live.countAll();
+        for (MonthArchive month : archives.newestFirst()) {
+            count += month.getLineCount();
+        }
+        return count;
+    }
+
+    @Override
+    public List<OrderDetail> findByOrderWithCustomer(String orderID) throws SQLException {
+        List<OrderDetail> details = live.findByOrderWithCustomer(orderID);
+        if (!details.isEmpty()) {
+            return details;
+        }
+        OrderArchives.Located archived = archives.find(orderID);
+        if (archived == null) {
+            return details;
+        }
+        MonthArchive month = archived.getArchive();
+        String customerName = customers.findName(month.custID(archived.getIndex()));
+        details = archivedLines(orderID);
+        for (OrderDetail detail : details) {
+            detail.setDescription(detail.getDescription() + " | Order Date: " +
+                    month.orderDate(archived.getIndex()) + " | Customer: " + customerName);
+        }
+        return details;
+    }
+
+    @Override
+    public int findQuantitySold(String itemCode) throws SQLException {
+        return live.findQuantitySold(itemCode);
+    }
+
+    @Override
+    public double findSalesAmount(String itemCode) throws SQLException {
+        return live.findSalesAmount(itemCode);
+    }
+
+    @Override
+    public Map<String, Long> findQuantitiesSold() throws SQLException {
+        return live.findQuantitiesSold();
+    }
+
+    private List<OrderDetail> archivedLines(String orderID) throws SQLException {
+        OrderArchives.Located archived = archives.find(orderID);
+        if (archived == null) {
+            return new ArrayList<>();
+        }
+        MonthArchive month = archived.getArchive();
+        int order = archived.getIndex();
+        List<OrderDetail> details = new ArrayList<>();
+        Set<String> itemCodes = new TreeSet<>();
+        for (int line = month.lineStart(order); line < month.lineEnd(order); line++) {
+            details.add(month.toDetail(order, line));
+            itemCodes.add(month.itemCode(line));
+        }
+        return describe(details, itemCodes);
+    }
+
+    private List<OrderDetail> describe(List<OrderDetail> details, Collection<String> itemCodes) throws SQLException {
+        if (details.isEmpty()) {
+            return details;
+        }
+        Map<String, String> descriptions = new HashMap<>();
+        for (Item item : items.findByCodes(itemCodes)) {
+            descriptions.put(item.getItemCode(), item.getDescription());
+        }
+        for (OrderDetail detail : details) {
+            detail.setDescription(descriptions.get(detail.getItemCode()));
+        }
+        return details;
+    }
+
+    private Map<String, String> allDescriptions() throws SQLException {
+        Map<String, String> descriptions = new HashMap<>();
+        for (Item item : items.findAll()) {
+            descriptions.put(item.getItemCode(), item.getDescription());
+        }
+        return descriptions;
+    }
+}
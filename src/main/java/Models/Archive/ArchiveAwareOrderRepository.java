@@ -0,0 +1,128 @@
+package Models.Archive;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Repository.CustomerRepository;
+import Models.Repository.OrderRepository;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Orders from the live tables and, where an order is not found there, from the monthly archives, so the order
+// screens show archived orders as before. Archived orders are read-only: changes go to the live tables only,
+// where an archived order does not exist. Listings put archived orders after the live ones, newest month first,
+// and skip any order that is in both, which only happens when an archiving run failed half way.
+public class ArchiveAwareOrderRepository implements OrderRepository {
+    private final OrderRepository live;
+    private final CustomerRepository customers;
+    private final OrderArchives archives;
+
+    public ArchiveAwareOrderRepository(OrderRepository live, CustomerRepository customers, OrderArchives archives) {
+        this.live = live;
+        this.customers = customers;
+        this.archives = archives;
+    }
+
+    @Override
+    public String nextOrderId() throws SQLException {
+        return live.nextOrderId();
+    }
+
+    @Override
+    public List<OrderDetail> place(Order order, List<OrderDetail> orderDetails) throws SQLException {
+        return live.place(order, orderDetails);
+    }
+
+    @Override
+    public List<OrderDetail> delete(String orderID) throws SQLException {
+        return live.delete(orderID);
+    }
+
+    @Override
+    public List<Order> findAll() throws SQLException {
+        List<Order> orders = live.findAll();
+        appendArchived(orders, false);
+        return orders;
+    }
+
+    @Override
+    public List<Order> findAllWithTotals() throws SQLException {
+        List<Order> orders = live.findAllWithTotals();
+        appendArchived(orders, true);
+        return orders;
+    }
+
+    @Override
+    public Order findById(String orderID) throws SQLException {
+        Order order = live.findById(orderID);
+        if (order != null) {
+            return order;
+        }
+        OrderArchives.Located archived = archives.find(orderID);
+        return archived == null ? null : archived.getArchive().toOrder(archived.getIndex());
+    }
+
+    @Override
+    public double findTotal(String orderID) throws SQLException {
+        double total = live.findTotal(orderID);
+        if (total != 0) {
+            return total;
+        }
+        OrderArchives.Located archived = archives.find(orderID);
+        return archived == null ? 0 : archived.getArchive().orderTotal(archived.getIndex());
+    }
+
+    @Override
+    public boolean exists(String orderID) throws SQLException {
+        return live.exists(orderID) || archives.find(orderID) != null;
+    }
+
+    // Newest first like the live listing: days in descending order, orders of one day by ID.
+    private void appendArchived(List<Order> orders, boolean withTotals) throws SQLException {
+        List<MonthArchive> months = archives.newestFirst();
+        if (months.isEmpty()) {
+            return;
+        }
+        Set<String> liveIDs = new HashSet<>();
+        for (Order order : orders) {
+            liveIDs.add(order.getOrderID());
+        }
+        Map<String, String> names = withTotals ? customerNames(months) : Map.of();
+
+        for (MonthArchive month : months) {
+            int dayEnd = month.getOrderCount();
+            while (dayEnd > 0) {
+                int dayStart = dayEnd - 1;
+                while (dayStart > 0 && month.orderDate(dayStart - 1).equals(month.orderDate(dayEnd - 1))) {
+                    dayStart--;
+                }
+                for (int i = dayStart; i < dayEnd; i++) {
+                    if (liveIDs.contains(month.orderID(i))) {
+                        continue;
+                    }
+                    Order order = month.toOrder(i);
+                    if (withTotals) {
+                        order.setCustomerName(names.get(order.getCustID()));
+                        order.setTotal(month.orderTotal(i));
+                    }
+                    orders.add(order);
+                }
+                dayEnd = dayStart;
+            }
+        }
+    }
+
+    // Names of only the customers the archived orders refer to, not of every customer there is.
+    private Map<String, String> customerNames(List<MonthArchive> months) throws SQLException {
+        Set<String> custIDs = new HashSet<>();
+        for (MonthArchive month : months) {
+            for (int i = 0; i < month.getOrderCount(); i++) {
+                custIDs.add(month.custID(i));
+            }
+        }
+        return customers.findNames(custIDs);
+    }
+}
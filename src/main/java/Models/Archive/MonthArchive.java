@@ -0,0 +1,296 @@
+package Models.Archive;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// One month of archived orders, read from a file written by MonthArchiveWriter. The file is memory-mapped, every
+// section is checked against its CRC32 and inflated straight from the mapping into primitive column arrays, so a
+// scan over a month works on arrays and only creates the Orders and OrderDetails it hands out.
+//
+// Layout, big-endian: magic "OARC", version, section count, year * 100 + month, order count and line count, then
+// per section its offset, stored length, raw length and CRC32, followed by the deflated sections:
+//   the customer and item dictionaries, sorted;
+//   per order, sorted by date and ID: ID, days since the previous order (the first counted from the 1st),
+//   customer index and number of lines;
+//   per line, grouped by order and sorted by item code: item index, quantity, discount, and unit price and line
+//   total in cents.
+public class MonthArchive {
+    static final int MAGIC = 0x4F415243;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 20;
+    static final int SECTION_ENTRY_BYTES = 20;
+
+    static final int CUSTOMERS = 0;
+    static final int ITEMS = 1;
+    static final int ORDER_IDS = 2;
+    static final int ORDER_DATES = 3;
+    static final int ORDER_CUSTOMERS = 4;
+    static final int ORDER_LINES = 5;
+    static final int LINE_ITEMS = 6;
+    static final int LINE_QUANTITIES = 7;
+    static final int LINE_DISCOUNTS = 8;
+    static final int LINE_PRICES = 9;
+    static final int LINE_TOTALS = 10;
+    static final int SECTIONS = 11;
+
+    private final YearMonth month;
+    private final long fileSize;
+    private final String[] customers;
+    private final String[] items;
+    private final String[] orderIDs;
+    private final int[] orderDays;
+    private final int[] orderCustomers;
+    // lines of order i are lineStarts[i] until lineStarts[i + 1]
+    private final int[] lineStarts;
+    private final int[] lineItems;
+    private final int[] quantities;
+    private final double[] discounts;
+    private final long[] unitPrices;
+    private final long[] lineTotals;
+    // order indexes sorted by order ID, for lookups
+    private final int[] byOrderID;
+
+    private MonthArchive(Path file, MappedByteBuffer mapped) throws IOException {
+        fileSize = mapped.capacity();
+        if (fileSize < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not an order archive");
+        }
+        if (mapped.getShort(4) != VERSION) {
+            throw new IOException(file + " has unsupported archive version " + mapped.getShort(4));
+        }
+        int sectionCount = mapped.getShort(6);
+        int yearMonth = mapped.getInt(8);
+        month = YearMonth.of(yearMonth / 100, yearMonth % 100);
+        int orderCount = mapped.getInt(12);
+        int lineCount = mapped.getInt(16);
+        if (sectionCount < SECTIONS || fileSize < HEADER_BYTES + (long) sectionCount * SECTION_ENTRY_BYTES) {
+            throw new IOException(file + " is truncated");
+        }
+
+        ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+        Inflater inflater = new Inflater();
+        try {
+            for (int i = 0; i < SECTIONS; i++) {
+                int entry = HEADER_BYTES + i * SECTION_ENTRY_BYTES;
+                sections[i] = inflate(file, inflater, mapped, mapped.getLong(entry), mapped.getInt(entry + 8),
+                        mapped.getInt(entry + 12), mapped.getInt(entry + 16));
+            }
+        } finally {
+            inflater.end();
+        }
+
+        customers = readDictionary(sections[CUSTOMERS]);
+        items = readDictionary(sections[ITEMS]);
+        orderIDs = new String[orderCount];
+        orderDays = new int[orderCount];
+        orderCustomers = new int[orderCount];
+        lineStarts = new int[orderCount + 1];
+        long day = month.atDay(1).toEpochDay();
+        for (int i = 0; i < orderCount; i++) {
+            orderIDs[i] = Columns.readString(sections[ORDER_IDS]);
+            day += Columns.readVarint(sections[ORDER_DATES]);
+            orderDays[i] = (int) day;
+            orderCustomers[i] = (int) Columns.readVarint(sections[ORDER_CUSTOMERS]);
+            lineStarts[i + 1] = lineStarts[i] + (int) Columns.readVarint(sections[ORDER_LINES]);
+        }
+        if (lineStarts[orderCount] != lineCount) {
+            throw new IOException(file + " has " + lineStarts[orderCount] + " lines, its header says " + lineCount);
+        }
+
+        lineItems = new int[lineCount];
+        quantities = new int[lineCount];
+        discounts = new double[lineCount];
+        unitPrices = new long[lineCount];
+        lineTotals = new long[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lineItems[i] = (int) Columns.readVarint(sections[LINE_ITEMS]);
+            quantities[i] = (int) Columns.readSigned(sections[LINE_QUANTITIES]);
+            discounts[i] = Double.longBitsToDouble(sections[LINE_DISCOUNTS].getLong());
+            unitPrices[i] = Columns.readSigned(sections[LINE_PRICES]);
+            lineTotals[i] = Columns.readSigned(sections[LINE_TOTALS]);
+        }
+
+        byOrderID = IntStream.range(0, orderCount).boxed()
+                .sorted(Comparator.comparing(i -> orderIDs[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    public static MonthArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MonthArchive(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (RuntimeException e) {
+            // a damaged file shows up as a buffer underflow or bad index while decoding
+            throw new IOException(file + " is damaged: " + e, e);
+        }
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getOrderCount() {
+        return orderIDs.length;
+    }
+
+    public int getLineCount() {
+        return lineItems.length;
+    }
+
+    public String orderID(int order) {
+        return orderIDs[order];
+    }
+
+    public LocalDate orderDate(int order) {
+        return LocalDate.ofEpochDay(orderDays[order]);
+    }
+
+    public String custID(int order) {
+        return customers[orderCustomers[order]];
+    }
+
+    public int lineStart(int order) {
+        return lineStarts[order];
+    }
+
+    public int lineEnd(int order) {
+        return lineStarts[order + 1];
+    }
+
+    public String itemCode(int line) {
+        return items[lineItems[line]];
+    }
+
+    // Index of the line's item in this month's item dictionary, see itemIndex.
+    public int itemIndexOf(int line) {
+        return lineItems[line];
+    }
+
+    public int quantity(int line) {
+        return quantities[line];
+    }
+
+    public double discount(int line) {
+        return discounts[line];
+    }
+
+    public long unitPriceCents(int line) {
+        return unitPrices[line];
+    }
+
+    public long lineTotalCents(int line) {
+        return lineTotals[line];
+    }
+
+    public double unitPrice(int line) {
+        return unitPrices[line] / 100.0;
+    }
+
+    public double lineTotal(int line) {
+        return lineTotals[line] / 100.0;
+    }
+
+    public double orderTotal(int order) {
+        long cents = 0;
+        for (int line = lineStarts[order]; line < lineStarts[order + 1]; line++) {
+            cents += lineTotals[line];
+        }
+        return cents / 100.0;
+    }
+
+    // Index of the order, or -1 when it is not in this month.
+    public int indexOf(String orderID) {
+        int low = 0;
+        int high = byOrderID.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = orderIDs[byOrderID[middle]].compareTo(orderID);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return byOrderID[middle];
+            }
+        }
+        return -1;
+    }
+
+    // Index of the item in this month's dictionary, or -1 when it sold nothing this month.
+    public int itemIndex(String itemCode) {
+        int index = Arrays.binarySearch(items, itemCode);
+        return index < 0 ? -1 : index;
+    }
+
+    // Order without customer name or total, like OrderRepository.findAll returns them.
+    public Order toOrder(int order) {
+        return new Order(orderIDs[order], orderDate(order), custID(order), null, 0);
+    }
+
+    // Line without description.
+    public OrderDetail toDetail(int order, int line) {
+        OrderDetail detail = new OrderDetail(orderIDs[order], itemCode(line), quantities[line], discounts[line]);
+        detail.setUnitPrice(unitPrice(line));
+        return detail;
+    }
+
+    private static ByteBuffer inflate(Path file, Inflater inflater, MappedByteBuffer mapped, long offset,
+                                      int storedLength, int rawLength, int checksum) throws IOException {
+        if (offset < 0 || offset + storedLength > mapped.capacity()) {
+            throw new IOException(file + " is truncated");
+        }
+        ByteBuffer stored = mapped.slice((int) offset, storedLength);
+        CRC32 crc = new CRC32();
+        crc.update(stored.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException(file + " is damaged: checksum mismatch");
+        }
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(stored);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != rawLength) {
+                throw new IOException(file + " is damaged: section inflates to " + inflated + " of " + rawLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(file + " is damaged: " + e.getMessage(), e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static String[] readDictionary(ByteBuffer section) {
+        String[] values = new String[(int) Columns.readVarint(section)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Columns.readString(section);
+        }
+        return values;
+    }
+}
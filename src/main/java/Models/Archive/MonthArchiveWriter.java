@@ -0,0 +1,205 @@
+package Models.Archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Builds the archive file of one month (see MonthArchive for the layout). Orders are collected in memory, sorted by
+// date and order ID, and written column by column: customer IDs and item codes become indexes into per-file
+// dictionaries, dates the number of days since the previous order, and every column is deflated on its own.
+// The file is written under a temporary name, forced to disk and then moved over the previous version, so
+// readers see either the old file or the complete new one.
+public class MonthArchiveWriter {
+    private final YearMonth month;
+    private final Map<String, PendingOrder> orders = new HashMap<>();
+
+    private static final class PendingOrder {
+        final String orderID;
+        final LocalDate orderDate;
+        final String custID;
+        final TreeMap<String, PendingLine> lines = new TreeMap<>();
+
+        PendingOrder(String orderID, LocalDate orderDate, String custID) {
+            this.orderID = orderID;
+            this.orderDate = orderDate;
+            this.custID = custID;
+        }
+    }
+
+    private static final class PendingLine {
+        final String itemCode;
+        final int quantity;
+        final double discount;
+        final long unitPriceCents;
+        final long lineTotalCents;
+
+        PendingLine(String itemCode, int quantity, double discount, long unitPriceCents, long lineTotalCents) {
+            this.itemCode = itemCode;
+            this.quantity = quantity;
+            this.discount = discount;
+            this.unitPriceCents = unitPriceCents;
+            this.lineTotalCents = lineTotalCents;
+        }
+    }
+
+    public MonthArchiveWriter(YearMonth month) {
+        this.month = month;
+    }
+
+    public void addOrder(String orderID, LocalDate orderDate, String custID) {
+        if (!YearMonth.from(orderDate).equals(month)) {
+            throw new IllegalArgumentException("Order " + orderID + " of " + orderDate + " does not belong in " + month);
+        }
+        orders.put(orderID, new PendingOrder(orderID, orderDate, custID));
+    }
+
+    // Prices are in cents, as stored in the DECIMAL(n,2) columns.
+    public void addLine(String orderID, String itemCode, int quantity, double discount, long unitPriceCents,
+                        long lineTotalCents) {
+        PendingOrder order = orders.get(orderID);
+        if (order == null) {
+            throw new IllegalArgumentException("Line of unknown order " + orderID);
+        }
+        order.lines.put(itemCode, new PendingLine(itemCode, quantity, discount, unitPriceCents, lineTotalCents));
+    }
+
+    // Copies the orders of the existing archive of this month, except those in replaced, which are being
+    // archived again.
+    public void addAll(MonthArchive archive, Set<String> replaced) {
+        for (int i = 0; i < archive.getOrderCount(); i++) {
+            String orderID = archive.orderID(i);
+            if (replaced.contains(orderID)) {
+                continue;
+            }
+            addOrder(orderID, archive.orderDate(i), archive.custID(i));
+            for (int line = archive.lineStart(i); line < archive.lineEnd(i); line++) {
+                addLine(orderID, archive.itemCode(line), archive.quantity(line), archive.discount(line),
+                        archive.unitPriceCents(line), archive.lineTotalCents(line));
+            }
+        }
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    // Returns the size of the file written.
+    public long write(Path file) throws IOException {
+        List<PendingOrder> sorted = new ArrayList<>(orders.values());
+        sorted.sort(Comparator.comparing((PendingOrder order) -> order.orderDate).thenComparing(order -> order.orderID));
+
+        Map<String, Integer> customers = new TreeMap<>();
+        Map<String, Integer> items = new TreeMap<>();
+        int lineCount = 0;
+        for (PendingOrder order : sorted) {
+            customers.put(order.custID, 0);
+            for (String itemCode : order.lines.keySet()) {
+                items.put(itemCode, 0);
+            }
+            lineCount += order.lines.size();
+        }
+        ByteArrayOutputStream[] sections = new ByteArrayOutputStream[MonthArchive.SECTIONS];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new ByteArrayOutputStream();
+        }
+        writeDictionary(sections[MonthArchive.CUSTOMERS], customers);
+        writeDictionary(sections[MonthArchive.ITEMS], items);
+
+        LocalDate previous = month.atDay(1);
+        for (PendingOrder order : sorted) {
+            Columns.writeString(sections[MonthArchive.ORDER_IDS], order.orderID);
+            Columns.writeVarint(sections[MonthArchive.ORDER_DATES], order.orderDate.toEpochDay() - previous.toEpochDay());
+            previous = order.orderDate;
+            Columns.writeVarint(sections[MonthArchive.ORDER_CUSTOMERS], customers.get(order.custID));
+            Columns.writeVarint(sections[MonthArchive.ORDER_LINES], order.lines.size());
+            for (PendingLine line : order.lines.values()) {
+                Columns.writeVarint(sections[MonthArchive.LINE_ITEMS], items.get(line.itemCode));
+                Columns.writeSigned(sections[MonthArchive.LINE_QUANTITIES], line.quantity);
+                Columns.writeLong(sections[MonthArchive.LINE_DISCOUNTS], Double.doubleToLongBits(line.discount));
+                Columns.writeSigned(sections[MonthArchive.LINE_PRICES], line.unitPriceCents);
+                Columns.writeSigned(sections[MonthArchive.LINE_TOTALS], line.lineTotalCents);
+            }
+        }
+
+        byte[][] stored = new byte[sections.length][];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (int i = 0; i < sections.length; i++) {
+                stored[i] = deflate(deflater, sections[i].toByteArray());
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(MonthArchive.HEADER_BYTES + sections.length * MonthArchive.SECTION_ENTRY_BYTES);
+        header.putInt(MonthArchive.MAGIC)
+                .putShort(MonthArchive.VERSION)
+                .putShort((short) sections.length)
+                .putInt(month.getYear() * 100 + month.getMonthValue())
+                .putInt(sorted.size())
+                .putInt(lineCount);
+        long offset = header.capacity();
+        for (int i = 0; i < sections.length; i++) {
+            CRC32 crc = new CRC32();
+            crc.update(stored[i]);
+            header.putLong(offset).putInt(stored[i].length).putInt(sections[i].size()).putInt((int) crc.getValue());
+            offset += stored[i].length;
+        }
+        header.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] section : stored) {
+                writeFully(channel, ByteBuffer.wrap(section));
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return offset;
+    }
+
+    private static void writeDictionary(ByteArrayOutputStream out, Map<String, Integer> dictionary) {
+        Columns.writeVarint(out, dictionary.size());
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            Columns.writeString(out, entry.getKey());
+            entry.setValue(index++);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package Models.Archive;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The archived months under archive.dir (default "order-archive"), one file per month named like
+// orders-2024-03.oarc. A month is opened on first use and kept while memory allows; a file that OrderArchiver
+// has rewritten since is reopened. Read failures are reported as SQLException, like those of the stores the
+// archives stand in for.
+public final class OrderArchives {
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".oarc";
+
+    private static OrderArchives instance;
+
+    private final Path dir;
+    private final Map<YearMonth, Opened> opened = new ConcurrentHashMap<>();
+    private volatile Listing listing;
+
+    // An opened month and the file version it was read from.
+    private static final class Opened {
+        final FileTime modified;
+        final long size;
+        final SoftReference<MonthArchive> archive;
+
+        Opened(FileTime modified, long size, MonthArchive archive) {
+            this.modified = modified;
+            this.size = size;
+            this.archive = new SoftReference<>(archive);
+        }
+    }
+
+    private static final class Listing {
+        final FileTime modified;
+        final List<YearMonth> months;
+
+        Listing(FileTime modified, List<YearMonth> months) {
+            this.modified = modified;
+            this.months = months;
+        }
+    }
+
+    // An archived order: the month it is in and its index there.
+    public static final class Located {
+        private final MonthArchive archive;
+        private final int index;
+
+        Located(MonthArchive archive, int index) {
+            this.archive = archive;
+            this.index = index;
+        }
+
+        public MonthArchive getArchive() {
+            return archive;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private OrderArchives(Path dir) {
+        this.dir = dir;
+    }
+
+    public static synchronized OrderArchives getInstance() {
+        if (instance == null) {
+            instance = new OrderArchives(Path.of(System.getProperty("archive.dir", "order-archive")));
+        }
+        return instance;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public Path fileFor(YearMonth month) {
+        return dir.resolve(PREFIX + month + SUFFIX);
+    }
+
+    // Archived months, newest first. The directory is only listed again once it has changed.
+    public List<YearMonth> months() throws SQLException {
+        try {
+            FileTime modified;
+            try {
+                modified = Files.getLastModifiedTime(dir);
+            } catch (NoSuchFileException e) {
+                return Collections.emptyList();
+            }
+            Listing current = listing;
+            if (current != null && current.modified.equals(modified)) {
+                return current.months;
+            }
+
+            List<YearMonth> months = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        months.add(YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                    } catch (DateTimeParseException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+            months.sort(Comparator.reverseOrder());
+            listing = new Listing(modified, Collections.unmodifiableList(months));
+            return listing.months;
+        } catch (IOException e) {
+            throw new SQLException("Cannot list the order archive " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Forgets the directory listing, for a writer that has just added a month.
+    public void refresh() {
+        listing = null;
+    }
+
+    public boolean isEmpty() throws SQLException {
+        return months().isEmpty();
+    }
+
+    // The archive of the month, or null when the month has none.
+    public MonthArchive get(YearMonth month) throws SQLException {
+        Path file = fileFor(month);
+        try {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                opened.remove(month);
+                return null;
+            }
+            Opened cached = opened.get(month);
+            MonthArchive archive = cached == null ? null : cached.archive.get();
+            if (archive != null && cached.modified.equals(attributes.lastModifiedTime())
+                    && cached.size == attributes.size()) {
+                return archive;
+            }
+            archive = MonthArchive.open(file);
+            opened.put(month, new Opened(attributes.lastModifiedTime(), attributes.size(), archive));
+            return archive;
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the order archive " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Every archived month, newest first.
+    public List<MonthArchive> newestFirst() throws SQLException {
+        List<MonthArchive> archives = new ArrayList<>();
+        for (YearMonth month : months()) {
+            MonthArchive archive = get(month);
+            if (archive != null) {
+                archives.add(archive);
+            }
+        }
+        return archives;
+    }
+
+    // The archived order, or null when no month has it.
+    public Located find(String orderID) throws SQLException {
+        for (YearMonth month : months()) {
+            MonthArchive archive = get(month);
+            int index = archive == null ? -1 : archive.indexOf(orderID);
+            if (index >= 0) {
+                return new Located(archive, index);
+            }
+        }
+        return null;
+    }
+}
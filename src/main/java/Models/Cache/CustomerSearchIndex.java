@@ -0,0 +1,331 @@
+package Models.Cache;
+
+import Models.Dto.Customer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory search over customer ID, name, city and postal code.
+// Tokens are kept in a sorted dictionary, so a prefix lookup is a range scan over the tokens that start with
+// the typed text. A trigram index over the same dictionary catches typos when a term has no prefix match.
+// Every query term has to match (AND) and results are ranked by field weight and match quality.
+public class CustomerSearchIndex {
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_CITY = 2;
+    private static final int FIELD_POSTAL_CODE = 3;
+    private static final double[] FIELD_WEIGHTS = {3.0, 3.0, 2.0, 2.0};
+
+    private static final double EXACT = 3.0;
+    private static final double PREFIX = 2.0;
+    private static final double FUZZY = 1.0;
+    private static final double MIN_SIMILARITY = 0.4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Customer> customers = new HashMap<>();
+    // token -> customer ID -> bit set of the fields the token appears in
+    private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> tokensByTrigram = new HashMap<>();
+    private final Map<String, Map<String, Integer>> tokensByCustomer = new HashMap<>();
+
+    public void rebuild(Collection<Customer> all) {
+        lock.writeLock().lock();
+        try {
+            customers.clear();
+            postings.clear();
+            tokensByTrigram.clear();
+            tokensByCustomer.clear();
+            for (Customer customer : all) {
+                addUnlocked(customer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(customer.getCustID());
+            addUnlocked(customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String custID) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(custID);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Customer> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // only the most selective term goes through the index, the others are checked against the
+            // tokens of its candidates
+            int driving = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int i = 0; i < terms.size(); i++) {
+                long count = countPostings(terms.get(i), fewest);
+                if (count < fewest) {
+                    fewest = count;
+                    driving = i;
+                }
+            }
+            Map<String, Double> scores = scoreTerm(terms.remove(driving));
+            for (String term : terms) {
+                boolean fuzzy = !hasPrefixMatch(term);
+                Iterator<Map.Entry<String, Double>> candidates = scores.entrySet().iterator();
+                while (candidates.hasNext()) {
+                    Map.Entry<String, Double> candidate = candidates.next();
+                    double termScore = scoreCandidate(term, tokensByCustomer.get(candidate.getKey()), fuzzy);
+                    if (termScore == 0) {
+                        candidates.remove();
+                    } else {
+                        candidate.setValue(candidate.getValue() + termScore);
+                    }
+                }
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // keep only the best `limit` hits instead of sorting every candidate
+            PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(limit + 1, (a, b) -> {
+                int byScore = Double.compare(a.getValue(), b.getValue());
+                return byScore != 0 ? byScore : b.getKey().compareTo(a.getKey());
+            });
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                best.offer(entry);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Customer> results = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                results.add(customers.get(best.poll().getKey()));
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Double> scoreTerm(String term) {
+        Map<String, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : prefixed(term).entrySet()) {
+            double quality = entry.getKey().equals(term) ? EXACT : PREFIX;
+            addScores(scores, entry.getValue(), quality);
+        }
+        if (scores.isEmpty() && term.length() >= 3) {
+            for (Map.Entry<String, Double> candidate : similarTokens(term).entrySet()) {
+                addScores(scores, postings.get(candidate.getKey()), FUZZY * candidate.getValue());
+            }
+        }
+        return scores;
+    }
+
+    private NavigableMap<String, Map<String, Integer>> prefixed(String term) {
+        return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private boolean hasPrefixMatch(String term) {
+        String next = postings.ceilingKey(term);
+        return next != null && next.startsWith(term);
+    }
+
+    // Customers matching the term by prefix, counted only up to the given bound. Terms that only match
+    // fuzzily count as unbounded so that a prefix term drives the query whenever there is one.
+    private long countPostings(String term, long bound) {
+        long count = 0;
+        for (Map<String, Integer> byCustomer : prefixed(term).values()) {
+            count += byCustomer.size();
+            if (count >= bound) {
+                return count;
+            }
+        }
+        return count == 0 ? Long.MAX_VALUE - 1 : count;
+    }
+
+    private static double scoreCandidate(String term, Map<String, Integer> tokens, boolean fuzzy) {
+        double best = 0;
+        for (Map.Entry<String, Integer> token : tokens.entrySet()) {
+            if (token.getKey().startsWith(term)) {
+                double quality = token.getKey().length() == term.length() ? EXACT : PREFIX;
+                best = Math.max(best, quality * bestFieldWeight(token.getValue()));
+            }
+        }
+        if (best == 0 && fuzzy && term.length() >= 3) {
+            Set<String> termTrigrams = trigrams(term);
+            for (Map.Entry<String, Integer> token : tokens.entrySet()) {
+                double similarity = similarity(termTrigrams, trigrams(token.getKey()));
+                if (similarity >= MIN_SIMILARITY) {
+                    best = Math.max(best, FUZZY * similarity * bestFieldWeight(token.getValue()));
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        int shared = 0;
+        for (String trigram : a) {
+            if (b.contains(trigram)) {
+                shared++;
+            }
+        }
+        return 2.0 * shared / (a.size() + b.size());
+    }
+
+    private static void addScores(Map<String, Double> scores, Map<String, Integer> fieldsByCustomer, double quality) {
+        for (Map.Entry<String, Integer> entry : fieldsByCustomer.entrySet()) {
+            double score = quality * bestFieldWeight(entry.getValue());
+            scores.merge(entry.getKey(), score, Math::max);
+        }
+    }
+
+    private static double bestFieldWeight(int fields) {
+        double best = 0;
+        for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+            if ((fields & (1 << field)) != 0) {
+                best = Math.max(best, FIELD_WEIGHTS[field]);
+            }
+        }
+        return best;
+    }
+
+    // Dice similarity over trigrams between the term and every dictionary token sharing at least one trigram.
+    private Map<String, Double> similarTokens(String term) {
+        Set<String> termTrigrams = trigrams(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : termTrigrams) {
+            Set<String> tokens = tokensByTrigram.get(trigram);
+            if (tokens != null) {
+                for (String token : tokens) {
+                    shared.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+        Map<String, Double> similar = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            int tokenTrigrams = trigrams(entry.getKey()).size();
+            double similarity = 2.0 * entry.getValue() / (termTrigrams.size() + tokenTrigrams);
+            if (similarity >= MIN_SIMILARITY) {
+                similar.put(entry.getKey(), similarity);
+            }
+        }
+        return similar;
+    }
+
+    private void addUnlocked(Customer customer) {
+        Map<String, Integer> tokens = fieldsByToken(customer);
+        customers.put(customer.getCustID(), customer);
+        tokensByCustomer.put(customer.getCustID(), tokens);
+        for (Map.Entry<String, Integer> entry : tokens.entrySet()) {
+            Map<String, Integer> byCustomer = postings.get(entry.getKey());
+            if (byCustomer == null) {
+                byCustomer = new HashMap<>();
+                postings.put(entry.getKey(), byCustomer);
+                for (String trigram : trigrams(entry.getKey())) {
+                    tokensByTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+            byCustomer.put(customer.getCustID(), entry.getValue());
+        }
+    }
+
+    private void removeUnlocked(String custID) {
+        customers.remove(custID);
+        Map<String, Integer> previous = tokensByCustomer.remove(custID);
+        if (previous == null) {
+            return;
+        }
+        for (String token : previous.keySet()) {
+            Map<String, Integer> byCustomer = postings.get(token);
+            if (byCustomer == null) {
+                continue;
+            }
+            byCustomer.remove(custID);
+            if (byCustomer.isEmpty()) {
+                postings.remove(token);
+                for (String trigram : trigrams(token)) {
+                    Set<String> tokens = tokensByTrigram.get(trigram);
+                    if (tokens != null) {
+                        tokens.remove(token);
+                        if (tokens.isEmpty()) {
+                            tokensByTrigram.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> fieldsByToken(Customer customer) {
+        Map<String, Integer> fields = new HashMap<>();
+        addField(fields, customer.getCustID(), FIELD_ID);
+        addField(fields, customer.getCustName(), FIELD_NAME);
+        addField(fields, customer.getCity(), FIELD_CITY);
+        addField(fields, customer.getPostalCode(), FIELD_POSTAL_CODE);
+        return fields;
+    }
+
+    private static void addField(Map<String, Integer> fields, String value, int field) {
+        for (String token : tokenize(value)) {
+            fields.merge(token, 1 << field, (a, b) -> a | b);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigrams(String token) {
+        String padded = "  " + token + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
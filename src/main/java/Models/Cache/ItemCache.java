@@ -0,0 +1,155 @@
+package Models.Cache;
+
+import Models.Db.DbExecutor;
+import Models.Dto.Item;
+import Models.Metrics.Log;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Read-through cache of the Item table keyed by item code.
+// Reads never lock and never touch the database once the table is loaded.
+// All writes (reloads, write-through puts and removals) are serialized and always store absolute row values,
+// so a put that races with a reload can never apply the same stock change twice.
+public class ItemCache {
+
+    public interface Loader {
+        List<Item> loadAll() throws SQLException;
+
+        List<Item> loadByCodes(Collection<String> itemCodes) throws SQLException;
+    }
+
+    private final Loader loader;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Map<String, Item> items = new ConcurrentHashMap<>();
+    private volatile long loadedAt;
+    private volatile boolean loaded;
+    // true when the whole table fits, so a miss means the item does not exist
+    private volatile boolean complete;
+
+    public ItemCache(Loader loader, int maxSize, long ttlMillis) {
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Item get(String itemCode) throws SQLException {
+        ensureLoaded();
+        Item cached = items.get(itemCode);
+        if (cached != null) {
+            return copy(cached);
+        }
+        if (complete) {
+            return null;
+        }
+        return loadMissing(itemCode);
+    }
+
+    private synchronized Item loadMissing(String itemCode) throws SQLException {
+        Item cached = items.get(itemCode);
+        if (cached == null) {
+            List<Item> found = loader.loadByCodes(Collections.singletonList(itemCode));
+            if (found.isEmpty()) {
+                return null;
+            }
+            cached = found.get(0);
+            put(cached);
+        }
+        return copy(cached);
+    }
+
+    public List<Item> getAll() throws SQLException {
+        ensureLoaded();
+        if (!complete) {
+            return loader.loadAll();
+        }
+        List<Item> all = new ArrayList<>(items.size());
+        for (Item item : items.values()) {
+            all.add(copy(item));
+        }
+        all.sort(Comparator.comparing(Item::getItemCode));
+        return all;
+    }
+
+    public synchronized void put(Item item) {
+        if (!loaded) {
+            return;
+        }
+        if (!complete && items.size() >= maxSize && !items.containsKey(item.getItemCode())) {
+            evictOne();
+        }
+        items.put(item.getItemCode(), copy(item));
+        if (complete && items.size() > maxSize) {
+            // the table outgrew the bound: fall back to caching on demand
+            complete = false;
+            evictOne();
+        }
+    }
+
+    public synchronized void remove(String itemCode) {
+        items.remove(itemCode);
+    }
+
+    public synchronized void invalidateAll() {
+        loaded = false;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            reload();
+        } else if (System.currentTimeMillis() - loadedAt > ttlMillis && refreshing.compareAndSet(false, true)) {
+            // keep serving the current snapshot while a fresh one loads in the background
+            CompletableFuture.runAsync(() -> {
+                try {
+                    reload();
+                } catch (SQLException e) {
+                    Log.warn("Item cache refresh failed: " + e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+            }, DbExecutor.getExecutor());
+        }
+    }
+
+    private synchronized void reload() throws SQLException {
+        if (loaded && System.currentTimeMillis() - loadedAt <= ttlMillis) {
+            return;
+        }
+        List<Item> all = loader.loadAll();
+        Map<String, Item> fresh = new ConcurrentHashMap<>(Math.min(all.size(), maxSize) * 2);
+        boolean fits = all.size() <= maxSize;
+        if (fits) {
+            for (Item item : all) {
+                fresh.put(item.getItemCode(), item);
+            }
+        }
+        items = fresh;
+        complete = fits;
+        loadedAt = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = items.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static Item copy(Item item) {
+        return new Item(item.getItemCode(), item.getDescription(), item.getPackSize(), item.getUnitPrice(), item.getQtyOnHand());
+    }
+}
@@ -0,0 +1,338 @@
+package Models.Cache;
+
+import Models.Db.DbExecutor;
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Metrics.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The items and customers the forms list, held in memory and warm-started from a ReferenceSnapshot file, so a
+// till can fill its lists at start-up without reading both tables from the server. After the snapshot is loaded a
+// delta sync runs in the background; it fetches only the rows changed since the snapshot's version, and is repeated
+// whenever the data is read and the last sync is more than syncMillis old. The snapshot is rewritten after a sync
+// that changed something. Without a usable snapshot the first read loads both tables in full.
+//
+// The keys of the rows a delta changed are passed on to the listener, on another thread once the sync has let go
+// of the data, so the caches built from an earlier read, such as a list filled from the snapshot before its first
+// delta, are patched too. The listener reads the rows back itself, so an older copy cannot overwrite a newer one.
+//
+// Versions come from the server's clock. A delta asks for a little more than strictly needed (overlapMillis
+// before the last version) so that a transaction that committed late with an older timestamp is not missed;
+// applying a row twice is harmless.
+public class ReferenceData {
+
+    public interface Source {
+        // identifies the database, so a snapshot taken from another one is not used
+        String describe();
+
+        // The rows changed at or after since, or every row when since is negative.
+        Delta changesSince(long since) throws SQLException;
+    }
+
+    public interface Listener {
+        // The keys of the items and customers a delta sync found changed or deleted on the server.
+        void changed(List<String> itemCodes, List<String> custIDs);
+    }
+
+    public static final class Delta {
+        private final long version;
+        private final List<Item> items;
+        private final List<Customer> customers;
+        private final List<String> deletedItems;
+        private final List<String> deletedCustomers;
+
+        public Delta(long version, List<Item> items, List<Customer> customers, List<String> deletedItems,
+                     List<String> deletedCustomers) {
+            this.version = version;
+            this.items = items;
+            this.customers = customers;
+            this.deletedItems = deletedItems;
+            this.deletedCustomers = deletedCustomers;
+        }
+
+        private boolean isEmpty() {
+            return items.isEmpty() && customers.isEmpty() && deletedItems.isEmpty() && deletedCustomers.isEmpty();
+        }
+    }
+
+    private final Source source;
+    private final Path file;
+    private final long syncMillis;
+    private final long overlapMicros;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile Listener listener;
+
+    private volatile ConcurrentSkipListMap<String, Item> items = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentSkipListMap<String, Customer> customers = new ConcurrentSkipListMap<>();
+    private volatile boolean opened;
+    // set when rows were changed behind the application's back, e.g. by an import; the next read syncs first
+    private volatile boolean stale;
+    private volatile long lastSyncAt;
+    // server time in microseconds of the last sync, -1 before the first
+    private long version = -1;
+    // changed since the snapshot was last written
+    private boolean dirty;
+
+    public ReferenceData(Source source, Path file, long syncMillis, long overlapMillis) {
+        this.source = source;
+        this.file = file;
+        this.syncMillis = syncMillis;
+        this.overlapMicros = TimeUnit.MILLISECONDS.toMicros(overlapMillis);
+    }
+
+    // ordered by ItemCode
+    public List<Item> items() throws SQLException {
+        ensureCurrent();
+        List<Item> all = new ArrayList<>(items.size());
+        for (Item item : items.values()) {
+            all.add(copy(item));
+        }
+        return all;
+    }
+
+    // ordered by CustID
+    public List<Customer> customers() throws SQLException {
+        ensureCurrent();
+        List<Customer> all = new ArrayList<>(customers.size());
+        for (Customer customer : customers.values()) {
+            all.add(copy(customer));
+        }
+        return all;
+    }
+
+    // Write-through for changes this till made itself. They share the lock with sync, so a sync that read the row
+    // before the change cannot overwrite it afterwards.
+    public synchronized void putItem(Item item) {
+        if (opened) {
+            items.put(item.getItemCode(), copy(item));
+            dirty = true;
+        }
+    }
+
+    public synchronized void removeItem(String itemCode) {
+        if (opened && items.remove(itemCode) != null) {
+            dirty = true;
+        }
+    }
+
+    public synchronized void putCustomer(Customer customer) {
+        if (opened) {
+            customers.put(customer.getCustID(), copy(customer));
+            dirty = true;
+        }
+    }
+
+    public synchronized void removeCustomer(String custID) {
+        if (opened && customers.remove(custID) != null) {
+            dirty = true;
+        }
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Loads the snapshot on a background thread, so it is in memory by the time the first form asks.
+    public void warmUp() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                ensureCurrent();
+            } catch (SQLException e) {
+                Log.warn("Reference data warm-up failed: " + e.getMessage());
+            }
+        }, DbExecutor.getExecutor());
+    }
+
+    public void sync() throws SQLException {
+        Delta changes = load();
+        Listener listener = this.listener;
+        if (changes == null || listener == null) {
+            return;
+        }
+        List<String> itemCodes = new ArrayList<>(changes.deletedItems);
+        for (Item item : changes.items) {
+            itemCodes.add(item.getItemCode());
+        }
+        List<String> custIDs = new ArrayList<>(changes.deletedCustomers);
+        for (Customer customer : changes.customers) {
+            custIDs.add(customer.getCustID());
+        }
+        // a sync can run inside a cache's reload, which the listener must not wait on
+        CompletableFuture.runAsync(() -> listener.changed(itemCodes, custIDs), DbExecutor.getExecutor());
+    }
+
+    // Returns the rows the delta changed, or null after a full load, which nothing can have been built from yet.
+    private synchronized Delta load() throws SQLException {
+        long since = version < 0 ? -1 : Math.max(0, version - overlapMicros);
+        Delta delta = source.changesSince(since);
+        Delta changes = null;
+        if (since < 0) {
+            ConcurrentSkipListMap<String, Item> freshItems = new ConcurrentSkipListMap<>();
+            for (Item item : delta.items) {
+                freshItems.put(item.getItemCode(), item);
+            }
+            ConcurrentSkipListMap<String, Customer> freshCustomers = new ConcurrentSkipListMap<>();
+            for (Customer customer : delta.customers) {
+                freshCustomers.put(customer.getCustID(), customer);
+            }
+            items = freshItems;
+            customers = freshCustomers;
+            dirty = true;
+        } else {
+            changes = apply(delta);
+            if (changes.isEmpty()) {
+                changes = null;
+            } else {
+                dirty = true;
+            }
+        }
+        version = delta.version;
+        lastSyncAt = System.currentTimeMillis();
+        stale = false;
+        opened = true;
+        if (dirty) {
+            writeSnapshot();
+        }
+        return changes;
+    }
+
+    // Writes the snapshot if this till changed anything since the last one.
+    public synchronized void close() {
+        if (dirty) {
+            writeSnapshot();
+        }
+    }
+
+    private void ensureCurrent() throws SQLException {
+        if (!opened) {
+            open();
+        }
+        if (stale) {
+            sync();
+        } else if (System.currentTimeMillis() - lastSyncAt > syncMillis && syncing.compareAndSet(false, true)) {
+            // keep serving what is in memory while the delta loads
+            CompletableFuture.runAsync(() -> {
+                try {
+                    sync();
+                } catch (SQLException e) {
+                    Log.warn("Reference data sync failed: " + e.getMessage());
+                } finally {
+                    syncing.set(false);
+                }
+            }, DbExecutor.getExecutor());
+        }
+    }
+
+    private synchronized void open() throws SQLException {
+        if (opened) {
+            return;
+        }
+        if (Files.exists(file)) {
+            try {
+                ReferenceSnapshot snapshot = ReferenceSnapshot.read(file);
+                if (source.describe().equals(snapshot.getSource())) {
+                    for (Item item : snapshot.getItems()) {
+                        items.put(item.getItemCode(), item);
+                    }
+                    for (Customer customer : snapshot.getCustomers()) {
+                        customers.put(customer.getCustID(), customer);
+                    }
+                    version = snapshot.getVersion();
+                    // lastSyncAt stays 0, so the caller starts a delta sync straight away
+                    opened = true;
+                    return;
+                }
+                Log.warn("Ignoring reference snapshot " + file + " taken from " + snapshot.getSource());
+            } catch (IOException e) {
+                Log.warn("Ignoring reference snapshot: " + e.getMessage());
+            }
+        }
+        load();
+    }
+
+    // Returns copies of the rows that were not already as the delta has them.
+    private Delta apply(Delta delta) {
+        List<String> deletedItems = new ArrayList<>();
+        List<String> deletedCustomers = new ArrayList<>();
+        List<Item> changedItems = new ArrayList<>();
+        List<Customer> changedCustomers = new ArrayList<>();
+        // deletes first: a row deleted and then created again comes back through its newer UpdatedAt
+        for (String itemCode : delta.deletedItems) {
+            if (items.remove(itemCode) != null) {
+                deletedItems.add(itemCode);
+            }
+        }
+        for (String custID : delta.deletedCustomers) {
+            if (customers.remove(custID) != null) {
+                deletedCustomers.add(custID);
+            }
+        }
+        for (Item item : delta.items) {
+            Item previous = items.put(item.getItemCode(), item);
+            if (previous == null || !sameItem(previous, item)) {
+                changedItems.add(copy(item));
+            }
+        }
+        for (Customer customer : delta.customers) {
+            Customer previous = customers.put(customer.getCustID(), customer);
+            if (previous == null || !sameCustomer(previous, customer)) {
+                changedCustomers.add(copy(customer));
+            }
+        }
+        return new Delta(delta.version, changedItems, changedCustomers, deletedItems, deletedCustomers);
+    }
+
+    // A failed write only costs the next start-up a longer sync.
+    private void writeSnapshot() {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            ReferenceSnapshot.write(file, version, source.describe(), items.values(), customers.values());
+            dirty = false;
+        } catch (IOException e) {
+            Log.warn("Could not write reference snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean sameItem(Item a, Item b) {
+        return Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getPackSize(), b.getPackSize())
+                && a.getUnitPrice() == b.getUnitPrice()
+                && a.getQtyOnHand() == b.getQtyOnHand();
+    }
+
+    private static boolean sameCustomer(Customer a, Customer b) {
+        return Objects.equals(a.getCustTitle(), b.getCustTitle())
+                && Objects.equals(a.getCustName(), b.getCustName())
+                && Objects.equals(a.getDob(), b.getDob())
+                && a.getSalary() == b.getSalary()
+                && Objects.equals(a.getCustAddress(), b.getCustAddress())
+                && Objects.equals(a.getCity(), b.getCity())
+                && Objects.equals(a.getProvince(), b.getProvince())
+                && Objects.equals(a.getPostalCode(), b.getPostalCode());
+    }
+
+    private static Item copy(Item item) {
+        return new Item(item.getItemCode(), item.getDescription(), item.getPackSize(), item.getUnitPrice(), item.getQtyOnHand());
+    }
+
+    private static Customer copy(Customer customer) {
+        return new Customer(customer.getCustID(), customer.getCustTitle(), customer.getCustName(), customer.getDob(),
+                customer.getSalary(), customer.getCustAddress(), customer.getCity(), customer.getProvince(),
+                customer.getPostalCode());
+    }
+}
@@ -0,0 +1,170 @@
+package Models.Cache;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// The items and customers of a till as of one sync, in a file that is memory-mapped and decoded in one pass at
+// start-up. Layout, big-endian: magic "RSNP", format, the sync version, the database the rows came from, the item
+// and customer counts, the rows, and a CRC32 of everything before it. Strings are a byte length (-1 for null)
+// followed by UTF-8; dates are epoch days (Long.MIN_VALUE for null).
+public class ReferenceSnapshot {
+    private static final int MAGIC = 0x52534E50;
+    private static final int FORMAT = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final long version;
+    private final String source;
+    private final List<Item> items;
+    private final List<Customer> customers;
+
+    public ReferenceSnapshot(long version, String source, List<Item> items, List<Customer> customers) {
+        this.version = version;
+        this.source = source;
+        this.items = items;
+        this.customers = customers;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public static ReferenceSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < 12 || mapped.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a reference snapshot");
+            }
+            if (mapped.getInt(4) != FORMAT) {
+                throw new IOException(file + " has unsupported snapshot format " + mapped.getInt(4));
+            }
+            int end = mapped.capacity() - 4;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.slice(0, end));
+            if ((int) crc.getValue() != mapped.getInt(end)) {
+                throw new IOException(file + " fails its checksum");
+            }
+
+            ByteBuffer in = mapped.slice(8, end - 8);
+            long version = in.getLong();
+            String source = readString(in);
+            int itemCount = in.getInt();
+            int customerCount = in.getInt();
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(new Item(readString(in), readString(in), readString(in), in.getDouble(), in.getInt()));
+            }
+            List<Customer> customers = new ArrayList<>(customerCount);
+            for (int i = 0; i < customerCount; i++) {
+                String custID = readString(in);
+                String title = readString(in);
+                String name = readString(in);
+                long dob = in.getLong();
+                customers.add(new Customer(custID, title, name, dob == NO_DATE ? null : LocalDate.ofEpochDay(dob),
+                        in.getDouble(), readString(in), readString(in), readString(in), readString(in)));
+            }
+            return new ReferenceSnapshot(version, source, items, customers);
+        } catch (RuntimeException e) {
+            // a damaged file shows up as a buffer underflow or a bad length while decoding
+            throw new IOException(file + " is damaged: " + e, e);
+        }
+    }
+
+    // Writes to a temporary file first and moves it over the old snapshot, so a crash leaves one or the other. The
+    // temporary file has a name of its own, as two tills started from the same directory share the snapshot.
+    public static void write(Path file, long version, String source, Collection<Item> items,
+                             Collection<Customer> customers) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(version);
+            writeString(out, source);
+            out.writeInt(items.size());
+            out.writeInt(customers.size());
+            for (Item item : items) {
+                writeString(out, item.getItemCode());
+                writeString(out, item.getDescription());
+                writeString(out, item.getPackSize());
+                out.writeDouble(item.getUnitPrice());
+                out.writeInt(item.getQtyOnHand());
+            }
+            for (Customer customer : customers) {
+                writeString(out, customer.getCustID());
+                writeString(out, customer.getCustTitle());
+                writeString(out, customer.getCustName());
+                out.writeLong(customer.getDob() == null ? NO_DATE : customer.getDob().toEpochDay());
+                out.writeDouble(customer.getSalary());
+                writeString(out, customer.getCustAddress());
+                writeString(out, customer.getCity());
+                writeString(out, customer.getProvince());
+                writeString(out, customer.getPostalCode());
+            }
+            out.flush();
+            // the checksum covers everything above and is not part of itself
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+        in.position(in.position() + length);
+        return value;
+    }
+}
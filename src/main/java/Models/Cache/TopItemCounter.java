@@ -0,0 +1,175 @@
+package Models.Cache;
+
+import Models.Dto.PopularItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Exact quantity sold per item, all time and over sliding windows. A window is a ring of time buckets plus a
+// running total per item: a sale is added to the current bucket and to the totals, and a bucket that falls out
+// of the window is subtracted from the totals as its slot is reused, so no query ever re-sums the buckets.
+// Top-K answers are computed with a bounded heap and memoized until the counts change, so frequent polling
+// between sales costs a version check.
+public class TopItemCounter {
+
+    public enum Window {
+        ALL_TIME(0, 0),
+        LAST_HOUR(60_000L, 60),
+        LAST_DAY(15 * 60_000L, 96),
+        LAST_WEEK(60 * 60_000L, 168);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    private final Counts allTime = new Counts();
+    private final Map<Window, SlidingCounts> windows = new HashMap<>();
+
+    public TopItemCounter() {
+        for (Window window : Window.values()) {
+            if (window != Window.ALL_TIME) {
+                windows.put(window, new SlidingCounts(window.bucketMillis, window.buckets));
+            }
+        }
+    }
+
+    // Units sold at the given time; counted all time and in every window.
+    public synchronized void add(String itemCode, long quantity, long timeMillis) {
+        if (quantity <= 0) {
+            return;
+        }
+        allTime.add(itemCode, quantity);
+        for (SlidingCounts window : windows.values()) {
+            window.add(itemCode, quantity, timeMillis);
+        }
+    }
+
+    // Corrections to past sales, such as a deleted order or a changed quantity. Only the all-time counts can
+    // take them, since the bucket the original sale went into is not known.
+    public synchronized void adjustAllTime(String itemCode, long delta) {
+        allTime.add(itemCode, delta);
+    }
+
+    public synchronized void resetAllTime(Map<String, Long> quantities) {
+        allTime.clear();
+        for (Map.Entry<String, Long> entry : quantities.entrySet()) {
+            allTime.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Best sellers first, ties broken by item code. Descriptions are left for the caller to fill in.
+    public synchronized List<PopularItem> top(Window window, int k, long nowMillis) {
+        Counts counts;
+        if (window == Window.ALL_TIME) {
+            counts = allTime;
+        } else {
+            SlidingCounts sliding = windows.get(window);
+            sliding.advance(nowMillis);
+            counts = sliding;
+        }
+        List<PopularItem> top = counts.top(k);
+        List<PopularItem> copy = new ArrayList<>(top.size());
+        for (PopularItem item : top) {
+            copy.add(new PopularItem(item.getItemCode(), null, item.getQuantitySold()));
+        }
+        return copy;
+    }
+
+    private static class Counts {
+        final Map<String, Long> totals = new HashMap<>();
+        long version;
+
+        private long cachedVersion = -1;
+        private int cachedK;
+        private List<PopularItem> cachedTop = Collections.emptyList();
+
+        void add(String itemCode, long delta) {
+            if (totals.merge(itemCode, delta, Long::sum) <= 0) {
+                totals.remove(itemCode);
+            }
+            version++;
+        }
+
+        void clear() {
+            totals.clear();
+            version++;
+        }
+
+        List<PopularItem> top(int k) {
+            if (cachedVersion == version && (k <= cachedK || cachedTop.size() < cachedK)) {
+                return cachedTop.subList(0, Math.min(k, cachedTop.size()));
+            }
+            PriorityQueue<Map.Entry<String, Long>> best = new PriorityQueue<>(k + 1, (a, b) -> {
+                int byQuantity = Long.compare(a.getValue(), b.getValue());
+                return byQuantity != 0 ? byQuantity : b.getKey().compareTo(a.getKey());
+            });
+            for (Map.Entry<String, Long> entry : totals.entrySet()) {
+                best.offer(entry);
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            List<PopularItem> top = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                Map.Entry<String, Long> entry = best.poll();
+                top.add(new PopularItem(entry.getKey(), null, entry.getValue()));
+            }
+            Collections.reverse(top);
+
+            cachedVersion = version;
+            cachedK = k;
+            cachedTop = top;
+            return top;
+        }
+    }
+
+    private static class SlidingCounts extends Counts {
+        private final long bucketMillis;
+        private final List<Map<String, Long>> buckets;
+        private long head = -1;
+
+        SlidingCounts(long bucketMillis, int bucketCount) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = new ArrayList<>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) {
+                buckets.add(new HashMap<>());
+            }
+        }
+
+        void add(String itemCode, long quantity, long timeMillis) {
+            advance(timeMillis);
+            long bucket = timeMillis / bucketMillis;
+            if (bucket <= head - buckets.size()) {
+                // older than the window
+                return;
+            }
+            buckets.get((int) (bucket % buckets.size())).merge(itemCode, quantity, Long::sum);
+            add(itemCode, quantity);
+        }
+
+        // Moves the window up to the bucket that contains nowMillis, dropping the buckets that fall out of it.
+        void advance(long nowMillis) {
+            long current = nowMillis / bucketMillis;
+            if (current <= head) {
+                return;
+            }
+            for (long bucket = Math.max(head + 1, current - buckets.size() + 1); bucket <= current; bucket++) {
+                Map<String, Long> expired = buckets.get((int) (bucket % buckets.size()));
+                for (Map.Entry<String, Long> entry : expired.entrySet()) {
+                    add(entry.getKey(), -entry.getValue());
+                }
+                expired.clear();
+            }
+            head = current;
+        }
+    }
+}
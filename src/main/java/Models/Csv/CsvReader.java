@@ -0,0 +1,99 @@
+package Models.Csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads one CSV record at a time, so memory stays flat however large the file is.
+// Handles quoted fields with embedded commas, doubled quotes and line breaks, and both \n and \r\n endings.
+public class CsvReader implements Closeable {
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+    private long lineNumber = 1;
+    private long recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Returns the next record, or null at end of input. Blank lines are skipped.
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == EOF) {
+            return null;
+        }
+        recordLine = lineNumber;
+
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == EOF) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == EOF) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                record.add(field.toString());
+                return record;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    // Line on which the last record returned by readRecord started.
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != -2) {
+            c = pushedBack;
+            pushedBack = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,157 @@
+package Models.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// The ChangeLog table: one row per item, customer or order a till changed, so the other tills can patch their
+// caches within seconds instead of waiting for their next delta sync. Seq is an AUTO_INCREMENT, so a poller asks
+// for everything after the last entry it saw. Entries only name the row; the reader fetches its current state, and
+// a row that is no longer there was deleted. RowKey ALL_ROWS stands for a bulk change of the whole table.
+// The repositories write the entries on the connection of the change itself, so they commit or roll back with it.
+//
+// Seq is taken when the entry is inserted, not when it commits, so a slow transaction can make a lower number
+// visible after a higher one. ChangeLogPoller keeps asking for such gaps for a while before giving up on them.
+public class ChangeLog {
+    public static final String ITEM = "Item";
+    public static final String CUSTOMER = "Customer";
+    public static final String ORDER = "Orders";
+    public static final String ALL_ROWS = "*";
+
+    // tells this process's entries apart, so its own poller skips the changes it has already applied
+    public static final String ORIGIN = UUID.randomUUID().toString();
+
+    private static final String LAST_SEQ_SQL = "SELECT COALESCE(MAX(Seq), 0) FROM ChangeLog";
+    private static final String SELECT = "SELECT Seq, TableName, RowKey, Origin FROM ChangeLog";
+    private static final String PRUNE_SQL =
+            "DELETE FROM ChangeLog WHERE ChangedAt < NOW(6) - INTERVAL ? SECOND LIMIT 10000";
+
+    public static final class Entry {
+        private final long seq;
+        private final String tableName;
+        private final String rowKey;
+        private final String origin;
+
+        public Entry(long seq, String tableName, String rowKey, String origin) {
+            this.seq = seq;
+            this.tableName = tableName;
+            this.rowKey = rowKey;
+            this.origin = origin;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getRowKey() {
+            return rowKey;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+    }
+
+    public void record(Connection connection, String table, Collection<String> keys) throws SQLException {
+        record(connection, Collections.singletonMap(table, keys));
+    }
+
+    // Logs the given rows in one statement, in the caller's transaction. Call it after the change's own updates,
+    // so entries for one row are numbered in the order their row locks let the changes commit.
+    public void record(Connection connection, Map<String, ? extends Collection<String>> keysByTable)
+            throws SQLException {
+        int rows = 0;
+        for (Collection<String> keys : keysByTable.values()) {
+            rows += keys.size();
+        }
+        if (rows == 0) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ChangeLog (TableName, RowKey, Origin) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Map.Entry<String, ? extends Collection<String>> table : keysByTable.entrySet()) {
+                for (String key : table.getValue()) {
+                    stmt.setString(index++, table.getKey());
+                    stmt.setString(index++, key);
+                    stmt.setString(index++, ORIGIN);
+                }
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    public long lastSeq() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(LAST_SEQ_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // At most limit entries after seq, in Seq order.
+    public List<Entry> findAfter(long seq, int limit) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT + " WHERE Seq > ? ORDER BY Seq LIMIT ?")) {
+            stmt.setLong(1, seq);
+            stmt.setInt(2, limit);
+            return read(stmt);
+        }
+    }
+
+    // The entries among seqs that have become visible since they were last asked for.
+    public List<Entry> findBySeqs(Collection<Long> seqs) throws SQLException {
+        if (seqs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder(SELECT + " WHERE Seq IN (");
+        for (int i = 0; i < seqs.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY Seq");
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            Iterator<Long> values = seqs.iterator();
+            for (int i = 1; values.hasNext(); i++) {
+                stmt.setLong(i, values.next());
+            }
+            return read(stmt);
+        }
+    }
+
+    // Deletes a batch of the entries older than keepSeconds. Every till prunes, so the batches stay small.
+    public int prune(long keepSeconds) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(PRUNE_SQL)) {
+            stmt.setLong(1, keepSeconds);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private static List<Entry> read(PreparedStatement stmt) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong("Seq"), rs.getString("TableName"), rs.getString("RowKey"),
+                        rs.getString("Origin")));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,125 @@
+package Models.Db;
+
+import Models.Metrics.Log;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Tails the ChangeLog for one till: every pollMillis it reads the entries after the last one seen, drops the ones
+// this process logged itself, and hands the rest to the handler on its own daemon thread, as the changed keys by
+// table. It starts at the end of the log; what changed before is the reference data's delta sync's business.
+//
+// A Seq skipped over is remembered as a gap and asked for again on each poll for gapMillis, in case it belongs to a
+// transaction that had not committed yet; after that it is taken to be a rolled-back insert. A till that could not
+// poll for longer than the log is kept may have missed pruned entries, and is told to reload everything.
+public class ChangeLogPoller implements Closeable {
+    // a skipped range wider than this is not tracked entry by entry
+    private static final int MAX_GAPS = 1_000;
+
+    private final ChangeLog log;
+    private final Consumer<Map<String, Set<String>>> handler;
+    private final int batchSize;
+    private final long gapMillis;
+    private final long keepSeconds;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-log-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Seq of a gap -> when to stop asking for it
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private long lastSeq = -1;
+    private long lastPolledAt;
+    private long lastPrunedAt;
+
+    public ChangeLogPoller(ChangeLog log, Consumer<Map<String, Set<String>>> handler, int batchSize, long gapMillis,
+                           long keepSeconds) {
+        this.log = log;
+        this.handler = handler;
+        this.batchSize = batchSize;
+        this.gapMillis = gapMillis;
+        this.keepSeconds = keepSeconds;
+    }
+
+    public ChangeLogPoller start(long pollMillis) {
+        poller.scheduleWithFixedDelay(this::pollQuietly, 0, pollMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // Reads the entries logged since the last poll; returns the number handed to the handler.
+    public synchronized int poll() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (lastSeq < 0) {
+            lastSeq = log.lastSeq();
+            lastPolledAt = now;
+            return 0;
+        }
+        List<ChangeLog.Entry> entries = new ArrayList<>(log.findBySeqs(gaps.keySet()));
+        for (ChangeLog.Entry entry : entries) {
+            gaps.remove(entry.getSeq());
+        }
+        gaps.values().removeIf(deadline -> deadline < now);
+
+        List<ChangeLog.Entry> batch;
+        do {
+            batch = log.findAfter(lastSeq, batchSize);
+            for (ChangeLog.Entry entry : batch) {
+                if (entry.getSeq() - lastSeq - 1 <= MAX_GAPS) {
+                    for (long seq = lastSeq + 1; seq < entry.getSeq(); seq++) {
+                        gaps.put(seq, now + gapMillis);
+                    }
+                }
+                lastSeq = entry.getSeq();
+            }
+            entries.addAll(batch);
+        } while (batch.size() == batchSize);
+
+        Map<String, Set<String>> keysByTable = new LinkedHashMap<>();
+        if (now - lastPolledAt > TimeUnit.SECONDS.toMillis(keepSeconds)) {
+            for (String table : new String[]{ChangeLog.ITEM, ChangeLog.CUSTOMER, ChangeLog.ORDER}) {
+                keysByTable.computeIfAbsent(table, t -> new TreeSet<>()).add(ChangeLog.ALL_ROWS);
+            }
+        }
+        int count = 0;
+        for (ChangeLog.Entry entry : entries) {
+            if (!ChangeLog.ORIGIN.equals(entry.getOrigin())) {
+                keysByTable.computeIfAbsent(entry.getTableName(), t -> new TreeSet<>()).add(entry.getRowKey());
+                count++;
+            }
+        }
+        lastPolledAt = now;
+        if (!keysByTable.isEmpty()) {
+            handler.accept(keysByTable);
+        }
+
+        if (now - lastPrunedAt > TimeUnit.HOURS.toMillis(1)) {
+            log.prune(keepSeconds);
+            lastPrunedAt = now;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (SQLException | RuntimeException e) {
+            Log.warn("Polling the change log failed: " + e.getMessage());
+        }
+    }
+}
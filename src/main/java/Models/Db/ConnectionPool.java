@@ -0,0 +1,303 @@
+package Models.Db;
+
+import Models.Metrics.Log;
+import Models.Metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool implements ConnectionPoolMXBean, AutoCloseable {
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final PoolConfig config;
+    // one permit per connection that may be out on loan at the same time
+    private final Semaphore permits;
+    // most recently returned connections sit at the head, so eviction works from the tail
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsDestroyed = new LongAdder();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private ConnectionPool(PoolConfig config) {
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Opens the minimum number of connections, then starts housekeeping. The pool is only handed to the housekeeper
+    // and the metrics registry once it is fully built; if a connection cannot be opened, the ones already opened are
+    // closed again.
+    public static ConnectionPool open(PoolConfig config) throws SQLException {
+        if (config.getMaxSize() < 1 || config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.getMinSize() + ", max=" + config.getMaxSize());
+        }
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException ex) {
+            throw new SQLException("Database driver not found", ex);
+        }
+
+        ConnectionPool pool = new ConnectionPool(config);
+        try {
+            // fail fast on bad credentials instead of on the first borrow
+            for (int i = 0; i < Math.max(1, config.getMinSize()); i++) {
+                pool.totalConnections.incrementAndGet();
+                pool.idle.offerLast(pool.create());
+            }
+        } catch (SQLException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        pool.start();
+        return pool;
+    }
+
+    private void start() {
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                config.getHousekeepingIntervalMillis(), config.getHousekeepingIntervalMillis(), TimeUnit.MILLISECONDS);
+        Metrics.register("type=ConnectionPool", this);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getBorrowTimeoutMillis());
+
+        waitingThreads.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw timeout();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = acquire(deadline);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        borrowCount.increment();
+        borrowWaitNanos.add(waited);
+        maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+        Metrics.connectionWaited(waited);
+
+        borrowed.add(pooled);
+        return pooled.lease(config.getLeakThresholdMillis() > 0);
+    }
+
+    private PooledConnection acquire(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null && reserveSlot()) {
+                return create();
+            }
+
+            if (pooled == null) {
+                // every slot is held by a connection that is on its way back to the idle deque
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw timeout();
+                }
+                try {
+                    pooled = idle.pollFirst(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                }
+                if (pooled == null) {
+                    continue;
+                }
+            }
+
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            destroy(pooled);
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.getLastUsedAt() < config.getValidationBypassMillis()) {
+            return true;
+        }
+        try {
+            return pooled.getPhysical().isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= config.getMaxSize()) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // callers must already hold a slot in totalConnections
+    private PooledConnection create() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
+            connectionsCreated.increment();
+            return new PooledConnection(this, physical, config.getStatementCacheSize(), statementCounters);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        connectionsDestroyed.increment();
+        pooled.closePhysical();
+    }
+
+    void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            Connection physical = pooled.getPhysical();
+            if (closed || physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            pooled.getStatementCache().reclaim();
+            // never hand an open transaction to the next borrower
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            pooled.markReturned();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            Log.warn("Discarding broken pooled connection: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && totalConnections.get() > config.getMinSize()) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.getLastUsedAt() > config.getIdleTimeoutMillis() && idle.removeLastOccurrence(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            while (!closed && totalConnections.get() < config.getMinSize() && reserveSlot()) {
+                idle.offerLast(create());
+            }
+
+            if (config.getLeakThresholdMillis() > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    long heldFor = now - pooled.getBorrowedAt();
+                    if (!pooled.isLeakReported() && heldFor > config.getLeakThresholdMillis()) {
+                        pooled.markLeakReported();
+                        leaksDetected.increment();
+                        // the borrow site is only captured when leak tracking records stack traces
+                        Log.warn("Possible connection leak: connection held for " + heldFor + " ms",
+                                pooled.getBorrowSite());
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            Log.warn("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private SQLTransientConnectionException timeout() {
+        borrowTimeouts.increment();
+        return new SQLTransientConnectionException("Timed out after " + config.getBorrowTimeoutMillis() +
+                " ms waiting for a database connection (active: " + borrowed.size() + ", max: " + config.getMaxSize() + ")");
+    }
+
+    @Override
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        return new PoolStats(
+                totalConnections.get(),
+                borrowed.size(),
+                idle.size(),
+                waitingThreads.get(),
+                borrows,
+                borrows == 0 ? 0 : borrowWaitNanos.sum() / 1_000_000.0 / borrows,
+                maxBorrowWaitNanos.get() / 1_000_000.0,
+                borrowTimeouts.sum(),
+                validationFailures.sum(),
+                leaksDetected.sum(),
+                connectionsCreated.sum(),
+                connectionsDestroyed.sum(),
+                statementCounters.hits.sum(),
+                statementCounters.misses.sum(),
+                statementCounters.evictions.sum()
+        );
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+}
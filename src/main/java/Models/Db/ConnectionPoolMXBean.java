@@ -0,0 +1,6 @@
+package Models.Db;
+
+// The pool as JMX clients see it, registered as fxmanagement:type=ConnectionPool.
+public interface ConnectionPoolMXBean {
+    PoolStats getStats();
+}
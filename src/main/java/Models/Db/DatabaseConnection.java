@@ -1,37 +1,52 @@
 package Models.Db;
 
+import Models.Metrics.Log;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static DatabaseConnection instance;
-    private Connection connection;
-    private String url = "jdbc:mysql://localhost:3306/fxmanagement";
-    private String username = "root";
-    private String password = "1234";
+    private static volatile DatabaseConnection instance;
+    private final ConnectionPool pool;
 
     private DatabaseConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            this.connection = DriverManager.getConnection(url, username, password);
-            System.out.println("Database connection established successfully!");
-        } catch (ClassNotFoundException ex) {
-            throw new SQLException("Database driver not found", ex);
+        this.pool = ConnectionPool.open(PoolConfig.fromSystemProperties());
+        try (Connection connection = pool.borrow()) {
+            Schema.migrate(connection);
+        } catch (SQLException | RuntimeException e) {
+            pool.close();
+            throw e;
         }
+        Log.info("Database connection pool established successfully!");
     }
 
     public static DatabaseConnection getInstance() throws SQLException {
-        if (instance == null) {
-            instance = new DatabaseConnection();
-        } else if (instance.getConnection().isClosed()) {
-            instance = new DatabaseConnection();
+        DatabaseConnection current = instance;
+        if (current == null || current.pool.isClosed()) {
+            synchronized (DatabaseConnection.class) {
+                current = instance;
+                if (current == null || current.pool.isClosed()) {
+                    current = new DatabaseConnection();
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
     }
 
-    public Connection getConnection() {
+    // Borrows a connection from the pool. Callers must close it (try-with-resources) to hand it back.
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
+    }
 
-        return connection;
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.pool.close();
+            instance = null;
+        }
     }
 }
@@ -0,0 +1,30 @@
+package Models.Db;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Runs blocking JDBC work on virtual threads. The connection pool, not the thread count, bounds how many
+// queries actually run at once.
+public class DbExecutor {
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private DbExecutor() {
+    }
+
+    public static ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public static <T> CompletableFuture<T> supplyAsync(SqlSupplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.get();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
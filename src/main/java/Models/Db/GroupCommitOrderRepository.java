@@ -0,0 +1,380 @@
+package Models.Db;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Metrics.Log;
+import Models.Metrics.OrderPlacedEvent;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.OrderRepository;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Places orders from concurrent callers in shared transactions (-Dorder.groupCommit=true). A committer thread
+// takes the first waiting order, collects whatever else arrives within windowMillis, up to maxBatch orders, and
+// writes them all with one batched statement per table and a single commit. Each caller still waits for and gets
+// its own outcome.
+//
+// The stock of every item in the batch is locked in item code order and handed out to the orders in arrival
+// order, so an order that does not fit is rejected on its own, with the stock that was left for it, while the
+// rest of the batch goes through. If the shared transaction fails for any other reason (a duplicate ID, an
+// unknown customer, a deadlock) it is rolled back and its orders are placed one at a time, so one bad order
+// cannot fail the others; a batch that has committed is never placed again. Everything except place goes straight
+// to the plain repository.
+public class GroupCommitOrderRepository implements OrderRepository {
+    private final MySqlOrderRepository orders;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final LinkedBlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedOrders = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder stockRejections = new LongAdder();
+
+    private static final class PendingOrder {
+        final Order order;
+        final List<OrderDetail> details;
+        final CompletableFuture<List<OrderDetail>> result = new CompletableFuture<>();
+        final Map<String, Integer> requestedByItem = new TreeMap<>();
+        // begun on the caller's thread, so its duration includes the wait for the batch to form
+        final OrderPlacedEvent event;
+        InsufficientStockException rejection;
+
+        PendingOrder(Order order, List<OrderDetail> details) {
+            this.order = order;
+            this.details = details;
+            this.event = OrderPlacedEvent.start(order.getOrderID(), details.size());
+            for (OrderDetail detail : details) {
+                requestedByItem.merge(detail.getItemCode(), detail.getOrderQty(), Integer::sum);
+            }
+        }
+    }
+
+    // A batch placed in one transaction, and what placeTogether found out about it
+    private static final class Batch {
+        final List<PendingOrder> orders;
+        boolean committed;
+        long commitNanos;
+        Map<String, List<SalesLedger.Line>> linesByOrder = Map.of();
+
+        Batch(List<PendingOrder> orders) {
+            this.orders = orders;
+        }
+    }
+
+    public GroupCommitOrderRepository(MySqlOrderRepository orders, long windowMillis, int maxBatch) {
+        if (windowMillis < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("windowMillis must not be negative and maxBatch must be positive");
+        }
+        this.orders = orders;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        Thread committer = new Thread(this::commitLoop, "order-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @Override
+    public List<OrderDetail> place(Order order, List<OrderDetail> orderDetails) throws SQLException {
+        PendingOrder pending = new PendingOrder(order, orderDetails);
+        queue.add(pending);
+        // join is not interruptible: once queued the order may be committed, so the caller has to learn the outcome
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Group commit failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pending.event.commit();
+        }
+    }
+
+    public GroupCommitStats getStats() {
+        long batchCount = batches.sum();
+        return new GroupCommitStats(
+                batchCount,
+                batchedOrders.sum(),
+                (int) maxBatchSize.get(),
+                batchCount == 0 ? 0 : commitNanos.sum() / 1e6 / batchCount,
+                maxCommitNanos.get() / 1e6,
+                fallbacks.sum(),
+                stockRejections.sum());
+    }
+
+    private void commitLoop() {
+        while (true) {
+            List<PendingOrder> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    PendingOrder next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // the thread is a daemon and is never interrupted on purpose; keep serving what was collected
+            }
+            try {
+                commit(batch);
+            } catch (Throwable e) {
+                // never leave a till waiting for an order that will not be committed
+                for (PendingOrder pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        long start = System.nanoTime();
+        if (batch.size() == 1) {
+            placeAlone(batch.get(0));
+        } else {
+            Batch placed = new Batch(batch);
+            try {
+                placeTogether(placed);
+            } catch (SQLException | RuntimeException e) {
+                if (placed.committed) {
+                    // only putting the connection back failed; placing the orders again would duplicate them
+                    Log.warn("Releasing the connection after a group commit failed", e);
+                } else {
+                    fallbacks.increment();
+                    for (PendingOrder pending : batch) {
+                        placeAlone(pending);
+                    }
+                }
+            }
+            if (placed.committed) {
+                complete(placed);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        batches.increment();
+        batchedOrders.add(batch.size());
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        commitNanos.add(elapsed);
+        maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void placeAlone(PendingOrder pending) {
+        try {
+            pending.result.complete(orders.place(pending.order, pending.details, pending.event));
+        } catch (InsufficientStockException e) {
+            stockRejections.increment();
+            pending.result.completeExceptionally(e);
+        } catch (SQLException | RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    // One transaction for the whole batch. Rejected orders get their rejection set; once the commit has gone
+    // through, committed is set and the lines of the accepted orders are kept for complete. The connection is
+    // only rolled back before that.
+    private void placeTogether(Batch placed) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+                Set<String> itemCodes = new TreeSet<>();
+                for (PendingOrder pending : placed.orders) {
+                    itemCodes.addAll(pending.requestedByItem.keySet());
+                }
+                long stockStart = System.nanoTime();
+                Map<String, Integer> stock = lockStock(connection, itemCodes);
+
+                List<PendingOrder> accepted = new ArrayList<>();
+                Map<String, Integer> takenByItem = new TreeMap<>();
+                for (PendingOrder pending : placed.orders) {
+                    pending.rejection = allocate(pending, stock);
+                    if (pending.rejection == null) {
+                        accepted.add(pending);
+                        pending.requestedByItem.forEach((itemCode, quantity) -> {
+                            stock.merge(itemCode, -quantity, Integer::sum);
+                            takenByItem.merge(itemCode, quantity, Integer::sum);
+                        });
+                    }
+                }
+                long stockNanos = System.nanoTime() - stockStart;
+                for (PendingOrder pending : placed.orders) {
+                    pending.event.stockChecked(stockNanos);
+                }
+
+                Map<String, List<SalesLedger.Line>> linesByOrder = accepted.isEmpty()
+                        ? Map.of() : insertOrders(connection, accepted, takenByItem);
+
+                long commitStart = System.nanoTime();
+                connection.commit();
+                placed.committed = true;
+                placed.commitNanos = System.nanoTime() - commitStart;
+                placed.linesByOrder = linesByOrder;
+            } catch (SQLException | RuntimeException e) {
+                if (!placed.committed) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Hands each order of a committed batch its outcome: its placed lines, or its stock rejection.
+    private void complete(Batch placed) {
+        for (PendingOrder pending : placed.orders) {
+            if (pending.rejection != null) {
+                stockRejections.increment();
+                pending.result.completeExceptionally(pending.rejection);
+                continue;
+            }
+            pending.event.committed(placed.commitNanos, placed.orders.size());
+            List<OrderDetail> details = new ArrayList<>();
+            for (SalesLedger.Line line : placed.linesByOrder.getOrDefault(pending.order.getOrderID(), List.of())) {
+                details.add(line.toDetail());
+            }
+            pending.result.complete(details);
+        }
+    }
+
+    // Locks the rows in item code order, the same order the single-order path updates them in, so batches and
+    // single orders from other tills cannot deadlock on them.
+    private Map<String, Integer> lockStock(Connection connection, Set<String> itemCodes) throws SQLException {
+        Map<String, Integer> stock = new TreeMap<>();
+        if (itemCodes.isEmpty()) {
+            return stock;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(itemCodes.size(), "?"));
+        String sql = "SELECT ItemCode, QtyOnHand FROM Item WHERE ItemCode IN (" + placeholders + ") " +
+                "ORDER BY ItemCode FOR UPDATE";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (String itemCode : itemCodes) {
+                stmt.setString(index++, itemCode);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getString("ItemCode"), rs.getInt("QtyOnHand"));
+                }
+            }
+        }
+        return stock;
+    }
+
+    // null when the stock left covers every line of the order, otherwise the rejection naming the lines it does not
+    private static InsufficientStockException allocate(PendingOrder pending, Map<String, Integer> stock) {
+        Map<String, Integer> availableByItem = new LinkedHashMap<>();
+        Map<String, Integer> requestedFailed = new LinkedHashMap<>();
+        pending.requestedByItem.forEach((itemCode, quantity) -> {
+            Integer available = stock.get(itemCode);
+            if (available == null || available < quantity) {
+                availableByItem.put(itemCode, available);
+                requestedFailed.put(itemCode, quantity);
+            }
+        });
+        return availableByItem.isEmpty() ? null : new InsufficientStockException(availableByItem, requestedFailed);
+    }
+
+    private Map<String, List<SalesLedger.Line>> insertOrders(Connection connection, List<PendingOrder> accepted,
+                                                             Map<String, Integer> takenByItem) throws SQLException {
+        String orderSql = "INSERT INTO Orders (OrderID, OrderDate, CustID, Total) VALUES (?, ?, ?, 0)";
+        try (PreparedStatement orderStmt = connection.prepareStatement(orderSql)) {
+            for (PendingOrder pending : accepted) {
+                orderStmt.setString(1, pending.order.getOrderID());
+                orderStmt.setDate(2, Date.valueOf(pending.order.getOrderDate()));
+                orderStmt.setString(3, pending.order.getCustID());
+                orderStmt.addBatch();
+            }
+            orderStmt.executeBatch();
+        }
+
+        // the rows are locked and the quantities checked above, so these updates cannot overdraw
+        String stockSql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ?";
+        try (PreparedStatement stockStmt = connection.prepareStatement(stockSql)) {
+            for (Map.Entry<String, Integer> entry : takenByItem.entrySet()) {
+                stockStmt.setInt(1, entry.getValue());
+                stockStmt.setString(2, entry.getKey());
+                stockStmt.addBatch();
+            }
+            stockStmt.executeBatch();
+        }
+
+        List<String> orderIDs = new ArrayList<>(accepted.size());
+        List<Order> placedOrders = new ArrayList<>(accepted.size());
+        try (PreparedStatement detailStmt = connection.prepareStatement(SalesLedger.INSERT_LINE_SQL)) {
+            for (PendingOrder pending : accepted) {
+                orderIDs.add(pending.order.getOrderID());
+                placedOrders.add(pending.order);
+                for (OrderDetail detail : pending.details) {
+                    detailStmt.setString(1, pending.order.getOrderID());
+                    detailStmt.setInt(2, detail.getOrderQty());
+                    detailStmt.setDouble(3, detail.getDiscount());
+                    detailStmt.setString(4, detail.getItemCode());
+                    detailStmt.addBatch();
+                }
+            }
+            detailStmt.executeBatch();
+        }
+        SalesLedger.updateTotals(connection, orderIDs);
+
+        Map<String, List<SalesLedger.Line>> linesByOrder = SalesLedger.readLines(connection, orderIDs);
+        SalesLedger.recordOrders(connection, placedOrders, linesByOrder);
+        orders.logChange(connection, orderIDs, takenByItem.keySet());
+        return linesByOrder;
+    }
+
+    @Override
+    public String nextOrderId() throws SQLException {
+        return orders.nextOrderId();
+    }
+
+    @Override
+    public List<OrderDetail> delete(String orderID) throws SQLException {
+        return orders.delete(orderID);
+    }
+
+    @Override
+    public List<Order> findAll() throws SQLException {
+        return orders.findAll();
+    }
+
+    @Override
+    public List<Order> findAllWithTotals() throws SQLException {
+        return orders.findAllWithTotals();
+    }
+
+    @Override
+    public Order findById(String orderID) throws SQLException {
+        return orders.findById(orderID);
+    }
+
+    @Override
+    public double findTotal(String orderID) throws SQLException {
+        return orders.findTotal(orderID);
+    }
+
+    @Override
+    public boolean exists(String orderID) throws SQLException {
+        return orders.exists(orderID);
+    }
+}
@@ -0,0 +1,21 @@
+package Models.Db;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class GroupCommitStats {
+    private long batches;
+    private long orders;
+    private int maxBatchSize;
+    private double averageCommitMillis;
+    private double maxCommitMillis;
+    // batches whose shared transaction failed and whose orders were then placed one by one
+    private long fallbacks;
+    private long stockRejections;
+
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) orders / batches;
+    }
+}
@@ -0,0 +1,256 @@
+package Models.Db;
+
+import Models.Dto.Customer;
+import Models.Repository.CustomerRepository;
+import Models.Repository.Versioned;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MySqlCustomerRepository implements CustomerRepository {
+    // keeps the IN list of findNames well below the server's limit on placeholders
+    private static final int NAMES_BATCH = 1_000;
+
+    // null when changes are not logged for other tills
+    private final ChangeLog changeLog;
+
+    public MySqlCustomerRepository() {
+        this(null);
+    }
+
+    public MySqlCustomerRepository(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public boolean save(Customer customer) throws SQLException {
+        return changeCustomer(customer.getCustID(), connection -> {
+            String sql = "INSERT INTO Customer (CustID, CustTitle, CustName, DOB, salary, CustAddress, City, Province, PostalCode) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, customer.getCustID());
+                stmt.setString(2, customer.getCustTitle());
+                stmt.setString(3, customer.getCustName());
+                stmt.setDate(4, Date.valueOf(customer.getDob()));
+                stmt.setDouble(5, customer.getSalary());
+                stmt.setString(6, customer.getCustAddress());
+                stmt.setString(7, customer.getCity());
+                stmt.setString(8, customer.getProvince());
+                stmt.setString(9, customer.getPostalCode());
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean update(Customer customer) throws SQLException {
+        return changeCustomer(customer.getCustID(), connection -> {
+            String sql = "UPDATE Customer SET CustTitle=?, CustName=?, DOB=?, salary=?, CustAddress=?, " +
+                    "City=?, Province=?, PostalCode=? WHERE CustID=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, customer.getCustTitle());
+                stmt.setString(2, customer.getCustName());
+                stmt.setDate(3, Date.valueOf(customer.getDob()));
+                stmt.setDouble(4, customer.getSalary());
+                stmt.setString(5, customer.getCustAddress());
+                stmt.setString(6, customer.getCity());
+                stmt.setString(7, customer.getProvince());
+                stmt.setString(8, customer.getPostalCode());
+                stmt.setString(9, customer.getCustID());
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(String custID) throws SQLException {
+        return changeCustomer(custID, connection -> {
+            boolean deleted;
+            try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM Customer WHERE CustID=?")) {
+                stmt.setString(1, custID);
+                deleted = stmt.executeUpdate() > 0;
+            }
+            if (deleted) {
+                // tombstone for the delta syncs of other tills
+                try (PreparedStatement stmt = connection.prepareStatement(MySqlReferenceSource.TOMBSTONE_SQL)) {
+                    stmt.setString(1, "Customer");
+                    stmt.setString(2, custID);
+                    stmt.executeUpdate();
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public Customer findById(String custID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Customer WHERE CustID=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, custID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return toCustomer(rs);
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Customer> findAll() throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Customer ORDER BY CustID";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        customers.add(toCustomer(rs));
+                    }
+                    return customers;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Customer> findAfter(String afterCustID, int limit) throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Customer WHERE CustID > ? ORDER BY CustID LIMIT ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, afterCustID != null ? afterCustID : "");
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        customers.add(toCustomer(rs));
+                    }
+                    return customers;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Customer> findBefore(String beforeCustID, int limit) throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Customer WHERE CustID < ? ORDER BY CustID DESC LIMIT ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, beforeCustID);
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        customers.add(toCustomer(rs));
+                    }
+                    Collections.reverse(customers);
+                    return customers;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String findName(String custID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT CustName FROM Customer WHERE CustID=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, custID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("CustName");
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> findNames(Collection<String> custIDs) throws SQLException {
+        Map<String, String> names = new HashMap<>();
+        if (custIDs.isEmpty()) {
+            return names;
+        }
+        List<String> ids = new ArrayList<>(custIDs);
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            for (int from = 0; from < ids.size(); from += NAMES_BATCH) {
+                List<String> batch = ids.subList(from, Math.min(from + NAMES_BATCH, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                String sql = "SELECT CustID, CustName FROM Customer WHERE CustID IN (" + placeholders + ")";
+
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    int index = 1;
+                    for (String custID : batch) {
+                        stmt.setString(index++, custID);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            names.put(rs.getString("CustID"), rs.getString("CustName"));
+                        }
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public Map<String, Versioned<Customer>> findVersioned(Collection<String> custIDs) throws SQLException {
+        return MySqlReferenceSource.readVersioned("Customer", "CustID", custIDs, MySqlCustomerRepository::toCustomer);
+    }
+
+    @FunctionalInterface
+    private interface CustomerUpdate {
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    // Runs a change to one customer in a transaction that also logs it for the other tills when it changed the row.
+    private boolean changeCustomer(String custID, CustomerUpdate update) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+                boolean changed = update.apply(connection);
+                if (changed && changeLog != null) {
+                    changeLog.record(connection, ChangeLog.CUSTOMER, Collections.singletonList(custID));
+                }
+                connection.commit();
+                return changed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    static Customer toCustomer(ResultSet rs) throws SQLException {
+        return new Customer(
+                rs.getString("CustID"),
+                rs.getString("CustTitle"),
+                rs.getString("CustName"),
+                rs.getDate("DOB").toLocalDate(),
+                rs.getDouble("salary"),
+                rs.getString("CustAddress"),
+                rs.getString("City"),
+                rs.getString("Province"),
+                rs.getString("PostalCode")
+        );
+    }
+}
@@ -0,0 +1,176 @@
+package Models.Db;
+
+import Models.Dto.Item;
+import Models.Repository.ItemRepository;
+import Models.Repository.Versioned;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class MySqlItemRepository implements ItemRepository {
+    // null when changes are not logged for other tills
+    private final ChangeLog changeLog;
+
+    public MySqlItemRepository() {
+        this(null);
+    }
+
+    public MySqlItemRepository(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public boolean save(Item item) throws SQLException {
+        return changeItem(item.getItemCode(), connection -> {
+            String sql = "INSERT INTO Item (itemCode, description, packSize, unitPrice, qtyOnHand) VALUES (?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, item.getItemCode());
+                stmt.setString(2, item.getDescription());
+                stmt.setString(3, item.getPackSize());
+                stmt.setDouble(4, item.getUnitPrice());
+                stmt.setInt(5, item.getQtyOnHand());
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean update(Item item) throws SQLException {
+        return changeItem(item.getItemCode(), connection -> {
+            String sql = "UPDATE Item SET Description=?, PackSize=?, UnitPrice=?, QtyOnHand=? WHERE ItemCode=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, item.getDescription());
+                stmt.setString(2, item.getPackSize());
+                stmt.setDouble(3, item.getUnitPrice());
+                stmt.setInt(4, item.getQtyOnHand());
+                stmt.setString(5, item.getItemCode());
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(String itemCode) throws SQLException {
+        return changeItem(itemCode, connection -> {
+            boolean deleted;
+            try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM Item WHERE ItemCode=?")) {
+                stmt.setString(1, itemCode);
+                deleted = stmt.executeUpdate() > 0;
+            }
+            if (deleted) {
+                // tombstone for the delta syncs of other tills
+                try (PreparedStatement stmt = connection.prepareStatement(MySqlReferenceSource.TOMBSTONE_SQL)) {
+                    stmt.setString(1, "Item");
+                    stmt.setString(2, itemCode);
+                    stmt.executeUpdate();
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Item> findAll() throws SQLException {
+        List<Item> items = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Item ORDER BY ItemCode";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        items.add(toItem(rs));
+                    }
+                    return items;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Item> findByCodes(Collection<String> itemCodes) throws SQLException {
+        List<Item> items = new ArrayList<>();
+        if (itemCodes.isEmpty()) {
+            return items;
+        }
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String placeholders = String.join(", ", Collections.nCopies(itemCodes.size(), "?"));
+            String sql = "SELECT * FROM Item WHERE ItemCode IN (" + placeholders + ")";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (String itemCode : itemCodes) {
+                    stmt.setString(index++, itemCode);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        items.add(toItem(rs));
+                    }
+                    return items;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Versioned<Item>> findVersioned(Collection<String> itemCodes) throws SQLException {
+        return MySqlReferenceSource.readVersioned("Item", "ItemCode", itemCodes, MySqlItemRepository::toItem);
+    }
+
+    @Override
+    public boolean decrementStock(String itemCode, int quantity) throws SQLException {
+        return changeItem(itemCode, connection -> {
+            String sql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ? AND QtyOnHand >= ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, quantity);
+                stmt.setString(2, itemCode);
+                stmt.setInt(3, quantity);
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ItemUpdate {
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    // Runs a change to one item in a transaction that also logs it for the other tills when it changed the row.
+    private boolean changeItem(String itemCode, ItemUpdate update) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+                boolean changed = update.apply(connection);
+                if (changed && changeLog != null) {
+                    changeLog.record(connection, ChangeLog.ITEM, Collections.singletonList(itemCode));
+                }
+                connection.commit();
+                return changed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    static Item toItem(ResultSet rs) throws SQLException {
+        return new Item(
+                rs.getString("ItemCode"),
+                rs.getString("Description"),
+                rs.getString("PackSize"),
+                rs.getDouble("UnitPrice"),
+                rs.getInt("QtyOnHand")
+        );
+    }
+}
@@ -0,0 +1,430 @@
+package Models.Db;
+
+import Models.Dto.OrderDetail;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.LineChange;
+import Models.Repository.OrderDetailRepository;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MySqlOrderDetailRepository implements OrderDetailRepository {
+    // null when changes are not logged for other tills
+    private final ChangeLog changeLog;
+
+    public MySqlOrderDetailRepository() {
+        this(null);
+    }
+
+    public MySqlOrderDetailRepository(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public LineChange save(OrderDetail orderDetail) throws SQLException {
+        return changeLines(orderDetail.getOrderID(), orderDetail.getItemCode(), connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(SalesLedger.INSERT_LINE_SQL)) {
+                stmt.setString(1, orderDetail.getOrderID());
+                stmt.setInt(2, orderDetail.getOrderQty());
+                stmt.setDouble(3, orderDetail.getDiscount());
+                stmt.setString(4, orderDetail.getItemCode());
+
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public LineChange update(OrderDetail orderDetail) throws SQLException {
+        return changeLines(orderDetail.getOrderID(), orderDetail.getItemCode(), connection -> {
+            String sql = "UPDATE OrderDetail SET OrderQTY=?, Discount=? WHERE OrderID=? AND ItemCode=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, orderDetail.getOrderQty());
+                stmt.setDouble(2, orderDetail.getDiscount());
+                stmt.setString(3, orderDetail.getOrderID());
+                stmt.setString(4, orderDetail.getItemCode());
+
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public LineChange delete(String orderID, String itemCode) throws SQLException {
+        return changeLines(orderID, itemCode, connection -> {
+            String sql = "DELETE FROM OrderDetail WHERE OrderID=? AND ItemCode=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                stmt.setString(2, itemCode);
+
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public LineChange deleteAll(String orderID) throws SQLException {
+        return changeLines(orderID, null, connection -> {
+            String sql = "DELETE FROM OrderDetail WHERE OrderID=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public LineChange updateQuantity(String orderID, String itemCode, int newQuantity) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+
+                List<SalesLedger.Line> before = SalesLedger.readLines(connection, orderID, itemCode);
+                if (before.isEmpty()) {
+                    connection.rollback();
+                    return new LineChange(false, List.of(), List.of());
+                }
+                int currentQty = before.get(0).quantity;
+                int quantityDifference = newQuantity - currentQty;
+
+
+                String updateSql = "UPDATE OrderDetail SET OrderQTY=? WHERE OrderID=? AND ItemCode=?";
+                try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
+                    updateStmt.setInt(1, newQuantity);
+                    updateStmt.setString(2, orderID);
+                    updateStmt.setString(3, itemCode);
+                    updateStmt.executeUpdate();
+                }
+
+
+                if (quantityDifference != 0) {
+                    // a raised quantity takes stock only while there is enough; a lowered one always returns it
+                    String updateStockSql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ? AND QtyOnHand >= ?";
+                    try (PreparedStatement stockStmt = connection.prepareStatement(updateStockSql)) {
+                        stockStmt.setInt(1, quantityDifference);
+                        stockStmt.setString(2, itemCode);
+                        stockStmt.setInt(3, quantityDifference);
+                        if (stockStmt.executeUpdate() == 0) {
+                            throw insufficientStock(connection, itemCode, quantityDifference);
+                        }
+                    }
+                }
+                SalesLedger.updateTotals(connection, orderID);
+                List<SalesLedger.Line> after = SalesLedger.readLines(connection, orderID, itemCode);
+                SalesLedger.replaceLines(connection, before, after);
+                logChange(connection, orderID, quantityDifference != 0
+                        ? Collections.singletonList(itemCode) : Collections.emptyList());
+
+                connection.commit();
+                return new LineChange(true, toDetails(before), toDetails(after));
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static InsufficientStockException insufficientStock(Connection connection, String itemCode, int requested)
+            throws SQLException {
+        Map<String, Integer> availableByItem = new HashMap<>();
+        availableByItem.put(itemCode, null);
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT QtyOnHand FROM Item WHERE ItemCode = ?")) {
+            stmt.setString(1, itemCode);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    availableByItem.put(itemCode, rs.getInt("QtyOnHand"));
+                }
+            }
+        }
+        return new InsufficientStockException(availableByItem, Map.of(itemCode, requested));
+    }
+
+    @Override
+    public LineChange updateDiscount(String orderID, String itemCode, double newDiscount) throws SQLException {
+        return changeLines(orderID, itemCode, connection -> {
+            String sql = "UPDATE OrderDetail SET Discount=? WHERE OrderID=? AND ItemCode=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setDouble(1, newDiscount);
+                stmt.setString(2, orderID);
+                stmt.setString(3, itemCode);
+
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public OrderDetail find(String orderID, String itemCode) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT od.*, i.Description " +
+                    "FROM OrderDetail od " +
+                    "JOIN Item i ON od.ItemCode = i.ItemCode " +
+                    "WHERE od.OrderID=? AND od.ItemCode=?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                stmt.setString(2, itemCode);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return toDetail(rs);
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByOrder(String orderID) throws SQLException {
+        List<OrderDetail> details = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT od.*, i.Description " +
+                    "FROM OrderDetail od " +
+                    "JOIN Item i ON od.ItemCode = i.ItemCode " +
+                    "WHERE od.OrderID = ? " +
+                    "ORDER BY od.ItemCode";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        details.add(toDetail(rs));
+                    }
+                    return details;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByItem(String itemCode) throws SQLException {
+        List<OrderDetail> details = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT od.*, i.Description " +
+                    "FROM OrderDetail od " +
+                    "JOIN Item i ON od.ItemCode = i.ItemCode " +
+                    "WHERE od.ItemCode = ? " +
+                    "ORDER BY od.OrderID";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, itemCode);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        details.add(toDetail(rs));
+                    }
+                    return details;
+                }
+            }
+        }
+    }
+
+    private static final String ALL_LINES_SQL = "SELECT od.*, i.Description " +
+            "FROM OrderDetail od " +
+            "JOIN Item i ON od.ItemCode = i.ItemCode " +
+            "ORDER BY od.OrderID, od.ItemCode";
+
+    @Override
+    public List<OrderDetail> findAll() throws SQLException {
+        List<OrderDetail> details = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement stmt = connection.prepareStatement(ALL_LINES_SQL)) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        details.add(toDetail(rs));
+                    }
+                    return details;
+                }
+            }
+        }
+    }
+
+    // Connector/J buffers a whole result set unless told otherwise. A positive fetch size opens a server-side
+    // cursor, which needs useCursorFetch=true in db.url (the default URL has it); a fetch size of 0 or less
+    // streams rows one by one instead, which ties up the connection until the scan ends.
+    // The statement bypasses the statement cache so its fetch size does not stick to a shared statement.
+    @Override
+    public long forEachLine(int fetchSize, LineVisitor visitor) throws SQLException, IOException {
+        long visited = 0;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(ALL_LINES_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visited++;
+                    if (!visitor.visit(toDetail(rs))) {
+                        break;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public long countAll() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM OrderDetail");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByOrderWithCustomer(String orderID) throws SQLException {
+        List<OrderDetail> details = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT od.*, i.Description, o.OrderDate, c.CustName " +
+                    "FROM OrderDetail od " +
+                    "JOIN Item i ON od.ItemCode = i.ItemCode " +
+                    "JOIN Orders o ON od.OrderID = o.OrderID " +
+                    "JOIN Customer c ON o.CustID = c.CustID " +
+                    "WHERE od.OrderID = ? " +
+                    "ORDER BY od.ItemCode";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        OrderDetail detail = toDetail(rs);
+                        detail.setDescription(detail.getDescription() + " | Order Date: " +
+                                rs.getDate("OrderDate") + " | Customer: " +
+                                rs.getString("CustName"));
+                        details.add(detail);
+                    }
+                    return details;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int findQuantitySold(String itemCode) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT Quantity as TotalQty FROM SalesByItem WHERE ItemCode = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, itemCode);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt("TotalQty");
+                    }
+                    return 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double findSalesAmount(String itemCode) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT NetAmount as TotalSales FROM SalesByItem WHERE ItemCode = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, itemCode);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getDouble("TotalSales");
+                    }
+                    return 0.0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> findQuantitiesSold() throws SQLException {
+        Map<String, Long> quantities = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT ItemCode, Quantity FROM SalesByItem WHERE Quantity > 0";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    quantities.put(rs.getString("ItemCode"), rs.getLong("Quantity"));
+                }
+            }
+        }
+        return quantities;
+    }
+
+    @FunctionalInterface
+    private interface LineUpdate {
+        int apply(Connection connection) throws SQLException;
+    }
+
+    // Runs a change to one order line (or all lines of the order when itemCode is null) in a transaction that also
+    // moves the sales aggregates from the lines as they were to the lines as they are afterwards.
+    private LineChange changeLines(String orderID, String itemCode, LineUpdate update) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+                List<SalesLedger.Line> before = SalesLedger.readLines(connection, orderID, itemCode);
+                int changed = update.apply(connection);
+                SalesLedger.updateTotals(connection, orderID);
+                List<SalesLedger.Line> after = SalesLedger.readLines(connection, orderID, itemCode);
+                SalesLedger.replaceLines(connection, before, after);
+                if (changed > 0) {
+                    logChange(connection, orderID, Collections.emptyList());
+                }
+
+                connection.commit();
+                return new LineChange(changed > 0, toDetails(before), toDetails(after));
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Logs the order, and the items whose stock the change moved, for the other tills in the caller's transaction.
+    private void logChange(Connection connection, String orderID, List<String> itemCodes) throws SQLException {
+        if (changeLog == null) {
+            return;
+        }
+        Map<String, List<String>> keysByTable = new LinkedHashMap<>();
+        keysByTable.put(ChangeLog.ORDER, Collections.singletonList(orderID));
+        keysByTable.put(ChangeLog.ITEM, itemCodes);
+        changeLog.record(connection, keysByTable);
+    }
+
+    private static List<OrderDetail> toDetails(List<SalesLedger.Line> lines) {
+        List<OrderDetail> details = new ArrayList<>(lines.size());
+        for (SalesLedger.Line line : lines) {
+            details.add(line.toDetail());
+        }
+        return details;
+    }
+
+    private static OrderDetail toDetail(ResultSet rs) throws SQLException {
+        OrderDetail detail = new OrderDetail(
+                rs.getString("OrderID"),
+                rs.getString("ItemCode"),
+                rs.getInt("OrderQTY"),
+                rs.getDouble("Discount")
+        );
+        detail.setDescription(rs.getString("Description"));
+        detail.setUnitPrice(rs.getDouble("UnitPrice"));
+        return detail;
+    }
+}
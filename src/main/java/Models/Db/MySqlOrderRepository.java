@@ -0,0 +1,342 @@
+package Models.Db;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Metrics.OrderPlacedEvent;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.OrderRepository;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class MySqlOrderRepository implements OrderRepository {
+    // null when changes are not logged for other tills
+    private final ChangeLog changeLog;
+
+    public MySqlOrderRepository() {
+        this(null);
+    }
+
+    public MySqlOrderRepository(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public String nextOrderId() throws SQLException {
+        return OrderIdAllocator.getInstance().nextId();
+    }
+
+    @Override
+    public List<OrderDetail> place(Order order, List<OrderDetail> orderDetails) throws SQLException {
+        OrderPlacedEvent event = OrderPlacedEvent.start(order.getOrderID(), orderDetails.size());
+        try {
+            return place(order, orderDetails, event);
+        } finally {
+            event.commit();
+        }
+    }
+
+    // Places the order and fills in the stock check and commit times of an event the caller commits.
+    List<OrderDetail> place(Order order, List<OrderDetail> orderDetails, OrderPlacedEvent event) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+
+                String orderSql = "INSERT INTO Orders (OrderID, OrderDate, CustID, Total) VALUES (?, ?, ?, 0)";
+                try (PreparedStatement orderStmt = connection.prepareStatement(orderSql)) {
+                    orderStmt.setString(1, order.getOrderID());
+                    orderStmt.setDate(2, Date.valueOf(order.getOrderDate()));
+                    orderStmt.setString(3, order.getCustID());
+                    orderStmt.executeUpdate();
+                }
+
+                long stockStart = System.nanoTime();
+                reserveStock(connection, orderDetails);
+                event.stockChecked(System.nanoTime() - stockStart);
+
+
+                // each line is priced at the price the stock was just reserved at
+                try (PreparedStatement detailStmt = connection.prepareStatement(SalesLedger.INSERT_LINE_SQL)) {
+                    for (OrderDetail detail : orderDetails) {
+                        detailStmt.setString(1, detail.getOrderID());
+                        detailStmt.setInt(2, detail.getOrderQty());
+                        detailStmt.setDouble(3, detail.getDiscount());
+                        detailStmt.setString(4, detail.getItemCode());
+                        detailStmt.addBatch();
+                    }
+                    detailStmt.executeBatch();
+                }
+                SalesLedger.updateTotals(connection, order.getOrderID());
+
+                List<SalesLedger.Line> lines = SalesLedger.readLines(connection, order.getOrderID(), null);
+                SalesLedger.recordOrder(connection, order, lines);
+                logChange(connection, Collections.singletonList(order.getOrderID()), itemCodesOf(lines));
+
+                long commitStart = System.nanoTime();
+                connection.commit();
+                event.committed(System.nanoTime() - commitStart, 1);
+                List<OrderDetail> placed = new ArrayList<>(lines.size());
+                for (SalesLedger.Line line : lines) {
+                    placed.add(line.toDetail());
+                }
+                return placed;
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Logs the orders and the items whose stock they moved for the other tills, in the caller's transaction.
+    void logChange(Connection connection, Collection<String> orderIDs, Collection<String> itemCodes)
+            throws SQLException {
+        if (changeLog == null) {
+            return;
+        }
+        Map<String, Collection<String>> keysByTable = new LinkedHashMap<>();
+        keysByTable.put(ChangeLog.ORDER, orderIDs);
+        keysByTable.put(ChangeLog.ITEM, itemCodes);
+        changeLog.record(connection, keysByTable);
+    }
+
+    static Set<String> itemCodesOf(Collection<SalesLedger.Line> lines) {
+        Set<String> itemCodes = new TreeSet<>();
+        for (SalesLedger.Line line : lines) {
+            itemCodes.add(line.itemCode);
+        }
+        return itemCodes;
+    }
+
+    // Decrements stock for every line with conditional updates in one batch. A line whose update matches no
+    // row either ran out of stock or does not exist; all of them are reported together and the caller rolls back.
+    // Items are updated in code order so concurrent orders lock rows in the same order and cannot deadlock.
+    private void reserveStock(Connection connection, List<OrderDetail> orderDetails) throws SQLException {
+        Map<String, Integer> requestedByItem = new TreeMap<>();
+        for (OrderDetail detail : orderDetails) {
+            requestedByItem.merge(detail.getItemCode(), detail.getOrderQty(), Integer::sum);
+        }
+
+        String updateItemSql = "UPDATE Item SET QtyOnHand = QtyOnHand - ? WHERE ItemCode = ? AND QtyOnHand >= ?";
+        List<String> itemCodes = new ArrayList<>(requestedByItem.keySet());
+        int[] updated;
+        try (PreparedStatement updateStmt = connection.prepareStatement(updateItemSql)) {
+            for (String itemCode : itemCodes) {
+                int quantity = requestedByItem.get(itemCode);
+                updateStmt.setInt(1, quantity);
+                updateStmt.setString(2, itemCode);
+                updateStmt.setInt(3, quantity);
+                updateStmt.addBatch();
+            }
+            updated = updateStmt.executeBatch();
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                failed.add(itemCodes.get(i));
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        // only the rejection path pays for reading current stock levels
+        Map<String, Integer> availableByItem = new LinkedHashMap<>();
+        Map<String, Integer> requestedFailed = new LinkedHashMap<>();
+        for (String itemCode : failed) {
+            availableByItem.put(itemCode, null);
+            requestedFailed.put(itemCode, requestedByItem.get(itemCode));
+        }
+        String placeholders = String.join(", ", Collections.nCopies(failed.size(), "?"));
+        String stockSql = "SELECT ItemCode, QtyOnHand FROM Item WHERE ItemCode IN (" + placeholders + ")";
+        try (PreparedStatement stockStmt = connection.prepareStatement(stockSql)) {
+            for (int i = 0; i < failed.size(); i++) {
+                stockStmt.setString(i + 1, failed.get(i));
+            }
+            try (ResultSet rs = stockStmt.executeQuery()) {
+                while (rs.next()) {
+                    availableByItem.put(rs.getString("ItemCode"), rs.getInt("QtyOnHand"));
+                }
+            }
+        }
+        throw new InsufficientStockException(availableByItem, requestedFailed);
+    }
+
+    @Override
+    public List<OrderDetail> delete(String orderID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+
+                LocalDate orderDate;
+                String custID;
+                String getOrderSql = "SELECT OrderDate, CustID FROM Orders WHERE OrderID = ? FOR UPDATE";
+                try (PreparedStatement getOrderStmt = connection.prepareStatement(getOrderSql)) {
+                    getOrderStmt.setString(1, orderID);
+                    try (ResultSet rs = getOrderStmt.executeQuery()) {
+                        if (!rs.next()) {
+                            connection.rollback();
+                            return null;
+                        }
+                        orderDate = rs.getDate("OrderDate").toLocalDate();
+                        custID = rs.getString("CustID");
+                    }
+                }
+
+
+                List<SalesLedger.Line> lines = SalesLedger.readLines(connection, orderID, null);
+                String restoreStockSql = "UPDATE Item SET QtyOnHand = QtyOnHand + ? WHERE ItemCode = ?";
+                try (PreparedStatement restoreStmt = connection.prepareStatement(restoreStockSql)) {
+                    for (SalesLedger.Line line : lines) {
+                        restoreStmt.setInt(1, line.quantity);
+                        restoreStmt.setString(2, line.itemCode);
+                        restoreStmt.addBatch();
+                    }
+                    restoreStmt.executeBatch();
+                }
+                SalesLedger.removeOrder(connection, orderDate, custID, lines);
+
+
+                String deleteDetailsSql = "DELETE FROM OrderDetail WHERE OrderID = ?";
+                try (PreparedStatement deleteDetailsStmt = connection.prepareStatement(deleteDetailsSql)) {
+                    deleteDetailsStmt.setString(1, orderID);
+                    deleteDetailsStmt.executeUpdate();
+                }
+
+
+                String deleteOrderSql = "DELETE FROM Orders WHERE OrderID = ?";
+                try (PreparedStatement deleteOrderStmt = connection.prepareStatement(deleteOrderSql)) {
+                    deleteOrderStmt.setString(1, orderID);
+                    deleteOrderStmt.executeUpdate();
+                }
+                logChange(connection, Collections.singletonList(orderID), itemCodesOf(lines));
+
+                connection.commit();
+                List<OrderDetail> removed = new ArrayList<>(lines.size());
+                for (SalesLedger.Line line : lines) {
+                    removed.add(line.toDetail());
+                }
+                return removed;
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public List<Order> findAll() throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Orders ORDER BY OrderDate DESC, OrderID";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Order order = new Order();
+                        order.setOrderID(rs.getString("OrderID"));
+                        order.setOrderDate(rs.getDate("OrderDate").toLocalDate());
+                        order.setCustID(rs.getString("CustID"));
+                        orders.add(order);
+                    }
+                    return orders;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Order> findAllWithTotals() throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT o.OrderID, o.OrderDate, o.CustID, c.CustName, COALESCE(o.Total, 0) as Total " +
+                    "FROM Orders o " +
+                    "LEFT JOIN Customer c ON o.CustID = c.CustID " +
+                    "ORDER BY o.OrderDate DESC, o.OrderID";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Order order = new Order();
+                        order.setOrderID(rs.getString("OrderID"));
+                        order.setOrderDate(rs.getDate("OrderDate").toLocalDate());
+                        order.setCustID(rs.getString("CustID"));
+                        order.setCustomerName(rs.getString("CustName"));
+                        order.setTotal(rs.getDouble("Total"));
+                        orders.add(order);
+                    }
+                    return orders;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Order findById(String orderID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT * FROM Orders WHERE OrderID = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Order order = new Order();
+                        order.setOrderID(rs.getString("OrderID"));
+                        order.setOrderDate(rs.getDate("OrderDate").toLocalDate());
+                        order.setCustID(rs.getString("CustID"));
+                        return order;
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double findTotal(String orderID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT Total FROM Orders WHERE OrderID = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getDouble("Total");
+                    }
+                    return 0.0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String orderID) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT OrderID FROM Orders WHERE OrderID = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, orderID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package Models.Db;
+
+import Models.Cache.ReferenceData;
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Repository.Versioned;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Delta reads of Item and Customer for ReferenceData. Changed rows are found through their UpdatedAt column and
+// deleted ones through the tombstones the repositories leave in DeletedRow. Versions are the server's clock in
+// microseconds, taken before the rows are read, and compared on the server so the client's clock and time zone
+// play no part.
+public class MySqlReferenceSource implements ReferenceData.Source {
+    static final String TOMBSTONE_SQL = "REPLACE INTO DeletedRow (TableName, RowKey) VALUES (?, ?)";
+
+    private static final String VERSION_SQL = "SELECT CAST(UNIX_TIMESTAMP(NOW(6)) * 1000000 AS SIGNED)";
+    private static final String CHANGED_SINCE = " WHERE UpdatedAt >= FROM_UNIXTIME(?)";
+    private static final String DELETED_SQL =
+            "SELECT TableName, RowKey FROM DeletedRow WHERE DeletedAt >= FROM_UNIXTIME(?)";
+    private static final String MICROS = "CAST(UNIX_TIMESTAMP(%s) * 1000000 AS SIGNED)";
+
+    @FunctionalInterface
+    interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    @Override
+    public String describe() {
+        return PoolConfig.fromSystemProperties().getUrl();
+    }
+
+    @Override
+    public ReferenceData.Delta changesSince(long since) throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            long version;
+            try (PreparedStatement stmt = connection.prepareStatement(VERSION_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                version = rs.getLong(1);
+            }
+
+            List<Item> items = new ArrayList<>();
+            try (PreparedStatement stmt = prepare(connection, "SELECT * FROM Item", since);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(MySqlItemRepository.toItem(rs));
+                }
+            }
+            List<Customer> customers = new ArrayList<>();
+            try (PreparedStatement stmt = prepare(connection, "SELECT * FROM Customer", since);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    customers.add(MySqlCustomerRepository.toCustomer(rs));
+                }
+            }
+
+            List<String> deletedItems = new ArrayList<>();
+            List<String> deletedCustomers = new ArrayList<>();
+            if (since >= 0) {
+                try (PreparedStatement stmt = connection.prepareStatement(DELETED_SQL)) {
+                    stmt.setBigDecimal(1, BigDecimal.valueOf(since, 6));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if ("Item".equals(rs.getString("TableName"))) {
+                                deletedItems.add(rs.getString("RowKey"));
+                            } else {
+                                deletedCustomers.add(rs.getString("RowKey"));
+                            }
+                        }
+                    }
+                }
+            }
+            return new ReferenceData.Delta(version, items, customers, deletedItems, deletedCustomers);
+        }
+    }
+
+    // The rows of table among keys as they are now, each with its UpdatedAt, and the others with the time of their
+    // tombstone, or 0 when they never existed. A row deleted between the two reads is found by the second.
+    static <T> Map<String, Versioned<T>> readVersioned(String table, String keyColumn, Collection<String> keys,
+                                                       RowReader<T> reader) throws SQLException {
+        Map<String, Versioned<T>> rows = new HashMap<>();
+        if (keys.isEmpty()) {
+            return rows;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            String sql = "SELECT *, " + String.format(MICROS, "UpdatedAt") + " AS Version FROM " + table +
+                    " WHERE " + keyColumn + " IN (" + placeholders + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (String key : keys) {
+                    stmt.setString(index++, key);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.put(rs.getString(keyColumn), new Versioned<>(reader.read(rs), rs.getLong("Version")));
+                    }
+                }
+            }
+            List<String> missing = new ArrayList<>();
+            for (String key : keys) {
+                if (!rows.containsKey(key)) {
+                    missing.add(key);
+                    rows.put(key, new Versioned<>(null, 0));
+                }
+            }
+            if (missing.isEmpty()) {
+                return rows;
+            }
+            sql = "SELECT RowKey, " + String.format(MICROS, "DeletedAt") + " AS Version FROM DeletedRow " +
+                    "WHERE TableName = ? AND RowKey IN (" + String.join(", ", Collections.nCopies(missing.size(), "?")) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, table);
+                int index = 2;
+                for (String key : missing) {
+                    stmt.setString(index++, key);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.put(rs.getString("RowKey"), new Versioned<>(null, rs.getLong("Version")));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static PreparedStatement prepare(Connection connection, String select, long since) throws SQLException {
+        if (since < 0) {
+            return connection.prepareStatement(select);
+        }
+        PreparedStatement stmt = connection.prepareStatement(select + CHANGED_SINCE);
+        stmt.setBigDecimal(1, BigDecimal.valueOf(since, 6));
+        return stmt;
+    }
+}
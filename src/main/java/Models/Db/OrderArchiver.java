@@ -0,0 +1,172 @@
+package Models.Db;
+
+import Models.Archive.MonthArchive;
+import Models.Archive.MonthArchiveWriter;
+import Models.Archive.OrderArchives;
+import Models.Dto.ArchiveResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moves orders dated before a cutoff out of Orders and OrderDetail into the monthly archive files of
+// OrderArchives. Each month is one transaction: its orders and lines are read and locked, merged into the
+// month's file (orders archived earlier stay, an order archived again replaces its old copy), the file is
+// replaced, and only then are the rows deleted and the transaction committed. Should the delete fail after the
+// file was written, the orders are in both places until the next run archives them again.
+//
+// The sales aggregates are left alone, so the reports still count archived orders; a rebuild of the aggregates
+// adds them back from the archives. Stock is not touched either: archiving is not a cancellation.
+public class OrderArchiver {
+    private static final String MONTHS_SQL =
+            "SELECT DISTINCT YEAR(OrderDate) * 100 + MONTH(OrderDate) FROM Orders WHERE OrderDate < ? ORDER BY 1";
+    private static final String ORDERS_SQL =
+            "SELECT OrderID, OrderDate, CustID FROM Orders WHERE OrderDate >= ? AND OrderDate < ? FOR UPDATE";
+    private static final String LINES_SQL =
+            "SELECT od.OrderID, od.ItemCode, od.OrderQTY, od.Discount, od.UnitPrice, od.LineTotal " +
+            "FROM OrderDetail od JOIN Orders o ON o.OrderID = od.OrderID " +
+            "WHERE o.OrderDate >= ? AND o.OrderDate < ? FOR UPDATE";
+    private static final String DELETE_LINES_SQL =
+            "DELETE od FROM OrderDetail od JOIN Orders o ON o.OrderID = od.OrderID " +
+            "WHERE o.OrderDate >= ? AND o.OrderDate < ?";
+    private static final String DELETE_ORDERS_SQL = "DELETE FROM Orders WHERE OrderDate >= ? AND OrderDate < ?";
+
+    private final OrderArchives archives;
+
+    public OrderArchiver(OrderArchives archives) {
+        this.archives = archives;
+    }
+
+    public ArchiveResult archiveBefore(LocalDate cutoff) throws SQLException, IOException {
+        long started = System.currentTimeMillis();
+        Files.createDirectories(archives.getDirectory());
+
+        List<YearMonth> months = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(MONTHS_SQL)) {
+            stmt.setDate(1, Date.valueOf(cutoff));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int yearMonth = rs.getInt(1);
+                    months.add(YearMonth.of(yearMonth / 100, yearMonth % 100));
+                }
+            }
+        }
+
+        long orders = 0;
+        long lines = 0;
+        long bytes = 0;
+        for (YearMonth month : months) {
+            LocalDate to = month.plusMonths(1).atDay(1);
+            long[] archived = archiveMonth(month, month.atDay(1), to.isAfter(cutoff) ? cutoff : to);
+            orders += archived[0];
+            lines += archived[1];
+            bytes += archived[2];
+        }
+        archives.refresh();
+        return new ArchiveResult(months.size(), orders, lines, bytes, System.currentTimeMillis() - started);
+    }
+
+    // Returns the orders and lines archived and the size of the month's file.
+    private long[] archiveMonth(YearMonth month, LocalDate from, LocalDate to) throws SQLException, IOException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+                MonthArchiveWriter writer = new MonthArchiveWriter(month);
+                Set<String> orderIDs = new HashSet<>();
+                try (PreparedStatement stmt = connection.prepareStatement(ORDERS_SQL)) {
+                    bindRange(stmt, from, to);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String orderID = rs.getString("OrderID");
+                            writer.addOrder(orderID, rs.getDate("OrderDate").toLocalDate(), rs.getString("CustID"));
+                            orderIDs.add(orderID);
+                        }
+                    }
+                }
+                long lines = 0;
+                try (PreparedStatement stmt = connection.prepareStatement(LINES_SQL)) {
+                    bindRange(stmt, from, to);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            writer.addLine(rs.getString("OrderID"), rs.getString("ItemCode"), rs.getInt("OrderQTY"),
+                                    rs.getDouble("Discount"), cents(rs.getBigDecimal("UnitPrice")),
+                                    cents(rs.getBigDecimal("LineTotal")));
+                            lines++;
+                        }
+                    }
+                }
+
+                MonthArchive existing = archives.get(month);
+                if (existing != null) {
+                    writer.addAll(existing, orderIDs);
+                }
+                long bytes = writer.write(archives.fileFor(month));
+
+                try (PreparedStatement stmt = connection.prepareStatement(DELETE_LINES_SQL)) {
+                    bindRange(stmt, from, to);
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = connection.prepareStatement(DELETE_ORDERS_SQL)) {
+                    bindRange(stmt, from, to);
+                    stmt.executeUpdate();
+                }
+                connection.commit();
+                return new long[]{orderIDs.size(), lines, bytes};
+
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Adds what the archived orders contribute to the sales aggregates, summed in memory first so the whole
+    // archive costs one statement per day, customer and item.
+    static void addArchivedSales(Connection connection) throws SQLException {
+        Map<LocalDate, SalesLedger.Totals> byDate = new HashMap<>();
+        Map<String, SalesLedger.Totals> byCustomer = new HashMap<>();
+        Map<String, SalesLedger.Totals> byItem = new HashMap<>();
+        for (MonthArchive month : OrderArchives.getInstance().newestFirst()) {
+            for (int order = 0; order < month.getOrderCount(); order++) {
+                SalesLedger.Totals daily = byDate.computeIfAbsent(month.orderDate(order), key -> new SalesLedger.Totals());
+                SalesLedger.Totals customer = byCustomer.computeIfAbsent(month.custID(order), key -> new SalesLedger.Totals());
+                daily.orders++;
+                customer.orders++;
+                for (int line = month.lineStart(order); line < month.lineEnd(order); line++) {
+                    SalesLedger.Totals item = byItem.computeIfAbsent(month.itemCode(line), key -> new SalesLedger.Totals());
+                    item.orders++;
+                    int quantity = month.quantity(line);
+                    double gross = quantity * month.unitPrice(line);
+                    double discount = gross - month.lineTotal(line);
+                    daily.addLine(quantity, gross, discount);
+                    customer.addLine(quantity, gross, discount);
+                    item.addLine(quantity, gross, discount);
+                }
+            }
+        }
+        SalesLedger.addTotals(connection, byDate, byCustomer, byItem);
+    }
+
+    private static void bindRange(PreparedStatement stmt, LocalDate from, LocalDate to) throws SQLException {
+        stmt.setDate(1, Date.valueOf(from));
+        stmt.setDate(2, Date.valueOf(to));
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
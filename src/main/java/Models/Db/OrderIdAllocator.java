@@ -0,0 +1,107 @@
+package Models.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Hands out order IDs from blocks reserved in the IdSequence table. Each terminal reserves blockSize IDs in one
+// short transaction and serves them from memory, so IDs are unique across terminals without a query per order.
+// IDs of a block that is not used up before shutdown are skipped, which leaves gaps but never duplicates.
+public class OrderIdAllocator {
+    private static OrderIdAllocator instance;
+
+    private final String sequenceName;
+    private final String prefix;
+    private final int width;
+    private final int blockSize;
+    private long next;
+    private long limit;
+
+    public OrderIdAllocator(String sequenceName, String prefix, int width, int blockSize) {
+        if (width < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("width and blockSize must be positive");
+        }
+        this.sequenceName = sequenceName;
+        this.prefix = prefix;
+        this.width = width;
+        this.blockSize = blockSize;
+    }
+
+    public static synchronized OrderIdAllocator getInstance() {
+        if (instance == null) {
+            instance = new OrderIdAllocator(
+                    "Orders",
+                    System.getProperty("order.id.prefix", "D"),
+                    Integer.getInteger("order.id.width", 3),
+                    Integer.getInteger("order.id.blockSize", 50));
+        }
+        return instance;
+    }
+
+    public synchronized String nextId() throws SQLException {
+        if (next >= limit) {
+            reserveBlock();
+        }
+        return format(next++);
+    }
+
+    // Numbers wider than the configured width simply grow, so D999 is followed by D1000.
+    public String format(long value) {
+        return prefix + String.format("%0" + width + "d", value);
+    }
+
+    private void reserveBlock() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+
+                long start = lockSequence(connection);
+                if (start < 0) {
+                    seedSequence(connection);
+                    start = lockSequence(connection);
+                }
+
+                String sql = "UPDATE IdSequence SET NextValue = ? WHERE Name = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, start + blockSize);
+                    stmt.setString(2, sequenceName);
+                    stmt.executeUpdate();
+                }
+
+                connection.commit();
+                next = start;
+                limit = start + blockSize;
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private long lockSequence(Connection connection) throws SQLException {
+        String sql = "SELECT NextValue FROM IdSequence WHERE Name = ? FOR UPDATE";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, sequenceName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("NextValue") : -1;
+            }
+        }
+    }
+
+    // First use on an existing database: continue after the highest numeric ID already in Orders.
+    private void seedSequence(Connection connection) throws SQLException {
+        String sql = "INSERT IGNORE INTO IdSequence (Name, NextValue) " +
+                "SELECT ?, COALESCE(MAX(CAST(SUBSTRING(OrderID, ?) AS UNSIGNED)), 0) + 1 " +
+                "FROM Orders WHERE OrderID LIKE ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, sequenceName);
+            stmt.setInt(2, prefix.length() + 1);
+            stmt.setString(3, prefix + "%");
+            stmt.executeUpdate();
+        }
+    }
+}
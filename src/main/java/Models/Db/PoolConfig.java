@@ -0,0 +1,44 @@
+package Models.Db;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = "password")
+public class PoolConfig {
+    // useServerPrepStmts makes the cached statements real server-side prepared statements; useCursorFetch lets a
+    // statement with a fetch size read its rows through a server-side cursor instead of buffering them all
+    private String url = "jdbc:mysql://localhost:3306/fxmanagement?useServerPrepStmts=true&useCursorFetch=true";
+    private String username = "root";
+    private String password = "1234";
+
+    private int minSize = 2;
+    private int maxSize = 10;
+    private long borrowTimeoutMillis = 5_000;
+    private int validationTimeoutSeconds = 2;
+    // connections used more recently than this are handed out without a ping
+    private long validationBypassMillis = 500;
+    private long idleTimeoutMillis = 10 * 60_000;
+    private long leakThresholdMillis = 30_000;
+    private long housekeepingIntervalMillis = 30_000;
+    // prepared statements kept open per physical connection, 0 disables caching
+    private int statementCacheSize = 64;
+
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.setUrl(System.getProperty("db.url", config.getUrl()));
+        config.setUsername(System.getProperty("db.username", config.getUsername()));
+        config.setPassword(System.getProperty("db.password", config.getPassword()));
+        config.setMinSize(Integer.getInteger("db.pool.minSize", config.getMinSize()));
+        config.setMaxSize(Integer.getInteger("db.pool.maxSize", config.getMaxSize()));
+        config.setBorrowTimeoutMillis(Long.getLong("db.pool.borrowTimeoutMillis", config.getBorrowTimeoutMillis()));
+        config.setValidationTimeoutSeconds(Integer.getInteger("db.pool.validationTimeoutSeconds", config.getValidationTimeoutSeconds()));
+        config.setValidationBypassMillis(Long.getLong("db.pool.validationBypassMillis", config.getValidationBypassMillis()));
+        config.setIdleTimeoutMillis(Long.getLong("db.pool.idleTimeoutMillis", config.getIdleTimeoutMillis()));
+        config.setLeakThresholdMillis(Long.getLong("db.pool.leakThresholdMillis", config.getLeakThresholdMillis()));
+        config.setHousekeepingIntervalMillis(Long.getLong("db.pool.housekeepingIntervalMillis", config.getHousekeepingIntervalMillis()));
+        config.setStatementCacheSize(Integer.getInteger("db.pool.statementCacheSize", config.getStatementCacheSize()));
+        return config;
+    }
+}
@@ -0,0 +1,29 @@
+package Models.Db;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class PoolStats {
+    private int totalConnections;
+    private int activeConnections;
+    private int idleConnections;
+    private int waitingThreads;
+    private long borrowCount;
+    private double averageBorrowWaitMillis;
+    private double maxBorrowWaitMillis;
+    private long borrowTimeouts;
+    private long validationFailures;
+    private long leaksDetected;
+    private long connectionsCreated;
+    private long connectionsDestroyed;
+    private long statementCacheHits;
+    private long statementCacheMisses;
+    private long statementCacheEvictions;
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+}
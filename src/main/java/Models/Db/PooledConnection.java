@@ -0,0 +1,117 @@
+package Models.Db;
+
+import Models.Metrics.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statementCache;
+    private volatile long lastUsedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize, StatementCache.Counters counters) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCache = new StatementCache(physical, statementCacheSize, counters);
+        this.lastUsedAt = System.currentTimeMillis();
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowSite() {
+        return borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void markLeakReported() {
+        leakReported = true;
+    }
+
+    void markReturned() {
+        lastUsedAt = System.currentTimeMillis();
+        borrowSite = null;
+    }
+
+    // Every borrow gets a fresh handle, so a caller that keeps a reference after close() cannot touch
+    // the physical connection once somebody else owns it.
+    Connection lease(boolean captureBorrowSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = captureBorrowSite ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle());
+    }
+
+    void closePhysical() {
+        statementCache.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            Log.warn("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private boolean returned;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (returned ? ", returned" : "") + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return statementCache.prepare((String) args[0], (Connection) proxy);
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package Models.Db;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Applies order changes to the SalesDaily, SalesByCustomer and SalesByItem aggregates. Every method runs on the
+// caller's connection so the aggregates commit or roll back together with the change that caused them.
+//
+// Every order of a day counts towards that day, so a single SalesDaily row per day would be locked by every
+// checkout until it commits. A day is therefore split over sales.dailySlots rows, and each transaction adds to one
+// slot picked at random; the reports sum the slots. The customer and item rows are not split: two orders only meet
+// there for the same customer, or for the same item, whose stock row they already queue on.
+//
+// Every write first locks the one SalesLedgerLock row in share mode; the writers do not block each other there,
+// but a rebuild that holds it exclusively keeps them out of the aggregates until it commits.
+final class SalesLedger {
+    private static final int DAILY_SLOTS = Math.max(1, Integer.getInteger("sales.dailySlots", 16));
+
+    // One order line as it counts towards the aggregates.
+    static final class Line {
+        final String orderID;
+        final LocalDate orderDate;
+        final String custID;
+        final String itemCode;
+        final int quantity;
+        final double discount;
+        final double unitPrice;
+        final double lineTotal;
+
+        Line(String orderID, LocalDate orderDate, String custID, String itemCode, int quantity, double discount,
+             double unitPrice, double lineTotal) {
+            this.orderID = orderID;
+            this.orderDate = orderDate;
+            this.custID = custID;
+            this.itemCode = itemCode;
+            this.quantity = quantity;
+            this.discount = discount;
+            this.unitPrice = unitPrice;
+            this.lineTotal = lineTotal;
+        }
+
+        double gross() {
+            return quantity * unitPrice;
+        }
+
+        double discountAmount() {
+            return gross() - lineTotal;
+        }
+
+        OrderDetail toDetail() {
+            OrderDetail detail = new OrderDetail(orderID, itemCode, quantity, discount);
+            detail.setUnitPrice(unitPrice);
+            return detail;
+        }
+    }
+
+    // How OrderDetail.LineTotal follows from the captured UnitPrice; computed by the database so that stored
+    // totals, Orders.Total and the aggregates all round the same way.
+    private static final String LINE_TOTAL_SQL = "ROUND(OrderQTY * UnitPrice * (1 - Discount / 100), 2)";
+
+    // Adds an order line priced at the item's current price; call updateTotals afterwards.
+    // Parameters: OrderID, OrderQTY, Discount, ItemCode. Inserts nothing when the item does not exist.
+    static final String INSERT_LINE_SQL =
+            "INSERT INTO OrderDetail (OrderID, ItemCode, OrderQTY, Discount, UnitPrice, LineTotal) " +
+            "SELECT ?, ItemCode, ?, ?, UnitPrice, 0 FROM Item WHERE ItemCode = ?";
+
+    // the slot is the last parameter, see addDaily
+    private static final String DAILY_SQL =
+            "INSERT INTO SalesDaily (SaleDate, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount, Slot) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE Orders = Orders + VALUES(Orders), Quantity = Quantity + VALUES(Quantity), " +
+            "GrossAmount = GrossAmount + VALUES(GrossAmount), DiscountAmount = DiscountAmount + VALUES(DiscountAmount), " +
+            "NetAmount = NetAmount + VALUES(NetAmount)";
+    private static final String CUSTOMER_SQL =
+            "INSERT INTO SalesByCustomer (CustID, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE Orders = Orders + VALUES(Orders), Quantity = Quantity + VALUES(Quantity), " +
+            "GrossAmount = GrossAmount + VALUES(GrossAmount), DiscountAmount = DiscountAmount + VALUES(DiscountAmount), " +
+            "NetAmount = NetAmount + VALUES(NetAmount)";
+    private static final String ITEM_SQL =
+            "INSERT INTO SalesByItem (ItemCode, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE Orders = Orders + VALUES(Orders), Quantity = Quantity + VALUES(Quantity), " +
+            "GrossAmount = GrossAmount + VALUES(GrossAmount), DiscountAmount = DiscountAmount + VALUES(DiscountAmount), " +
+            "NetAmount = NetAmount + VALUES(NetAmount)";
+
+    // Summed figures of one aggregate row, for applying a large history with one statement per row.
+    static final class Totals {
+        int orders;
+        long quantity;
+        double gross;
+        double discount;
+
+        void addLine(int lineQuantity, double lineGross, double lineDiscount) {
+            quantity += lineQuantity;
+            gross += lineGross;
+            discount += lineDiscount;
+        }
+    }
+
+    private static final String LOCK_SQL = "SELECT Id FROM SalesLedgerLock WHERE Id = 1";
+
+    private SalesLedger() {
+    }
+
+    static void lockExclusively(Connection connection) throws SQLException {
+        lock(connection, LOCK_SQL + " FOR UPDATE");
+    }
+
+    private static void lockShared(Connection connection) throws SQLException {
+        lock(connection, LOCK_SQL + " LOCK IN SHARE MODE");
+    }
+
+    private static void lock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+        }
+    }
+
+    // Current lines of an order, or only the line for itemCode when it is not null. The detail rows are locked
+    // until the transaction ends, so the lines read here are the ones the caller's change replaces.
+    static List<Line> readLines(Connection connection, String orderID, String itemCode) throws SQLException {
+        String sql = "SELECT o.OrderDate, o.CustID, od.ItemCode, od.OrderQTY, od.Discount, od.UnitPrice, od.LineTotal " +
+                "FROM OrderDetail od " +
+                "JOIN Orders o ON o.OrderID = od.OrderID " +
+                "WHERE od.OrderID = ?" + (itemCode != null ? " AND od.ItemCode = ?" : "") + " " +
+                "ORDER BY od.ItemCode " +
+                "FOR UPDATE";
+        List<Line> lines = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, orderID);
+            if (itemCode != null) {
+                stmt.setString(2, itemCode);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(new Line(orderID, rs.getDate("OrderDate").toLocalDate(), rs.getString("CustID"),
+                            rs.getString("ItemCode"), rs.getInt("OrderQTY"), rs.getDouble("Discount"),
+                            rs.getDouble("UnitPrice"), rs.getDouble("LineTotal")));
+                }
+            }
+        }
+        return lines;
+    }
+
+    // readLines for several whole orders in one query; order ID -> its lines
+    static Map<String, List<Line>> readLines(Connection connection, Collection<String> orderIDs) throws SQLException {
+        Map<String, List<Line>> linesByOrder = new HashMap<>();
+        if (orderIDs.isEmpty()) {
+            return linesByOrder;
+        }
+        String sql = "SELECT od.OrderID, o.OrderDate, o.CustID, od.ItemCode, od.OrderQTY, od.Discount, od.UnitPrice, od.LineTotal " +
+                "FROM OrderDetail od " +
+                "JOIN Orders o ON o.OrderID = od.OrderID " +
+                "WHERE od.OrderID IN (" + String.join(", ", Collections.nCopies(orderIDs.size(), "?")) + ") " +
+                "ORDER BY od.OrderID, od.ItemCode " +
+                "FOR UPDATE";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (String orderID : orderIDs) {
+                stmt.setString(index++, orderID);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String orderID = rs.getString("OrderID");
+                    linesByOrder.computeIfAbsent(orderID, id -> new ArrayList<>()).add(new Line(orderID,
+                            rs.getDate("OrderDate").toLocalDate(), rs.getString("CustID"), rs.getString("ItemCode"),
+                            rs.getInt("OrderQTY"), rs.getDouble("Discount"), rs.getDouble("UnitPrice"),
+                            rs.getDouble("LineTotal")));
+                }
+            }
+        }
+        return linesByOrder;
+    }
+
+    // Sets LineTotal on the order's lines from their quantity, price and discount, and Orders.Total to their sum.
+    static void updateTotals(Connection connection, String orderID) throws SQLException {
+        String linesSql = "UPDATE OrderDetail SET LineTotal = " + LINE_TOTAL_SQL + " WHERE OrderID = ?";
+        String orderSql = "UPDATE Orders SET Total = " +
+                "(SELECT COALESCE(SUM(LineTotal), 0) FROM OrderDetail WHERE OrderID = ?) " +
+                "WHERE OrderID = ?";
+        try (PreparedStatement linesStmt = connection.prepareStatement(linesSql);
+             PreparedStatement orderStmt = connection.prepareStatement(orderSql)) {
+            linesStmt.setString(1, orderID);
+            linesStmt.executeUpdate();
+            orderStmt.setString(1, orderID);
+            orderStmt.setString(2, orderID);
+            orderStmt.executeUpdate();
+        }
+    }
+
+    // updateTotals for several orders with two statements
+    static void updateTotals(Connection connection, Collection<String> orderIDs) throws SQLException {
+        if (orderIDs.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(orderIDs.size(), "?"));
+        String linesSql = "UPDATE OrderDetail SET LineTotal = " + LINE_TOTAL_SQL + " WHERE OrderID IN (" + placeholders + ")";
+        String orderSql = "UPDATE Orders o SET Total = " +
+                "(SELECT COALESCE(SUM(od.LineTotal), 0) FROM OrderDetail od WHERE od.OrderID = o.OrderID) " +
+                "WHERE o.OrderID IN (" + placeholders + ")";
+        try (PreparedStatement linesStmt = connection.prepareStatement(linesSql);
+             PreparedStatement orderStmt = connection.prepareStatement(orderSql)) {
+            int index = 1;
+            for (String orderID : orderIDs) {
+                linesStmt.setString(index, orderID);
+                orderStmt.setString(index, orderID);
+                index++;
+            }
+            linesStmt.executeUpdate();
+            orderStmt.executeUpdate();
+        }
+    }
+
+    static void recordOrder(Connection connection, Order order, List<Line> lines) throws SQLException {
+        apply(connection, order.getOrderDate(), order.getCustID(), 1, Collections.emptyList(), lines);
+    }
+
+    // recordOrder for several new orders in one round trip per aggregate table; linesByOrder comes from readLines
+    static void recordOrders(Connection connection, List<Order> orders, Map<String, List<Line>> linesByOrder)
+            throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        lockShared(connection);
+        try (PreparedStatement daily = connection.prepareStatement(DAILY_SQL);
+             PreparedStatement customer = connection.prepareStatement(CUSTOMER_SQL);
+             PreparedStatement item = connection.prepareStatement(ITEM_SQL)) {
+            int slot = pickSlot();
+            for (Order order : orders) {
+                addChange(daily, customer, item, slot, order.getOrderDate(), order.getCustID(), 1,
+                        Collections.emptyList(), linesByOrder.getOrDefault(order.getOrderID(), Collections.emptyList()));
+            }
+            daily.executeBatch();
+            customer.executeBatch();
+            item.executeBatch();
+        }
+    }
+
+    // Adds pre-summed figures to the aggregates: by sale date, by customer ID and by item code. Days go to slot 0;
+    // this is for rebuilds and archiving, not for checkouts.
+    static void addTotals(Connection connection, Map<LocalDate, Totals> byDate, Map<String, Totals> byCustomer,
+                          Map<String, Totals> byItem) throws SQLException {
+        lockShared(connection);
+        try (PreparedStatement daily = connection.prepareStatement(DAILY_SQL);
+             PreparedStatement customer = connection.prepareStatement(CUSTOMER_SQL);
+             PreparedStatement item = connection.prepareStatement(ITEM_SQL)) {
+            for (Map.Entry<LocalDate, Totals> entry : byDate.entrySet()) {
+                addDaily(daily, Date.valueOf(entry.getKey()), 0, entry.getValue().orders, entry.getValue().quantity,
+                        entry.getValue().gross, entry.getValue().discount);
+            }
+            for (Map.Entry<String, Totals> entry : byCustomer.entrySet()) {
+                addBatch(customer, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Totals> entry : byItem.entrySet()) {
+                addBatch(item, entry.getKey(), entry.getValue());
+            }
+            daily.executeBatch();
+            customer.executeBatch();
+            item.executeBatch();
+        }
+    }
+
+    static void removeOrder(Connection connection, LocalDate orderDate, String custID, List<Line> lines) throws SQLException {
+        apply(connection, orderDate, custID, -1, lines, Collections.emptyList());
+    }
+
+    // Replaces the contribution of the removed lines with that of the added ones.
+    static void replaceLines(Connection connection, List<Line> removed, List<Line> added) throws SQLException {
+        apply(connection, null, null, 0, removed, added);
+    }
+
+    private static void apply(Connection connection, LocalDate orderDate, String custID, int orderDelta,
+                              List<Line> removed, List<Line> added) throws SQLException {
+        if (removed.isEmpty() && added.isEmpty() && orderDelta == 0) {
+            return;
+        }
+        lockShared(connection);
+        try (PreparedStatement daily = connection.prepareStatement(DAILY_SQL);
+             PreparedStatement customer = connection.prepareStatement(CUSTOMER_SQL);
+             PreparedStatement item = connection.prepareStatement(ITEM_SQL)) {
+            addChange(daily, customer, item, pickSlot(), orderDate, custID, orderDelta, removed, added);
+            daily.executeBatch();
+            customer.executeBatch();
+            item.executeBatch();
+        }
+    }
+
+    // One slot for the whole transaction, so it never holds two rows of the same day.
+    private static int pickSlot() {
+        return ThreadLocalRandom.current().nextInt(DAILY_SLOTS);
+    }
+
+    private static void addChange(PreparedStatement daily, PreparedStatement customer, PreparedStatement item,
+                                  int slot, LocalDate orderDate, String custID, int orderDelta, List<Line> removed,
+                                  List<Line> added) throws SQLException {
+        if (orderDelta != 0) {
+            addDaily(daily, Date.valueOf(orderDate), slot, orderDelta, 0, 0, 0);
+            addBatch(customer, custID, orderDelta, 0, 0, 0);
+        }
+        for (Line line : removed) {
+            addLine(daily, customer, item, slot, line, -1);
+        }
+        for (Line line : added) {
+            addLine(daily, customer, item, slot, line, 1);
+        }
+    }
+
+    private static void addLine(PreparedStatement daily, PreparedStatement customer, PreparedStatement item,
+                                int slot, Line line, int sign) throws SQLException {
+        int quantity = sign * line.quantity;
+        double gross = sign * line.gross();
+        double discount = sign * line.discountAmount();
+        addDaily(daily, Date.valueOf(line.orderDate), slot, 0, quantity, gross, discount);
+        addBatch(customer, line.custID, 0, quantity, gross, discount);
+        addBatch(item, line.itemCode, sign, quantity, gross, discount);
+    }
+
+    private static void addBatch(PreparedStatement stmt, Object key, Totals totals) throws SQLException {
+        addBatch(stmt, key, totals.orders, totals.quantity, totals.gross, totals.discount);
+    }
+
+    private static void addDaily(PreparedStatement daily, Date saleDate, int slot, int orders, long quantity,
+                                 double gross, double discount) throws SQLException {
+        daily.setInt(7, slot);
+        addBatch(daily, saleDate, orders, quantity, gross, discount);
+    }
+
+    private static void addBatch(PreparedStatement stmt, Object key, int orders, long quantity, double gross,
+                                 double discount) throws SQLException {
+        stmt.setObject(1, key);
+        stmt.setInt(2, orders);
+        stmt.setLong(3, quantity);
+        stmt.setDouble(4, gross);
+        stmt.setDouble(5, discount);
+        stmt.setDouble(6, gross - discount);
+        stmt.addBatch();
+    }
+}
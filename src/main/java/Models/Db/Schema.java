@@ -0,0 +1,211 @@
+package Models.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Tables the application creates for itself on top of the shop schema. Every statement must be idempotent.
+public class Schema {
+    private static final String[] STATEMENTS = {
+            "CREATE TABLE IF NOT EXISTS IdSequence (" +
+                    "Name VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "NextValue BIGINT NOT NULL)",
+
+            // Sales aggregates, kept up to date by every transaction that changes Orders or OrderDetail. A day is
+            // spread over several slots (see SalesLedger).
+            "CREATE TABLE IF NOT EXISTS SalesDaily (" +
+                    "SaleDate DATE NOT NULL, " +
+                    "Slot SMALLINT NOT NULL DEFAULT 0, " +
+                    "Orders INT NOT NULL DEFAULT 0, " +
+                    "Quantity BIGINT NOT NULL DEFAULT 0, " +
+                    "GrossAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "DiscountAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "NetAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (SaleDate, Slot))",
+            "CREATE TABLE IF NOT EXISTS SalesByCustomer (" +
+                    "CustID VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "Orders INT NOT NULL DEFAULT 0, " +
+                    "Quantity BIGINT NOT NULL DEFAULT 0, " +
+                    "GrossAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "DiscountAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "NetAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "INDEX idx_sales_customer_net (NetAmount))",
+            "CREATE TABLE IF NOT EXISTS SalesByItem (" +
+                    "ItemCode VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                    "Orders INT NOT NULL DEFAULT 0, " +
+                    "Quantity BIGINT NOT NULL DEFAULT 0, " +
+                    "GrossAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "DiscountAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "NetAmount DOUBLE NOT NULL DEFAULT 0, " +
+                    "INDEX idx_sales_item_net (NetAmount))",
+            // One row, locked shared by every transaction that writes the aggregates and exclusively by a rebuild
+            "CREATE TABLE IF NOT EXISTS SalesLedgerLock (Id TINYINT NOT NULL PRIMARY KEY)",
+            "INSERT IGNORE INTO SalesLedgerLock (Id) VALUES (1)",
+
+            // Items and customers deleted through the application, so a delta sync of the reference data can
+            // drop them too (see MySqlReferenceSource)
+            "CREATE TABLE IF NOT EXISTS DeletedRow (" +
+                    "TableName VARCHAR(32) NOT NULL, " +
+                    "RowKey VARCHAR(32) NOT NULL, " +
+                    "DeletedAt TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), " +
+                    "PRIMARY KEY (TableName, RowKey), " +
+                    "INDEX idx_deleted_row_at (DeletedAt))",
+
+            // Rows changed by each till, numbered in the order they were logged, for the other tills' pollers
+            // (see ChangeLog)
+            "CREATE TABLE IF NOT EXISTS ChangeLog (" +
+                    "Seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                    "TableName VARCHAR(32) NOT NULL, " +
+                    "RowKey VARCHAR(32) NOT NULL, " +
+                    "Origin CHAR(36) NOT NULL, " +
+                    "ChangedAt TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), " +
+                    "INDEX idx_change_log_at (ChangedAt))"
+    };
+
+    // Tables that get an UpdatedAt column the server bumps on every insert and change, for delta syncs
+    private static final String[] ROW_VERSIONED = {"Item", "Customer"};
+
+    // Columns added to the shop tables: table, column, definition
+    private static final String[][] COLUMNS = {
+            {"OrderDetail", "UnitPrice", "DECIMAL(10,2) NULL"},
+            {"OrderDetail", "LineTotal", "DECIMAL(12,2) NULL"},
+            {"Orders", "Total", "DECIMAL(12,2) NULL"}
+    };
+
+    // Prices orders placed before the price columns existed at the item prices of the day they were added.
+    private static final String[] PRICE_BACKFILL = {
+            "UPDATE OrderDetail od JOIN Item i ON i.ItemCode = od.ItemCode " +
+                    "SET od.UnitPrice = i.UnitPrice, " +
+                    "od.LineTotal = ROUND(od.OrderQTY * i.UnitPrice * (1 - od.Discount / 100), 2) " +
+                    "WHERE od.UnitPrice IS NULL",
+            "UPDATE Orders o " +
+                    "SET o.Total = (SELECT COALESCE(SUM(od.LineTotal), 0) FROM OrderDetail od WHERE od.OrderID = o.OrderID) " +
+                    "WHERE o.Total IS NULL"
+    };
+
+    private static final String LINE_AMOUNTS =
+            "COALESCE(SUM(od.OrderQTY), 0), " +
+            "COALESCE(SUM(od.OrderQTY * od.UnitPrice), 0), " +
+            "COALESCE(SUM(od.OrderQTY * od.UnitPrice - od.LineTotal), 0), " +
+            "COALESCE(SUM(od.LineTotal), 0)";
+
+    private static final String[] SALES_AGGREGATES = {
+            "INSERT INTO SalesDaily (SaleDate, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount) " +
+                    "SELECT o.OrderDate, COUNT(DISTINCT o.OrderID), " + LINE_AMOUNTS + " " +
+                    "FROM Orders o " +
+                    "LEFT JOIN OrderDetail od ON od.OrderID = o.OrderID " +
+                    "GROUP BY o.OrderDate",
+            "INSERT INTO SalesByCustomer (CustID, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount) " +
+                    "SELECT o.CustID, COUNT(DISTINCT o.OrderID), " + LINE_AMOUNTS + " " +
+                    "FROM Orders o " +
+                    "LEFT JOIN OrderDetail od ON od.OrderID = o.OrderID " +
+                    "GROUP BY o.CustID",
+            "INSERT INTO SalesByItem (ItemCode, Orders, Quantity, GrossAmount, DiscountAmount, NetAmount) " +
+                    "SELECT od.ItemCode, COUNT(*), " + LINE_AMOUNTS + " " +
+                    "FROM OrderDetail od " +
+                    "GROUP BY od.ItemCode"
+    };
+
+    private static final String FILL_LOCK = "Schema.fillSalesAggregates";
+
+    private Schema() {
+    }
+
+    static void migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : STATEMENTS) {
+                stmt.execute(sql);
+            }
+
+            boolean added = false;
+            for (String[] column : COLUMNS) {
+                if (!columnExists(connection, column[0], column[1])) {
+                    stmt.execute("ALTER TABLE " + column[0] + " ADD COLUMN " + column[1] + " " + column[2]);
+                    added = true;
+                }
+            }
+            if (added) {
+                for (String sql : PRICE_BACKFILL) {
+                    stmt.executeUpdate(sql);
+                }
+            }
+            if (!columnExists(connection, "SalesDaily", "Slot")) {
+                // the existing day rows become slot 0
+                stmt.execute("ALTER TABLE SalesDaily ADD COLUMN Slot SMALLINT NOT NULL DEFAULT 0 AFTER SaleDate, " +
+                        "DROP PRIMARY KEY, ADD PRIMARY KEY (SaleDate, Slot)");
+            }
+            for (String table : ROW_VERSIONED) {
+                if (!columnExists(connection, table, "UpdatedAt")) {
+                    stmt.execute("ALTER TABLE " + table + " " +
+                            "ADD COLUMN UpdatedAt TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6), " +
+                            "ADD INDEX idx_" + table.toLowerCase() + "_updated_at (UpdatedAt)");
+                }
+            }
+
+            fillSalesAggregates(connection);
+        }
+    }
+
+    // First start with the aggregate tables: fills them from the existing order history. Tills started together
+    // take turns on a named lock and check again under it, so only the first one rebuilds.
+    private static void fillSalesAggregates(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT GET_LOCK('" + FILL_LOCK + "', 60)")) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another till to fill the sales aggregates");
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM SalesDaily)")) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    rebuildSalesAggregates(connection);
+                }
+            } finally {
+                stmt.execute("DO RELEASE_LOCK('" + FILL_LOCK + "')");
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Recomputes the sales aggregates from Orders and OrderDetail and the archived orders, in a transaction of its
+    // own. Taking the ledger lock exclusively waits for the order changes already adding to the aggregates to
+    // commit and holds back the others before they touch them, so no order is counted twice or missed. The history
+    // is read at READ COMMITTED, without locks, so the rebuild never waits on the orders it holds back.
+    public static void rebuildSalesAggregates(Connection connection) throws SQLException {
+        int isolation = connection.getTransactionIsolation();
+        try {
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            connection.setAutoCommit(false);
+            SalesLedger.lockExclusively(connection);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM SalesDaily");
+                stmt.executeUpdate("DELETE FROM SalesByCustomer");
+                stmt.executeUpdate("DELETE FROM SalesByItem");
+                for (String sql : SALES_AGGREGATES) {
+                    stmt.executeUpdate(sql);
+                }
+            }
+            OrderArchiver.addArchivedSales(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            connection.setTransactionIsolation(isolation);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package Models.Db;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SqlSupplier<T> {
+    T get() throws SQLException;
+}
@@ -0,0 +1,221 @@
+package Models.Db;
+
+import Models.Metrics.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Prepared statements of one physical connection, keyed by SQL text and evicted least recently used first.
+// A statement is removed from the cache while it is checked out, so two open handles never share one.
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, PreparedStatement> available = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<PreparedStatement, Handle> checkedOut = new IdentityHashMap<>();
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    synchronized PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        PreparedStatement statement = available.remove(sql);
+        if (statement != null) {
+            counters.hits.increment();
+        } else {
+            counters.misses.increment();
+            statement = physical.prepareStatement(sql);
+        }
+        Handle handle = new Handle(sql, statement, owner);
+        checkedOut.put(statement, handle);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                handle);
+    }
+
+    private synchronized void giveBack(Handle handle) {
+        handle.closed = true;
+        handle.binds.clear();
+        if (checkedOut.remove(handle.statement) != handle) {
+            return;
+        }
+        PreparedStatement statement = handle.statement;
+        String sql = handle.sql;
+        try {
+            ResultSet open = statement.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+
+        if (available.containsKey(sql) || maxSize <= 0) {
+            closeQuietly(statement);
+            return;
+        }
+        available.put(sql, statement);
+        if (available.size() > maxSize) {
+            Iterator<PreparedStatement> eldest = available.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+            counters.evictions.increment();
+        }
+    }
+
+    // Called when the connection goes back to the pool: statements the borrower forgot to close are reclaimed.
+    synchronized void reclaim() {
+        for (Handle handle : checkedOut.values().toArray(new Handle[0])) {
+            giveBack(handle);
+        }
+    }
+
+    synchronized void closeAll() {
+        for (Handle handle : checkedOut.values()) {
+            handle.closed = true;
+            closeQuietly(handle.statement);
+        }
+        for (PreparedStatement statement : available.values()) {
+            closeQuietly(statement);
+        }
+        checkedOut.clear();
+        available.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    static class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    // Besides guarding the pooled statement, a handle times each execute for Metrics and keeps the parameters
+    // bound since the last one, so a slow statement can be logged with them.
+    private class Handle implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        private final Connection owner;
+        private final Map<Integer, Object> binds = new TreeMap<>();
+        private int batchSize;
+        private volatile boolean closed;
+
+        Handle(String sql, PreparedStatement statement, Connection owner) {
+            this.sql = sql;
+            this.statement = statement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        giveBack(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    if (!Metrics.isEnabled()) {
+                        return forward(method, args);
+                    }
+                    return track(method, args);
+            }
+        }
+
+        private Object track(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                Object result = null;
+                boolean failed = true;
+                try {
+                    result = forward(method, args);
+                    failed = false;
+                    return result;
+                } finally {
+                    Metrics.statementExecuted(sql, System.nanoTime() - start, updateCountOf(result), failed,
+                            binds, batchSize);
+                    if (name.endsWith("Batch")) {
+                        batchSize = 0;
+                    }
+                }
+            }
+
+            Object result = forward(method, args);
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                binds.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                binds.clear();
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+            return result;
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Rows an execute changed; queries are counted where their results are mapped, by the repository calls.
+    private static long updateCountOf(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        long rows = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows += Math.max(count, 0);
+            }
+        }
+        return rows;
+    }
+}
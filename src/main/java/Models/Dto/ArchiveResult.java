@@ -0,0 +1,15 @@
+package Models.Dto;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class ArchiveResult {
+    private int months;
+    private long orders;
+    private long lines;
+    // size of the month files written, including orders they already held
+    private long archiveBytes;
+    private long elapsedMillis;
+}
@@ -0,0 +1,18 @@
+package Models.Dto;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class ExportResult {
+    private String file;
+    private long rowsWritten;
+    private long bytesWritten;
+    private long elapsedMillis;
+    private boolean cancelled;
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsWritten : rowsWritten * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,22 @@
+package Models.Dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "rejections")
+public class ImportResult {
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    // "Line n: reason" for the first rejected rows, capped so a bad file cannot exhaust memory
+    private List<String> rejections;
+    private long elapsedMillis;
+    private boolean cancelled;
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,14 @@
+package Models.Dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class PopularItem {
+    private String itemCode;
+    private String description;
+    private long quantitySold;
+}
@@ -0,0 +1,20 @@
+package Models.Dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class SalesSummary {
+    // the date, week, month, customer ID or item code the row is for
+    private String key;
+    // customer name or item description, null for period rows
+    private String name;
+    private int orders;
+    private long quantity;
+    private double grossAmount;
+    private double discountAmount;
+    private double netAmount;
+}
@@ -0,0 +1,16 @@
+package Models.Dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class SyncResult {
+    private int pushedOrders;
+    // order ID -> why the server refused it; these stay pending for the next sync
+    private Map<String, String> failedOrders;
+    private int pulledItems;
+    private int pulledCustomers;
+}
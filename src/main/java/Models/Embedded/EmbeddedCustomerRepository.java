@@ -0,0 +1,163 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Order;
+import Models.Repository.CustomerRepository;
+import Models.Repository.Versioned;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EmbeddedCustomerRepository implements CustomerRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedCustomerRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean save(Customer customer) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (store.customers.containsKey(customer.getCustID())) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate customer ID " + customer.getCustID());
+            }
+            store.commit(store.batch().putCustomer(customer));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Customer customer) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.customers.containsKey(customer.getCustID())) {
+                return false;
+            }
+            store.commit(store.batch().putCustomer(customer));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String custID) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.customers.containsKey(custID)) {
+                return false;
+            }
+            for (Order order : store.orders.values()) {
+                if (custID.equals(order.getCustID())) {
+                    throw new SQLIntegrityConstraintViolationException("Customer " + custID + " has orders");
+                }
+            }
+            store.commit(store.batch().deleteCustomer(custID));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer findById(String custID) {
+        store.lock.readLock().lock();
+        try {
+            Customer customer = store.customers.get(custID);
+            return customer != null ? EmbeddedStore.copy(customer) : null;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        store.lock.readLock().lock();
+        try {
+            return copies(store.customers, store.customers.size());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> findAfter(String afterCustID, int limit) {
+        store.lock.readLock().lock();
+        try {
+            Map<String, Customer> page = afterCustID != null ? store.customers.tailMap(afterCustID, false) : store.customers;
+            return copies(page, limit);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> findBefore(String beforeCustID, int limit) {
+        store.lock.readLock().lock();
+        try {
+            List<Customer> customers = copies(store.customers.headMap(beforeCustID, false).descendingMap(), limit);
+            Collections.reverse(customers);
+            return customers;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String findName(String custID) {
+        store.lock.readLock().lock();
+        try {
+            Customer customer = store.customers.get(custID);
+            return customer != null ? customer.getCustName() : null;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> findNames(Collection<String> custIDs) {
+        Map<String, String> names = new HashMap<>();
+        store.lock.readLock().lock();
+        try {
+            for (String custID : custIDs) {
+                Customer customer = store.customers.get(custID);
+                if (customer != null) {
+                    names.put(custID, customer.getCustName());
+                }
+            }
+            return names;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    // The store has no other writers to race with, so every row is at version 0.
+    @Override
+    public Map<String, Versioned<Customer>> findVersioned(Collection<String> custIDs) {
+        Map<String, Versioned<Customer>> rows = new HashMap<>();
+        for (String custID : custIDs) {
+            rows.put(custID, new Versioned<>(findById(custID), 0));
+        }
+        return rows;
+    }
+
+    private static List<Customer> copies(Map<String, Customer> customers, int limit) {
+        List<Customer> copies = new ArrayList<>(Math.min(limit, customers.size()));
+        for (Customer customer : customers.values()) {
+            if (copies.size() == limit) {
+                break;
+            }
+            copies.add(EmbeddedStore.copy(customer));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,130 @@
+package Models.Embedded;
+
+import Models.Dto.Item;
+import Models.Dto.OrderDetail;
+import Models.Repository.ItemRepository;
+import Models.Repository.Versioned;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EmbeddedItemRepository implements ItemRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedItemRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean save(Item item) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (store.items.containsKey(item.getItemCode())) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate item code " + item.getItemCode());
+            }
+            store.commit(store.batch().putItem(item));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Item item) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.items.containsKey(item.getItemCode())) {
+                return false;
+            }
+            store.commit(store.batch().putItem(item));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String itemCode) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.items.containsKey(itemCode)) {
+                return false;
+            }
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                if (orderLines.containsKey(itemCode)) {
+                    throw new SQLIntegrityConstraintViolationException("Item " + itemCode + " is on orders");
+                }
+            }
+            store.commit(store.batch().deleteItem(itemCode));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAll() {
+        store.lock.readLock().lock();
+        try {
+            List<Item> items = new ArrayList<>(store.items.size());
+            for (Item item : store.items.values()) {
+                items.add(EmbeddedStore.copy(item));
+            }
+            return items;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findByCodes(Collection<String> itemCodes) {
+        store.lock.readLock().lock();
+        try {
+            List<Item> items = new ArrayList<>(itemCodes.size());
+            for (String itemCode : itemCodes) {
+                Item item = store.items.get(itemCode);
+                if (item != null) {
+                    items.add(EmbeddedStore.copy(item));
+                }
+            }
+            return items;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    // The store has no other writers to race with, so every row is at version 0.
+    @Override
+    public Map<String, Versioned<Item>> findVersioned(Collection<String> itemCodes) {
+        Map<String, Versioned<Item>> rows = new HashMap<>();
+        for (Item item : findByCodes(itemCodes)) {
+            rows.put(item.getItemCode(), new Versioned<>(item, 0));
+        }
+        for (String itemCode : itemCodes) {
+            rows.putIfAbsent(itemCode, new Versioned<>(null, 0));
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean decrementStock(String itemCode, int quantity) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            Item item = store.items.get(itemCode);
+            if (item == null || item.getQtyOnHand() < quantity) {
+                return false;
+            }
+            Item updated = EmbeddedStore.copy(item);
+            updated.setQtyOnHand(item.getQtyOnHand() - quantity);
+            store.commit(store.batch().putItem(updated));
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.LineChange;
+import Models.Repository.OrderDetailRepository;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Line changes behave as on the server: only updateQuantity moves stock, and a new line is priced at the item's
+// current price.
+public class EmbeddedOrderDetailRepository implements OrderDetailRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedOrderDetailRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public LineChange save(OrderDetail orderDetail) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            String orderID = orderDetail.getOrderID();
+            String itemCode = orderDetail.getItemCode();
+            if (!store.orders.containsKey(orderID)) {
+                throw new SQLIntegrityConstraintViolationException("Unknown order " + orderID);
+            }
+            if (lineOf(orderID, itemCode) != null) {
+                throw new SQLIntegrityConstraintViolationException("Item " + itemCode + " is already on order " + orderID);
+            }
+            Item item = store.items.get(itemCode);
+            if (item == null) {
+                return new LineChange(false, List.of(), List.of());
+            }
+            OrderDetail line = EmbeddedStore.copy(orderDetail);
+            line.setUnitPrice(item.getUnitPrice());
+            store.commit(store.batch().putLine(line));
+            return new LineChange(true, List.of(), List.of(EmbeddedStore.copy(line)));
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public LineChange update(OrderDetail orderDetail) throws SQLException {
+        return changeLine(orderDetail.getOrderID(), orderDetail.getItemCode(), line -> {
+            line.setOrderQty(orderDetail.getOrderQty());
+            line.setDiscount(orderDetail.getDiscount());
+        });
+    }
+
+    @Override
+    public LineChange delete(String orderID, String itemCode) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            OrderDetail line = lineOf(orderID, itemCode);
+            if (line == null) {
+                return new LineChange(false, List.of(), List.of());
+            }
+            store.commit(store.batch().deleteLine(orderID, itemCode));
+            return new LineChange(true, List.of(EmbeddedStore.copy(line)), List.of());
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public LineChange deleteAll(String orderID) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            List<OrderDetail> before = linesOf(orderID);
+            EmbeddedStore.Batch batch = store.batch();
+            for (OrderDetail line : before) {
+                batch.deleteLine(orderID, line.getItemCode());
+            }
+            store.commit(batch);
+            return new LineChange(!before.isEmpty(), before, List.of());
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public LineChange updateQuantity(String orderID, String itemCode, int newQuantity) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            OrderDetail line = lineOf(orderID, itemCode);
+            if (line == null) {
+                return new LineChange(false, List.of(), List.of());
+            }
+            OrderDetail updated = EmbeddedStore.copy(line);
+            updated.setOrderQty(newQuantity);
+            EmbeddedStore.Batch batch = store.batch().putLine(updated);
+            Item item = store.items.get(itemCode);
+            int quantityDifference = newQuantity - line.getOrderQty();
+            if (item != null && quantityDifference > item.getQtyOnHand()) {
+                throw new InsufficientStockException(Map.of(itemCode, item.getQtyOnHand()),
+                        Map.of(itemCode, quantityDifference));
+            }
+            if (item != null && quantityDifference != 0) {
+                Item restocked = EmbeddedStore.copy(item);
+                restocked.setQtyOnHand(item.getQtyOnHand() - quantityDifference);
+                batch.putItem(restocked);
+            }
+            store.commit(batch);
+            return new LineChange(true, List.of(EmbeddedStore.copy(line)), List.of(updated));
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public LineChange updateDiscount(String orderID, String itemCode, double newDiscount) throws SQLException {
+        return changeLine(orderID, itemCode, line -> line.setDiscount(newDiscount));
+    }
+
+    @Override
+    public OrderDetail find(String orderID, String itemCode) {
+        store.lock.readLock().lock();
+        try {
+            OrderDetail line = lineOf(orderID, itemCode);
+            return line != null ? describe(line) : null;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByOrder(String orderID) {
+        store.lock.readLock().lock();
+        try {
+            return describeAll(store.lines.getOrDefault(orderID, new TreeMap<>()).values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByItem(String itemCode) {
+        store.lock.readLock().lock();
+        try {
+            List<OrderDetail> lines = new ArrayList<>();
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                OrderDetail line = orderLines.get(itemCode);
+                if (line != null) {
+                    lines.add(line);
+                }
+            }
+            return describeAll(lines);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findAll() {
+        store.lock.readLock().lock();
+        try {
+            List<OrderDetail> lines = new ArrayList<>();
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                lines.addAll(orderLines.values());
+            }
+            return describeAll(lines);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    // The store is in memory already; the lines are handed out one order at a time, and the read lock is
+    // released between orders so sales on this till are not held up while the visitor writes.
+    @Override
+    public long forEachLine(int fetchSize, LineVisitor visitor) throws IOException {
+        long visited = 0;
+        String orderID = "";
+        while (true) {
+            List<OrderDetail> orderLines;
+            store.lock.readLock().lock();
+            try {
+                Map.Entry<String, TreeMap<String, OrderDetail>> next = store.lines.higherEntry(orderID);
+                if (next == null) {
+                    return visited;
+                }
+                orderID = next.getKey();
+                orderLines = describeAll(next.getValue().values());
+            } finally {
+                store.lock.readLock().unlock();
+            }
+            for (OrderDetail detail : orderLines) {
+                visited++;
+                if (!visitor.visit(detail)) {
+                    return visited;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long countAll() {
+        store.lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                count += orderLines.size();
+            }
+            return count;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> findByOrderWithCustomer(String orderID) {
+        store.lock.readLock().lock();
+        try {
+            Order order = store.orders.get(orderID);
+            Customer customer = order != null ? store.customers.get(order.getCustID()) : null;
+            if (customer == null) {
+                return new ArrayList<>();
+            }
+            List<OrderDetail> details = findByOrder(orderID);
+            for (OrderDetail detail : details) {
+                detail.setDescription(detail.getDescription() + " | Order Date: " + order.getOrderDate() +
+                        " | Customer: " + customer.getCustName());
+            }
+            return details;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int findQuantitySold(String itemCode) {
+        store.lock.readLock().lock();
+        try {
+            int quantity = 0;
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                OrderDetail line = orderLines.get(itemCode);
+                if (line != null) {
+                    quantity += line.getOrderQty();
+                }
+            }
+            return quantity;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double findSalesAmount(String itemCode) {
+        store.lock.readLock().lock();
+        try {
+            double amount = 0;
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                OrderDetail line = orderLines.get(itemCode);
+                if (line != null) {
+                    amount += EmbeddedStore.lineTotal(line);
+                }
+            }
+            return amount;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Long> findQuantitiesSold() {
+        store.lock.readLock().lock();
+        try {
+            Map<String, Long> quantities = new HashMap<>();
+            for (Map<String, OrderDetail> orderLines : store.lines.values()) {
+                for (OrderDetail line : orderLines.values()) {
+                    quantities.merge(line.getItemCode(), (long) line.getOrderQty(), Long::sum);
+                }
+            }
+            quantities.values().removeIf(quantity -> quantity <= 0);
+            return quantities;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineEdit {
+        void apply(OrderDetail line);
+    }
+
+    private LineChange changeLine(String orderID, String itemCode, LineEdit edit) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            OrderDetail line = lineOf(orderID, itemCode);
+            if (line == null) {
+                return new LineChange(false, List.of(), List.of());
+            }
+            OrderDetail updated = EmbeddedStore.copy(line);
+            edit.apply(updated);
+            store.commit(store.batch().putLine(updated));
+            return new LineChange(true, List.of(EmbeddedStore.copy(line)), List.of(updated));
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    private OrderDetail lineOf(String orderID, String itemCode) {
+        Map<String, OrderDetail> orderLines = store.lines.get(orderID);
+        return orderLines != null ? orderLines.get(itemCode) : null;
+    }
+
+    private List<OrderDetail> linesOf(String orderID) {
+        List<OrderDetail> copies = new ArrayList<>();
+        for (OrderDetail line : store.lines.getOrDefault(orderID, new TreeMap<>()).values()) {
+            copies.add(EmbeddedStore.copy(line));
+        }
+        return copies;
+    }
+
+    // Copies with the item description; lines of items that no longer exist are left out, as the server's join does.
+    private List<OrderDetail> describeAll(Iterable<OrderDetail> lines) {
+        List<OrderDetail> details = new ArrayList<>();
+        for (OrderDetail line : lines) {
+            OrderDetail detail = describe(line);
+            if (detail != null) {
+                details.add(detail);
+            }
+        }
+        return details;
+    }
+
+    private OrderDetail describe(OrderDetail line) {
+        Item item = store.items.get(line.getItemCode());
+        if (item == null) {
+            return null;
+        }
+        OrderDetail detail = EmbeddedStore.copy(line);
+        detail.setDescription(item.getDescription());
+        return detail;
+    }
+}
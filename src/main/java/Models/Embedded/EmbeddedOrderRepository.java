@@ -0,0 +1,219 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Metrics.OrderPlacedEvent;
+import Models.Repository.InsufficientStockException;
+import Models.Repository.OrderRepository;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class EmbeddedOrderRepository implements OrderRepository {
+    private static final Comparator<Order> NEWEST_FIRST =
+            Comparator.comparing(Order::getOrderDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(Order::getOrderID);
+
+    private final EmbeddedStore store;
+    // Order IDs come from blocks reserved in the log, like OrderIdAllocator does on the server. Every offline till
+    // needs its own store.orderIdPrefix so that their orders do not collide when they are synced; there is no
+    // default, and a till without one does not start.
+    private final String prefix = orderIdPrefix();
+    private final int width = Integer.getInteger("order.id.width", 3);
+    private final int blockSize = Integer.getInteger("order.id.blockSize", 50);
+    private long next;
+    private long limit;
+
+    public EmbeddedOrderRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    // The till's store.orderIdPrefix. It may not start with the server's prefix, nor the other way round, or the
+    // server's IDs and the till's could meet.
+    public static String orderIdPrefix() {
+        String prefix = System.getProperty("store.orderIdPrefix", "").trim();
+        String serverPrefix = System.getProperty("order.id.prefix", "D");
+        if (prefix.isEmpty()) {
+            throw new IllegalStateException("The embedded store needs -Dstore.orderIdPrefix set to a prefix no " +
+                    "other till uses, e.g. L01");
+        }
+        if (prefix.startsWith(serverPrefix) || serverPrefix.startsWith(prefix)) {
+            throw new IllegalStateException("store.orderIdPrefix " + prefix + " overlaps the server's order ID " +
+                    "prefix " + serverPrefix);
+        }
+        return prefix;
+    }
+
+    @Override
+    public String nextOrderId() throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (next >= limit) {
+                long start = store.orderSequenceLimit;
+                store.commit(store.batch().orderSequence(start + blockSize));
+                next = start;
+                limit = start + blockSize;
+            }
+            return prefix + String.format("%0" + width + "d", next++);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> place(Order order, List<OrderDetail> orderDetails) throws SQLException {
+        OrderPlacedEvent event = OrderPlacedEvent.start(order.getOrderID(), orderDetails.size());
+        store.lock.writeLock().lock();
+        try {
+            if (store.orders.containsKey(order.getOrderID())) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate order ID " + order.getOrderID());
+            }
+            if (!store.customers.containsKey(order.getCustID())) {
+                throw new SQLIntegrityConstraintViolationException("Unknown customer " + order.getCustID());
+            }
+
+            Map<String, Integer> requestedByItem = new TreeMap<>();
+            for (OrderDetail detail : orderDetails) {
+                if (requestedByItem.put(detail.getItemCode(), detail.getOrderQty()) != null) {
+                    throw new SQLIntegrityConstraintViolationException("Item " + detail.getItemCode() +
+                            " appears twice in order " + order.getOrderID());
+                }
+            }
+            long stockStart = System.nanoTime();
+            Map<String, Integer> availableByItem = new LinkedHashMap<>();
+            Map<String, Integer> requestedFailed = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : requestedByItem.entrySet()) {
+                Item item = store.items.get(entry.getKey());
+                if (item == null || item.getQtyOnHand() < entry.getValue()) {
+                    availableByItem.put(entry.getKey(), item != null ? item.getQtyOnHand() : null);
+                    requestedFailed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            event.stockChecked(System.nanoTime() - stockStart);
+            if (!availableByItem.isEmpty()) {
+                throw new InsufficientStockException(availableByItem, requestedFailed);
+            }
+
+            List<OrderDetail> placed = new ArrayList<>(orderDetails.size());
+            EmbeddedStore.Batch batch = store.batch().putOrder(order, true);
+            for (Map.Entry<String, Integer> entry : requestedByItem.entrySet()) {
+                Item item = EmbeddedStore.copy(store.items.get(entry.getKey()));
+                item.setQtyOnHand(item.getQtyOnHand() - entry.getValue());
+                batch.putItem(item);
+            }
+            for (OrderDetail detail : orderDetails) {
+                OrderDetail line = EmbeddedStore.copy(detail);
+                line.setOrderID(order.getOrderID());
+                line.setUnitPrice(store.items.get(detail.getItemCode()).getUnitPrice());
+                batch.putLine(line);
+                placed.add(EmbeddedStore.copy(line));
+            }
+            long commitStart = System.nanoTime();
+            store.commit(batch);
+            event.committed(System.nanoTime() - commitStart, 1);
+            return placed;
+        } finally {
+            store.lock.writeLock().unlock();
+            event.commit();
+        }
+    }
+
+    @Override
+    public List<OrderDetail> delete(String orderID) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.orders.containsKey(orderID)) {
+                return null;
+            }
+            List<OrderDetail> removed = new ArrayList<>();
+            EmbeddedStore.Batch batch = store.batch();
+            Map<String, OrderDetail> orderLines = store.lines.getOrDefault(orderID, new TreeMap<>());
+            for (OrderDetail line : orderLines.values()) {
+                removed.add(EmbeddedStore.copy(line));
+                Item item = store.items.get(line.getItemCode());
+                if (item != null) {
+                    Item restored = EmbeddedStore.copy(item);
+                    restored.setQtyOnHand(item.getQtyOnHand() + line.getOrderQty());
+                    batch.putItem(restored);
+                }
+            }
+            store.commit(batch.deleteOrder(orderID));
+            return removed;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> findAll() {
+        store.lock.readLock().lock();
+        try {
+            List<Order> orders = new ArrayList<>(store.orders.size());
+            for (Order order : store.orders.values()) {
+                orders.add(new Order(order.getOrderID(), order.getOrderDate(), order.getCustID(), null, 0));
+            }
+            orders.sort(NEWEST_FIRST);
+            return orders;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> findAllWithTotals() {
+        store.lock.readLock().lock();
+        try {
+            List<Order> orders = new ArrayList<>(store.orders.size());
+            for (Order order : store.orders.values()) {
+                Order copy = EmbeddedStore.copy(order);
+                Customer customer = store.customers.get(order.getCustID());
+                copy.setCustomerName(customer != null ? customer.getCustName() : null);
+                orders.add(copy);
+            }
+            orders.sort(NEWEST_FIRST);
+            return orders;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Order findById(String orderID) {
+        store.lock.readLock().lock();
+        try {
+            Order order = store.orders.get(orderID);
+            return order != null ? new Order(order.getOrderID(), order.getOrderDate(), order.getCustID(), null, 0) : null;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double findTotal(String orderID) {
+        store.lock.readLock().lock();
+        try {
+            Order order = store.orders.get(orderID);
+            return order != null ? order.getTotal() : 0.0;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String orderID) {
+        store.lock.readLock().lock();
+        try {
+            return store.orders.containsKey(orderID);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+}
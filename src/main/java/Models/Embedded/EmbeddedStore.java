@@ -0,0 +1,414 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Metrics.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process shop database for a till that has to keep selling without the MySQL server. All data lives in
+// sorted maps guarded by one read-write lock. Every change is encoded as a batch of records, appended to the
+// write-ahead log as one frame (forced to disk unless store.fsync=false) and only then applied to the maps, by the
+// same code that replays the log on start-up. Records carry absolute values, never deltas, so replaying a record
+// twice is harmless. When the log outgrows store.checkpointBytes the whole state is written to a snapshot file,
+// swapped in atomically, and the log starts over.
+//
+// Orders placed here are marked pending until StoreSync has pushed them to the server.
+public class EmbeddedStore {
+    private static final byte PUT_CUSTOMER = 1;
+    private static final byte DELETE_CUSTOMER = 2;
+    private static final byte PUT_ITEM = 3;
+    private static final byte DELETE_ITEM = 4;
+    private static final byte PUT_ORDER = 5;
+    private static final byte DELETE_ORDER = 6;
+    private static final byte PUT_LINE = 7;
+    private static final byte DELETE_LINE = 8;
+    private static final byte ORDER_SEQUENCE = 9;
+
+    private static final String LOG_FILE = "store.wal";
+    private static final String SNAPSHOT_FILE = "store.snapshot";
+    private static final int SNAPSHOT_RECORDS_PER_FRAME = 10_000;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final TreeMap<String, Customer> customers = new TreeMap<>();
+    final TreeMap<String, Item> items = new TreeMap<>();
+    final TreeMap<String, Order> orders = new TreeMap<>();
+    // order ID -> item code -> line
+    final TreeMap<String, TreeMap<String, OrderDetail>> lines = new TreeMap<>();
+    final TreeSet<String> pendingOrders = new TreeSet<>();
+    // order numbers below this were handed out by an earlier run or a reserved block
+    long orderSequenceLimit = 1;
+
+    private final Path directory;
+    private final long checkpointBytes;
+    private volatile boolean syncOnCommit;
+    private WriteAheadLog log;
+
+    public EmbeddedStore(Path directory) throws SQLException {
+        this.directory = directory;
+        this.checkpointBytes = Long.getLong("store.checkpointBytes", 16L << 20);
+        this.syncOnCommit = !"false".equals(System.getProperty("store.fsync"));
+        try {
+            Files.createDirectories(directory);
+            Path snapshot = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshot)) {
+                try (WriteAheadLog snapshotLog = new WriteAheadLog(snapshot)) {
+                    snapshotLog.replay(this::apply);
+                }
+            }
+            log = new WriteAheadLog(directory.resolve(LOG_FILE));
+            log.replay(this::apply);
+        } catch (IOException e) {
+            throw new SQLException("Cannot open the local store in " + directory + ": " + e.getMessage(), e);
+        }
+        Log.info("Local store opened in " + directory.toAbsolutePath() + " with " + items.size() +
+                " items, " + customers.size() + " customers and " + orders.size() + " orders");
+    }
+
+    // Turns forcing each commit to disk off for bulk loads; turning it back on forces what was written meanwhile.
+    public void setSyncOnCommit(boolean syncOnCommit) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            this.syncOnCommit = syncOnCommit;
+            if (syncOnCommit) {
+                log.sync();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot sync the local store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int pendingOrderCount() {
+        lock.readLock().lock();
+        try {
+            return pendingOrders.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } catch (IOException e) {
+            Log.warn("Closing the local store failed: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Batch batch() {
+        return new Batch();
+    }
+
+    // Logs the batch and applies it. Callers hold the write lock and have already validated the change, so the
+    // only way to fail is an I/O error, which leaves both the log and the maps as they were.
+    void commit(Batch batch) throws SQLException {
+        if (batch.count == 0) {
+            return;
+        }
+        byte[] payload = batch.toBytes();
+        try {
+            log.append(payload, syncOnCommit);
+            apply(payload);
+        } catch (IOException e) {
+            throw new SQLException("Cannot write to the local store: " + e.getMessage(), e);
+        }
+        // the batch is committed by now; a failed checkpoint only means the log keeps growing until the next one
+        try {
+            if (log.size() > checkpointBytes) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            Log.warn("Local store checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    // Writes the whole state to a new snapshot and empties the log. Each step is durable before the next starts,
+    // so a crash in between leaves either the old snapshot plus the full log or the new snapshot plus a log whose
+    // records are already in it.
+    private void checkpoint() throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (WriteAheadLog snapshot = new WriteAheadLog(temporary)) {
+            Batch frame = new Batch();
+            for (Customer customer : customers.values()) {
+                frame = flushIfFull(snapshot, frame).putCustomer(customer);
+            }
+            for (Item item : items.values()) {
+                frame = flushIfFull(snapshot, frame).putItem(item);
+            }
+            for (Order order : orders.values()) {
+                frame = flushIfFull(snapshot, frame).putOrder(order, pendingOrders.contains(order.getOrderID()));
+            }
+            for (Map<String, OrderDetail> orderLines : lines.values()) {
+                for (OrderDetail line : orderLines.values()) {
+                    frame = flushIfFull(snapshot, frame).putLine(line);
+                }
+            }
+            frame.orderSequence(orderSequenceLimit);
+            snapshot.append(frame.toBytes(), true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        log.reset();
+    }
+
+    private static Batch flushIfFull(WriteAheadLog snapshot, Batch frame) throws IOException {
+        if (frame.count < SNAPSHOT_RECORDS_PER_FRAME) {
+            return frame;
+        }
+        snapshot.append(frame.toBytes(), false);
+        return new Batch();
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            switch (type) {
+                case PUT_CUSTOMER -> {
+                    Customer customer = new Customer(readString(in), readString(in), readString(in), readDate(in),
+                            in.readDouble(), readString(in), readString(in), readString(in), readString(in));
+                    customers.put(customer.getCustID(), customer);
+                }
+                case DELETE_CUSTOMER -> customers.remove(in.readUTF());
+                case PUT_ITEM -> {
+                    Item item = new Item(readString(in), readString(in), readString(in), in.readDouble(), in.readInt());
+                    items.put(item.getItemCode(), item);
+                }
+                case DELETE_ITEM -> items.remove(in.readUTF());
+                case PUT_ORDER -> {
+                    Order order = new Order(in.readUTF(), readDate(in), readString(in), null, 0);
+                    boolean pending = in.readBoolean();
+                    Order existing = orders.get(order.getOrderID());
+                    order.setTotal(existing != null ? existing.getTotal() : 0);
+                    orders.put(order.getOrderID(), order);
+                    if (pending) {
+                        pendingOrders.add(order.getOrderID());
+                    } else {
+                        pendingOrders.remove(order.getOrderID());
+                    }
+                }
+                case DELETE_ORDER -> {
+                    String orderID = in.readUTF();
+                    orders.remove(orderID);
+                    lines.remove(orderID);
+                    pendingOrders.remove(orderID);
+                }
+                case PUT_LINE -> {
+                    OrderDetail line = new OrderDetail(in.readUTF(), in.readUTF(), in.readInt(), in.readDouble());
+                    line.setUnitPrice(in.readDouble());
+                    lines.computeIfAbsent(line.getOrderID(), id -> new TreeMap<>()).put(line.getItemCode(), line);
+                    updateTotal(line.getOrderID());
+                }
+                case DELETE_LINE -> {
+                    String orderID = in.readUTF();
+                    String itemCode = in.readUTF();
+                    Map<String, OrderDetail> orderLines = lines.get(orderID);
+                    if (orderLines != null) {
+                        orderLines.remove(itemCode);
+                        if (orderLines.isEmpty()) {
+                            lines.remove(orderID);
+                        }
+                    }
+                    updateTotal(orderID);
+                }
+                case ORDER_SEQUENCE -> orderSequenceLimit = Math.max(orderSequenceLimit, in.readLong());
+                default -> throw new IOException("Unknown record type " + type);
+            }
+        }
+    }
+
+    private void updateTotal(String orderID) {
+        Order order = orders.get(orderID);
+        if (order == null) {
+            return;
+        }
+        double total = 0;
+        Map<String, OrderDetail> orderLines = lines.get(orderID);
+        if (orderLines != null) {
+            for (OrderDetail line : orderLines.values()) {
+                total += lineTotal(line);
+            }
+        }
+        order.setTotal(round(total));
+    }
+
+    // Same rounding as OrderDetail.LineTotal on the server: to cents, halves away from zero.
+    static double lineTotal(OrderDetail line) {
+        return round(line.getOrderQty() * line.getUnitPrice() * (1 - line.getDiscount() / 100));
+    }
+
+    private static double round(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    static Customer copy(Customer customer) {
+        return new Customer(customer.getCustID(), customer.getCustTitle(), customer.getCustName(), customer.getDob(),
+                customer.getSalary(), customer.getCustAddress(), customer.getCity(), customer.getProvince(),
+                customer.getPostalCode());
+    }
+
+    static Item copy(Item item) {
+        return new Item(item.getItemCode(), item.getDescription(), item.getPackSize(), item.getUnitPrice(),
+                item.getQtyOnHand());
+    }
+
+    static Order copy(Order order) {
+        return new Order(order.getOrderID(), order.getOrderDate(), order.getCustID(), order.getCustomerName(),
+                order.getTotal());
+    }
+
+    static OrderDetail copy(OrderDetail line) {
+        OrderDetail copy = new OrderDetail(line.getOrderID(), line.getItemCode(), line.getOrderQty(), line.getDiscount());
+        copy.setUnitPrice(line.getUnitPrice());
+        copy.setDescription(line.getDescription());
+        return copy;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    // The records of one transaction, in the order they are applied.
+    static final class Batch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        Batch putCustomer(Customer customer) {
+            return record(PUT_CUSTOMER, () -> {
+                writeString(customer.getCustID());
+                writeString(customer.getCustTitle());
+                writeString(customer.getCustName());
+                writeDate(customer.getDob());
+                out.writeDouble(customer.getSalary());
+                writeString(customer.getCustAddress());
+                writeString(customer.getCity());
+                writeString(customer.getProvince());
+                writeString(customer.getPostalCode());
+            });
+        }
+
+        Batch deleteCustomer(String custID) {
+            return record(DELETE_CUSTOMER, () -> out.writeUTF(custID));
+        }
+
+        Batch putItem(Item item) {
+            return record(PUT_ITEM, () -> {
+                writeString(item.getItemCode());
+                writeString(item.getDescription());
+                writeString(item.getPackSize());
+                out.writeDouble(item.getUnitPrice());
+                out.writeInt(item.getQtyOnHand());
+            });
+        }
+
+        Batch deleteItem(String itemCode) {
+            return record(DELETE_ITEM, () -> out.writeUTF(itemCode));
+        }
+
+        Batch putOrder(Order order, boolean pending) {
+            return record(PUT_ORDER, () -> {
+                out.writeUTF(order.getOrderID());
+                writeDate(order.getOrderDate());
+                writeString(order.getCustID());
+                out.writeBoolean(pending);
+            });
+        }
+
+        Batch deleteOrder(String orderID) {
+            return record(DELETE_ORDER, () -> out.writeUTF(orderID));
+        }
+
+        Batch putLine(OrderDetail line) {
+            return record(PUT_LINE, () -> {
+                out.writeUTF(line.getOrderID());
+                out.writeUTF(line.getItemCode());
+                out.writeInt(line.getOrderQty());
+                out.writeDouble(line.getDiscount());
+                out.writeDouble(line.getUnitPrice());
+            });
+        }
+
+        Batch deleteLine(String orderID, String itemCode) {
+            return record(DELETE_LINE, () -> {
+                out.writeUTF(orderID);
+                out.writeUTF(itemCode);
+            });
+        }
+
+        Batch orderSequence(long limit) {
+            return record(ORDER_SEQUENCE, () -> out.writeLong(limit));
+        }
+
+        byte[] toBytes() {
+            byte[] body = bytes.toByteArray();
+            byte[] payload = new byte[Integer.BYTES + body.length];
+            payload[0] = (byte) (count >>> 24);
+            payload[1] = (byte) (count >>> 16);
+            payload[2] = (byte) (count >>> 8);
+            payload[3] = (byte) count;
+            System.arraycopy(body, 0, payload, Integer.BYTES, body.length);
+            return payload;
+        }
+
+        @FunctionalInterface
+        private interface Fields {
+            void write() throws IOException;
+        }
+
+        private Batch record(byte type, Fields fields) {
+            try {
+                out.writeByte(type);
+                fields.write();
+            } catch (IOException e) {
+                // a ByteArrayOutputStream does not fail
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            return this;
+        }
+
+        private void writeString(String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private void writeDate(LocalDate value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.toEpochDay());
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import Models.Dto.SyncResult;
+import Models.Repository.CustomerRepository;
+import Models.Repository.ItemRepository;
+import Models.Repository.OrderDetailRepository;
+import Models.Repository.OrderRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Brings a till that sold offline back in line with the server. Pending orders are pushed first, oldest ID first,
+// each as its own server transaction; a customer created on the till is created on the server before its first
+// order. An order is marked synced as soon as the server has it. One that is already there is only marked if the
+// server's copy has the same customer, date and lines (it was pushed before a crash), so a sync can be repeated
+// safely; a different order under the same ID is a conflict. The server may also refuse an order, for example for
+// lack of stock. Either way the order stays pending and is reported.
+//
+// Then the items and customers are pulled from the server. Local stock becomes the server's stock minus what the
+// orders still pending took, and customers and items that only exist locally are kept. Edits to orders that
+// were already synced stay local.
+public class StoreSync {
+    private final EmbeddedStore store;
+    private final CustomerRepository serverCustomers;
+    private final ItemRepository serverItems;
+    private final OrderRepository serverOrders;
+    private final OrderDetailRepository serverOrderDetails;
+
+    public StoreSync(EmbeddedStore store, CustomerRepository serverCustomers, ItemRepository serverItems,
+                     OrderRepository serverOrders, OrderDetailRepository serverOrderDetails) {
+        this.store = store;
+        this.serverCustomers = serverCustomers;
+        this.serverItems = serverItems;
+        this.serverOrders = serverOrders;
+        this.serverOrderDetails = serverOrderDetails;
+    }
+
+    public SyncResult sync() throws SQLException {
+        int pushed = 0;
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (String orderID : pendingOrderIds()) {
+            try {
+                if (pushOrder(orderID)) {
+                    pushed++;
+                }
+            } catch (SQLException e) {
+                failed.put(orderID, e.getMessage());
+            }
+        }
+
+        List<Item> items = serverItems.findAll();
+        List<Customer> customers = serverCustomers.findAll();
+        store.lock.writeLock().lock();
+        try {
+            Map<String, Integer> pendingQuantities = new HashMap<>();
+            for (String orderID : store.pendingOrders) {
+                for (OrderDetail line : store.lines.getOrDefault(orderID, new TreeMap<>()).values()) {
+                    pendingQuantities.merge(line.getItemCode(), line.getOrderQty(), Integer::sum);
+                }
+            }
+            EmbeddedStore.Batch batch = store.batch();
+            for (Item item : items) {
+                item.setQtyOnHand(item.getQtyOnHand() - pendingQuantities.getOrDefault(item.getItemCode(), 0));
+                batch.putItem(item);
+            }
+            for (Customer customer : customers) {
+                batch.putCustomer(customer);
+            }
+            store.commit(batch);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        return new SyncResult(pushed, failed, items.size(), customers.size());
+    }
+
+    private List<String> pendingOrderIds() {
+        store.lock.readLock().lock();
+        try {
+            return new ArrayList<>(store.pendingOrders);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    // false when the order was deleted on the till in the meantime
+    private boolean pushOrder(String orderID) throws SQLException {
+        Order order;
+        Customer customer;
+        List<OrderDetail> lines = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            Order local = store.orders.get(orderID);
+            if (local == null) {
+                return false;
+            }
+            order = EmbeddedStore.copy(local);
+            Customer localCustomer = store.customers.get(order.getCustID());
+            customer = localCustomer != null ? EmbeddedStore.copy(localCustomer) : null;
+            for (OrderDetail line : store.lines.getOrDefault(orderID, new TreeMap<>()).values()) {
+                lines.add(EmbeddedStore.copy(line));
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+
+        Order serverOrder = serverOrders.findById(orderID);
+        if (serverOrder == null) {
+            if (customer != null && serverCustomers.findById(customer.getCustID()) == null) {
+                serverCustomers.save(customer);
+            }
+            serverOrders.place(order, lines);
+        } else if (!sameOrder(order, lines, serverOrder, serverOrderDetails.findByOrder(orderID))) {
+            throw new SQLException("Conflict: the server already has a different order " + orderID +
+                    "; kept pending");
+        }
+
+        store.lock.writeLock().lock();
+        try {
+            Order local = store.orders.get(orderID);
+            if (local != null && store.pendingOrders.contains(orderID)) {
+                store.commit(store.batch().putOrder(local, false));
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    // Discounts are compared to the cent the server may have rounded them to.
+    static boolean sameOrder(Order local, List<OrderDetail> localLines, Order server, List<OrderDetail> serverLines) {
+        if (!Objects.equals(local.getCustID(), server.getCustID())
+                || !Objects.equals(local.getOrderDate(), server.getOrderDate())
+                || localLines.size() != serverLines.size()) {
+            return false;
+        }
+        Map<String, OrderDetail> byItem = new HashMap<>();
+        for (OrderDetail line : serverLines) {
+            byItem.put(line.getItemCode(), line);
+        }
+        for (OrderDetail line : localLines) {
+            OrderDetail other = byItem.get(line.getItemCode());
+            if (other == null || other.getOrderQty() != line.getOrderQty()
+                    || Math.abs(other.getDiscount() - line.getDiscount()) >= 0.005) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
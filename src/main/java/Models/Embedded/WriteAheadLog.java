@@ -0,0 +1,117 @@
+package Models.Embedded;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only file of frames: payload length, CRC32 of the payload, payload. A frame is one committed transaction;
+// a crash can only leave a torn frame at the end, and replay stops at the first frame that is incomplete or does
+// not match its checksum and cuts the file back to the last good one.
+final class WriteAheadLog implements Closeable {
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    @FunctionalInterface
+    interface FrameHandler {
+        void apply(byte[] payload) throws IOException;
+    }
+
+    private final FileChannel channel;
+    // set when a failed append could not be rolled back; the file is then no longer trusted for writes
+    private boolean broken;
+
+    WriteAheadLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    void replay(FrameHandler handler) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            long checksum = header.getLong();
+            if (length < 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_BYTES);
+            if (checksumOf(payload.array()) != checksum) {
+                break;
+            }
+            handler.apply(payload.array());
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    // Appends one frame and, when sync is set, waits until it is on disk.
+    void append(byte[] payload, boolean sync) throws IOException {
+        if (broken) {
+            throw new IOException("Write-ahead log is unusable after an earlier write failure");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putLong(checksumOf(payload)).put(payload).flip();
+        long start = channel.position();
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException rollbackFailure) {
+                broken = true;
+            }
+            throw e;
+        }
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    // Empties the log once everything in it is covered by a snapshot.
+    void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+        }
+    }
+
+    private static long checksumOf(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
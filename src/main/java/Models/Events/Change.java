@@ -0,0 +1,7 @@
+package Models.Events;
+
+public enum Change {
+    INSERTED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,14 @@
+package Models.Events;
+
+import Models.Dto.Customer;
+import lombok.*;
+
+// customer is the row as saved, or null when it was deleted
+@Getter
+@AllArgsConstructor
+@ToString
+public class CustomerChanged {
+    private final Change change;
+    private final String custID;
+    private final Customer customer;
+}
@@ -0,0 +1,68 @@
+package Models.Events;
+
+import Models.Metrics.Log;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// In-process publish and subscribe for changes the controllers have committed, so open forms can apply the one row
+// that changed instead of reloading their tables. Listeners run on the executor they subscribed with, e.g. the FX
+// thread; the events one thread publishes reach a listener in that order.
+//
+// The bus only holds its listeners weakly: a form keeps its Subscription in a field, and once the form is closed
+// and collected the listener goes with it. cancel() stops delivery straight away.
+public final class EventBus {
+    private static final List<WeakReference<Subscription<?>>> subscriptions = new CopyOnWriteArrayList<>();
+
+    private EventBus() {
+    }
+
+    public static final class Subscription<T> {
+        private final Class<T> type;
+        private final Executor executor;
+        private final Consumer<? super T> listener;
+        private final WeakReference<Subscription<?>> self = new WeakReference<>(this);
+
+        private Subscription(Class<T> type, Executor executor, Consumer<? super T> listener) {
+            this.type = type;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            subscriptions.remove(self);
+        }
+    }
+
+    public static <T> Subscription<T> subscribe(Class<T> type, Executor executor, Consumer<? super T> listener) {
+        Subscription<T> subscription = new Subscription<>(type, executor, listener);
+        subscriptions.add(subscription.self);
+        return subscription;
+    }
+
+    public static void publish(Object event) {
+        for (WeakReference<Subscription<?>> reference : subscriptions) {
+            Subscription<?> subscription = reference.get();
+            if (subscription == null) {
+                subscriptions.remove(reference);
+            } else if (subscription.type.isInstance(event)) {
+                deliver(subscription, event);
+            }
+        }
+    }
+
+    private static <T> void deliver(Subscription<T> subscription, Object event) {
+        T typed = subscription.type.cast(event);
+        subscription.executor.execute(() -> {
+            try {
+                subscription.listener.accept(typed);
+            } catch (RuntimeException e) {
+                // one failing form must not keep the others from hearing about the change
+                Log.warn("Listener for " + typed + " failed: " + e);
+            }
+        });
+    }
+}
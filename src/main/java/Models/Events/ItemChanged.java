@@ -0,0 +1,14 @@
+package Models.Events;
+
+import Models.Dto.Item;
+import lombok.*;
+
+// item is the row as saved, or null when it was deleted. Stock taken by orders is published as UPDATED.
+@Getter
+@AllArgsConstructor
+@ToString
+public class ItemChanged {
+    private final Change change;
+    private final String itemCode;
+    private final Item item;
+}
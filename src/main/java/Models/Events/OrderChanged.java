@@ -0,0 +1,21 @@
+package Models.Events;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import lombok.*;
+
+import java.util.List;
+
+// An order placed (INSERTED, with order and its lines in addedLines), deleted (DELETED, with the lines it had in
+// removedLines) or whose lines were changed (UPDATED, with the affected lines before and after). order is only
+// set for INSERTED and carries the total but no customer name. Lines carry their unit price but no description.
+@Getter
+@AllArgsConstructor
+@ToString
+public class OrderChanged {
+    private final Change change;
+    private final String orderID;
+    private final Order order;
+    private final List<OrderDetail> removedLines;
+    private final List<OrderDetail> addedLines;
+}
@@ -0,0 +1,66 @@
+package Models.Export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+// Writes text to a file channel as UTF-8 through one fixed direct buffer, so output of any length is written with
+// the same few kilobytes of heap. Text is encoded straight into the buffer, which goes to the channel when full.
+public class ChannelWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private long bytesWritten;
+
+    public ChannelWriter(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public ChannelWriter write(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                return this;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    // Bytes handed to the channel so far; up to one buffer less than has been written.
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    // Flushes what is buffered and forces it to disk; the channel stays open.
+    public void finish() throws IOException {
+        drain();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
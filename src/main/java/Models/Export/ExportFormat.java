@@ -0,0 +1,121 @@
+package Models.Export;
+
+import Models.Dto.OrderDetail;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// How an exported order line is written: CSV with a header row, or one JSON object per line (JSON Lines).
+// Prices are written as stored, the line total rounded to cents.
+public enum ExportFormat {
+    CSV("csv") {
+        @Override
+        public void writeHeader(ChannelWriter out) throws IOException {
+            out.write("OrderID,ItemCode,Description,OrderQty,UnitPrice,Discount,Total\n");
+        }
+
+        @Override
+        public void writeLine(ChannelWriter out, OrderDetail detail, StringBuilder scratch) throws IOException {
+            scratch.setLength(0);
+            appendCsv(scratch, detail.getOrderID()).append(',');
+            appendCsv(scratch, detail.getItemCode()).append(',');
+            appendCsv(scratch, detail.getDescription()).append(',');
+            scratch.append(detail.getOrderQty()).append(',');
+            appendNumber(scratch, detail.getUnitPrice()).append(',');
+            appendNumber(scratch, detail.getDiscount()).append(',');
+            appendNumber(scratch, Math.round(detail.getTotal() * 100) / 100.0).append('\n');
+            out.write(scratch);
+        }
+    },
+
+    JSON_LINES("jsonl") {
+        @Override
+        public void writeHeader(ChannelWriter out) {
+        }
+
+        @Override
+        public void writeLine(ChannelWriter out, OrderDetail detail, StringBuilder scratch) throws IOException {
+            scratch.setLength(0);
+            scratch.append("{\"orderID\":");
+            appendJson(scratch, detail.getOrderID()).append(",\"itemCode\":");
+            appendJson(scratch, detail.getItemCode()).append(",\"description\":");
+            appendJson(scratch, detail.getDescription())
+                    .append(",\"orderQty\":").append(detail.getOrderQty())
+                    .append(",\"unitPrice\":");
+            appendNumber(scratch, detail.getUnitPrice()).append(",\"discount\":");
+            appendNumber(scratch, detail.getDiscount()).append(",\"total\":");
+            appendNumber(scratch, Math.round(detail.getTotal() * 100) / 100.0).append("}\n");
+            out.write(scratch);
+        }
+    };
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract void writeHeader(ChannelWriter out) throws IOException;
+
+    // scratch is reused for every line, so formatting does not allocate per row beyond the values themselves
+    public abstract void writeLine(ChannelWriter out, OrderDetail detail, StringBuilder scratch) throws IOException;
+
+    // Double.toString switches to scientific notation outside 10^-3..10^7, e.g. 1.2E7 for a large total; those
+    // values are written out in full instead.
+    private static StringBuilder appendNumber(StringBuilder text, double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude == 0 || (magnitude >= 1e-3 && magnitude < 1e7)) {
+            return text.append(value);
+        }
+        return text.append(BigDecimal.valueOf(value).toPlainString());
+    }
+
+    private static StringBuilder appendCsv(StringBuilder text, String value) {
+        if (value == null) {
+            return text;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            return text.append(value);
+        }
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                text.append('"');
+            }
+            text.append(c);
+        }
+        return text.append('"');
+    }
+
+    private static StringBuilder appendJson(StringBuilder text, String value) {
+        if (value == null) {
+            return text.append("null");
+        }
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> text.append("\\\"");
+                case '\\' -> text.append("\\\\");
+                case '\n' -> text.append("\\n");
+                case '\r' -> text.append("\\r");
+                case '\t' -> text.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        text.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        text.append(c);
+                    }
+                }
+            }
+        }
+        return text.append('"');
+    }
+}
@@ -0,0 +1,82 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary form of an OrderEvent. The first byte is a format version so that old journals stay readable if the
+// layout ever changes.
+final class EventCodec {
+    private static final byte VERSION = 1;
+    private static final OrderEvent.Type[] TYPES = OrderEvent.Type.values();
+
+    private EventCodec() {
+    }
+
+    static byte[] encode(OrderEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 32 * (event.getRemoved().size() + event.getAdded().size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeLong(event.getSequence());
+        out.writeLong(event.getTimestamp());
+        out.writeByte(event.getType().ordinal());
+        out.writeUTF(event.getOrderID());
+        out.writeBoolean(event.getOrderDate() != null);
+        if (event.getOrderDate() != null) {
+            out.writeLong(event.getOrderDate().toEpochDay());
+        }
+        out.writeBoolean(event.getCustID() != null);
+        if (event.getCustID() != null) {
+            out.writeUTF(event.getCustID());
+        }
+        writeLines(out, event.getRemoved());
+        writeLines(out, event.getAdded());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static OrderEvent decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown journal record version " + version);
+        }
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        OrderEvent.Type type = TYPES[in.readByte()];
+        String orderID = in.readUTF();
+        LocalDate orderDate = in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+        String custID = in.readBoolean() ? in.readUTF() : null;
+        List<OrderDetail> removed = readLines(in, orderID);
+        List<OrderDetail> added = readLines(in, orderID);
+        return new OrderEvent(sequence, timestamp, type, orderID, orderDate, custID, removed, added);
+    }
+
+    private static void writeLines(DataOutputStream out, List<OrderDetail> lines) throws IOException {
+        out.writeInt(lines.size());
+        for (OrderDetail line : lines) {
+            out.writeUTF(line.getItemCode());
+            out.writeInt(line.getOrderQty());
+            out.writeDouble(line.getDiscount());
+            out.writeDouble(line.getUnitPrice());
+        }
+    }
+
+    private static List<OrderDetail> readLines(DataInputStream in, String orderID) throws IOException {
+        int count = in.readInt();
+        List<OrderDetail> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OrderDetail line = new OrderDetail(orderID, in.readUTF(), in.readInt(), in.readDouble());
+            line.setUnitPrice(in.readDouble());
+            lines.add(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,35 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One committed change to an order, as recorded in the journal. removed holds the order's lines as they were
+// before the change and added the lines as they are after it, with the prices they were sold at, so a reader can
+// follow stock and sales without looking at the tables. Order date and customer are only known for PLACED.
+@Getter
+@AllArgsConstructor
+@ToString
+public class OrderEvent {
+    public enum Type {
+        PLACED,
+        // a line added, edited or removed through the order detail form
+        LINES_CHANGED,
+        // a line quantity changed through updateOrderDetailQuantity, which also moves stock
+        QUANTITY_CHANGED,
+        DISCOUNT_CHANGED,
+        // the order and its lines deleted and their stock put back
+        DELETED
+    }
+
+    private long sequence;
+    private long timestamp;
+    private Type type;
+    private String orderID;
+    private LocalDate orderDate;
+    private String custID;
+    private List<OrderDetail> removed;
+    private List<OrderDetail> added;
+}
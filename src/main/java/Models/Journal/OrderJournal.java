@@ -0,0 +1,172 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+import Models.Metrics.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+// Append-only history of every committed order change, one CRC-checked frame per event in a single file under
+// journal.dir. Events are numbered from 0 in the order they were appended. Opening the journal reads it to the
+// end to find the next sequence number and cuts off a torn frame left by a crash.
+//
+// Appends are written at once but forced to disk in groups: the first caller to need a sync forces everything
+// written so far, and callers that append while that force runs wait and share the next one. With
+// journal.fsync=false nothing is forced and the OS decides when the journal reaches the disk.
+//
+// The journal is written after the database commit, so a crash in between loses that event; it is a history for
+// replay and followers, not the source of truth.
+public class OrderJournal implements Closeable {
+    public static final String FILE_NAME = "orders.journal";
+
+    private static OrderJournal instance;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean sync;
+    private long nextSequence;
+    // set when a failed append could not be rolled back; the file is then no longer trusted for writes
+    private boolean broken;
+    private volatile long written;
+
+    private final Object syncLock = new Object();
+    private long synced;
+    private boolean syncing;
+
+    public OrderJournal(Path directory, boolean sync) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve(FILE_NAME);
+        this.sync = sync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end;
+        try (OrderJournalReader reader = new OrderJournalReader(file, 0)) {
+            reader.read(event -> { });
+            end = reader.position();
+            nextSequence = reader.lastSequence() + 1;
+        }
+        if (end < channel.size()) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+        written = end;
+        synced = end;
+    }
+
+    // The process-wide journal, opened on first use; null when journal.enabled=false.
+    public static synchronized OrderJournal getInstance() throws IOException {
+        if (instance == null && !"false".equals(System.getProperty("journal.enabled"))) {
+            instance = new OrderJournal(Path.of(System.getProperty("journal.dir", "order-journal")),
+                    !"false".equals(System.getProperty("journal.fsync")));
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            try {
+                instance.close();
+            } catch (IOException e) {
+                Log.warn("Closing the order journal failed: " + e.getMessage());
+            }
+            instance = null;
+        }
+    }
+
+    // Appends one event and returns its sequence number once it is durable.
+    public long append(OrderEvent.Type type, String orderID, LocalDate orderDate, String custID,
+                       List<OrderDetail> removed, List<OrderDetail> added) throws IOException {
+        long sequence;
+        long end;
+        synchronized (this) {
+            if (broken) {
+                throw new IOException("Order journal is unusable after an earlier write failure");
+            }
+            sequence = nextSequence;
+            byte[] payload = EventCodec.encode(new OrderEvent(sequence, System.currentTimeMillis(), type, orderID,
+                    orderDate, custID, removed, added));
+            ByteBuffer frame = ByteBuffer.allocate(OrderJournalReader.HEADER_BYTES + payload.length);
+            frame.putInt(payload.length).putLong(OrderJournalReader.checksumOf(payload)).put(payload).flip();
+            long start = channel.position();
+            try {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException rollbackFailure) {
+                    broken = true;
+                }
+                throw e;
+            }
+            nextSequence++;
+            end = channel.position();
+            written = end;
+        }
+        if (sync) {
+            awaitSynced(end);
+        }
+        return sequence;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // end of the last appended event; a follower that starts here sees only what comes after
+    public long position() {
+        return written;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void awaitSynced(long end) throws IOException {
+        while (true) {
+            synchronized (syncLock) {
+                while (syncing && synced < end) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the order journal sync");
+                    }
+                }
+                if (synced >= end) {
+                    return;
+                }
+                syncing = true;
+            }
+            // everything written up to here is covered by the force below, including other threads' appends
+            long target = written;
+            IOException failure = null;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (syncLock) {
+                syncing = false;
+                if (failure == null) {
+                    synced = Math.max(synced, target);
+                }
+                syncLock.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Models.Journal;
+
+import Models.Metrics.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Tails a journal written by another till or process: every pollMillis it hands the events appended since the
+// last poll to the handler, on its own daemon thread. Start it at 0 to catch up from the beginning, or at the
+// position saved from an earlier run to pick up where that run stopped.
+public class OrderJournalFollower implements Closeable {
+    private final Path file;
+    private final Consumer<OrderEvent> handler;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-journal-follower");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private OrderJournalReader reader;
+    private volatile long position;
+
+    public OrderJournalFollower(Path file, long position, Consumer<OrderEvent> handler) {
+        this.file = file;
+        this.position = position;
+        this.handler = handler;
+    }
+
+    public OrderJournalFollower start(long pollMillis) {
+        poller.scheduleWithFixedDelay(this::pollQuietly, 0, pollMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // Reads what has been appended since the last poll; returns the number of events handled.
+    public synchronized int poll() throws IOException {
+        if (reader == null) {
+            if (!Files.exists(file)) {
+                return 0;
+            }
+            reader = new OrderJournalReader(file, position);
+        }
+        int count = reader.read(handler);
+        position = reader.position();
+        return count;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        poller.shutdownNow();
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (IOException | RuntimeException e) {
+            Log.warn("Following " + file + " failed: " + e.getMessage());
+        }
+    }
+}
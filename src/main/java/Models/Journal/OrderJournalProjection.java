@@ -0,0 +1,94 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Stock and sales rebuilt from journal events alone. Stock moves the way the controllers move it: placing takes
+// the ordered quantities, a quantity change takes the difference and deleting gives the lines back, while other
+// line edits leave stock alone. Restocking through the item form is not an order event, so stockTaken is the
+// movement caused by orders since the journal started, not the stock on hand.
+public class OrderJournalProjection {
+    private final Map<String, Long> stockTaken = new HashMap<>();
+    private final Map<String, Long> quantitySold = new HashMap<>();
+    private final Map<String, BigDecimal> salesAmount = new HashMap<>();
+    private final Set<String> openOrders = new HashSet<>();
+    private long lastSequence = -1;
+
+    // Replays the whole journal file into a new projection.
+    public static OrderJournalProjection replay(Path file) throws IOException {
+        OrderJournalProjection projection = new OrderJournalProjection();
+        try (OrderJournalReader reader = new OrderJournalReader(file, 0)) {
+            reader.read(projection::apply);
+        }
+        return projection;
+    }
+
+    public synchronized void apply(OrderEvent event) {
+        switch (event.getType()) {
+            case PLACED, QUANTITY_CHANGED, DELETED -> {
+                moveStock(event.getRemoved(), -1);
+                moveStock(event.getAdded(), 1);
+            }
+            default -> {
+            }
+        }
+        moveSales(event.getRemoved(), -1);
+        moveSales(event.getAdded(), 1);
+        if (event.getType() == OrderEvent.Type.PLACED) {
+            openOrders.add(event.getOrderID());
+        } else if (event.getType() == OrderEvent.Type.DELETED) {
+            openOrders.remove(event.getOrderID());
+        }
+        lastSequence = event.getSequence();
+    }
+
+    // quantity of the item taken out of stock by orders, net of deleted orders and reduced lines
+    public synchronized long getStockTaken(String itemCode) {
+        return stockTaken.getOrDefault(itemCode, 0L);
+    }
+
+    public synchronized Map<String, Long> getStockTaken() {
+        return new HashMap<>(stockTaken);
+    }
+
+    public synchronized Map<String, Long> getQuantitySold() {
+        return new HashMap<>(quantitySold);
+    }
+
+    // net amount per item after line discounts, rounded per line like order totals
+    public synchronized Map<String, BigDecimal> getSalesAmount() {
+        return new HashMap<>(salesAmount);
+    }
+
+    // orders placed and not deleted since the journal started
+    public synchronized int getOrderCount() {
+        return openOrders.size();
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    private void moveStock(List<OrderDetail> lines, int sign) {
+        for (OrderDetail line : lines) {
+            stockTaken.merge(line.getItemCode(), (long) sign * line.getOrderQty(), Long::sum);
+        }
+    }
+
+    private void moveSales(List<OrderDetail> lines, int sign) {
+        for (OrderDetail line : lines) {
+            quantitySold.merge(line.getItemCode(), (long) sign * line.getOrderQty(), Long::sum);
+            BigDecimal amount = BigDecimal.valueOf(line.getTotal()).setScale(2, RoundingMode.HALF_UP);
+            salesAmount.merge(line.getItemCode(), sign < 0 ? amount.negate() : amount, BigDecimal::add);
+        }
+    }
+}
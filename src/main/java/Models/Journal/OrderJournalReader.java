@@ -0,0 +1,95 @@
+package Models.Journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Reads journal frames from a byte position onwards and remembers where it stopped, so the next read only sees
+// what was appended since. It opens the file read-only and can run in another process while the till writes.
+// A frame that is incomplete or fails its checksum is treated as the end: it is either still being written or a
+// torn write that the writer cuts off when it next opens the journal.
+public class OrderJournalReader implements Closeable {
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private long position;
+    private long lastSequence = -1;
+
+    // position 0 reads from the start; a follower passes the position it saved after its last read
+    public OrderJournalReader(Path file, long position) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = position;
+    }
+
+    // Hands every complete event after the current position to the handler and returns how many there were.
+    public int read(Consumer<OrderEvent> handler) throws IOException {
+        int count = 0;
+        byte[] payload;
+        while ((payload = nextFrame()) != null) {
+            OrderEvent event = EventCodec.decode(payload);
+            handler.accept(event);
+            lastSequence = event.getSequence();
+            position += HEADER_BYTES + payload.length;
+            count++;
+        }
+        return count;
+    }
+
+    // where the next read starts, to be saved by a follower that wants to resume later
+    public long position() {
+        return position;
+    }
+
+    // sequence of the last event read, or -1 before the first
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] nextFrame() throws IOException {
+        long size = channel.size();
+        if (position + HEADER_BYTES > size) {
+            return null;
+        }
+        header.clear();
+        if (!readFully(header, position)) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        long checksum = header.getLong();
+        if (length < 0 || position + HEADER_BYTES + length > size) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (!readFully(payload, position + HEADER_BYTES) || checksumOf(payload.array()) != checksum) {
+            return null;
+        }
+        return payload.array();
+    }
+
+    private boolean readFully(ByteBuffer buffer, long from) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long checksumOf(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
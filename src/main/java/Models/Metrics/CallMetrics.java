@@ -0,0 +1,85 @@
+package Models.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency distribution of one instrumented method or SQL statement since start-up.
+public class CallMetrics implements CallMetricsMXBean {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder connectionWaitNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    CallMetrics(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos, long rowCount, long connectionWait, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        rows.add(rowCount);
+        totalNanos.add(nanos);
+        connectionWaitNanos.add(connectionWait);
+        latency.record(nanos / 1_000);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.mean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentile(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.percentile(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.max() / 1000.0;
+    }
+
+    @Override
+    public double getTotalSeconds() {
+        return totalNanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getMeanConnectionWaitMillis() {
+        long count = calls.sum();
+        return count == 0 ? 0 : connectionWaitNanos.sum() / 1e6 / count;
+    }
+}
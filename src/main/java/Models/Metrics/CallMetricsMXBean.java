@@ -0,0 +1,26 @@
+package Models.Metrics;
+
+// What JConsole and other JMX clients see for one instrumented method or SQL statement.
+public interface CallMetricsMXBean {
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    double getTotalSeconds();
+
+    double getMeanConnectionWaitMillis();
+}
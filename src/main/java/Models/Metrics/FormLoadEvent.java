@@ -0,0 +1,33 @@
+package Models.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for loading one FXML form, from reading the file until its controller is initialized.
+@Name("fxmanagement.FormLoad")
+@Label("Form Load")
+@Category({"FX Management", "UI"})
+@Description("Loading of one FXML form")
+@StackTrace(false)
+public class FormLoadEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Loaded")
+    boolean loaded;
+
+    public static FormLoadEvent start(String path) {
+        FormLoadEvent event = new FormLoadEvent();
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    public void loaded() {
+        loaded = true;
+    }
+}
@@ -0,0 +1,94 @@
+package Models.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency distribution in microseconds with at most 1.6% relative error: values below 64 are counted exactly and
+// every power of two above that is split into 64 linear sub-buckets, so the histogram is a fixed 2,304 counters
+// however many samples it takes. Any number of threads may record into one histogram; readers see a recent, not
+// necessarily consistent, view while recording goes on.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // powers of two from 2^6 up to 2^41 microseconds, far beyond any timeout
+    private static final int MAGNITUDES = 35;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAGNITUDES + 1) * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    // The smallest recorded value such that at least the given fraction of samples are at or below it, rounded up
+    // to its bucket.
+    public long percentile(double fraction) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (magnitude >= MAGNITUDES) {
+            return (MAGNITUDES + 1) * SUB_BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> magnitude) - SUB_BUCKETS;
+        return (magnitude + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == (MAGNITUDES + 1) * SUB_BUCKETS - 1) {
+            // the last bucket also takes everything beyond the range, so it has no bound but the maximum
+            return Long.MAX_VALUE;
+        }
+        int magnitude = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,26 @@
+package Models.Metrics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// The one logger the application reports through, instead of printing to stdout and stderr. It is the
+// java.util.logging logger "thogakade", so its level and handlers are configured the usual way, e.g.
+// -Djava.util.logging.config.file=logging.properties.
+public final class Log {
+    private static final Logger LOGGER = Logger.getLogger("thogakade");
+
+    private Log() {
+    }
+
+    public static void info(String message) {
+        LOGGER.info(message);
+    }
+
+    public static void warn(String message) {
+        LOGGER.warning(message);
+    }
+
+    public static void warn(String message, Throwable thrown) {
+        LOGGER.log(Level.WARNING, message, thrown);
+    }
+}
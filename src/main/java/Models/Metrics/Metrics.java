@@ -0,0 +1,289 @@
+package Models.Metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-method and per-statement timings of the repository calls behind the controllers, on by default and
+// switched off with -Dmetrics.enabled=false. Each repository is wrapped in a timing proxy, and the connection pool
+// and statement cache report connection waits and statement executions as they happen.
+// Every metric is registered as an MXBean under the "fxmanagement" domain, and a text table of all of them is
+// written every metrics.dumpSeconds (60, 0 turns it off) to the application Log or to the file named by metrics.dumpFile.
+// Statements slower than metrics.slowQueryMillis (200) are logged as warnings with their bind parameters.
+// The proxies also emit a RepositoryCallEvent per call for Flight Recorder; like the rest they are left out
+// when metrics are disabled.
+public final class Metrics {
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("metrics.enabled"));
+    private static final long SLOW_QUERY_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("metrics.slowQueryMillis", 200));
+    // distinct SQL texts tracked one by one; anything beyond shares a single entry
+    private static final int MAX_STATEMENTS = Integer.getInteger("metrics.maxStatements", 200);
+    private static final String DOMAIN = "fxmanagement";
+    private static final int MAX_BIND_LENGTH = 64;
+
+    private static final Map<String, CallMetrics> calls = new ConcurrentHashMap<>();
+    private static final Map<String, CallMetrics> statements = new ConcurrentHashMap<>();
+    private static final AtomicInteger statementIds = new AtomicInteger();
+    private static final LongAdder slowQueries = new LongAdder();
+    // connection wait of the current thread so far, so a call can be charged with the borrows made inside it
+    private static final ThreadLocal<long[]> connectionWait = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static ScheduledExecutorService dumper;
+    private static long lastDumpedCalls;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Wraps a repository so that each of its methods is timed under "<Interface>.<method>".
+    public static <T> T instrument(Class<T> type, T target) {
+        if (!ENABLED) {
+            return target;
+        }
+        startDumper();
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new Timed(type.getSimpleName(), target)));
+    }
+
+    public static CallMetrics call(String name) {
+        return calls.computeIfAbsent(name, key -> register("Call", key, new CallMetrics(key)));
+    }
+
+    public static CallMetrics statement(String sql) {
+        CallMetrics metrics = statements.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (statements.size() >= MAX_STATEMENTS) {
+            return statements.computeIfAbsent("(other statements)",
+                    key -> register("Statement", "other", new CallMetrics(key)));
+        }
+        return statements.computeIfAbsent(sql,
+                key -> register("Statement", "s" + statementIds.incrementAndGet(), new CallMetrics(key)));
+    }
+
+    // Called by the connection pool after each borrow.
+    public static void connectionWaited(long nanos) {
+        if (ENABLED) {
+            connectionWait.get()[0] += nanos;
+        }
+    }
+
+    // Called by the statement cache after each execute. binds maps parameter index to value, or is empty for a
+    // batch, in which case batchSize says how many parameter sets were sent.
+    public static void statementExecuted(String sql, long nanos, long rows, boolean failed,
+                                         Map<Integer, Object> binds, int batchSize) {
+        statement(sql).record(nanos, rows, 0, failed);
+        if (nanos >= SLOW_QUERY_NANOS) {
+            slowQueries.increment();
+            Log.warn(String.format("Slow query (%.1f ms%s): %s %s", nanos / 1e6, failed ? ", failed" : "",
+                    sql.replaceAll("\\s+", " "), batchSize > 0 ? "[batch of " + batchSize + "]" : formatBinds(binds)));
+        }
+    }
+
+    public static long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    // Registers any other MXBean under the fxmanagement domain, e.g. "type=ConnectionPool".
+    public static void register(String properties, Object bean) {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+        } catch (JMException e) {
+            Log.warn("Could not register " + properties + " with JMX: " + e.getMessage());
+        }
+    }
+
+    private static CallMetrics register(String type, String name, CallMetrics metrics) {
+        register("type=" + type + ",name=" + ObjectName.quote(name), metrics);
+        return metrics;
+    }
+
+    // All calls, then all statements, each slowest in total first.
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append("Metrics at ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .append(", ").append(slowQueries.sum()).append(" slow queries\n");
+        appendTable(text, "Call", calls.values());
+        appendTable(text, "Statement", statements.values());
+        return text.toString();
+    }
+
+    private static void appendTable(StringBuilder text, String heading, Collection<CallMetrics> metrics) {
+        List<CallMetrics> sorted = new ArrayList<>(metrics);
+        if (sorted.isEmpty()) {
+            return;
+        }
+        sorted.sort(Comparator.comparingDouble(CallMetrics::getTotalSeconds).reversed());
+        text.append(String.format("%-44s %9s %6s %9s %9s %9s %9s %9s %9s%n",
+                heading, "calls", "errors", "rows", "mean ms", "p50 ms", "p99 ms", "max ms", "wait ms"));
+        for (CallMetrics m : sorted) {
+            String name = m.getName().replaceAll("\\s+", " ");
+            text.append(String.format("%-44s %,9d %6d %,9d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name.length() > 44 ? name.substring(0, 41) + "..." : name,
+                    m.getCalls(), m.getErrors(), m.getRows(), m.getMeanMillis(), m.getP50Millis(),
+                    m.getP99Millis(), m.getMaxMillis(), m.getMeanConnectionWaitMillis()));
+        }
+    }
+
+    private static synchronized void startDumper() {
+        long seconds = Long.getLong("metrics.dumpSeconds", 60);
+        if (dumper != null || seconds <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(Metrics::dumpIfChanged, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    // Skips the dump while nothing has been called since the last one, so an idle till does not fill the log.
+    private static synchronized void dumpIfChanged() {
+        long total = 0;
+        for (CallMetrics metrics : calls.values()) {
+            total += metrics.getCalls();
+        }
+        if (total == lastDumpedCalls) {
+            return;
+        }
+        lastDumpedCalls = total;
+
+        String file = System.getProperty("metrics.dumpFile");
+        if (file == null) {
+            Log.info(dump());
+            return;
+        }
+        try {
+            Files.writeString(Path.of(file), dump() + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Log.warn("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String formatBinds(Map<Integer, Object> binds) {
+        if (binds.isEmpty()) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder("[");
+        for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+            if (text.length() > 1) {
+                text.append(", ");
+            }
+            text.append(bind.getKey()).append('=');
+            Object value = bind.getValue();
+            if (value == null) {
+                text.append("NULL");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                text.append(value);
+            } else {
+                String string = value.toString();
+                if (string.length() > MAX_BIND_LENGTH) {
+                    string = string.substring(0, MAX_BIND_LENGTH) + "...";
+                }
+                text.append('\'').append(string).append('\'');
+            }
+        }
+        return text.append(']').toString();
+    }
+
+    // Rows a repository call handed back: the size of a list or map, one for any other result, none for null.
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Boolean found) {
+            return found ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+
+    private static final class Timed implements InvocationHandler {
+        private final String prefix;
+        private final Object target;
+        private final Map<Method, CallMetrics> byMethod = new ConcurrentHashMap<>();
+
+        Timed(String prefix, Object target) {
+            this.prefix = prefix;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "Timed[" + target + "]";
+                }
+            }
+
+            CallMetrics metrics = byMethod.computeIfAbsent(method, m -> call(prefix + "." + m.getName()));
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            event.begin();
+            long[] waited = connectionWait.get();
+            long waitedBefore = waited[0];
+            long start = System.nanoTime();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = method.invoke(target, args);
+                failed = false;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                long rows = rowsOf(result);
+                metrics.record(System.nanoTime() - start, rows, waited[0] - waitedBefore, failed);
+                if (event.shouldCommit()) {
+                    event.method = metrics.getName();
+                    event.rows = rows;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+    }
+}
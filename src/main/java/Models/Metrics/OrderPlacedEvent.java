@@ -0,0 +1,58 @@
+package Models.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for one order placement, from the till handing the order over until its outcome is known.
+// With group commit the stock check and commit times are those of the shared transaction the order was part of.
+@Name("fxmanagement.OrderPlaced")
+@Label("Order Placed")
+@Category({"FX Management", "Orders"})
+@Description("Placement of one order, with the time spent checking stock and committing")
+@StackTrace(false)
+public class OrderPlacedEvent extends Event {
+    @Label("Order ID")
+    String orderID;
+
+    @Label("Lines")
+    int lineCount;
+
+    @Label("Orders in Commit")
+    int batchSize;
+
+    @Label("Stock Check Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long stockCheckTime;
+
+    @Label("Commit Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long commitTime;
+
+    @Label("Placed")
+    @Description("False when the order was rejected or failed")
+    boolean placed;
+
+    public static OrderPlacedEvent start(String orderID, int lineCount) {
+        OrderPlacedEvent event = new OrderPlacedEvent();
+        event.orderID = orderID;
+        event.lineCount = lineCount;
+        event.batchSize = 1;
+        event.begin();
+        return event;
+    }
+
+    public void stockChecked(long nanos) {
+        stockCheckTime = nanos;
+    }
+
+    public void committed(long nanos, int ordersInCommit) {
+        commitTime = nanos;
+        batchSize = ordersInCommit;
+        placed = true;
+    }
+}
@@ -0,0 +1,26 @@
+package Models.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for one repository call made by a controller, emitted by the Metrics timing proxy.
+// The stack trace is kept so a recording shows which controller and form made the call.
+@Name("fxmanagement.RepositoryCall")
+@Label("Repository Call")
+@Category({"FX Management", "Database"})
+@Description("One controller query or update against the store")
+@StackTrace(true)
+public class RepositoryCallEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,35 @@
+package Models.Repository;
+
+import Models.Dto.Customer;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface CustomerRepository {
+    boolean save(Customer customer) throws SQLException;
+
+    boolean update(Customer customer) throws SQLException;
+
+    boolean delete(String custID) throws SQLException;
+
+    Customer findById(String custID) throws SQLException;
+
+    // ordered by CustID
+    List<Customer> findAll() throws SQLException;
+
+    // Keyset pages in ascending CustID order: the page right after afterCustID (null for the first page) and the
+    // page that ends right before beforeCustID.
+    List<Customer> findAfter(String afterCustID, int limit) throws SQLException;
+
+    List<Customer> findBefore(String beforeCustID, int limit) throws SQLException;
+
+    String findName(String custID) throws SQLException;
+
+    // CustID -> name for those of custIDs that exist
+    Map<String, String> findNames(Collection<String> custIDs) throws SQLException;
+
+    // Every one of custIDs with its version, for readers that must not let an older read overwrite a newer one.
+    Map<String, Versioned<Customer>> findVersioned(Collection<String> custIDs) throws SQLException;
+}
@@ -0,0 +1,53 @@
+package Models.Repository;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class InsufficientStockException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    // item code -> quantity on hand when the order was rejected, null when the item does not exist; held as
+    // LinkedHashMap copies so the exception stays serializable
+    private final LinkedHashMap<String, Integer> availableByItem;
+    private final LinkedHashMap<String, Integer> requestedByItem;
+
+    public InsufficientStockException(Map<String, Integer> availableByItem, Map<String, Integer> requestedByItem) {
+        super(buildMessage(availableByItem, requestedByItem));
+        this.availableByItem = new LinkedHashMap<>(availableByItem);
+        this.requestedByItem = new LinkedHashMap<>(requestedByItem);
+    }
+
+    public Map<String, Integer> getAvailableByItem() {
+        return Collections.unmodifiableMap(availableByItem);
+    }
+
+    public Map<String, Integer> getRequestedByItem() {
+        return Collections.unmodifiableMap(requestedByItem);
+    }
+
+    public Set<String> getFailedItemCodes() {
+        return Collections.unmodifiableSet(availableByItem.keySet());
+    }
+
+    private static String buildMessage(Map<String, Integer> availableByItem, Map<String, Integer> requestedByItem) {
+        StringBuilder message = new StringBuilder("Insufficient stock for ");
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : availableByItem.entrySet()) {
+            if (!first) {
+                message.append(", ");
+            }
+            first = false;
+            message.append(entry.getKey());
+            if (entry.getValue() == null) {
+                message.append(" (item not found)");
+            } else {
+                message.append(" (Available: ").append(entry.getValue())
+                        .append(", Requested: ").append(requestedByItem.get(entry.getKey())).append(")");
+            }
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package Models.Repository;
+
+import Models.Dto.Item;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ItemRepository {
+    boolean save(Item item) throws SQLException;
+
+    boolean update(Item item) throws SQLException;
+
+    boolean delete(String itemCode) throws SQLException;
+
+    // ordered by ItemCode
+    List<Item> findAll() throws SQLException;
+
+    // the items that exist among itemCodes, in no particular order
+    List<Item> findByCodes(Collection<String> itemCodes) throws SQLException;
+
+    // Every one of itemCodes with its version, for readers that must not let an older read overwrite a newer one.
+    Map<String, Versioned<Item>> findVersioned(Collection<String> itemCodes) throws SQLException;
+
+    // Takes quantity off the stock of one item, only if that much is on hand.
+    boolean decrementStock(String itemCode, int quantity) throws SQLException;
+}
@@ -0,0 +1,16 @@
+package Models.Repository;
+
+import Models.Dto.OrderDetail;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Outcome of a change to order lines: whether anything changed, and the affected lines before and after it.
+@Getter
+@AllArgsConstructor
+public class LineChange {
+    private final boolean changed;
+    private final List<OrderDetail> before;
+    private final List<OrderDetail> after;
+}
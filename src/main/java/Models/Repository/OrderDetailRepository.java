@@ -0,0 +1,57 @@
+package Models.Repository;
+
+import Models.Dto.OrderDetail;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// Order lines. Every change keeps the order total in step and reports the affected lines as they were before and
+// after it, so callers can update what they derive from them.
+public interface OrderDetailRepository {
+    @FunctionalInterface
+    interface LineVisitor {
+        // returns false to stop the scan
+        boolean visit(OrderDetail detail) throws IOException;
+    }
+
+    LineChange save(OrderDetail orderDetail) throws SQLException;
+
+    LineChange update(OrderDetail orderDetail) throws SQLException;
+
+    LineChange delete(String orderID, String itemCode) throws SQLException;
+
+    LineChange deleteAll(String orderID) throws SQLException;
+
+    // Also moves the difference in quantity in or out of stock.
+    LineChange updateQuantity(String orderID, String itemCode, int newQuantity) throws SQLException;
+
+    LineChange updateDiscount(String orderID, String itemCode, double newDiscount) throws SQLException;
+
+    // Lines come with the item description and the unit price they were sold at.
+    OrderDetail find(String orderID, String itemCode) throws SQLException;
+
+    List<OrderDetail> findByOrder(String orderID) throws SQLException;
+
+    List<OrderDetail> findByItem(String itemCode) throws SQLException;
+
+    List<OrderDetail> findAll() throws SQLException;
+
+    // Hands the lines findAll would return to the visitor one at a time, without ever holding them all, so an
+    // export of the whole history runs in constant memory. The MySQL store reads through a forward-only cursor
+    // fetchSize rows at a time. Returns the number of lines visited.
+    long forEachLine(int fetchSize, LineVisitor visitor) throws SQLException, IOException;
+
+    long countAll() throws SQLException;
+
+    // As findByOrder, with the order date and customer name appended to the description.
+    List<OrderDetail> findByOrderWithCustomer(String orderID) throws SQLException;
+
+    int findQuantitySold(String itemCode) throws SQLException;
+
+    double findSalesAmount(String itemCode) throws SQLException;
+
+    // item code -> units sold over all time, for items that sold any
+    Map<String, Long> findQuantitiesSold() throws SQLException;
+}
@@ -0,0 +1,32 @@
+package Models.Repository;
+
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+
+import java.sql.SQLException;
+import java.util.List;
+
+public interface OrderRepository {
+    String nextOrderId() throws SQLException;
+
+    // Stores the order and its lines, priced at the current item prices, and takes the ordered quantities off
+    // stock, all or nothing. Throws InsufficientStockException naming every line that could not be served.
+    // Returns the lines as stored, with their prices.
+    List<OrderDetail> place(Order order, List<OrderDetail> orderDetails) throws SQLException;
+
+    // Deletes the order and puts its quantities back in stock. Returns the lines the order had, or null when the
+    // order does not exist.
+    List<OrderDetail> delete(String orderID) throws SQLException;
+
+    // newest first; customer name and total are not filled in
+    List<Order> findAll() throws SQLException;
+
+    // newest first, with customer name and total
+    List<Order> findAllWithTotals() throws SQLException;
+
+    Order findById(String orderID) throws SQLException;
+
+    double findTotal(String orderID) throws SQLException;
+
+    boolean exists(String orderID) throws SQLException;
+}
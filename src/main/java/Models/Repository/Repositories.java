@@ -0,0 +1,164 @@
+package Models.Repository;
+
+import Models.Archive.ArchiveAwareOrderDetailRepository;
+import Models.Archive.ArchiveAwareOrderRepository;
+import Models.Archive.OrderArchives;
+import Models.Cache.ReferenceData;
+import Models.Db.ChangeLog;
+import Models.Db.DatabaseConnection;
+import Models.Db.GroupCommitOrderRepository;
+import Models.Db.GroupCommitStats;
+import Models.Db.MySqlCustomerRepository;
+import Models.Db.MySqlItemRepository;
+import Models.Db.MySqlOrderDetailRepository;
+import Models.Db.MySqlOrderRepository;
+import Models.Db.MySqlReferenceSource;
+import Models.Embedded.EmbeddedCustomerRepository;
+import Models.Embedded.EmbeddedItemRepository;
+import Models.Embedded.EmbeddedOrderDetailRepository;
+import Models.Embedded.EmbeddedOrderRepository;
+import Models.Embedded.EmbeddedStore;
+import Models.Metrics.Metrics;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+// The storage the controllers work against, chosen once per process with -Dstore=mysql (the default) or
+// -Dstore=embedded, which keeps everything in a local store under store.dir so a till can sell without the server.
+// Sales reports and CSV imports read and write MySQL directly and are only available with the MySQL store.
+// With the MySQL store, -Dorder.groupCommit=true places concurrent orders in shared transactions.
+// Each repository is handed out wrapped by Metrics, which times every call. With MySQL, order reads also look in
+// the monthly archives that OrderArchiver moves old orders to, and the item and customer lists of the forms come
+// from ReferenceData, warm-started from the snapshot file snapshot.file (-Dsnapshot.enabled=false reads the tables).
+// The MySQL repositories also write each change to the ChangeLog, in the change's own transaction, for the other
+// tills to pick up (-Dchangelog.enabled=false turns it off).
+public final class Repositories {
+    private static final boolean EMBEDDED = "embedded".equalsIgnoreCase(System.getProperty("store", "mysql"));
+
+    private static CustomerRepository customers;
+    private static ItemRepository items;
+    private static OrderRepository orders;
+    private static OrderDetailRepository orderDetails;
+    private static EmbeddedStore embeddedStore;
+    private static GroupCommitOrderRepository groupCommit;
+    private static ReferenceData referenceData;
+    private static ChangeLog changeLog;
+
+    private Repositories() {
+    }
+
+    public static boolean isEmbedded() {
+        return EMBEDDED;
+    }
+
+    public static synchronized CustomerRepository customers() {
+        init();
+        return customers;
+    }
+
+    public static synchronized ItemRepository items() {
+        init();
+        return items;
+    }
+
+    public static synchronized OrderRepository orders() {
+        init();
+        return orders;
+    }
+
+    public static synchronized OrderDetailRepository orderDetails() {
+        init();
+        return orderDetails;
+    }
+
+    // Batching figures of the group commit, or null when orders are placed one transaction each.
+    public static synchronized GroupCommitStats groupCommitStats() {
+        init();
+        return groupCommit == null ? null : groupCommit.getStats();
+    }
+
+    // Items and customers for the forms' lists, or null when they are read from the repositories each time, as
+    // with the embedded store, which is local anyway.
+    public static synchronized ReferenceData referenceData() {
+        if (referenceData == null && !EMBEDDED && !"false".equalsIgnoreCase(System.getProperty("snapshot.enabled"))) {
+            referenceData = new ReferenceData(new MySqlReferenceSource(),
+                    Path.of(System.getProperty("snapshot.file", "reference.snapshot")),
+                    Long.getLong("snapshot.syncMillis", 60_000),
+                    Long.getLong("snapshot.overlapMillis", 10_000));
+        }
+        return referenceData;
+    }
+
+    // The log of changes shared by the tills, or null with the embedded store, which has no other tills to tell.
+    public static synchronized ChangeLog changeLog() {
+        if (changeLog == null && !EMBEDDED && !"false".equalsIgnoreCase(System.getProperty("changelog.enabled"))) {
+            changeLog = new ChangeLog();
+        }
+        return changeLog;
+    }
+
+    // The local store when running embedded, for syncing with the server; opened on first use.
+    public static synchronized EmbeddedStore embeddedStore() throws SQLException {
+        if (!EMBEDDED) {
+            throw new IllegalStateException("Not running on the embedded store");
+        }
+        if (embeddedStore == null) {
+            embeddedStore = new EmbeddedStore(Path.of(System.getProperty("store.dir", "till-store")));
+        }
+        return embeddedStore;
+    }
+
+    public static synchronized void close() {
+        if (referenceData != null) {
+            referenceData.close();
+            referenceData = null;
+        }
+        if (embeddedStore != null) {
+            embeddedStore.close();
+            embeddedStore = null;
+            customers = null;
+            items = null;
+            orders = null;
+            orderDetails = null;
+        }
+        DatabaseConnection.shutdown();
+    }
+
+    private static void init() {
+        if (customers != null) {
+            return;
+        }
+        if (EMBEDDED) {
+            // checked before the store is opened: a till without its own order ID prefix must not sell offline
+            EmbeddedOrderRepository.orderIdPrefix();
+            EmbeddedStore store;
+            try {
+                store = embeddedStore();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            customers = Metrics.instrument(CustomerRepository.class, new EmbeddedCustomerRepository(store));
+            items = Metrics.instrument(ItemRepository.class, new EmbeddedItemRepository(store));
+            orders = Metrics.instrument(OrderRepository.class, new EmbeddedOrderRepository(store));
+            orderDetails = Metrics.instrument(OrderDetailRepository.class, new EmbeddedOrderDetailRepository(store));
+        } else {
+            ChangeLog log = changeLog();
+            CustomerRepository mySqlCustomers = new MySqlCustomerRepository(log);
+            ItemRepository mySqlItems = new MySqlItemRepository(log);
+            OrderRepository mySqlOrders = new MySqlOrderRepository(log);
+            if (Boolean.getBoolean("order.groupCommit")) {
+                groupCommit = new GroupCommitOrderRepository(new MySqlOrderRepository(log),
+                        Long.getLong("order.groupCommit.windowMillis", 2),
+                        Integer.getInteger("order.groupCommit.maxBatch", 32));
+                mySqlOrders = groupCommit;
+            }
+            OrderArchives archives = OrderArchives.getInstance();
+            customers = Metrics.instrument(CustomerRepository.class, mySqlCustomers);
+            items = Metrics.instrument(ItemRepository.class, mySqlItems);
+            orders = Metrics.instrument(OrderRepository.class,
+                    new ArchiveAwareOrderRepository(mySqlOrders, mySqlCustomers, archives));
+            orderDetails = Metrics.instrument(OrderDetailRepository.class, new ArchiveAwareOrderDetailRepository(
+                    new MySqlOrderDetailRepository(log), mySqlItems, mySqlCustomers, archives));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package Models.Repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// A row as a read found it, null when it is not there, with the server time in microseconds of its last change or
+// delete. Two reads of the same row can then tell which of them saw it later, whichever finished first.
+@Getter
+@AllArgsConstructor
+@ToString
+public class Versioned<T> {
+    private final T value;
+    private final long version;
+}
@@ -1,6 +1,14 @@
+import Controller.ChangeFeed;
+import Models.Cache.ReferenceData;
+import Models.Db.DbExecutor;
+import Models.Journal.OrderJournal;
+import Models.Metrics.Log;
+import Models.Repository.Repositories;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
 public class Starter extends Application {
@@ -11,9 +19,42 @@ public class Starter extends Application {
 
     @Override
     public void start(Stage stage) throws Exception {
+        // the stores open and the caches fill in the background while the user logs in
+        DbExecutor.getExecutor().execute(Starter::warmUp);
         stage.setScene(new Scene(FXMLLoader.load(getClass().getResource("/view/login.fxml"))));
         stage.show();
     }
+
+    private static void warmUp() {
+        try {
+            if (Repositories.isEmbedded()) {
+                // fails now, not at the first sale, when the till is not set up for offline selling
+                Repositories.orders();
+            }
+            // changes made on the other tills from now on, and what the first delta sync below finds
+            ChangeFeed.start();
+            // items and customers load from the local snapshot
+            ReferenceData referenceData = Repositories.referenceData();
+            if (referenceData != null) {
+                referenceData.warmUp();
+            }
+        } catch (RuntimeException e) {
+            Log.warn("Start-up failed", e);
+            Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
+                alert.setTitle("Start-up Error");
+                alert.showAndWait();
+                Platform.exit();
+            });
+        }
+    }
+
+    @Override
+    public void stop() {
+        ChangeFeed.stop();
+        OrderJournal.shutdown();
+        Repositories.close();
+    }
 }
 
 
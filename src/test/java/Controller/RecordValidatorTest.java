@@ -0,0 +1,59 @@
+package Controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecordValidatorTest {
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    @Test
+    void acceptsAValidItem() {
+        assertNull(RecordValidator.validateItem("P001", "Leeks", "12.50", "0"));
+    }
+
+    @Test
+    void rejectsItemsWithMissingFields() {
+        assertEquals("Please fill all required fields", RecordValidator.validateItem("P001", "", "1", "1"));
+        assertEquals("Please fill all required fields", RecordValidator.validateItem(null, "Leeks", "1", "1"));
+    }
+
+    @Test
+    void rejectsBadItemFields() {
+        assertEquals("Item Code must be in format P001, P002, etc.",
+                RecordValidator.validateItem("p001", "Leeks", "1", "1"));
+        assertEquals("Unit price must be greater than 0", RecordValidator.validateItem("P001", "Leeks", "0", "1"));
+        assertEquals("Please enter a valid unit price", RecordValidator.validateItem("P001", "Leeks", "1,50", "1"));
+        assertEquals("Quantity cannot be negative", RecordValidator.validateItem("P001", "Leeks", "1", "-1"));
+        assertEquals("Please enter a valid quantity", RecordValidator.validateItem("P001", "Leeks", "1", "2.5"));
+    }
+
+    @Test
+    void acceptsAValidCustomer() {
+        assertNull(RecordValidator.validateCustomer("C001", "Mr", "Silva", DOB, "50000", "12 Main St", "Colombo",
+                "Western"));
+    }
+
+    @Test
+    void rejectsCustomersWithMissingFields() {
+        assertEquals("Please fill all required fields", RecordValidator.validateCustomer("C001", "Mr", "Silva", null,
+                "50000", "12 Main St", "Colombo", "Western"));
+        assertEquals("Please fill all required fields", RecordValidator.validateCustomer("C001", "Mr", "Silva", DOB,
+                "50000", "12 Main St", "Colombo", ""));
+    }
+
+    @Test
+    void rejectsBadCustomerFields() {
+        assertEquals("Customer ID must be in format C001, C002, etc.", RecordValidator.validateCustomer("C0001", "Mr",
+                "Silva", DOB, "50000", "12 Main St", "Colombo", "Western"));
+        assertEquals("Salary must be greater than 0", RecordValidator.validateCustomer("C001", "Mr", "Silva", DOB,
+                "-1", "12 Main St", "Colombo", "Western"));
+        assertEquals("Please enter a valid salary", RecordValidator.validateCustomer("C001", "Mr", "Silva", DOB,
+                "lots", "12 Main St", "Colombo", "Western"));
+        assertEquals("Date of birth cannot be in the future", RecordValidator.validateCustomer("C001", "Mr", "Silva",
+                LocalDate.now().plusDays(1), "50000", "12 Main St", "Colombo", "Western"));
+    }
+}
@@ -0,0 +1,101 @@
+package Controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedRowsTest {
+
+    private static String key(String label) {
+        return label.substring(0, label.indexOf(" - "));
+    }
+
+    @Test
+    void insertsRowsInKeyOrder() {
+        List<String> rows = new ArrayList<>();
+        SortedRows<String, String> sorted = new SortedRows<>(rows, SortedRowsTest::key, Comparator.naturalOrder());
+
+        sorted.put("C002 - Perera");
+        sorted.put("C003 - Fernando");
+        sorted.put("C001 - Silva");
+
+        assertEquals(List.of("C001 - Silva", "C002 - Perera", "C003 - Fernando"), rows);
+    }
+
+    @Test
+    void findsRowsAndInsertionPoints() {
+        List<String> rows = new ArrayList<>(List.of("C001 - Silva", "C003 - Fernando"));
+        SortedRows<String, String> sorted = new SortedRows<>(rows, SortedRowsTest::key, Comparator.naturalOrder());
+
+        assertEquals(1, sorted.indexOf("C003"));
+        assertEquals(-2, sorted.indexOf("C002"));
+        assertEquals(-1, sorted.indexOf("C000"));
+        assertEquals(-3, sorted.indexOf("C009"));
+        assertEquals("C001 - Silva", sorted.get("C001"));
+        assertNull(sorted.get("C002"));
+    }
+
+    @Test
+    void replacesTheRowWithTheSameKey() {
+        List<String> rows = new ArrayList<>(List.of("C001 - Silva", "C002 - Perera"));
+        SortedRows<String, String> sorted = new SortedRows<>(rows, SortedRowsTest::key, Comparator.naturalOrder());
+
+        assertEquals("C002 - Perera", sorted.put("C002 - Perera-Jayasinghe"));
+
+        assertEquals(List.of("C001 - Silva", "C002 - Perera-Jayasinghe"), rows);
+    }
+
+    @Test
+    void removesOnlyRowsThatExist() {
+        List<String> rows = new ArrayList<>(List.of("C001 - Silva", "C002 - Perera"));
+        SortedRows<String, String> sorted = new SortedRows<>(rows, SortedRowsTest::key, Comparator.naturalOrder());
+
+        assertNull(sorted.remove("C005"));
+        assertEquals("C001 - Silva", sorted.remove("C001"));
+
+        assertEquals(List.of("C002 - Perera"), rows);
+    }
+
+    @Test
+    void followsTheGivenOrder() {
+        List<Integer> rows = new ArrayList<>();
+        SortedRows<Integer, Integer> sorted = new SortedRows<>(rows, row -> row, Comparator.reverseOrder());
+
+        for (int row : new int[]{3, 9, 1, 5}) {
+            sorted.put(row);
+        }
+
+        assertEquals(List.of(9, 5, 3, 1), rows);
+    }
+
+    @Test
+    void changesATableOneRowAtATime() {
+        ObservableList<String> rows = FXCollections.observableArrayList("C001 - Silva", "C003 - Fernando");
+        SortedRows<String, String> sorted = new SortedRows<>(rows, SortedRowsTest::key, Comparator.naturalOrder());
+        List<String> changes = new ArrayList<>();
+        rows.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                changes.add((change.wasReplaced() ? "replaced " : change.wasAdded() ? "added " : "removed ") +
+                        change.getFrom());
+            }
+        });
+
+        sorted.put("C002 - Perera");
+        sorted.put("C003 - Fernando Jr");
+        sorted.remove("C001");
+
+        assertEquals(List.of("added 1", "replaced 2", "removed 0"), changes);
+        assertTrue(rows.contains("C003 - Fernando Jr"));
+        assertFalse(rows.contains("C001 - Silva"));
+    }
+}
@@ -0,0 +1,136 @@
+package Models.Archive;
+
+import Models.Dto.OrderDetail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonthArchiveTest {
+    private static final YearMonth MARCH = YearMonth.of(2025, 3);
+
+    @TempDir
+    Path directory;
+
+    private Path writeMarch() throws IOException {
+        MonthArchiveWriter writer = new MonthArchiveWriter(MARCH);
+        writer.addOrder("D010", LocalDate.of(2025, 3, 20), "C002");
+        writer.addLine("D010", "P002", 1, 0, 9_000, 9_000);
+        writer.addOrder("D002", LocalDate.of(2025, 3, 1), "C001");
+        writer.addLine("D002", "P003", 2, 10, 12_050, 21_690);
+        writer.addLine("D002", "P001", 5, 0, 1_999, 9_995);
+        writer.addOrder("D001", LocalDate.of(2025, 3, 20), "C001");
+        Path file = directory.resolve("2025-03.oarc");
+        long size = writer.write(file);
+        assertEquals(Files.size(file), size);
+        return file;
+    }
+
+    @Test
+    void roundTripsOrdersAndLines() throws IOException {
+        MonthArchive archive = MonthArchive.open(writeMarch());
+
+        assertEquals(MARCH, archive.getMonth());
+        assertEquals(3, archive.getOrderCount());
+        assertEquals(3, archive.getLineCount());
+        // by date, then ID
+        assertEquals("D002", archive.orderID(0));
+        assertEquals("D001", archive.orderID(1));
+        assertEquals("D010", archive.orderID(2));
+        assertEquals(LocalDate.of(2025, 3, 1), archive.orderDate(0));
+        assertEquals(LocalDate.of(2025, 3, 20), archive.orderDate(2));
+        assertEquals("C002", archive.custID(2));
+        assertEquals(0, archive.lineEnd(1) - archive.lineStart(1));
+
+        int first = archive.lineStart(0);
+        assertEquals("P001", archive.itemCode(first));
+        assertEquals("P003", archive.itemCode(first + 1));
+        assertEquals(2, archive.quantity(first + 1));
+        assertEquals(10, archive.discount(first + 1));
+        assertEquals(120.5, archive.unitPrice(first + 1));
+        assertEquals(316.85, archive.orderTotal(0), 1e-9);
+
+        OrderDetail detail = archive.toDetail(0, first);
+        assertEquals("D002", detail.getOrderID());
+        assertEquals(19.99, detail.getUnitPrice());
+    }
+
+    @Test
+    void findsOrdersAndItemsByKey() throws IOException {
+        MonthArchive archive = MonthArchive.open(writeMarch());
+
+        assertEquals(2, archive.indexOf("D010"));
+        assertEquals(1, archive.indexOf("D001"));
+        assertEquals(-1, archive.indexOf("D003"));
+        assertEquals("P002", archive.itemCode(archive.lineStart(archive.indexOf("D010"))));
+        assertEquals(archive.itemIndexOf(archive.lineStart(2)), archive.itemIndex("P002"));
+        assertEquals(-1, archive.itemIndex("P999"));
+    }
+
+    @Test
+    void rewritesAMonthWithoutTheReplacedOrders() throws IOException {
+        MonthArchive archive = MonthArchive.open(writeMarch());
+        MonthArchiveWriter writer = new MonthArchiveWriter(MARCH);
+        writer.addAll(archive, Set.of("D002"));
+        writer.addOrder("D002", LocalDate.of(2025, 3, 2), "C003");
+        Path file = directory.resolve("rewritten.oarc");
+        writer.write(file);
+
+        MonthArchive rewritten = MonthArchive.open(file);
+        assertEquals(3, rewritten.getOrderCount());
+        assertEquals(1, rewritten.getLineCount());
+        assertEquals("C003", rewritten.custID(rewritten.indexOf("D002")));
+    }
+
+    @Test
+    void refusesOrdersFromAnotherMonth() {
+        MonthArchiveWriter writer = new MonthArchiveWriter(MARCH);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.addOrder("D001", LocalDate.of(2025, 4, 1), "C001"));
+        assertThrows(IllegalArgumentException.class, () -> writer.addLine("D404", "P001", 1, 0, 100, 100));
+    }
+
+    @Test
+    void rejectsADamagedSection() throws IOException {
+        Path file = writeMarch();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(raw.length() - 1);
+            int last = raw.read();
+            raw.seek(raw.length() - 1);
+            raw.write(last ^ 0xFF);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> MonthArchive.open(file));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        Path file = writeMarch();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(raw.length() - 4);
+        }
+
+        assertThrows(IOException.class, () -> MonthArchive.open(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAnArchive() throws IOException {
+        Path file = directory.resolve("other.oarc");
+        Files.writeString(file, "not an archive at all, just text");
+
+        IOException e = assertThrows(IOException.class, () -> MonthArchive.open(file));
+        assertTrue(e.getMessage().contains("not an order archive"), e.getMessage());
+    }
+}
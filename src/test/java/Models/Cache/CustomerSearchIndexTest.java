@@ -0,0 +1,108 @@
+package Models.Cache;
+
+import Models.Dto.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerSearchIndexTest {
+    private final CustomerSearchIndex index = new CustomerSearchIndex();
+
+    private static Customer customer(String custID, String name, String city, String postalCode) {
+        return new Customer(custID, "Mr", name, LocalDate.of(1990, 1, 1), 50000, "1 Main St", city, "Western", postalCode);
+    }
+
+    private List<String> search(String query, int limit) {
+        List<String> ids = new ArrayList<>();
+        for (Customer customer : index.search(query, limit)) {
+            ids.add(customer.getCustID());
+        }
+        return ids;
+    }
+
+    private List<String> search(String query) {
+        return search(query, 10);
+    }
+
+    @BeforeEach
+    void fillIndex() {
+        index.rebuild(List.of(
+                customer("C001", "Nimal Perera", "Colombo", "10100"),
+                customer("C002", "Kamal Silva", "Kandy", "20000"),
+                customer("C003", "Sunil Perera", "Galle", "80000"),
+                customer("C004", "Dinesh Silvapulle", "Matara", "81000"),
+                customer("C005", "Kanishka Fernando", "Negombo", "11500"),
+                customer("C008", "Ruwan Silva", "Jaffna", "40000")));
+    }
+
+    @Test
+    void findsByPrefixOfNameCityPostalCodeAndID() {
+        assertEquals(List.of("C003"), search("sun"));
+        assertEquals(List.of("C001"), search("colom"));
+        assertEquals(List.of("C003", "C004"), search("8"));
+        assertEquals(List.of("C005"), search("c005"));
+        assertEquals(List.of("C002"), search("KANDY"));
+    }
+
+    @Test
+    void toleratesOneTypo() {
+        assertEquals(List.of("C001", "C003"), search("pereira"));
+        // the closer spelling ranks first
+        assertEquals(List.of("C002", "C005"), search("kandi"));
+        assertEquals(List.of(), search("xyzzy"));
+    }
+
+    @Test
+    void requiresEveryTermToMatch() {
+        assertEquals(List.of("C003"), search("perera galle"));
+        assertEquals(List.of("C003"), search("galle, perera"));
+        assertEquals(List.of(), search("nimal kandy"));
+    }
+
+    @Test
+    void ranksExactMatchesAndBetterFieldsFirst() {
+        // exact beats prefix, then by ID
+        assertEquals(List.of("C002", "C008", "C004"), search("silva"));
+        // a name outweighs a city
+        assertEquals(List.of("C005", "C002"), search("kan"));
+    }
+
+    @Test
+    void replacesTheTermsOfAChangedCustomer() {
+        index.put(customer("C002", "Kamal Jayasuriya", "Kandy", "20000"));
+
+        assertEquals(List.of("C008", "C004"), search("silva"));
+        assertEquals(List.of("C002"), search("jayasuriya"));
+        assertEquals(List.of("C002"), search("kamal"));
+        assertEquals(6, index.size());
+
+        index.put(customer("C009", "Amara Silva", "Kandy", "20000"));
+        assertEquals(List.of("C002", "C009"), search("kandy"));
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    void forgetsARemovedCustomer() {
+        index.remove("C001");
+        index.remove("C404");
+
+        assertEquals(List.of("C003"), search("perera"));
+        assertEquals(List.of(), search("colombo"));
+        assertEquals(List.of(), search("nimal"));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void returnsAtMostLimitHits() {
+        assertEquals(List.of("C002"), search("silva", 1));
+        assertEquals(List.of("C002", "C008"), search("silva", 2));
+        assertTrue(search("silva", 0).isEmpty());
+        assertTrue(search("  ", 10).isEmpty());
+    }
+}
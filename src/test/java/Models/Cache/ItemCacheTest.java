@@ -0,0 +1,159 @@
+package Models.Cache;
+
+import Models.Dto.Item;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCacheTest {
+
+    // the Item table, counting how often it is read
+    private static class Table implements ItemCache.Loader {
+        final Map<String, Item> rows = new TreeMap<>();
+        final AtomicInteger fullLoads = new AtomicInteger();
+        final AtomicInteger keyLoads = new AtomicInteger();
+
+        void put(String itemCode, int qtyOnHand) {
+            rows.put(itemCode, new Item(itemCode, "Item " + itemCode, "1kg", 10, qtyOnHand));
+        }
+
+        @Override
+        public synchronized List<Item> loadAll() {
+            fullLoads.incrementAndGet();
+            List<Item> all = new ArrayList<>();
+            for (Item item : rows.values()) {
+                all.add(new Item(item.getItemCode(), item.getDescription(), item.getPackSize(), item.getUnitPrice(),
+                        item.getQtyOnHand()));
+            }
+            return all;
+        }
+
+        @Override
+        public synchronized List<Item> loadByCodes(Collection<String> itemCodes) {
+            keyLoads.incrementAndGet();
+            List<Item> found = new ArrayList<>();
+            for (String itemCode : itemCodes) {
+                Item item = rows.get(itemCode);
+                if (item != null) {
+                    found.add(new Item(item.getItemCode(), item.getDescription(), item.getPackSize(),
+                            item.getUnitPrice(), item.getQtyOnHand()));
+                }
+            }
+            return found;
+        }
+    }
+
+    @Test
+    void readsTheTableOnceWhileItIsFresh() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 5);
+        ItemCache cache = new ItemCache(table, 100, 60_000);
+
+        assertEquals(5, cache.get("I001").getQtyOnHand());
+        assertNull(cache.get("I999"), "a complete table answers misses without a query");
+        assertEquals(1, cache.getAll().size());
+
+        assertEquals(1, table.fullLoads.get());
+        assertEquals(0, table.keyLoads.get());
+    }
+
+    @Test
+    void servesTheOldRowsWhileAnExpiredTableReloads() throws Exception {
+        Table table = new Table();
+        table.put("I001", 5);
+        ItemCache cache = new ItemCache(table, 100, 50);
+        cache.get("I001");
+
+        table.put("I001", 7);
+        Thread.sleep(100);
+
+        // the background reload waits on the table until the stale row has been read
+        synchronized (table) {
+            assertEquals(5, cache.get("I001").getQtyOnHand());
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.get("I001").getQtyOnHand() != 7 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(7, cache.get("I001").getQtyOnHand());
+        assertTrue(table.fullLoads.get() >= 2);
+    }
+
+    @Test
+    void reloadsOnTheNextReadAfterInvalidation() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 5);
+        ItemCache cache = new ItemCache(table, 100, 60_000);
+        cache.get("I001");
+
+        table.put("I001", 3);
+        cache.invalidateAll();
+
+        assertEquals(3, cache.get("I001").getQtyOnHand());
+        assertEquals(2, table.fullLoads.get());
+    }
+
+    @Test
+    void writesThroughPutsAndRemovals() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 5);
+        table.put("I002", 6);
+        ItemCache cache = new ItemCache(table, 100, 60_000);
+        cache.get("I001");
+
+        cache.put(new Item("I001", "Item I001", "1kg", 10, 4));
+        cache.remove("I002");
+
+        assertEquals(4, cache.get("I001").getQtyOnHand());
+        assertNull(cache.get("I002"));
+        assertEquals(1, table.fullLoads.get());
+    }
+
+    @Test
+    void ignoresPutsBeforeTheFirstLoad() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 5);
+        ItemCache cache = new ItemCache(table, 100, 60_000);
+
+        cache.put(new Item("I001", "Item I001", "1kg", 10, 99));
+
+        assertEquals(5, cache.get("I001").getQtyOnHand());
+    }
+
+    @Test
+    void handsOutCopies() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 5);
+        ItemCache cache = new ItemCache(table, 100, 60_000);
+
+        cache.get("I001").setQtyOnHand(0);
+
+        assertEquals(5, cache.get("I001").getQtyOnHand());
+    }
+
+    @Test
+    void loadsRowsOnDemandWhenTheTableDoesNotFit() throws SQLException {
+        Table table = new Table();
+        table.put("I001", 1);
+        table.put("I002", 2);
+        table.put("I003", 3);
+        ItemCache cache = new ItemCache(table, 2, 60_000);
+
+        assertEquals(2, cache.get("I002").getQtyOnHand());
+        assertEquals(2, cache.get("I002").getQtyOnHand());
+        assertNull(cache.get("I999"));
+        assertEquals(3, cache.getAll().size());
+
+        assertEquals(2, table.keyLoads.get(), "one load for I002, one for the missing I999");
+    }
+}
@@ -0,0 +1,122 @@
+package Models.Cache;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private Path writeSnapshot() throws IOException {
+        Path file = directory.resolve("reference.snapshot");
+        ReferenceSnapshot.write(file, 1_700_000_000_123_456L, "jdbc:mysql://db/shop",
+                List.of(new Item("P001", "Leeks", "1kg", 120.5, 10), new Item("P002", "Kōhlrabi", null, 90, 0)),
+                List.of(new Customer("C001", "Mr", "Silva", LocalDate.of(1990, 1, 1), 50000, "12 Main St", "Colombo",
+                        "Western", null),
+                        new Customer("C002", "Ms", "Perera", null, 0, "", "Kandy", "Central", "20000")));
+        return file;
+    }
+
+    @Test
+    void roundTripsItemsAndCustomers() throws IOException {
+        ReferenceSnapshot snapshot = ReferenceSnapshot.read(writeSnapshot());
+
+        assertEquals(1_700_000_000_123_456L, snapshot.getVersion());
+        assertEquals("jdbc:mysql://db/shop", snapshot.getSource());
+        assertEquals(2, snapshot.getItems().size());
+        Item leeks = snapshot.getItems().get(0);
+        assertEquals("P001", leeks.getItemCode());
+        assertEquals("1kg", leeks.getPackSize());
+        assertEquals(120.5, leeks.getUnitPrice());
+        assertEquals(10, leeks.getQtyOnHand());
+        assertEquals("Kōhlrabi", snapshot.getItems().get(1).getDescription());
+        assertNull(snapshot.getItems().get(1).getPackSize());
+
+        Customer silva = snapshot.getCustomers().get(0);
+        assertEquals(LocalDate.of(1990, 1, 1), silva.getDob());
+        assertEquals(50000, silva.getSalary());
+        assertEquals("Western", silva.getProvince());
+        assertNull(silva.getPostalCode());
+        Customer perera = snapshot.getCustomers().get(1);
+        assertNull(perera.getDob());
+        assertEquals("", perera.getCustAddress());
+        assertEquals("20000", perera.getPostalCode());
+    }
+
+    @Test
+    void replacesTheOldSnapshotWithoutLeavingTemporaryFiles() throws IOException {
+        Path file = writeSnapshot();
+        ReferenceSnapshot.write(file, 7, "other", List.of(), List.of());
+
+        ReferenceSnapshot snapshot = ReferenceSnapshot.read(file);
+        assertEquals(7, snapshot.getVersion());
+        assertTrue(snapshot.getItems().isEmpty());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void rejectsAFileThatFailsItsChecksum() throws IOException {
+        Path file = writeSnapshot();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(20);
+            int value = raw.read();
+            raw.seek(20);
+            raw.write(value ^ 0x01);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> ReferenceSnapshot.read(file));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        Path file = writeSnapshot();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(raw.length() / 2);
+        }
+
+        assertThrows(IOException.class, () -> ReferenceSnapshot.read(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path empty = directory.resolve("empty.snapshot");
+        Files.write(empty, new byte[0]);
+        Path text = directory.resolve("text.snapshot");
+        Files.writeString(text, "definitely not a snapshot");
+
+        assertThrows(IOException.class, () -> ReferenceSnapshot.read(empty));
+        IOException e = assertThrows(IOException.class, () -> ReferenceSnapshot.read(text));
+        assertTrue(e.getMessage().contains("not a reference snapshot"), e.getMessage());
+    }
+
+    @Test
+    void rejectsAnUnknownFormat() throws IOException {
+        Path file = writeSnapshot();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(4);
+            raw.write(ByteBuffer.allocate(4).putInt(0, 99).array());
+        }
+
+        IOException e = assertThrows(IOException.class, () -> ReferenceSnapshot.read(file));
+        assertTrue(e.getMessage().contains("format 99"), e.getMessage());
+    }
+}
@@ -0,0 +1,119 @@
+package Models.Cache;
+
+import Models.Cache.TopItemCounter.Window;
+import Models.Dto.PopularItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopItemCounterTest {
+    private static final long MINUTE = 60_000L;
+    // on a bucket boundary of every window
+    private static final long T = 1_000_000 * 60 * MINUTE;
+
+    private static List<String> codes(List<PopularItem> items) {
+        List<String> codes = new ArrayList<>();
+        for (PopularItem item : items) {
+            codes.add(item.getItemCode() + "=" + item.getQuantitySold());
+        }
+        return codes;
+    }
+
+    @Test
+    void ranksByQuantityThenItemCode() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I003", 5, T);
+        counter.add("I001", 5, T);
+        counter.add("I002", 9, T);
+        counter.add("I004", 1, T);
+
+        assertEquals(List.of("I002=9", "I001=5", "I003=5"), codes(counter.top(Window.ALL_TIME, 3, T)));
+    }
+
+    @Test
+    void ignoresNonPositiveQuantities() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 0, T);
+        counter.add("I002", -3, T);
+
+        assertTrue(counter.top(Window.ALL_TIME, 5, T).isEmpty());
+    }
+
+    @Test
+    void dropsSalesThatLeaveTheWindow() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 4, T);
+        counter.add("I002", 2, T + 30 * MINUTE);
+
+        assertEquals(List.of("I001=4", "I002=2"), codes(counter.top(Window.LAST_HOUR, 5, T + 59 * MINUTE)));
+        assertEquals(List.of("I002=2"), codes(counter.top(Window.LAST_HOUR, 5, T + 60 * MINUTE)));
+        assertEquals(List.of("I001=4", "I002=2"), codes(counter.top(Window.LAST_DAY, 5, T + 60 * MINUTE)));
+        assertTrue(counter.top(Window.LAST_HOUR, 5, T + 10 * 60 * MINUTE).isEmpty());
+        assertEquals(List.of("I001=4", "I002=2"), codes(counter.top(Window.ALL_TIME, 5, T + 10 * 60 * MINUTE)));
+    }
+
+    @Test
+    void skipsSalesOlderThanTheWindow() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 1, T + 2 * 60 * MINUTE);
+        counter.add("I002", 7, T);
+
+        assertEquals(List.of("I001=1"), codes(counter.top(Window.LAST_HOUR, 5, T + 2 * 60 * MINUTE)));
+        assertEquals(List.of("I002=7", "I001=1"), codes(counter.top(Window.LAST_DAY, 5, T + 2 * 60 * MINUTE)));
+    }
+
+    @Test
+    void countsAWindowCorrectlyAfterALongIdleGap() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 3, T);
+        counter.add("I001", 2, T + 7 * 24 * 60 * MINUTE);
+
+        assertEquals(List.of("I001=2"), codes(counter.top(Window.LAST_HOUR, 5, T + 7 * 24 * 60 * MINUTE)));
+        assertEquals(List.of("I001=2"), codes(counter.top(Window.LAST_WEEK, 5, T + 7 * 24 * 60 * MINUTE)));
+    }
+
+    @Test
+    void answersALargerKAfterASmallerOne() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 3, T);
+        counter.add("I002", 2, T);
+        counter.add("I003", 1, T);
+
+        assertEquals(List.of("I001=3"), codes(counter.top(Window.ALL_TIME, 1, T)));
+        assertEquals(List.of("I001=3", "I002=2", "I003=1"), codes(counter.top(Window.ALL_TIME, 3, T)));
+        assertEquals(List.of("I001=3", "I002=2"), codes(counter.top(Window.ALL_TIME, 2, T)));
+    }
+
+    @Test
+    void appliesAllTimeCorrectionsAndResets() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 3, T);
+        counter.add("I002", 2, T);
+        counter.top(Window.ALL_TIME, 5, T);
+
+        counter.adjustAllTime("I001", -3);
+        assertEquals(List.of("I002=2"), codes(counter.top(Window.ALL_TIME, 5, T)));
+        assertEquals(List.of("I001=3", "I002=2"), codes(counter.top(Window.LAST_HOUR, 5, T)));
+
+        counter.resetAllTime(Map.of("I009", 11L));
+        assertEquals(List.of("I009=11"), codes(counter.top(Window.ALL_TIME, 5, T)));
+    }
+
+    @Test
+    void handsOutCopiesWithoutDescriptions() {
+        TopItemCounter counter = new TopItemCounter();
+        counter.add("I001", 3, T);
+
+        counter.top(Window.ALL_TIME, 5, T).get(0).setQuantitySold(100);
+        PopularItem item = counter.top(Window.ALL_TIME, 5, T).get(0);
+
+        assertEquals(3, item.getQuantitySold());
+        assertNull(item.getDescription());
+    }
+}
@@ -0,0 +1,89 @@
+package Models.Csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+
+    private static List<List<String>> readAll(String text) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(new StringReader(text))) {
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3")), readAll("a,b,c\n1,2,3\n"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("", "b", "")), readAll(",b,"));
+    }
+
+    @Test
+    void readsTheLastRecordWithoutATrailingNewline() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b")), readAll("a\nb"));
+    }
+
+    @Test
+    void acceptsCrLfAndSkipsBlankLines() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), readAll("a,b\r\n\r\n\nc,d\r\n"));
+    }
+
+    @Test
+    void unquotesCommasAndDoubledQuotes() throws IOException {
+        assertEquals(List.of(List.of("Leeks, fresh", "say \"hi\"", "")),
+                readAll("\"Leeks, fresh\",\"say \"\"hi\"\"\",\"\"\n"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotes() throws IOException {
+        assertEquals(List.of(List.of("12 Main St\nColombo", "x"), List.of("next")),
+                readAll("\"12 Main St\nColombo\",x\nnext\n"));
+    }
+
+    @Test
+    void treatsAQuoteInsideAnUnquotedFieldAsText() throws IOException {
+        assertEquals(List.of(List.of("5\" pot", "b")), readAll("5\" pot,b"));
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("h\n\"two\nlines\"\n\nlast\n"))) {
+            csv.readRecord();
+            assertEquals(1, csv.getRecordLine());
+            csv.readRecord();
+            assertEquals(2, csv.getRecordLine());
+            csv.readRecord();
+            assertEquals(5, csv.getRecordLine());
+            assertNull(csv.readRecord());
+        }
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuote() {
+        IOException e = assertThrows(IOException.class, () -> readAll("a\n\"open,field\nmore"));
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    @Test
+    void returnsNothingForAnEmptyFile() throws IOException {
+        assertTrue(readAll("").isEmpty());
+        assertTrue(readAll("\n\r\n").isEmpty());
+    }
+}
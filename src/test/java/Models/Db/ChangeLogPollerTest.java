@@ -0,0 +1,175 @@
+package Models.Db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeLogPollerTest {
+    private static final String OTHER_TILL = "other-till";
+
+    // the ChangeLog table as a poller sees it: entries only become visible once their transaction commits
+    private static class FakeChangeLog extends ChangeLog {
+        final TreeMap<Long, Entry> visible = new TreeMap<>();
+        final List<Collection<Long>> gapQueries = new ArrayList<>();
+        int prunes;
+
+        void commit(long seq, String table, String key) {
+            commit(seq, table, key, OTHER_TILL);
+        }
+
+        void commit(long seq, String table, String key, String origin) {
+            visible.put(seq, new Entry(seq, table, key, origin));
+        }
+
+        @Override
+        public long lastSeq() {
+            return visible.isEmpty() ? 0 : visible.lastKey();
+        }
+
+        @Override
+        public List<Entry> findAfter(long seq, int limit) {
+            List<Entry> entries = new ArrayList<>();
+            for (Entry entry : visible.tailMap(seq, false).values()) {
+                if (entries.size() == limit) {
+                    break;
+                }
+                entries.add(entry);
+            }
+            return entries;
+        }
+
+        @Override
+        public List<Entry> findBySeqs(Collection<Long> seqs) {
+            gapQueries.add(new ArrayList<>(seqs));
+            List<Entry> entries = new ArrayList<>();
+            for (long seq : seqs) {
+                if (visible.containsKey(seq)) {
+                    entries.add(visible.get(seq));
+                }
+            }
+            return entries;
+        }
+
+        @Override
+        public int prune(long keepSeconds) {
+            prunes++;
+            return 0;
+        }
+    }
+
+    private final FakeChangeLog log = new FakeChangeLog();
+    private final List<Map<String, Set<String>>> handled = new ArrayList<>();
+
+    private ChangeLogPoller poller(int batchSize, long gapMillis, long keepSeconds) throws SQLException {
+        ChangeLogPoller poller = new ChangeLogPoller(log, handled::add, batchSize, gapMillis, keepSeconds);
+        // the first poll only finds the end of the log
+        assertEquals(0, poller.poll());
+        return poller;
+    }
+
+    @Test
+    void startsAtTheEndOfTheLog() throws SQLException {
+        log.commit(1, ChangeLog.ITEM, "P001");
+        ChangeLogPoller poller = poller(100, 10_000, 3600);
+
+        assertEquals(0, poller.poll());
+        assertTrue(handled.isEmpty());
+    }
+
+    @Test
+    void handsOverNewKeysByTableAndSkipsItsOwn() throws SQLException {
+        ChangeLogPoller poller = poller(100, 10_000, 3600);
+        log.commit(1, ChangeLog.ITEM, "P002");
+        log.commit(2, ChangeLog.ORDER, "D001");
+        log.commit(3, ChangeLog.ITEM, "P001");
+        log.commit(4, ChangeLog.ITEM, "P001");
+        log.commit(5, ChangeLog.CUSTOMER, "C001", ChangeLog.ORIGIN);
+
+        assertEquals(4, poller.poll());
+
+        assertEquals(1, handled.size());
+        assertEquals(Map.of(ChangeLog.ITEM, Set.of("P001", "P002"), ChangeLog.ORDER, Set.of("D001")), handled.get(0));
+        assertEquals(0, poller.poll());
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    void readsEveryPageInOnePoll() throws SQLException {
+        ChangeLogPoller poller = poller(2, 10_000, 3600);
+        for (long seq = 1; seq <= 5; seq++) {
+            log.commit(seq, ChangeLog.ITEM, "P00" + seq);
+        }
+
+        assertEquals(5, poller.poll());
+        assertEquals(5, handled.get(0).get(ChangeLog.ITEM).size());
+    }
+
+    @Test
+    void picksUpAnEntryThatCommitsAfterALaterOne() throws SQLException {
+        ChangeLogPoller poller = poller(100, 10_000, 3600);
+        log.commit(1, ChangeLog.ITEM, "P001");
+        log.commit(3, ChangeLog.ITEM, "P003");
+        assertEquals(2, poller.poll());
+
+        log.commit(2, ChangeLog.ITEM, "P002");
+        assertEquals(1, poller.poll());
+
+        assertEquals(Set.of("P002"), handled.get(1).get(ChangeLog.ITEM));
+        poller.poll();
+        assertEquals(List.of(), log.gapQueries.get(log.gapQueries.size() - 1), "a gap that filled is not asked for again");
+    }
+
+    @Test
+    void givesUpOnAGapAfterGapMillis() throws Exception {
+        ChangeLogPoller poller = poller(100, 1, 3600);
+        log.commit(1, ChangeLog.ITEM, "P001");
+        log.commit(3, ChangeLog.ITEM, "P003");
+        poller.poll();
+
+        Thread.sleep(20);
+        poller.poll();
+        log.commit(2, ChangeLog.ITEM, "P002");
+
+        assertEquals(0, poller.poll());
+        assertEquals(1, handled.size());
+    }
+
+    @Test
+    void doesNotTrackAVeryWideGapEntryByEntry() throws SQLException {
+        ChangeLogPoller poller = poller(100, 10_000, 3600);
+        log.commit(5_000, ChangeLog.ITEM, "P001");
+        poller.poll();
+        poller.poll();
+
+        assertEquals(List.of(), log.gapQueries.get(log.gapQueries.size() - 1));
+    }
+
+    @Test
+    void reloadsEverythingAfterMissingMoreThanTheLogKeeps() throws Exception {
+        ChangeLogPoller poller = poller(100, 10_000, 0);
+        Thread.sleep(20);
+
+        assertEquals(0, poller.poll());
+
+        assertEquals(Map.of(ChangeLog.ITEM, Set.of(ChangeLog.ALL_ROWS), ChangeLog.CUSTOMER, Set.of(ChangeLog.ALL_ROWS),
+                ChangeLog.ORDER, Set.of(ChangeLog.ALL_ROWS)), handled.get(0));
+    }
+
+    @Test
+    void prunesTheLogAtMostHourly() throws SQLException {
+        ChangeLogPoller poller = poller(100, 10_000, 3600);
+        poller.poll();
+        poller.poll();
+
+        assertEquals(1, log.prunes);
+    }
+}
@@ -0,0 +1,156 @@
+package Models.Db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+    private final List<FakeStatement> prepared = new ArrayList<>();
+    private final StatementCache.Counters counters = new StatementCache.Counters();
+    private Connection physical;
+
+    // a physical connection whose statements only remember what was done to them
+    private static class FakeStatement {
+        final String sql;
+        boolean closed;
+        int clearedParameters;
+
+        FakeStatement(String sql) {
+            this.sql = sql;
+        }
+
+        PreparedStatement proxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closed = true;
+                                return null;
+                            case "isClosed":
+                                return closed;
+                            case "clearParameters":
+                                clearedParameters++;
+                                return null;
+                            case "executeUpdate":
+                                return 1;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        physical = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        FakeStatement statement = new FakeStatement((String) args[0]);
+                        prepared.add(statement);
+                        return statement.proxy();
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    void reusesAStatementOnceItIsClosed() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 4, counters);
+
+        cache.prepare("SELECT 1", null).close();
+        cache.prepare("SELECT 1", null).close();
+
+        assertEquals(1, prepared.size());
+        assertEquals(1, counters.hits.sum());
+        assertEquals(1, counters.misses.sum());
+        assertFalse(prepared.get(0).closed);
+    }
+
+    @Test
+    void neverHandsOutAStatementThatIsCheckedOut() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 4, counters);
+
+        PreparedStatement first = cache.prepare("SELECT 1", null);
+        PreparedStatement second = cache.prepare("SELECT 1", null);
+        first.close();
+        second.close();
+
+        assertEquals(2, prepared.size());
+        // only one copy per SQL text is kept; the other is closed
+        assertTrue(prepared.get(0).closed ^ prepared.get(1).closed);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedStatement() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 2, counters);
+
+        cache.prepare("SELECT 1", null).close();
+        cache.prepare("SELECT 2", null).close();
+        cache.prepare("SELECT 1", null).close();
+        cache.prepare("SELECT 3", null).close();
+
+        assertEquals(1, counters.evictions.sum());
+        assertFalse(prepared.get(0).closed);
+        assertTrue(prepared.get(1).closed, "SELECT 2 was used least recently");
+        assertFalse(prepared.get(2).closed);
+    }
+
+    @Test
+    void closesEveryStatementWhenTheCacheIsDisabled() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 0, counters);
+
+        cache.prepare("SELECT 1", null).close();
+
+        assertTrue(prepared.get(0).closed);
+    }
+
+    @Test
+    void resetsAStatementBeforeItIsReused() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 4, counters);
+
+        PreparedStatement statement = cache.prepare("UPDATE Item SET QtyOnHand = ?", null);
+        statement.setInt(1, 5);
+        statement.close();
+
+        assertEquals(1, prepared.get(0).clearedParameters);
+        assertTrue(statement.isClosed());
+        assertThrows(SQLException.class, () -> statement.setInt(1, 6));
+    }
+
+    @Test
+    void reclaimsStatementsTheBorrowerForgotToClose() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 4, counters);
+
+        PreparedStatement forgotten = cache.prepare("SELECT 1", null);
+        cache.reclaim();
+
+        assertTrue(forgotten.isClosed());
+        assertThrows(SQLException.class, forgotten::executeUpdate);
+        cache.prepare("SELECT 1", null).close();
+        assertEquals(1, prepared.size());
+        assertEquals(1, counters.hits.sum());
+    }
+
+    @Test
+    void closeAllClosesCheckedOutAndAvailableStatements() throws SQLException {
+        StatementCache cache = new StatementCache(physical, 4, counters);
+
+        cache.prepare("SELECT 1", null).close();
+        cache.prepare("SELECT 2", null);
+        cache.closeAll();
+
+        assertTrue(prepared.get(0).closed);
+        assertTrue(prepared.get(1).closed);
+    }
+}
@@ -0,0 +1,145 @@
+package Models.Embedded;
+
+import Models.Dto.Customer;
+import Models.Dto.Item;
+import Models.Dto.Order;
+import Models.Dto.OrderDetail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedStoreTest {
+    @TempDir
+    Path directory;
+
+    private EmbeddedStore store;
+
+    @BeforeAll
+    static void configure() {
+        System.setProperty("store.orderIdPrefix", "L01");
+        System.setProperty("store.fsync", "false");
+    }
+
+    @AfterEach
+    void close() {
+        if (store != null) {
+            store.close();
+        }
+        System.clearProperty("store.checkpointBytes");
+    }
+
+    private EmbeddedStore reopen() throws SQLException {
+        if (store != null) {
+            store.close();
+        }
+        store = new EmbeddedStore(directory);
+        return store;
+    }
+
+    private static Customer customer(String custID) {
+        return new Customer(custID, "Mr", "Silva", LocalDate.of(1990, 1, 1), 50000, "12 Main St", "Colombo",
+                "Western", "10100");
+    }
+
+    private String placeOrder(String custID, String itemCode, int quantity) throws SQLException {
+        EmbeddedOrderRepository orders = new EmbeddedOrderRepository(store);
+        String orderID = orders.nextOrderId();
+        orders.place(new Order(orderID, LocalDate.of(2026, 1, 5), custID, null, 0),
+                List.of(new OrderDetail(orderID, itemCode, quantity, 0)));
+        return orderID;
+    }
+
+    @Test
+    void replaysCommittedChangesOnReopen() throws SQLException {
+        reopen();
+        new EmbeddedCustomerRepository(store).save(customer("C001"));
+        new EmbeddedItemRepository(store).save(new Item("P001", "Leeks", "1kg", 120, 10));
+        new EmbeddedItemRepository(store).save(new Item("P002", "Beans", "1kg", 90, 4));
+        new EmbeddedItemRepository(store).delete("P002");
+        String orderID = placeOrder("C001", "P001", 3);
+
+        reopen();
+
+        assertEquals("Silva", new EmbeddedCustomerRepository(store).findById("C001").getCustName());
+        List<Item> items = new EmbeddedItemRepository(store).findAll();
+        assertEquals(1, items.size());
+        assertEquals(7, items.get(0).getQtyOnHand());
+        assertEquals("C001", new EmbeddedOrderRepository(store).findById(orderID).getCustID());
+        assertEquals(3, new EmbeddedOrderDetailRepository(store).findByOrder(orderID).get(0).getOrderQty());
+        assertEquals(1, store.pendingOrderCount());
+    }
+
+    @Test
+    void neverHandsOutAnOrderIdTwiceAcrossRestarts() throws SQLException {
+        reopen();
+        String first = new EmbeddedOrderRepository(store).nextOrderId();
+
+        reopen();
+        String second = new EmbeddedOrderRepository(store).nextOrderId();
+
+        assertTrue(first.startsWith("L01"), first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void ignoresATornCommitAtTheEndOfTheLog() throws Exception {
+        reopen();
+        new EmbeddedItemRepository(store).save(new Item("P001", "Leeks", "1kg", 120, 10));
+        store.close();
+        Files.write(directory.resolve("store.wal"), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        store = null;
+
+        reopen();
+        new EmbeddedItemRepository(store).save(new Item("P002", "Beans", "1kg", 90, 4));
+        reopen();
+
+        assertEquals(2, new EmbeddedItemRepository(store).findAll().size());
+    }
+
+    @Test
+    void restoresFromTheSnapshotAfterACheckpoint() throws Exception {
+        System.setProperty("store.checkpointBytes", "1");
+        reopen();
+        new EmbeddedCustomerRepository(store).save(customer("C001"));
+        new EmbeddedItemRepository(store).save(new Item("P001", "Leeks", "1kg", 120, 10));
+        String orderID = placeOrder("C001", "P001", 2);
+
+        assertTrue(Files.exists(directory.resolve("store.snapshot")));
+        assertEquals(0, Files.size(directory.resolve("store.wal")));
+
+        System.clearProperty("store.checkpointBytes");
+        reopen();
+
+        assertEquals(8, new EmbeddedItemRepository(store).findAll().get(0).getQtyOnHand());
+        assertEquals(2, new EmbeddedOrderDetailRepository(store).findByOrder(orderID).get(0).getOrderQty());
+        assertEquals(1, store.pendingOrderCount());
+    }
+
+    @Test
+    void deletingAnOrderRestoresItsStockAfterReplay() throws SQLException {
+        reopen();
+        new EmbeddedCustomerRepository(store).save(customer("C001"));
+        new EmbeddedItemRepository(store).save(new Item("P001", "Leeks", "1kg", 120, 10));
+        String orderID = placeOrder("C001", "P001", 4);
+        new EmbeddedOrderRepository(store).delete(orderID);
+
+        reopen();
+
+        assertNull(new EmbeddedOrderRepository(store).findById(orderID));
+        assertEquals(10, new EmbeddedItemRepository(store).findAll().get(0).getQtyOnHand());
+        assertEquals(0, store.pendingOrderCount());
+    }
+}
@@ -0,0 +1,103 @@
+package Models.Embedded;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> replay(Path file) throws IOException {
+        List<String> frames = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(payload -> frames.add(new String(payload, StandardCharsets.UTF_8)));
+        }
+        return frames;
+    }
+
+    private static void append(Path file, String... frames) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(payload -> {
+            });
+            for (String frame : frames) {
+                log.append(frame.getBytes(StandardCharsets.UTF_8), true);
+            }
+        }
+    }
+
+    @Test
+    void replaysFramesInOrder() throws IOException {
+        Path file = directory.resolve("test.wal");
+        append(file, "one", "", "three");
+        append(file, "four");
+
+        assertEquals(List.of("one", "", "three", "four"), replay(file));
+    }
+
+    @Test
+    void cutsATornFrameOffTheEnd() throws IOException {
+        Path file = directory.resolve("test.wal");
+        append(file, "one", "two");
+        long goodSize = Files.size(file);
+        append(file, "three");
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(Files.size(file) - 2);
+        }
+
+        assertEquals(List.of("one", "two"), replay(file));
+        assertEquals(goodSize, Files.size(file));
+
+        append(file, "four");
+        assertEquals(List.of("one", "two", "four"), replay(file));
+    }
+
+    @Test
+    void cutsATornHeaderOffTheEnd() throws IOException {
+        Path file = directory.resolve("test.wal");
+        append(file, "one");
+        long goodSize = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of("one"), replay(file));
+        assertEquals(goodSize, Files.size(file));
+    }
+
+    @Test
+    void stopsAtAFrameThatFailsItsChecksum() throws IOException {
+        Path file = directory.resolve("test.wal");
+        append(file, "one");
+        long firstFrameEnd = Files.size(file);
+        append(file, "two", "three");
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // the first payload byte of "two", after its length and checksum
+            raw.seek(firstFrameEnd + Integer.BYTES + Long.BYTES);
+            raw.write('T');
+        }
+
+        assertEquals(List.of("one"), replay(file));
+        assertEquals(firstFrameEnd, Files.size(file));
+    }
+
+    @Test
+    void resetEmptiesTheLog() throws IOException {
+        Path file = directory.resolve("test.wal");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.append("one".getBytes(StandardCharsets.UTF_8), false);
+            log.reset();
+            log.append("two".getBytes(StandardCharsets.UTF_8), false);
+        }
+
+        assertEquals(List.of("two"), replay(file));
+    }
+}
@@ -0,0 +1,110 @@
+package Models.Export;
+
+import Models.Dto.OrderDetail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExportFormatTest {
+    @TempDir
+    Path directory;
+
+    private static OrderDetail line(String orderID, String itemCode, String description, int quantity,
+                                    double unitPrice, double discount) {
+        OrderDetail detail = new OrderDetail(orderID, itemCode, quantity, discount);
+        detail.setDescription(description);
+        detail.setUnitPrice(unitPrice);
+        return detail;
+    }
+
+    // A buffer much smaller than a line, so lines and multi-byte characters are split across writes.
+    private String export(ExportFormat format, OrderDetail... details) throws IOException {
+        Path file = directory.resolve("export." + format.getExtension());
+        try (ChannelWriter out = new ChannelWriter(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), 16)) {
+            format.writeHeader(out);
+            StringBuilder scratch = new StringBuilder();
+            for (OrderDetail detail : details) {
+                format.writeLine(out, detail, scratch);
+            }
+            out.finish();
+        }
+        return Files.readString(file);
+    }
+
+    @Test
+    void writesCsvWithAHeaderAndPlainFields() throws IOException {
+        assertEquals("OrderID,ItemCode,Description,OrderQty,UnitPrice,Discount,Total\n" +
+                        "D001,P001,Leeks,3,120.5,10.0,325.35\n",
+                export(ExportFormat.CSV, line("D001", "P001", "Leeks", 3, 120.5, 10)));
+    }
+
+    @Test
+    void quotesCsvFieldsThatNeedIt() throws IOException {
+        String csv = export(ExportFormat.CSV,
+                line("D001", "P001", "Leeks, washed", 1, 10, 0),
+                line("D001", "P002", "Kōhlrabi \"green\"", 1, 10, 0),
+                line("D001", "P003", "two\r\nlines", 1, 10, 0),
+                line("D001", "P004", "only\rCR", 1, 10, 0));
+
+        assertEquals("OrderID,ItemCode,Description,OrderQty,UnitPrice,Discount,Total\n" +
+                "D001,P001,\"Leeks, washed\",1,10.0,0.0,10.0\n" +
+                "D001,P002,\"Kōhlrabi \"\"green\"\"\",1,10.0,0.0,10.0\n" +
+                "D001,P003,\"two\r\nlines\",1,10.0,0.0,10.0\n" +
+                "D001,P004,\"only\rCR\",1,10.0,0.0,10.0\n", csv);
+    }
+
+    @Test
+    void writesNonAsciiAndMissingDescriptionsInCsv() throws IOException {
+        String csv = export(ExportFormat.CSV,
+                line("D002", "P005", "කැරට් 🥕", 2, 19.99, 0),
+                line("D002", "P006", null, 2, 19.99, 0));
+
+        assertEquals("OrderID,ItemCode,Description,OrderQty,UnitPrice,Discount,Total\n" +
+                "D002,P005,කැරට් 🥕,2,19.99,0.0,39.98\n" +
+                "D002,P006,,2,19.99,0.0,39.98\n", csv);
+    }
+
+    @Test
+    void writesNumbersWithoutScientificNotation() throws IOException {
+        String csv = export(ExportFormat.CSV,
+                line("D003", "P007", "Tractor", 1000, 12000, 0),
+                line("D003", "P008", "Seed", 3, 0.0005, 12.5));
+
+        assertEquals("OrderID,ItemCode,Description,OrderQty,UnitPrice,Discount,Total\n" +
+                "D003,P007,Tractor,1000,12000.0,0.0,12000000\n" +
+                "D003,P008,Seed,3,0.00050,12.5,0.0\n", csv);
+        assertEquals("{\"orderID\":\"D003\",\"itemCode\":\"P007\",\"description\":\"Tractor\",\"orderQty\":1000," +
+                        "\"unitPrice\":12000.0,\"discount\":0.0,\"total\":12000000}\n",
+                export(ExportFormat.JSON_LINES, line("D003", "P007", "Tractor", 1000, 12000, 0)));
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineWithoutAHeader() throws IOException {
+        String json = export(ExportFormat.JSON_LINES,
+                line("D001", "P001", "Leeks", 3, 120.5, 10),
+                line("D002", "P006", null, 2, 19.99, 0));
+
+        assertEquals("{\"orderID\":\"D001\",\"itemCode\":\"P001\",\"description\":\"Leeks\",\"orderQty\":3," +
+                "\"unitPrice\":120.5,\"discount\":10.0,\"total\":325.35}\n" +
+                "{\"orderID\":\"D002\",\"itemCode\":\"P006\",\"description\":null,\"orderQty\":2," +
+                "\"unitPrice\":19.99,\"discount\":0.0,\"total\":39.98}\n", json);
+    }
+
+    @Test
+    void escapesJsonStrings() throws IOException {
+        String json = export(ExportFormat.JSON_LINES,
+                line("D001", "P002", "Kōhlrabi \"green\", C:\\bin\ttab\r\nnext\u0001 🥕", 1, 10, 0));
+
+        assertEquals("{\"orderID\":\"D001\",\"itemCode\":\"P002\"," +
+                "\"description\":\"Kōhlrabi \\\"green\\\", C:\\\\bin\\ttab\\r\\nnext\\u0001 🥕\"," +
+                "\"orderQty\":1,\"unitPrice\":10.0,\"discount\":0.0,\"total\":10.0}\n", json);
+    }
+}
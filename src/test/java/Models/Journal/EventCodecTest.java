@@ -0,0 +1,67 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventCodecTest {
+
+    private static OrderDetail line(String itemCode, int quantity, double discount, double unitPrice) {
+        OrderDetail line = new OrderDetail("D001", itemCode, quantity, discount);
+        line.setUnitPrice(unitPrice);
+        return line;
+    }
+
+    @Test
+    void roundTripsAPlacedOrder() throws IOException {
+        OrderEvent event = new OrderEvent(41, 1_700_000_000_000L, OrderEvent.Type.PLACED, "D001",
+                LocalDate.of(2026, 3, 14), "C001", List.of(), List.of(line("P001", 3, 5, 120.5), line("P002", 1, 0, 90)));
+
+        OrderEvent decoded = EventCodec.decode(EventCodec.encode(event));
+
+        assertEquals(41, decoded.getSequence());
+        assertEquals(1_700_000_000_000L, decoded.getTimestamp());
+        assertEquals(OrderEvent.Type.PLACED, decoded.getType());
+        assertEquals("D001", decoded.getOrderID());
+        assertEquals(LocalDate.of(2026, 3, 14), decoded.getOrderDate());
+        assertEquals("C001", decoded.getCustID());
+        assertEquals(0, decoded.getRemoved().size());
+        assertEquals(2, decoded.getAdded().size());
+        OrderDetail first = decoded.getAdded().get(0);
+        assertEquals("D001", first.getOrderID());
+        assertEquals("P001", first.getItemCode());
+        assertEquals(3, first.getOrderQty());
+        assertEquals(5, first.getDiscount());
+        assertEquals(120.5, first.getUnitPrice());
+    }
+
+    @Test
+    void roundTripsAnEventWithoutDateOrCustomer() throws IOException {
+        OrderEvent event = new OrderEvent(0, 1L, OrderEvent.Type.QUANTITY_CHANGED, "D002", null, null,
+                List.of(line("P001", 3, 0, 10)), List.of(line("P001", 5, 0, 10)));
+
+        OrderEvent decoded = EventCodec.decode(EventCodec.encode(event));
+
+        assertEquals(OrderEvent.Type.QUANTITY_CHANGED, decoded.getType());
+        assertNull(decoded.getOrderDate());
+        assertNull(decoded.getCustID());
+        assertEquals(3, decoded.getRemoved().get(0).getOrderQty());
+        assertEquals(5, decoded.getAdded().get(0).getOrderQty());
+    }
+
+    @Test
+    void rejectsAnUnknownVersion() throws IOException {
+        byte[] payload = EventCodec.encode(new OrderEvent(0, 1L, OrderEvent.Type.DELETED, "D003", null, null,
+                List.of(), List.of()));
+        payload[0] = 99;
+
+        assertThrows(IOException.class, () -> EventCodec.decode(payload));
+    }
+}
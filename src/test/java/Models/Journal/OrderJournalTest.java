@@ -0,0 +1,116 @@
+package Models.Journal;
+
+import Models.Dto.OrderDetail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderJournalTest {
+    @TempDir
+    Path directory;
+
+    private static List<OrderEvent> readAll(Path file) throws IOException {
+        List<OrderEvent> events = new ArrayList<>();
+        try (OrderJournalReader reader = new OrderJournalReader(file, 0)) {
+            reader.read(events::add);
+        }
+        return events;
+    }
+
+    private static long place(OrderJournal journal, String orderID) throws IOException {
+        return journal.append(OrderEvent.Type.PLACED, orderID, LocalDate.of(2026, 1, 5), "C001", List.of(),
+                List.of(new OrderDetail(orderID, "P001", 2, 0)));
+    }
+
+    @Test
+    void numbersEventsFromZeroAcrossReopens() throws IOException {
+        try (OrderJournal journal = new OrderJournal(directory, true)) {
+            assertEquals(0, place(journal, "D001"));
+            assertEquals(1, place(journal, "D002"));
+        }
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            assertEquals(2, journal.append(OrderEvent.Type.DELETED, "D001", null, null,
+                    List.of(new OrderDetail("D001", "P001", 2, 0)), List.of()));
+        }
+
+        List<OrderEvent> events = readAll(directory.resolve(OrderJournal.FILE_NAME));
+        assertEquals(3, events.size());
+        assertEquals("D002", events.get(1).getOrderID());
+        assertEquals(OrderEvent.Type.DELETED, events.get(2).getType());
+    }
+
+    @Test
+    void truncatesATornTailOnOpen() throws IOException {
+        Path file = directory.resolve(OrderJournal.FILE_NAME);
+        long goodSize;
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            place(journal, "D001");
+            goodSize = journal.position();
+            place(journal, "D002");
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(Files.size(file) - 3);
+        }
+
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            assertEquals(goodSize, Files.size(file));
+            assertEquals(1, place(journal, "D003"));
+        }
+
+        List<OrderEvent> events = readAll(file);
+        assertEquals(2, events.size());
+        assertEquals("D003", events.get(1).getOrderID());
+    }
+
+    @Test
+    void stopsReadingAtAFrameThatFailsItsChecksum() throws IOException {
+        Path file = directory.resolve(OrderJournal.FILE_NAME);
+        long firstEnd;
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            place(journal, "D001");
+            firstEnd = journal.position();
+            place(journal, "D002");
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // flip the last payload byte of the second event
+            raw.seek(Files.size(file) - 1);
+            int last = raw.read();
+            raw.seek(Files.size(file) - 1);
+            raw.write(last ^ 0xFF);
+        }
+
+        List<OrderEvent> events = readAll(file);
+        assertEquals(1, events.size());
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            assertEquals(firstEnd, journal.position());
+        }
+    }
+
+    @Test
+    void readerResumesWhereItStopped() throws IOException {
+        Path file = directory.resolve(OrderJournal.FILE_NAME);
+        try (OrderJournal journal = new OrderJournal(directory, false)) {
+            place(journal, "D001");
+            try (OrderJournalReader reader = new OrderJournalReader(file, 0)) {
+                List<OrderEvent> events = new ArrayList<>();
+                assertEquals(1, reader.read(events::add));
+                assertEquals(0, reader.read(events::add));
+
+                place(journal, "D002");
+                assertEquals(1, reader.read(events::add));
+                assertEquals("D002", events.get(1).getOrderID());
+                assertEquals(1, reader.lastSequence());
+                assertEquals(journal.position(), reader.position());
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Models.Metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void reportsZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.mean());
+    }
+
+    @Test
+    void countsSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 50; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(25, histogram.percentile(0.5));
+        assertEquals(45, histogram.percentile(0.9));
+        assertEquals(50, histogram.percentile(1.0));
+        assertEquals(1, histogram.percentile(0.0));
+        assertEquals(25.5, histogram.mean());
+    }
+
+    @Test
+    void staysWithinTheRelativeErrorBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        for (double fraction : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = (long) Math.ceil(fraction * 100_000);
+            long reported = histogram.percentile(fraction);
+            assertTrue(reported >= exact, fraction + ": " + reported + " < " + exact);
+            assertTrue(reported <= exact * (1 + 1.0 / 64), fraction + ": " + reported + " too far above " + exact);
+        }
+        assertEquals(100_000, histogram.percentile(1.0));
+        assertEquals(100_000, histogram.max());
+    }
+
+    @Test
+    void neverReportsMoreThanTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertEquals(1_000_001, histogram.percentile(0.5));
+    }
+
+    @Test
+    void clampsNegativeValuesAndKeepsHugeOnes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(Long.MAX_VALUE / 2, histogram.percentile(1.0));
+    }
+
+    @Test
+    void mergesCountsAndMaximum() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            first.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            second.record(5_000);
+        }
+
+        first.merge(second);
+
+        assertEquals(100, first.count());
+        assertEquals(10, first.percentile(0.9));
+        assertEquals(5_000, first.percentile(0.91), 5_000 / 64.0);
+        assertEquals(5_000, first.max());
+        assertEquals(509, first.mean());
+    }
+}